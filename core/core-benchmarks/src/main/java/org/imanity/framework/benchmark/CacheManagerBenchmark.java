@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.cache.CacheWrapper;
+import org.imanity.framework.cache.impl.CacheKeyAbstract;
+import org.imanity.framework.cache.impl.CacheKeyString;
+import org.imanity.framework.cache.manager.CacheManager;
+import org.imanity.framework.cache.manager.CacheManagerCaffeine;
+import org.imanity.framework.cache.manager.CacheManagerConcurrentMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Find-or-cache throughput over 1M distinct keys, CacheManagerConcurrentMap against CacheManagerCaffeine
+ * unbounded and bounded to a tenth of the keys
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class CacheManagerBenchmark {
+
+    private static final int KEYS = 1_000_000;
+
+    @Param({"concurrentMap", "caffeine", "caffeineBounded"})
+    public String cacheManager;
+
+    private CacheManager manager;
+    private CacheKeyAbstract[] keys;
+
+    @Setup
+    public void setup() {
+        switch (this.cacheManager) {
+            case "concurrentMap":
+                this.manager = new CacheManagerConcurrentMap();
+                this.manager.init(null);
+                break;
+            case "caffeine":
+                this.manager = new CacheManagerCaffeine();
+                this.manager.init(null);
+                break;
+            default:
+                this.manager = new CacheManagerCaffeine();
+                this.manager.init(null, BoundedCache.class);
+                break;
+        }
+
+        this.keys = new CacheKeyAbstract[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            this.keys[i] = new CacheKeyString(CacheManagerBenchmark.class, "key-" + i);
+        }
+    }
+
+    @Benchmark
+    public Object findOrCache() throws Throwable {
+        CacheKeyAbstract key = this.keys[ThreadLocalRandom.current().nextInt(KEYS)];
+
+        CacheWrapper<?> wrapper = this.manager.find(key);
+        if (wrapper == null) {
+            wrapper = new CacheWrapper<>(key, TimeUnit.MINUTES.toMillis(1));
+            this.manager.cache(key, wrapper, 0L);
+        }
+        return wrapper.get();
+    }
+
+    private static final class BoundedCache {
+
+        @org.imanity.framework.Cacheable(maximumSize = KEYS / 10)
+        public Object get() {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.command.CommandEvent;
+import org.imanity.framework.command.CommandMeta;
+import org.imanity.framework.command.CommandService;
+import org.imanity.framework.command.PresenceProvider;
+import org.imanity.framework.command.parameter.ParameterMeta;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving and running one of 2,000 registered commands (half of them sub commands), the trie dispatcher
+ * with compiled invokers against the linear scan and reflective invocation it replaced
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandDispatchBenchmark {
+
+    private static final int COMMANDS = 2_000;
+
+    @Param({"legacy", "trie"})
+    public String dispatcher;
+
+    private CommandService commandService;
+    private String[] inputs;
+
+    @Setup
+    public void setup(Blackhole blackhole) throws Exception {
+        this.commandService = new CommandService();
+        this.commandService.preInit();
+        this.commandService.init();
+
+        final Holder holder = new Holder(blackhole);
+        final Method method = Holder.class.getDeclaredMethod("execute", CommandEvent.class, String.class);
+        final List<ParameterMeta> parameters = Collections.singletonList(new ParameterMeta("value", false, "", new String[] {""}, String.class));
+        final NoopPresenceProvider presenceProvider = new NoopPresenceProvider();
+
+        for (int i = 0; i < COMMANDS / 2; i++) {
+            this.commandService.registerCommand(new CommandMeta(new String[] {"command" + i, "c" + i}, "", parameters, holder, method, presenceProvider));
+            this.commandService.registerCommand(new CommandMeta(new String[] {"Group" + i + " Sub"}, "", parameters, holder, method, presenceProvider));
+        }
+
+        this.inputs = new String[1024];
+        for (int i = 0; i < this.inputs.length; i++) {
+            final int index = ThreadLocalRandom.current().nextInt(COMMANDS / 2);
+            this.inputs[i] = i % 2 == 0 ? "command" + index + " value" : "group" + index + " sub value";
+        }
+    }
+
+    @Benchmark
+    public boolean dispatch() {
+        final String input = this.inputs[ThreadLocalRandom.current().nextInt(this.inputs.length)];
+        final CommandEvent event = new CommandEvent(null, input);
+
+        if (this.dispatcher.equals("trie")) {
+            return this.commandService.evalCommand(event);
+        }
+        return this.legacyEvalCommand(event);
+    }
+
+    /**
+     * CommandService.evalCommand and CommandMeta.execute as they were before the dispatch index
+     */
+    private boolean legacyEvalCommand(CommandEvent commandEvent) {
+        String command = commandEvent.getCommand();
+
+        CommandMeta commandMeta = null;
+        String[] arguments = new String[0];
+
+        search:
+        for (CommandMeta meta : this.commandService.getCommands()) {
+            for (String alias : meta.getNames()) {
+                String message = command.toLowerCase() + " ";
+                String alia = alias.toLowerCase() + " ";
+
+                if (message.startsWith(alia)) {
+                    commandMeta = meta;
+
+                    if (message.length() > alia.length()) {
+                        if (commandMeta.getParameters().size() == 0) {
+                            continue;
+                        }
+                    }
+
+                    if (command.length() > alias.length() + 1) {
+                        arguments = command.substring(alias.length() + 1).split(" ");
+                    }
+
+                    break search;
+                }
+            }
+        }
+
+        if (commandMeta == null) {
+            return false;
+        }
+        commandEvent.setPresenceProvider(commandMeta.getPresenceProvider());
+
+        if (!commandMeta.getMethod().getParameterTypes()[0].isAssignableFrom(commandEvent.getClass())) {
+            return false;
+        }
+
+        List<Object> transformedParameters = new ArrayList<>();
+        transformedParameters.add(commandEvent);
+        for (int i = 0; i < commandMeta.getParameters().size(); i++) {
+            ParameterMeta parameter = commandMeta.getParameters().get(i);
+            String passedParameter = (i < arguments.length ? arguments[i] : parameter.getDefaultValue()).trim();
+            transformedParameters.add(this.commandService.transformParameter(commandEvent, passedParameter, parameter.getParameterClass()));
+        }
+
+        try {
+            commandMeta.getMethod().invoke(commandMeta.getInstance(), transformedParameters.toArray());
+        } catch (Exception e) {
+            return false;
+        }
+        return true;
+    }
+
+    public static final class Holder {
+
+        private final Blackhole blackhole;
+
+        private Holder(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        public void execute(CommandEvent event, String value) {
+            this.blackhole.consume(value);
+        }
+
+    }
+
+    private static final class NoopPresenceProvider extends PresenceProvider<CommandEvent> {
+
+        @Override
+        public Class<CommandEvent> type() {
+            return CommandEvent.class;
+        }
+
+        @Override
+        public void sendUsage(CommandEvent event, String usage) {
+        }
+
+        @Override
+        public void sendError(CommandEvent event, Throwable throwable) {
+        }
+
+        @Override
+        public void sendNoPermission(CommandEvent event) {
+        }
+
+        @Override
+        public void sendInternalError(CommandEvent event, String message) {
+        }
+
+    }
+
+}
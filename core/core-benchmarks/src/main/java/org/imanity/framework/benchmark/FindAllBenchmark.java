@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.benchmark.PersistenceDatabase.Player;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads all 1M rows of an H2 table through SQLRepository, once with findAll loading them into a list and once with
+ * forEach streaming them. Run it with -prof gc to see the allocation difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindAllBenchmark {
+
+    private static final int ROWS = 1_000_000;
+
+    private PersistenceDatabase database;
+
+    @Setup
+    public void setup() throws Exception {
+        this.database = new PersistenceDatabase("find-all");
+        this.database.fill(ROWS);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.database.close();
+    }
+
+    @Benchmark
+    public long findAll() {
+        long coins = 0;
+        for (Player player : this.database.repository.findAll()) {
+            coins += player.coins + player.id;
+        }
+        return coins;
+    }
+
+    @Benchmark
+    public void forEach(Blackhole blackhole) {
+        this.database.repository.forEach(blackhole::consume);
+    }
+
+}
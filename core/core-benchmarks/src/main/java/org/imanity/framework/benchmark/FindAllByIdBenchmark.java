@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.SQLRepository;
+import org.imanity.framework.mysql.connection.file.H2ConnectionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading idCount random rows of a 10k row H2 table through SQLRepository, with one findAllById against a findById
+ * per id. Every call asks for a different id list, H2 would otherwise hand back the result of the last run of the
+ * statement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindAllByIdBenchmark {
+
+    private static final int ROWS = 10_000;
+    private static final int ID_LISTS = 64;
+
+    @Param({"10", "127", "1000"})
+    public int idCount;
+
+    private Path directory;
+    private H2ConnectionFactory factory;
+    private SQLRepository<Row, Long> repository;
+    private List<List<Long>> idLists;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        this.directory = Files.createTempDirectory("imanity-ids-benchmark");
+        this.factory = new H2ConnectionFactory(this.directory.resolve("benchmark").toAbsolutePath(), true);
+        this.factory.connect();
+
+        this.repository = new SQLRepository<Row, Long>(this.factory) {
+            @Override
+            public Class<Row> type() {
+                return Row.class;
+            }
+        };
+        this.repository.init();
+
+        List<Row> rows = new ArrayList<>(ROWS);
+        List<Long> ids = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Row(i, "player-" + i, i * 10));
+            ids.add((long) i);
+        }
+        this.repository.saveAll(rows);
+
+        Random random = new Random(42);
+        this.idLists = new ArrayList<>(ID_LISTS);
+        for (int i = 0; i < ID_LISTS; i++) {
+            Collections.shuffle(ids, random);
+            this.idLists.add(new ArrayList<>(ids.subList(0, this.idCount)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.factory.shutdown();
+
+        File[] files = this.directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        Files.deleteIfExists(this.directory);
+    }
+
+    @Benchmark
+    public long findAllById() {
+        long coins = 0;
+        for (Row row : this.repository.findAllById(this.nextIds())) {
+            coins += row.coins;
+        }
+        return coins;
+    }
+
+    @Benchmark
+    public long findByIdEach() {
+        long coins = 0;
+        for (Long id : this.nextIds()) {
+            coins += this.repository.findById(id).get().coins;
+        }
+        return coins;
+    }
+
+    private List<Long> nextIds() {
+        this.next = (this.next + 1) % ID_LISTS;
+        return this.idLists.get(this.next);
+    }
+
+    @Table(name = "benchmark_players")
+    public static class Row {
+
+        @Id
+        public long id;
+        public String name;
+        public int coins;
+
+        public Row() {
+        }
+
+        public Row(long id, String name, int coins) {
+            this.id = id;
+            this.name = name;
+            this.coins = coins;
+        }
+    }
+
+}
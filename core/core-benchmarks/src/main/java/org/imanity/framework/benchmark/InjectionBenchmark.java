@@ -0,0 +1,164 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.*;
+import org.imanity.framework.details.BeanDetails;
+import org.imanity.framework.details.GenericBeanDetails;
+import org.imanity.framework.details.SimpleBeanDetails;
+import org.imanity.framework.reflect.Reflect;
+import org.imanity.framework.util.Utility;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instantiating components with reflection (Field.set and Method.invoke, the way BeanContext used to do)
+ * against the compiled InjectionPlan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InjectionBenchmark {
+
+    private static final int COMPONENTS = 10_000;
+
+    private BeanContext beanContext;
+
+    @Setup
+    public void setup() {
+        this.beanContext = new BeanContext();
+        this.beanContext.registerBean(new SimpleBeanDetails(new FirstService(), "firstService", FirstService.class));
+        this.beanContext.registerBean(new SimpleBeanDetails(new SecondService(), "secondService", SecondService.class));
+        this.beanContext.registerBean(new SimpleBeanDetails(new ThirdService(), "thirdService", ThirdService.class));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMPONENTS)
+    public void reflective(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < COMPONENTS; i++) {
+            SampleComponent component = new SampleComponent();
+
+            List<Method> preInitialize = new ArrayList<>();
+            List<Method> postInitialize = new ArrayList<>();
+            for (Class<?> type : Utility.getSuperAndInterfaces(SampleComponent.class)) {
+                for (Method method : type.getDeclaredMethods()) {
+                    if (method.getAnnotation(PreInitialize.class) != null) {
+                        method.setAccessible(true);
+                        preInitialize.add(method);
+                    } else if (method.getAnnotation(PostInitialize.class) != null) {
+                        method.setAccessible(true);
+                        postInitialize.add(method);
+                    }
+                }
+            }
+
+            for (Method method : preInitialize) {
+                this.invoke(method, component);
+            }
+
+            for (Field field : Reflect.getDeclaredFields(component.getClass())) {
+                int modifiers = field.getModifiers();
+                if (field.getAnnotation(Autowired.class) == null || Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
+                    continue;
+                }
+
+                field.setAccessible(true);
+                Reflect.setField(component, field, this.beanContext.getBean(field.getType()));
+            }
+
+            for (Method method : postInitialize) {
+                this.invoke(method, component);
+            }
+
+            blackhole.consume(component);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMPONENTS)
+    public void compiled(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < COMPONENTS; i++) {
+            SampleComponent component = new SampleComponent();
+            GenericBeanDetails beanDetails = new GenericBeanDetails(SampleComponent.class, component, "sampleComponent");
+
+            beanDetails.call(PreInitialize.class);
+            this.beanContext.injectBeans(component);
+            beanDetails.call(PostInitialize.class);
+
+            blackhole.consume(component);
+        }
+    }
+
+    private void invoke(Method method, Object instance) throws Exception {
+        if (method.getParameterCount() == 1) {
+            method.invoke(instance, (BeanDetails) null);
+        } else {
+            method.invoke(instance);
+        }
+    }
+
+    public static class FirstService {
+    }
+
+    public static class SecondService {
+    }
+
+    public static class ThirdService {
+    }
+
+    public static class SampleComponent {
+
+        @Autowired
+        private FirstService firstService;
+        @Autowired
+        private SecondService secondService;
+        @Autowired
+        private ThirdService thirdService;
+
+        private int calls;
+
+        @PreInitialize
+        public void onPreInitialize() {
+            this.calls++;
+        }
+
+        @PostInitialize
+        public void onPostInitialize(BeanDetails beanDetails) {
+            this.calls++;
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.cache.script.SpringELParser;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of a cache key expression, a new evaluation context with the arguments as variables
+ * (the way SpringELParser used to do) against the compiled expressions and trivial keys
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyExpressionBenchmark {
+
+    @Param({"#args[0].getName() + '-' + #args[0].getName()", "'test-' + #args[0].id", "#p0.name"})
+    public String expression;
+
+    private final ExpressionParser legacyParser = new SpelExpressionParser();
+    private final ConcurrentHashMap<String, Expression> legacyCache = new ConcurrentHashMap<>();
+
+    private SpringELParser parser;
+    private Object[] arguments;
+
+    @Setup
+    public void setup() {
+        this.parser = new SpringELParser();
+        this.arguments = new Object[]{new Dummy(42)};
+    }
+
+    @Benchmark
+    public String legacy() {
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        context.setVariable("target", null);
+        context.setVariable("args", this.arguments);
+        context.setVariable("p0", this.arguments[0]);
+
+        Expression expression = this.legacyCache.computeIfAbsent(this.expression, this.legacyParser::parseExpression);
+        return expression.getValue(context, String.class);
+    }
+
+    @Benchmark
+    public String compiled() throws Exception {
+        return this.parser.getDefinedCacheKey(this.expression, null, this.arguments, null, false);
+    }
+
+    public static final class Dummy {
+
+        private final int id;
+
+        public Dummy(int id) {
+            this.id = id;
+        }
+
+        public int getId() {
+            return this.id;
+        }
+
+        public String getName() {
+            return "dummy-" + this.id;
+        }
+
+    }
+
+}
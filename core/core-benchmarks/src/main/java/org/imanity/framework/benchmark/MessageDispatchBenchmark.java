@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.redis.message.Message;
+import org.imanity.framework.redis.message.MessageListener;
+import org.imanity.framework.redis.message.MessageListenerData;
+import org.imanity.framework.redis.message.MessageService;
+import org.imanity.framework.redis.message.annotation.HandleMessage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatching one message with 500 registered listener methods (50 listeners of 10 methods), 200 of which
+ * apply to it through its class, superclass and interface: the cached dispatch table with method handles
+ * against walking the hierarchy per message with Method.invoke
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageDispatchBenchmark {
+
+    private static final int LISTENERS = 50;
+
+    @Param({"legacy", "table"})
+    public String dispatcher;
+
+    private MessageService messageService;
+    private Map<Class<?>, List<MessageListenerData>> legacyListeners;
+    private Object message;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.messageService = new MessageService();
+        this.messageService.preInit();
+        this.legacyListeners = new HashMap<>();
+
+        for (int i = 0; i < LISTENERS; i++) {
+            final Listener listener = new Listener(blackhole);
+            this.messageService.registerListener(listener);
+
+            for (Method method : Listener.class.getDeclaredMethods()) {
+                if (method.getAnnotation(HandleMessage.class) != null) {
+                    final Class<?> type = method.getParameterTypes()[0];
+                    this.legacyListeners.computeIfAbsent(type, t -> new ArrayList<>()).add(new MessageListenerData(listener, method, type));
+                }
+            }
+        }
+
+        this.message = new JoinMessage();
+    }
+
+    @Benchmark
+    public void dispatch() throws Exception {
+        if (this.dispatcher.equals("table")) {
+            this.messageService.handleMessage(this.message);
+            return;
+        }
+
+        for (Class<?> type = this.message.getClass(); type != null; type = type.getSuperclass()) {
+            this.invokeLegacy(type);
+            for (Class<?> interfaceType : type.getInterfaces()) {
+                this.invokeLegacy(interfaceType);
+            }
+        }
+    }
+
+    private void invokeLegacy(Class<?> type) throws Exception {
+        final List<MessageListenerData> listeners = this.legacyListeners.get(type);
+        if (listeners == null) {
+            return;
+        }
+        for (MessageListenerData data : listeners) {
+            data.getMethod().invoke(data.getInstance(), this.message);
+        }
+    }
+
+    public interface ClusterMessage {
+    }
+
+    @Message
+    public static abstract class PlayerMessage implements ClusterMessage {
+    }
+
+    public static class JoinMessage extends PlayerMessage {
+    }
+
+    public static class QuitMessage extends PlayerMessage {
+    }
+
+    @Message
+    public static class PingMessage implements ClusterMessage {
+    }
+
+    public static class Listener implements MessageListener {
+
+        private final Blackhole blackhole;
+
+        public Listener(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @HandleMessage
+        public void onCluster(ClusterMessage message) {
+            this.blackhole.consume(message);
+        }
+
+        @HandleMessage
+        public void onPlayer(PlayerMessage message) {
+            this.blackhole.consume(message);
+        }
+
+        @HandleMessage
+        public void onJoin(JoinMessage message) {
+            this.blackhole.consume(message);
+        }
+
+        @HandleMessage
+        public void onJoinAgain(JoinMessage message) {
+            this.blackhole.consume(message);
+        }
+
+        @HandleMessage
+        public void onQuit(QuitMessage message) {
+            this.blackhole.consume(message);
+        }
+
+        @HandleMessage
+        public void onQuitAgain(QuitMessage message) {
+            this.blackhole.consume(message);
+        }
+
+        @HandleMessage
+        public void onPing(PingMessage message) {
+            this.blackhole.consume(message);
+        }
+
+        @HandleMessage
+        public void onPingAgain(PingMessage message) {
+            this.blackhole.consume(message);
+        }
+
+        @HandleMessage
+        public void onAnyPing(PingMessage message) {
+            this.blackhole.consume(message);
+        }
+
+        @HandleMessage
+        public void onAnyQuit(QuitMessage message) {
+            this.blackhole.consume(message);
+        }
+
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.benchmark.PersistenceDatabase.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single row operations through SQLRepository on a 10k row H2 table, each in its own transaction like player data
+ * is loaded and saved: save upserts an existing row, findById reads by primary key and findByQuery reads through a
+ * where clause on a non key column. Sample time mode gives the p99 next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private PersistenceDatabase database;
+    private SplittableRandom random;
+    private int coins;
+
+    @Setup
+    public void setup() throws Exception {
+        this.database = new PersistenceDatabase("persistence");
+        this.database.fill(ROWS);
+        this.random = new SplittableRandom(42);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.database.close();
+    }
+
+    @Benchmark
+    public Player save() {
+        int id = this.random.nextInt(ROWS);
+        return this.database.repository.save(new Player(id, "player-" + id, ++this.coins));
+    }
+
+    @Benchmark
+    public Player findById() {
+        return this.database.repository.findById((long) this.random.nextInt(ROWS)).get();
+    }
+
+    @Benchmark
+    public Player findByQuery() {
+        return this.database.repository.findByQuery("name", "player-" + this.random.nextInt(ROWS)).get();
+    }
+
+}
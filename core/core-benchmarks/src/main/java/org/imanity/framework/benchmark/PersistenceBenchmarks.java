@@ -0,0 +1,76 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every persistence benchmark against local H2 files with the gc profiler, and writes the results as JSON
+ * for comparing runs. Needs neither a network nor a MySQL or Mongo server.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.imanity.framework.benchmark.PersistenceBenchmarks [jmh options]
+ * </pre>
+ *
+ * The results go to persistence-benchmarks.json unless -rff says otherwise, any other JMH option such as -wi or -i
+ * overrides the defaults of the benchmarks.
+ */
+public final class PersistenceBenchmarks {
+
+    public static final String DEFAULT_RESULT_FILE = "persistence-benchmarks.json";
+
+    private PersistenceBenchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(PersistenceBenchmark.class.getSimpleName())
+                    .include(SaveAllBenchmark.class.getSimpleName())
+                    .include(FindAllBenchmark.class.getSimpleName())
+                    .include(UpsertContentionBenchmark.class.getSimpleName());
+        }
+        if (commandLine.getProfilers().isEmpty()) {
+            builder.addProfiler(GCProfiler.class);
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            builder.result(DEFAULT_RESULT_FILE);
+        }
+
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.SQLRepository;
+import org.imanity.framework.mysql.connection.file.H2ConnectionFactory;
+
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A throwaway H2 file database in a temp directory with a player table behind an {@link SQLRepository},
+ * shared by the persistence benchmarks. H2 is loaded from the classpath, so nothing is downloaded.
+ */
+final class PersistenceDatabase {
+
+    private final Path directory;
+    final H2ConnectionFactory factory;
+    final SQLRepository<Player, Long> repository;
+
+    PersistenceDatabase(String name) throws Exception {
+        this.directory = Files.createTempDirectory("imanity-" + name + "-benchmark");
+        this.factory = new H2ConnectionFactory(this.directory.resolve("benchmark").toAbsolutePath(), true);
+        this.factory.connect();
+
+        this.repository = new SQLRepository<Player, Long>(this.factory) {
+            @Override
+            public Class<Player> type() {
+                return Player.class;
+            }
+        };
+        this.repository.init();
+    }
+
+    /**
+     * Insert rows with ids 0 until count, in chunks so the pojos of a 1M row table don't have to fit at once.
+     */
+    void fill(int count) {
+        int chunk = 10_000;
+        for (int from = 0; from < count; from += chunk) {
+            this.factory.query().insertBatch(players(from, Math.min(chunk, count - from), 0));
+        }
+    }
+
+    void close() throws Exception {
+        this.factory.shutdown();
+
+        File[] files = this.directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        Files.deleteIfExists(this.directory);
+    }
+
+    static List<Player> players(int from, int count, int coins) {
+        List<Player> players = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            players.add(new Player(i, "player-" + i, coins));
+        }
+        return players;
+    }
+
+    @Table(name = "benchmark_persistence")
+    public static class Player {
+
+        @Id
+        public long id;
+        public String name;
+        public int coins;
+
+        public Player() {
+        }
+
+        public Player(long id, String name, int coins) {
+            this.id = id;
+            this.name = name;
+            this.coins = coins;
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.mysql.connection.file.H2ConnectionFactory;
+import org.imanity.framework.mysql.pojo.info.PojoInfo;
+import org.imanity.framework.mysql.pojo.mapper.RowMapper;
+import org.imanity.framework.mysql.pojo.mapper.RowMapperCompiler;
+import org.imanity.framework.mysql.pojo.statement.SqlStatementBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps all 1M rows of an H2 table into pojos, once through the reflective putValue path and once through the
+ * mapper compiled by {@link RowMapperCompiler}. Both read the same result set, so the difference is the mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    private static final int ROWS = 1_000_000;
+    private static final String SELECT = "select * from benchmark_mapper";
+
+    @Param({"reflective", "compiled"})
+    public String mapper;
+
+    private Path directory;
+    private H2ConnectionFactory factory;
+    private RowMapper<Row> rowMapper;
+
+    @Setup
+    public void setup() throws Exception {
+        this.directory = Files.createTempDirectory("imanity-mapper-benchmark");
+        this.factory = new H2ConnectionFactory(this.directory.resolve("benchmark").toAbsolutePath(), true);
+        this.factory.connect();
+        this.factory.createTable(Row.class);
+
+        List<Row> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Row(i, "player-" + i, i * 10, i * 0.5D, i * 3L));
+        }
+        this.factory.query().insertBatch(rows);
+
+        SqlStatementBuilder builder = this.factory.builder();
+        PojoInfo pojoInfo = builder.getPojoInfo(Row.class);
+        try (PreparedStatement statement = this.factory.connection().prepareStatement(SELECT + " limit 1");
+             ResultSet resultSet = statement.executeQuery()) {
+            this.rowMapper = "compiled".equals(this.mapper)
+                    ? RowMapperCompiler.compile(Row.class, pojoInfo, builder, resultSet.getMetaData())
+                    : RowMapperCompiler.reflective(Row.class, pojoInfo, builder, resultSet.getMetaData());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.factory.shutdown();
+
+        File[] files = this.directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        Files.deleteIfExists(this.directory);
+    }
+
+    @Benchmark
+    public long mapAll() throws Exception {
+        long coins = 0;
+        Connection connection = this.factory.connection();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                coins += this.rowMapper.map(resultSet).coins;
+            }
+        }
+        return coins;
+    }
+
+    @Table(name = "benchmark_mapper")
+    public static class Row {
+
+        @Id
+        public long id;
+        public String name;
+        public int coins;
+        public double balance;
+        public long playTime;
+
+        public Row() {
+        }
+
+        public Row(long id, String name, int coins, double balance, long playTime) {
+            this.id = id;
+            this.name = name;
+            this.coins = coins;
+            this.balance = balance;
+            this.playTime = playTime;
+        }
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.redis.server.ImanityServer;
+import org.imanity.framework.redis.server.ServerFilter;
+import org.imanity.framework.redis.server.enums.ServerState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * A lobby refresh over 500 servers with 20 metadata keys each: picking the joinable servers by state, player
+ * count and two numeric metadata values, and reloading every server from state where two of the keys changed.
+ * The parsed metadata snapshots against the raw string map parsed on every read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServerMetadataBenchmark {
+
+    private static final int SERVERS = 500;
+    private static final int KEYS = 20;
+
+    @Param({"legacy", "typed"})
+    public String metadata;
+
+    private List<Map<String, Object>> updates;
+    private List<Map<String, Object>> nextUpdates;
+    private boolean next;
+    private List<ImanityServer> servers;
+    private List<LegacyServer> legacyServers;
+    private Predicate<ImanityServer> joinable;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        this.updates = new ArrayList<>(SERVERS);
+        this.nextUpdates = new ArrayList<>(SERVERS);
+        this.servers = new ArrayList<>(SERVERS);
+        this.legacyServers = new ArrayList<>(SERVERS);
+
+        for (int i = 0; i < SERVERS; i++) {
+            Map<String, String> metadata = new HashMap<>();
+            metadata.put("rank", String.valueOf(random.nextInt(10)));
+            metadata.put("tps", String.valueOf(15 + random.nextDouble() * 5));
+            metadata.put("map", random.nextBoolean() ? "desert" : "forest");
+            metadata.put("whitelisted", String.valueOf(random.nextInt(10) == 0));
+            for (int key = metadata.size(); key < KEYS; key++) {
+                metadata.put("key" + key, key % 2 == 0 ? String.valueOf(random.nextInt(1000)) : "value" + key);
+            }
+
+            Map<String, Object> update = new HashMap<>();
+            update.put("onlinePlayers", random.nextInt(120));
+            update.put("maxPlayers", 100);
+            update.put("state", random.nextInt(4) == 0 ? "BOOTING" : "RUNNING");
+            update.put("metadata", metadata);
+            this.updates.add(update);
+
+            Map<String, String> nextMetadata = new HashMap<>(metadata);
+            nextMetadata.put("tps", String.valueOf(15 + random.nextDouble() * 5));
+            nextMetadata.put("key4", String.valueOf(random.nextInt(1000)));
+            Map<String, Object> nextUpdate = new HashMap<>(update);
+            nextUpdate.put("onlinePlayers", random.nextInt(120));
+            nextUpdate.put("metadata", nextMetadata);
+            this.nextUpdates.add(nextUpdate);
+
+            ImanityServer server = new ImanityServer("server-" + i);
+            server.load(update);
+            this.servers.add(server);
+
+            LegacyServer legacyServer = new LegacyServer();
+            legacyServer.load(update);
+            this.legacyServers.add(legacyServer);
+        }
+
+        this.joinable = ServerFilter.inState(ServerState.RUNNING)
+                .and(ServerFilter.notFull())
+                .and(ServerFilter.metadataInt("rank", rank -> rank >= 3))
+                .and(ServerFilter.metadataDouble("tps", tps -> tps > 18));
+    }
+
+    @Benchmark
+    public int query() {
+        int joinable = 0;
+        if (this.metadata.equals("typed")) {
+            for (ImanityServer server : this.servers) {
+                if (this.joinable.test(server)) {
+                    joinable++;
+                }
+            }
+            return joinable;
+        }
+
+        for (LegacyServer server : this.legacyServers) {
+            if (server.serverState == ServerState.RUNNING && server.onlinePlayers < server.maxPlayers
+                    && server.getInt("rank") >= 3 && server.getDouble("tps") > 18) {
+                joinable++;
+            }
+        }
+        return joinable;
+    }
+
+    @Benchmark
+    public Object refresh() {
+        this.next = !this.next;
+        List<Map<String, Object>> updates = this.next ? this.nextUpdates : this.updates;
+
+        if (this.metadata.equals("typed")) {
+            for (int i = 0; i < SERVERS; i++) {
+                this.servers.get(i).load(updates.get(i));
+            }
+            return this.servers;
+        }
+
+        for (int i = 0; i < SERVERS; i++) {
+            this.legacyServers.get(i).load(updates.get(i));
+        }
+        return this.legacyServers;
+    }
+
+    /**
+     * How ImanityServer kept its metadata before the snapshots
+     */
+    public static class LegacyServer {
+
+        private int onlinePlayers;
+        private int maxPlayers;
+        private ServerState serverState;
+        private final Map<String, String> metadata = new HashMap<>();
+
+        @SuppressWarnings("unchecked")
+        public void load(Map<String, Object> data) {
+            Object object = data.get("onlinePlayers");
+            if (object instanceof Integer) {
+                this.onlinePlayers = (int) object;
+            }
+            object = data.get("maxPlayers");
+            if (object instanceof Integer) {
+                this.maxPlayers = (int) object;
+            }
+            object = data.get("state");
+            if (object instanceof String) {
+                this.serverState = ServerState.valueOf(((String) object).toUpperCase());
+            }
+
+            object = data.get("metadata");
+            if (object instanceof Map) {
+                this.metadata.clear();
+                this.metadata.putAll((Map<? extends String, ? extends String>) object);
+            }
+        }
+
+        public int getInt(String key) {
+            try {
+                return Integer.parseInt(metadata.get(key));
+            } catch (NumberFormatException ex) {
+                return -1;
+            }
+        }
+
+        public double getDouble(String key) {
+            try {
+                return Double.parseDouble(metadata.get(key));
+            } catch (NumberFormatException ex) {
+                return -1D;
+            }
+        }
+
+    }
+
+}
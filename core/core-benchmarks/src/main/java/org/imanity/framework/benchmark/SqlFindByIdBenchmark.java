@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.SQLRepository;
+import org.imanity.framework.mysql.connection.file.H2ConnectionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 100k findById calls on a 10k row H2 file database through SQLRepository, each in its own transaction like player
+ * data lookups do. Without a statement cache every call prepares its select again, with one the connection keeps it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlFindByIdBenchmark {
+
+    private static final int ROWS = 10_000;
+    private static final int CALLS = 100_000;
+
+    @Param({"0", "64"})
+    public int statementCacheSize;
+
+    private Path directory;
+    private H2ConnectionFactory factory;
+    private SQLRepository<Row, Long> repository;
+    private long[] ids;
+
+    @Setup
+    public void setup() throws Exception {
+        this.directory = Files.createTempDirectory("imanity-sql-benchmark");
+        this.factory = new H2ConnectionFactory(this.directory.resolve("benchmark").toAbsolutePath(), true);
+        this.factory.setStatementCacheSize(this.statementCacheSize);
+        this.factory.connect();
+
+        this.repository = new SQLRepository<Row, Long>(this.factory) {
+            @Override
+            public Class<Row> type() {
+                return Row.class;
+            }
+        };
+        this.repository.init();
+
+        List<Row> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Row(i, "player-" + i, i * 10));
+        }
+        this.repository.saveAll(rows);
+
+        SplittableRandom random = new SplittableRandom(42);
+        this.ids = new long[CALLS];
+        for (int i = 0; i < CALLS; i++) {
+            this.ids[i] = random.nextInt(ROWS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.factory.shutdown();
+
+        File[] files = this.directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        Files.deleteIfExists(this.directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public long findById() {
+        long coins = 0;
+        for (long id : this.ids) {
+            coins += this.repository.findById(id).get().coins;
+        }
+        return coins;
+    }
+
+    @Table(name = "benchmark_players")
+    public static class Row {
+
+        @Id
+        public long id;
+        public String name;
+        public int coins;
+
+        public Row() {
+        }
+
+        public Row(long id, String name, int coins) {
+            this.id = id;
+            this.name = name;
+            this.coins = coins;
+        }
+    }
+
+}
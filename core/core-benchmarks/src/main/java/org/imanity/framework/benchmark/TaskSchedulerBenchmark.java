@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.task.TimingWheelScheduler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one scheduler tick with 100k repeating tasks of 1 to 60 second periods, the timing wheel
+ * against the scan-every-task loop AsyncTaskScheduler used to run
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskSchedulerBenchmark {
+
+    private static final int TASKS = 100_000;
+    private static final long TICK_MILLIS = 50L;
+
+    @Param({"legacy", "wheel"})
+    public String scheduler;
+
+    private long now;
+    private TimingWheelScheduler wheel;
+    private LegacyScheduler legacy;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        final Random random = new Random(0L);
+        final Runnable runnable = () -> blackhole.consume(this);
+
+        if (this.scheduler.equals("wheel")) {
+            this.wheel = new TimingWheelScheduler(() -> this.now, TICK_MILLIS, Runnable::run);
+            for (int i = 0; i < TASKS; i++) {
+                this.wheel.runAsyncRepeated(runnable, 20L + random.nextInt(1180));
+            }
+        } else {
+            this.legacy = new LegacyScheduler();
+            for (int i = 0; i < TASKS; i++) {
+                this.legacy.add(runnable, 20L + random.nextInt(1180));
+            }
+        }
+    }
+
+    @Benchmark
+    public void tick() {
+        if (this.wheel != null) {
+            this.now += TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+            this.wheel.tick();
+        } else {
+            this.legacy.tick();
+        }
+    }
+
+    /**
+     * The loop AsyncTaskScheduler ran every tick before moving to a timing wheel
+     */
+    private static final class LegacyScheduler {
+
+        private final Queue<long[]> pending = new ArrayDeque<>();
+        private final List<long[]> temp = new ArrayList<>();
+        private final List<Runnable> runnables = new ArrayList<>();
+
+        private void add(Runnable runnable, long period) {
+            this.pending.add(new long[] {period, period, this.runnables.size()});
+            this.runnables.add(runnable);
+        }
+
+        private void tick() {
+            long[] task;
+            while ((task = this.pending.poll()) != null) {
+                task[0]--;
+                if (task[0] == 0) {
+                    this.runnables.get((int) task[2]).run();
+                    task[0] = task[1];
+                }
+                this.temp.add(task);
+            }
+
+            this.pending.addAll(this.temp);
+            this.temp.clear();
+        }
+
+    }
+
+}
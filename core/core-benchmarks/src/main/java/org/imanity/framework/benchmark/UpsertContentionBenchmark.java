@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework.benchmark;
+
+import org.imanity.framework.benchmark.PersistenceDatabase.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 16 threads saving through one SQLRepository into the same 64 rows of an H2 table, all of them sharing the single
+ * H2 connection. Shows how save latency grows when writes queue up on the same rows and connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class UpsertContentionBenchmark {
+
+    private static final int HOT_ROWS = 64;
+
+    private PersistenceDatabase database;
+    private final AtomicInteger seeds = new AtomicInteger();
+
+    @Setup
+    public void setup() throws Exception {
+        this.database = new PersistenceDatabase("upsert");
+        this.database.fill(HOT_ROWS);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.database.close();
+    }
+
+    @Benchmark
+    public Player upsert(Writer writer) {
+        int id = writer.random.nextInt(HOT_ROWS);
+        return this.database.repository.save(new Player(id, "player-" + id, ++writer.coins));
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+
+        private SplittableRandom random;
+        private int coins;
+
+        @Setup
+        public void setup(UpsertContentionBenchmark benchmark) {
+            this.random = new SplittableRandom(benchmark.seeds.incrementAndGet());
+        }
+
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.metadata;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MetadataMap#get on a map holding 1k keys, one in ten being transient, with the lock and scan MetadataMapImpl
+ * against ConcurrentMetadataMap. Lives in the metadata package as both implementations are package private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetadataMapBenchmark {
+
+    private static final int KEYS = 1_000;
+
+    @Param({"locking", "concurrent"})
+    public String implementation;
+
+    private MetadataMap map;
+    private MetadataKey<Integer>[] keys;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        this.map = this.implementation.equals("locking") ? new MetadataMapImpl() : new ConcurrentMetadataMap();
+        this.keys = new MetadataKey[KEYS];
+
+        for (int i = 0; i < KEYS; i++) {
+            MetadataKey<Integer> key = MetadataKey.createIntegerKey("key-" + i);
+            if (i % 10 == 0) {
+                this.map.put(key, ExpiringValue.of(i, 1, TimeUnit.HOURS));
+            } else {
+                this.map.put(key, i);
+            }
+            this.keys[i] = key;
+        }
+    }
+
+    @Benchmark
+    public Integer get() {
+        return this.map.getOrNull(this.keys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer getContended() {
+        return this.map.getOrNull(this.keys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+}
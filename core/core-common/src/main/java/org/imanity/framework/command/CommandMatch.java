@@ -22,22 +22,19 @@
  * SOFTWARE.
  */
 
-package org.imanity.framework.boot.task;
+package org.imanity.framework.command;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
-import lombok.Setter;
+import lombok.RequiredArgsConstructor;
 
-@AllArgsConstructor
+/**
+ * The command an input resolved to, with the arguments that follow its label
+ */
+@RequiredArgsConstructor
 @Getter
-public class AsyncTask {
-
-    private final int id;
-
-    @Setter
-    private volatile long next;
-    private final long period;
+public class CommandMatch {
 
-    private final Runnable runnable;
+    private final CommandMeta meta;
+    private final String[] arguments;
 
 }
@@ -24,18 +24,20 @@
 
 package org.imanity.framework.command;
 
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import org.imanity.framework.command.parameter.ParameterMeta;
 import org.imanity.framework.util.Stacktrace;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.BiFunction;
 
-@RequiredArgsConstructor
 @Getter
 public class CommandMeta {
 
@@ -46,6 +48,25 @@ public class CommandMeta {
     private final Method method;
     private final PresenceProvider presenceProvider;
 
+    @Getter(AccessLevel.NONE)
+    private final Class<?> senderType;
+    @Getter(AccessLevel.NONE)
+    private final MethodHandle invoker;
+    @Getter(AccessLevel.NONE)
+    private volatile BiFunction<CommandEvent, String, Object>[] transformers;
+
+    public CommandMeta(String[] names, String permission, List<ParameterMeta> parameters, Object instance, Method method, PresenceProvider presenceProvider) {
+        this.names = names;
+        this.permission = permission;
+        this.parameters = parameters;
+        this.instance = instance;
+        this.method = method;
+        this.presenceProvider = presenceProvider;
+
+        this.senderType = method.getParameterTypes()[0];
+        this.invoker = compile(instance, method);
+    }
+
     public String getName() {
         return names[0];
     }
@@ -76,17 +97,19 @@ public class CommandMeta {
     }
 
     public void execute(CommandEvent event, String[] arguments) {
-        if (!method.getParameterTypes()[0].isAssignableFrom(event.getClass())) {
+        if (!this.senderType.isAssignableFrom(event.getClass())) {
             event.sendInternalError("This command cannot be executed by " + event.name());
             return;
         }
 
-        List<Object> transformedParameters = new ArrayList<>();
+        final BiFunction<CommandEvent, String, Object>[] transformers = this.getTransformers();
+        Object[] transformedParameters = new Object[transformers.length + 1];
+        int count = 0;
 
-        transformedParameters.add(event);
+        transformedParameters[count++] = event;
 
-        for (int i = 0; i < this.getParameters().size(); i++) {
-            ParameterMeta parameter = getParameters().get(i);
+        for (int i = 0; i < this.parameters.size(); i++) {
+            ParameterMeta parameter = this.parameters.get(i);
             String passedParameter = (i < arguments.length ? arguments[i] : parameter.getDefaultValue()).trim();
             if (i >= arguments.length &&
                     (parameter.getDefaultValue() == null || parameter.getDefaultValue().isEmpty())) {
@@ -96,22 +119,67 @@ public class CommandMeta {
             if (parameter.isWildcard() && !passedParameter.trim().equals(parameter.getDefaultValue().trim())) {
                 passedParameter = toString(arguments, i);
             }
-            Object result = CommandService.INSTANCE.transformParameter(event, passedParameter, parameter.getParameterClass());
+            Object result = transformers[i].apply(event, passedParameter);
             if (result == null) {
                 event.sendUsage(this.getUsage());
                 return;
             }
-            transformedParameters.add(result);
+            transformedParameters[count++] = result;
             if (parameter.isWildcard()) {
                 break;
             }
         }
 
+        if (count < transformedParameters.length) {
+            transformedParameters = Arrays.copyOf(transformedParameters, count);
+        }
+
         try {
-            method.invoke(this.instance, transformedParameters.toArray());
-        } catch (Exception e) {
-            event.sendError(e);
-            Stacktrace.print(e);
+            this.invoker.invokeExact(transformedParameters);
+        } catch (Error error) {
+            throw error;
+        } catch (Throwable throwable) {
+            event.sendError(throwable);
+            Stacktrace.print(throwable);
+        }
+    }
+
+    /**
+     * Drop the resolved parameter transformers, they are resolved again on the next execution
+     */
+    void resetTransformers() {
+        this.transformers = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private BiFunction<CommandEvent, String, Object>[] getTransformers() {
+        BiFunction<CommandEvent, String, Object>[] transformers = this.transformers;
+        if (transformers == null) {
+            transformers = new BiFunction[this.parameters.size()];
+            for (int i = 0; i < transformers.length; i++) {
+                transformers[i] = CommandService.INSTANCE.getTransformer(this.parameters.get(i).getParameterClass());
+            }
+            this.transformers = transformers;
+        }
+        return transformers;
+    }
+
+    /**
+     * Compile the command method into a handle taking the whole argument array, {@code (Object[])void}
+     */
+    private static MethodHandle compile(Object instance, Method method) {
+        final int parameterCount = method.getParameterCount();
+        try {
+            method.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers())) {
+                handle = handle.bindTo(instance);
+            }
+            return handle
+                    .asType(MethodType.genericMethodType(parameterCount).changeReturnType(void.class))
+                    .asSpreader(Object[].class, parameterCount);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalArgumentException("Couldn't access command method " + method, ex);
         }
     }
 
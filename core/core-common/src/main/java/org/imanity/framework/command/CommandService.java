@@ -25,6 +25,7 @@
 package org.imanity.framework.command;
 
 import com.google.common.collect.ImmutableSet;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.SneakyThrows;
 import org.imanity.framework.*;
@@ -40,6 +41,7 @@ import javax.annotation.Nullable;
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 
 /**
  * TODO:
@@ -53,6 +55,9 @@ public class CommandService {
 
     public static CommandService INSTANCE;
 
+    private static final String[] EMPTY_ARGUMENTS = new String[0];
+    private static final ThreadLocal<int[]> SEPARATORS = ThreadLocal.withInitial(() -> new int[16]);
+
     private CommandProvider provider;
     private Map<Class<?>, ParameterHolder> parameters;
     private Map<Class<?>, PresenceProvider> presenceProvidersByHolder;
@@ -60,6 +65,9 @@ public class CommandService {
 
     private Map<Class<?>, PresenceProvider> defaultPresenceProviders;
 
+    @Getter(AccessLevel.NONE)
+    private volatile CommandTrie trie;
+
     @PreInitialize
     public void preInit() {
         this.parameters = new HashMap<>();
@@ -67,6 +75,7 @@ public class CommandService {
         this.defaultPresenceProviders = new ConcurrentHashMap<>();
 
         this.commands = new ArrayList<>();
+        this.trie = CommandTrie.EMPTY;
 
         ComponentRegistry.registerComponentHolder(new ComponentHolder() {
             @Override
@@ -111,6 +120,12 @@ public class CommandService {
         for (Class type : parameterHolder.type()) {
             this.parameters.put(type, parameterHolder);
         }
+
+        synchronized (this) {
+            for (CommandMeta command : this.commands) {
+                command.resetTransformers();
+            }
+        }
     }
 
     @SneakyThrows
@@ -173,32 +188,55 @@ public class CommandService {
                 }
 
                 CommandMeta meta = new CommandMeta(command.names(), command.permissionNode(), parameterData, holder, method, presenceProviderMethod);
-                this.commands.add(meta);
+                this.registerCommand(meta);
             }
         }
     }
 
+    public synchronized void registerCommand(CommandMeta meta) {
+        this.commands.add(meta);
+
+        // copy on write, commands being dispatched keep seeing the previous trie
+        CommandTrie trie = this.trie;
+        for (String alias : meta.getNames()) {
+            trie = trie.with(meta, alias);
+        }
+        this.trie = trie;
+    }
+
     public void withProvider(CommandProvider provider) {
         this.provider = provider;
     }
 
     public Object transformParameter(CommandEvent event, String parameter, Class type) {
+        return this.getTransformer(type).apply(event, parameter);
+    }
+
+    /**
+     * Resolve how arguments are transformed into {@code type} up front, so it doesn't have to be looked up per call
+     */
+    @SuppressWarnings("unchecked")
+    public BiFunction<CommandEvent, String, Object> getTransformer(Class type) {
         if (type == String.class) {
-            return parameter;
+            return (event, parameter) -> parameter;
         }
 
         ParameterHolder holder = this.parameters.getOrDefault(type, null);
         if (holder == null) {
-            return null;
+            return (event, parameter) -> null;
         }
 
         if (type.isEnum()) {
-            try {
-                return Enum.valueOf(type, parameter);
-            } catch (IllegalArgumentException ignored) {}
+            return (event, parameter) -> {
+                try {
+                    return Enum.valueOf(type, parameter);
+                } catch (IllegalArgumentException ignored) {}
+
+                return holder.transform(event, parameter);
+            };
         }
 
-        return holder.transform(event, parameter);
+        return holder::transform;
     }
 
     public List<String> tabCompleteParameters(Object user, String[] parameters, String parameter, Class<?> transformTo, String[] tabCompleteFlags) {
@@ -218,37 +256,14 @@ public class CommandService {
             return false;
         }
 
-        CommandMeta commandMeta = null;
-        String[] arguments = new String[0];
-
-        search:
-        for (CommandMeta meta : this.commands) {
-            for (String alias : meta.getNames()) {
-                String message = command.toLowerCase() + " ";
-                String alia = alias.toLowerCase() + " ";
-
-                if (message.startsWith(alia)) {
-                    commandMeta = meta;
-
-                    if (message.length() > alia.length()) {
-                        if (commandMeta.getParameters().size() == 0) {
-                            continue;
-                        }
-                    }
-
-                    if (command.length() > alias.length() + 1) {
-                        arguments = command.substring(alias.length() + 1).split(" ");
-                    }
-
-                    break search;
-                }
-            }
-        }
-
-        if (commandMeta == null) {
+        CommandMatch match = this.findCommand(command);
+        if (match == null) {
             return false;
         }
 
+        CommandMeta commandMeta = match.getMeta();
+        String[] arguments = match.getArguments();
+
         commandEvent.setPresenceProvider(commandMeta.getPresenceProvider());
 
         if (!commandMeta.canAccess(user)) {
@@ -269,4 +284,74 @@ public class CommandService {
         }
         return true;
     }
+
+    /**
+     * Find the command the input resolves to, the same way {@link #evalCommand(CommandEvent)} does
+     *
+     * @param command the input without the prefix like / or !
+     */
+    @Nullable
+    public CommandMatch findCommand(String command) {
+        CommandTrie.Entry entry = this.trie.find(command.toLowerCase());
+        if (entry == null) {
+            return null;
+        }
+
+        CommandMeta meta = entry.meta;
+        String alias = entry.alias;
+
+        String[] arguments = EMPTY_ARGUMENTS;
+        // a command without parameters only matches extra input as a fallback, which never takes arguments
+        boolean extra = command.length() > alias.length();
+        if ((!extra || meta.getParameters().size() > 0) && command.length() > alias.length() + 1) {
+            arguments = tokenize(command, alias.length() + 1);
+        }
+
+        return new CommandMatch(meta, arguments);
+    }
+
+    /**
+     * Split the input from {@code start} on every single space, the same as {@code substring(start).split(" ")}
+     * but finding the separators first so only the arguments themselves are allocated
+     */
+    static String[] tokenize(String command, int start) {
+        int[] separators = SEPARATORS.get();
+        int count = 0;
+
+        for (int i = start; i < command.length(); i++) {
+            if (command.charAt(i) == ' ') {
+                if (count == separators.length) {
+                    separators = Arrays.copyOf(separators, count * 2);
+                    SEPARATORS.set(separators);
+                }
+                separators[count++] = i;
+            }
+        }
+
+        if (count == 0) {
+            return new String[] {command.substring(start)};
+        }
+
+        // token i ends at separator i, the last one at the end of the input; trailing empty tokens are dropped
+        int tokens = count + 1;
+        while (tokens > 0) {
+            int last = tokens - 1;
+            int tokenStart = last == 0 ? start : separators[last - 1] + 1;
+            int tokenEnd = last < count ? separators[last] : command.length();
+            if (tokenStart != tokenEnd) {
+                break;
+            }
+            tokens--;
+        }
+
+        String[] arguments = new String[tokens];
+        int begin = start;
+        for (int i = 0; i < tokens; i++) {
+            int tokenEnd = i < count ? separators[i] : command.length();
+            arguments[i] = command.substring(begin, tokenEnd);
+            begin = tokenEnd + 1;
+        }
+        return arguments;
+    }
+
 }
@@ -0,0 +1,205 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.command;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * An immutable, case-insensitive radix trie over command labels, sub command paths included
+ *
+ * {@link #with} copies only the nodes along the inserted path, so the service can swap in a new trie on
+ * registration while dispatching threads keep reading the old one.
+ *
+ * Resolution reproduces the original linear scan exactly: every label the input starts with (followed by a
+ * space or the end) is a candidate, the earliest registered candidate that can take the remaining input wins,
+ * and a command without parameters only ever matches extra input as a last resort.
+ */
+final class CommandTrie {
+
+    static final CommandTrie EMPTY = new CommandTrie(new Node("", new char[0], new Node[0], new Entry[0]), 0);
+
+    private final Node root;
+    private final int size;
+
+    private CommandTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of labels in this trie
+     */
+    int size() {
+        return this.size;
+    }
+
+    CommandTrie with(CommandMeta meta, String alias) {
+        // the label is stored with its trailing space, which is what marks a word boundary when matching
+        final String key = alias.toLowerCase() + " ";
+        return new CommandTrie(insert(this.root, key, 0, new Entry(meta, alias, this.size)), this.size + 1);
+    }
+
+    @Nullable
+    Entry find(String lowerCaseCommand) {
+        // walk the command as if it had a trailing space
+        final int length = lowerCaseCommand.length() + 1;
+
+        Entry first = null;
+        Entry last = null;
+
+        Node node = this.root;
+        int position = 0;
+        while (true) {
+            final boolean extra = position < length;
+            for (Entry entry : node.entries) {
+                if (!extra || entry.meta.getParameters().size() > 0) {
+                    if (first == null || entry.order < first.order) {
+                        first = entry;
+                    }
+                }
+                if (last == null || entry.order > last.order) {
+                    last = entry;
+                }
+            }
+
+            if (!extra) {
+                break;
+            }
+
+            final int index = Arrays.binarySearch(node.firsts, charAt(lowerCaseCommand, position));
+            if (index < 0) {
+                break;
+            }
+
+            final Node child = node.children[index];
+            final String label = child.label;
+            if (position + label.length() > length) {
+                break;
+            }
+            boolean matches = true;
+            for (int i = 1; i < label.length(); i++) {
+                if (label.charAt(i) != charAt(lowerCaseCommand, position + i)) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (!matches) {
+                break;
+            }
+
+            position += label.length();
+            node = child;
+        }
+
+        return first != null ? first : last;
+    }
+
+    private static char charAt(String command, int index) {
+        return index == command.length() ? ' ' : command.charAt(index);
+    }
+
+    private static Node insert(Node node, String key, int offset, Entry entry) {
+        if (offset == key.length()) {
+            final Entry[] entries = Arrays.copyOf(node.entries, node.entries.length + 1);
+            entries[entries.length - 1] = entry;
+            return new Node(node.label, node.firsts, node.children, entries);
+        }
+
+        final char first = key.charAt(offset);
+        final int index = Arrays.binarySearch(node.firsts, first);
+        if (index < 0) {
+            final Node leaf = new Node(key.substring(offset), new char[0], new Node[0], new Entry[] {entry});
+            return node.withChild(-index - 1, leaf, true);
+        }
+
+        final Node child = node.children[index];
+        final String label = child.label;
+        int common = 1;
+        while (common < label.length() && offset + common < key.length() && label.charAt(common) == key.charAt(offset + common)) {
+            common++;
+        }
+
+        if (common == label.length()) {
+            return node.withChild(index, insert(child, key, offset + common, entry), false);
+        }
+
+        // split the edge where the new key diverges
+        final Node lower = new Node(label.substring(common), child.firsts, child.children, child.entries);
+        final Node middle = new Node(label.substring(0, common), new char[] {lower.label.charAt(0)}, new Node[] {lower}, new Entry[0]);
+        return node.withChild(index, insert(middle, key, offset + common, entry), false);
+    }
+
+    static final class Entry {
+
+        final CommandMeta meta;
+        final String alias;
+        final int order;
+
+        private Entry(CommandMeta meta, String alias, int order) {
+            this.meta = meta;
+            this.alias = alias;
+            this.order = order;
+        }
+
+    }
+
+    private static final class Node {
+
+        private final String label;
+        private final char[] firsts;
+        private final Node[] children;
+        private final Entry[] entries;
+
+        private Node(String label, char[] firsts, Node[] children, Entry[] entries) {
+            this.label = label;
+            this.firsts = firsts;
+            this.children = children;
+            this.entries = entries;
+        }
+
+        private Node withChild(int index, Node child, boolean insert) {
+            final char[] firsts;
+            final Node[] children;
+            if (insert) {
+                firsts = new char[this.firsts.length + 1];
+                children = new Node[this.children.length + 1];
+                System.arraycopy(this.firsts, 0, firsts, 0, index);
+                System.arraycopy(this.children, 0, children, 0, index);
+                System.arraycopy(this.firsts, index, firsts, index + 1, this.firsts.length - index);
+                System.arraycopy(this.children, index, children, index + 1, this.children.length - index);
+                firsts[index] = child.label.charAt(0);
+            } else {
+                // replacing keeps the first character, the array can be shared
+                firsts = this.firsts;
+                children = this.children.clone();
+            }
+            children[index] = child;
+            return new Node(this.label, firsts, children, this.entries);
+        }
+
+    }
+
+}
@@ -49,6 +49,8 @@ public class CoreConfig extends YamlConfiguration {
 
     public Storage STORAGE = new Storage();
 
+    public Messaging MESSAGING = new Messaging();
+
     public CoreConfig() {
         super(new File(ImanityCommon.PLATFORM.getDataFolder(), "core.yml").toPath(), YamlProperties
             .builder()
@@ -70,6 +72,19 @@ public class CoreConfig extends YamlConfiguration {
 
     }
 
+    @ConfigurationElement
+    public static class Messaging {
+
+        public int BATCH_WINDOW_MICROS = 2000;
+        public int BATCH_MAX_MESSAGES = 64;
+        public int COMPRESSION_THRESHOLD = 512;
+        // subscribe only to the channels of message types this server listens to
+        public boolean CHANNEL_PER_TYPE = false;
+        // how often servers announce their state, one missing for three of these is considered gone
+        public int SERVER_HEARTBEAT_MILLIS = 1000;
+
+    }
+
     @ConfigurationElement
     public static class MySql {
 
@@ -0,0 +1,362 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.metadata;
+
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A {@link MetadataMap} backed by a {@link ConcurrentHashMap}.
+ *
+ * <p>Lookups are a single hash lookup and never block, a {@link TransientValue} is only checked for expiry
+ * when it's the one being looked up. Expired values are otherwise removed by the {@link MetadataExpiryWheel}.</p>
+ */
+final class ConcurrentMetadataMap implements MetadataMap {
+
+    private final ConcurrentHashMap<MetadataKey<?>, Entry> map = new ConcurrentHashMap<>();
+    private final MetadataExpiryWheel wheel;
+
+    ConcurrentMetadataMap() {
+        this(MetadataExpiryWheel.shared());
+    }
+
+    ConcurrentMetadataMap(MetadataExpiryWheel wheel) {
+        this.wheel = wheel;
+    }
+
+    @Override
+    public <T> void put(@Nonnull MetadataKey<T> key, @Nonnull T value) {
+        internalPut(key, value);
+    }
+
+    @Override
+    public <T> void put(@Nonnull MetadataKey<T> key, @Nonnull TransientValue<T> value) {
+        internalPut(key, value);
+    }
+
+    private void internalPut(MetadataKey<?> key, Object value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+
+        Entry entry = new Entry(key, value);
+        Entry[] previous = new Entry[1];
+        this.map.compute(key, (k, existing) -> {
+            if (existing != null && !existing.key.getType().equals(key.getType())) {
+                throw new ClassCastException("Cannot cast key with id " + key.getId() + " with type " + key.getType().getRawType() + " to existing stored type " + existing.key.getType().getRawType());
+            }
+
+            previous[0] = existing;
+            return entry;
+        });
+
+        this.replaced(previous[0], entry);
+    }
+
+    @Override
+    public <T> void forcePut(@Nonnull MetadataKey<T> key, @Nonnull T value) {
+        internalForcePut(key, value);
+    }
+
+    @Override
+    public <T> void forcePut(@Nonnull MetadataKey<T> key, @Nonnull TransientValue<T> value) {
+        internalForcePut(key, value);
+    }
+
+    private void internalForcePut(MetadataKey<?> key, Object value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+
+        Entry entry = new Entry(key, value);
+        this.replaced(this.map.put(key, entry), entry);
+    }
+
+    @Override
+    public <T> boolean putIfAbsent(@Nonnull MetadataKey<T> key, @Nonnull T value) {
+        return internalPutIfAbsent(key, value);
+    }
+
+    @Override
+    public <T> boolean putIfAbsent(@Nonnull MetadataKey<T> key, @Nonnull TransientValue<T> value) {
+        return internalPutIfAbsent(key, value);
+    }
+
+    private boolean internalPutIfAbsent(MetadataKey<?> key, Object value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+
+        Entry entry = new Entry(key, value);
+        Entry[] previous = new Entry[1];
+        Entry result = this.map.compute(key, (k, existing) -> {
+            if (existing != null && !existing.isExpired()) {
+                return existing;
+            }
+
+            previous[0] = existing;
+            return entry;
+        });
+
+        if (result != entry) {
+            return false;
+        }
+
+        this.replaced(previous[0], entry);
+        return true;
+    }
+
+    @Nonnull
+    @Override
+    public <T> Optional<T> get(@Nonnull MetadataKey<T> key) {
+        Objects.requireNonNull(key, "key");
+
+        Entry entry = this.map.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+
+        Object value = entry.unbox();
+        if (value == null) {
+            entry.expire();
+            return Optional.empty();
+        }
+
+        return Optional.of(cast(key, entry, value));
+    }
+
+    @Override
+    public <T> boolean ifPresent(@Nonnull MetadataKey<T> key, @Nonnull Consumer<? super T> action) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(action, "action");
+        Optional<T> opt = get(key);
+        if (!opt.isPresent()) {
+            return false;
+        }
+
+        action.accept(opt.get());
+        return true;
+    }
+
+    @Override
+    public <T> T getOrNull(@Nonnull MetadataKey<T> key) {
+        Objects.requireNonNull(key, "key");
+        return get(key).orElse(null);
+    }
+
+    @Nonnull
+    @Override
+    public <T> T getOrDefault(@Nonnull MetadataKey<T> key, T def) {
+        Objects.requireNonNull(key, "key");
+        return get(key).orElse(def);
+    }
+
+    @Nonnull
+    @Override
+    public <T> T getOrPut(@Nonnull MetadataKey<T> key, @Nonnull Supplier<? extends T> def) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(def, "def");
+
+        return this.getOrCompute(key, () -> {
+            T t = def.get();
+            Objects.requireNonNull(t, "supplied def");
+            return t;
+        });
+    }
+
+    @Nonnull
+    @Override
+    public <T> T getOrPutExpiring(@Nonnull MetadataKey<T> key, @Nonnull Supplier<? extends TransientValue<T>> def) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(def, "def");
+
+        return this.getOrCompute(key, () -> {
+            TransientValue<T> t = def.get();
+            Objects.requireNonNull(t, "supplied def");
+
+            if (t.getOrNull() == null) {
+                throw new IllegalArgumentException("Transient value already expired: " + t);
+            }
+            return t;
+        });
+    }
+
+    private <T> T getOrCompute(MetadataKey<T> key, Supplier<Object> def) {
+        // fast path, doesn't lock the bin when the value is present
+        Optional<T> present = get(key);
+        if (present.isPresent()) {
+            return present.get();
+        }
+
+        Object[] result = new Object[1];
+        Entry[] created = new Entry[1];
+        Entry[] previous = new Entry[1];
+        Entry entry = this.map.compute(key, (k, existing) -> {
+            if (existing != null) {
+                Object value = existing.unbox();
+                if (value != null) {
+                    result[0] = value;
+                    return existing;
+                }
+            }
+
+            created[0] = new Entry(key, def.get());
+            result[0] = created[0].unbox();
+            previous[0] = existing;
+            return created[0];
+        });
+
+        if (entry == created[0]) {
+            this.replaced(previous[0], entry);
+        }
+
+        return cast(key, entry, result[0]);
+    }
+
+    @Override
+    public boolean has(@Nonnull MetadataKey<?> key) {
+        Objects.requireNonNull(key, "key");
+
+        Entry entry = this.map.get(key);
+        if (entry == null) {
+            return false;
+        }
+
+        if (entry.isExpired()) {
+            entry.expire();
+            return false;
+        }
+
+        return entry.key.getType().equals(key.getType());
+    }
+
+    @Override
+    public boolean remove(@Nonnull MetadataKey<?> key) {
+        Objects.requireNonNull(key, "key");
+
+        Entry entry = this.map.remove(key);
+        if (entry == null) {
+            return false;
+        }
+
+        entry.cancelled = true;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (MetadataKey<?> key : this.map.keySet()) {
+            this.remove(key);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<MetadataKey<?>, Object> asMap() {
+        ImmutableMap.Builder<MetadataKey<?>, Object> builder = ImmutableMap.builder();
+        for (Entry entry : this.map.values()) {
+            builder.put(entry.key, entry.value);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        cleanup();
+        return this.map.isEmpty();
+    }
+
+    @Override
+    public void cleanup() {
+        for (Entry entry : this.map.values()) {
+            if (entry.isExpired()) {
+                entry.expire();
+            }
+        }
+    }
+
+    private void replaced(Entry previous, Entry entry) {
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+
+        if (entry.value instanceof TimedValue) {
+            this.wheel.schedule(entry);
+        } else if (entry.value instanceof ReferenceValue) {
+            ((ReferenceValue) entry.value).bind(entry);
+        }
+    }
+
+    private static <T> T cast(MetadataKey<T> key, Entry entry, Object value) {
+        if (!entry.key.getType().equals(key.getType())) {
+            throw new ClassCastException("Cannot cast key with id " + key.getId() + " with type " + key.getType().getRawType() + " to existing stored type " + entry.key.getType().getRawType());
+        }
+
+        return key.cast(value);
+    }
+
+    /**
+     * A mapping in the map, compared by identity so that expiring an entry never removes the value put after it.
+     */
+    final class Entry {
+
+        final MetadataKey<?> key;
+        final Object value;
+
+        volatile boolean cancelled;
+
+        // rounds left on the wheel, only touched by the wheel
+        long remainingRounds;
+
+        private Entry(MetadataKey<?> key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        Object unbox() {
+            if (this.value instanceof TransientValue<?>) {
+                return ((TransientValue<?>) this.value).getOrNull();
+            }
+            return this.value;
+        }
+
+        boolean isExpired() {
+            return this.value instanceof TransientValue<?> && ((TransientValue<?>) this.value).shouldExpire();
+        }
+
+        /**
+         * Removes this entry from the map, if it's still the one mapped to its key.
+         */
+        void expire() {
+            this.cancelled = true;
+            ConcurrentMetadataMap.this.map.remove(this.key, this);
+        }
+
+    }
+
+}
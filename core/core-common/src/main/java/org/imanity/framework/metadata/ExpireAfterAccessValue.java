@@ -36,7 +36,7 @@ import java.util.function.Supplier;
  *
  * @param <T> the wrapped value type
  */
-public class ExpireAfterAccessValue<T> implements TransientValue<T> {
+public class ExpireAfterAccessValue<T> implements TransientValue<T>, TimedValue {
 
     public static <T> ExpireAfterAccessValue<T> of(T value, long duration, TimeUnit unit) {
         Preconditions.checkArgument(duration >= 0, "duration must be >= 0");
@@ -64,7 +64,7 @@ public class ExpireAfterAccessValue<T> implements TransientValue<T> {
 
     private final T value;
     private final long millis;
-    private long expireAt;
+    private volatile long expireAt;
 
     private ExpireAfterAccessValue(T value, long millis) {
         this.value = value;
@@ -89,4 +89,9 @@ public class ExpireAfterAccessValue<T> implements TransientValue<T> {
         return System.currentTimeMillis() > this.expireAt;
     }
 
+    @Override
+    public long getExpireAt() {
+        return this.expireAt;
+    }
+
 }
@@ -36,7 +36,7 @@ import java.util.function.Supplier;
  *
  * @param <T> the wrapped value type
  */
-public final class ExpiringValue<T> implements TransientValue<T> {
+public final class ExpiringValue<T> implements TransientValue<T>, TimedValue {
 
     public static <T> ExpiringValue<T> of(T value, long duration, TimeUnit unit) {
         Preconditions.checkArgument(duration >= 0, "duration must be >= 0");
@@ -81,4 +81,9 @@ public final class ExpiringValue<T> implements TransientValue<T> {
         return System.currentTimeMillis() > this.expireAt;
     }
 
+    @Override
+    public long getExpireAt() {
+        return this.expireAt;
+    }
+
 }
@@ -0,0 +1,239 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.metadata;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A hashed timer wheel which proactively removes expired {@link TransientValue}s from {@link ConcurrentMetadataMap}s.
+ *
+ * <p>{@link TimedValue}s are hashed into a bucket by their expire time, so one tick only visits the values due in it.
+ * Soft and weak values are registered to a {@link ReferenceQueue} and removed once the garbage collector clears them.
+ * All of it runs on a single daemon thread, started the first time something is scheduled.</p>
+ */
+final class MetadataExpiryWheel {
+
+    private static final MetadataExpiryWheel SHARED = new MetadataExpiryWheel(100, TimeUnit.MILLISECONDS, 512);
+
+    static MetadataExpiryWheel shared() {
+        return SHARED;
+    }
+
+    private final long tickMillis;
+    private final long startTime;
+    private final ArrayDeque<ConcurrentMetadataMap.Entry>[] buckets;
+    private final int mask;
+
+    private final Queue<ConcurrentMetadataMap.Entry> pending = new ConcurrentLinkedQueue<>();
+    private final ReferenceQueue<Object> referenceQueue = new ReferenceQueue<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    // the next tick to be processed, only touched while holding the monitor
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    MetadataExpiryWheel(long tickDuration, TimeUnit unit, int size) {
+        if (Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("size must be a power of 2: " + size);
+        }
+
+        this.tickMillis = Math.max(1, unit.toMillis(tickDuration));
+        this.startTime = System.currentTimeMillis();
+        this.buckets = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            this.buckets[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Schedules the entry to be expired once its {@link TimedValue#getExpireAt()} has passed.
+     *
+     * @param entry the entry
+     */
+    void schedule(ConcurrentMetadataMap.Entry entry) {
+        this.pending.add(entry);
+        this.start();
+    }
+
+    <T> SoftReference<T> soft(T value) {
+        return new SoftEntryReference<>(value, this.referenceQueue);
+    }
+
+    <T> WeakReference<T> weak(T value) {
+        return new WeakEntryReference<>(value, this.referenceQueue);
+    }
+
+    /**
+     * Binds a reference created by this wheel to the entry holding it, the entry is removed
+     * from its map once the reference is cleared.
+     *
+     * @param reference the reference
+     * @param entry the entry
+     */
+    void bind(Reference<?> reference, ConcurrentMetadataMap.Entry entry) {
+        if (reference instanceof EntryReference) {
+            ((EntryReference) reference).bind(entry);
+            this.start();
+        }
+    }
+
+    void start() {
+        if (this.started.get() || !this.started.compareAndSet(false, true)) {
+            return;
+        }
+
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("imanity-metadata-expiry")
+                .setDaemon(true)
+                .build());
+        executor.scheduleWithFixedDelay(() -> this.advance(System.currentTimeMillis()), this.tickMillis, this.tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Processes every tick up until the given time, and removes every entry whose reference has been cleared.
+     *
+     * @param now the current time in epoch milliseconds
+     */
+    synchronized void advance(long now) {
+        long target = (now - this.startTime) / this.tickMillis;
+
+        while (this.tick <= target) {
+            this.transferPending();
+            this.expireBucket(now, this.buckets[(int) (this.tick & this.mask)]);
+            this.tick++;
+        }
+
+        Reference<?> reference;
+        while ((reference = this.referenceQueue.poll()) != null) {
+            ((EntryReference) reference).expunge();
+        }
+    }
+
+    private void transferPending() {
+        ConcurrentMetadataMap.Entry entry;
+        while ((entry = this.pending.poll()) != null) {
+            if (entry.cancelled) {
+                continue;
+            }
+
+            long expireAt = ((TimedValue) entry.value).getExpireAt();
+            long calculated = Math.max(0, expireAt - this.startTime) / this.tickMillis;
+
+            entry.remainingRounds = (calculated - this.tick) / this.buckets.length;
+            this.buckets[(int) (Math.max(calculated, this.tick) & this.mask)].add(entry);
+        }
+    }
+
+    private void expireBucket(long now, ArrayDeque<ConcurrentMetadataMap.Entry> bucket) {
+        Iterator<ConcurrentMetadataMap.Entry> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            ConcurrentMetadataMap.Entry entry = iterator.next();
+            if (entry.cancelled) {
+                iterator.remove();
+                continue;
+            }
+
+            if (entry.remainingRounds > 0) {
+                entry.remainingRounds--;
+                continue;
+            }
+
+            iterator.remove();
+            if (((TransientValue<?>) entry.value).shouldExpire()) {
+                entry.expire();
+            } else {
+                // the value has been accessed since it was scheduled, look again at its new expire time
+                this.pending.add(entry);
+            }
+        }
+    }
+
+    private interface EntryReference {
+
+        void bind(ConcurrentMetadataMap.Entry entry);
+
+        void expunge();
+
+    }
+
+    private static final class SoftEntryReference<T> extends SoftReference<T> implements EntryReference {
+
+        private volatile ConcurrentMetadataMap.Entry entry;
+
+        private SoftEntryReference(T referent, ReferenceQueue<? super T> queue) {
+            super(referent, queue);
+        }
+
+        @Override
+        public void bind(ConcurrentMetadataMap.Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void expunge() {
+            ConcurrentMetadataMap.Entry entry = this.entry;
+            if (entry != null) {
+                entry.expire();
+            }
+        }
+    }
+
+    private static final class WeakEntryReference<T> extends WeakReference<T> implements EntryReference {
+
+        private volatile ConcurrentMetadataMap.Entry entry;
+
+        private WeakEntryReference(T referent, ReferenceQueue<? super T> queue) {
+            super(referent, queue);
+        }
+
+        @Override
+        public void bind(ConcurrentMetadataMap.Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void expunge() {
+            ConcurrentMetadataMap.Entry entry = this.entry;
+            if (entry != null) {
+                entry.expire();
+            }
+        }
+    }
+
+}
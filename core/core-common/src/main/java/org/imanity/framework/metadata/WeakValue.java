@@ -34,7 +34,7 @@ import java.util.function.Supplier;
  *
  * @param <T> the wrapped value type
  */
-public final class WeakValue<T> implements TransientValue<T> {
+public final class WeakValue<T> implements TransientValue<T>, ReferenceValue {
 
     public static <T> WeakValue<T> of(T value) {
         Objects.requireNonNull(value, "value");
@@ -55,7 +55,7 @@ public final class WeakValue<T> implements TransientValue<T> {
     private final WeakReference<T> value;
 
     private WeakValue(T value) {
-        this.value = new WeakReference<>(value);
+        this.value = MetadataExpiryWheel.shared().weak(value);
     }
 
     @Nullable
@@ -69,4 +69,9 @@ public final class WeakValue<T> implements TransientValue<T> {
         return this.value.get() == null;
     }
 
+    @Override
+    public void bind(ConcurrentMetadataMap.Entry entry) {
+        MetadataExpiryWheel.shared().bind(this.value, entry);
+    }
+
 }
@@ -0,0 +1,428 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import lombok.Getter;
+import lombok.Value;
+import org.imanity.framework.redis.subscription.RedisPubSub;
+import org.imanity.framework.util.Stacktrace;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RMap;
+import org.redisson.api.RMapAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.Codec;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Redis hash with typed access, where bulk reads and writes go out as one pipelined batch instead of a
+ * round trip per key, split into commands of {@link #CHUNK_SIZE} keys so no single one blocks Redis for long.
+ *
+ * With a near cache, entries read or written are also kept locally and served from there; every change is
+ * announced on the {@code <name>:invalidate} channel so the other servers drop their copy of it. Keys are
+ * announced the way the codec encodes them, since decoding doesn't always give back the same type.
+ */
+public class RedisMapCache<K, V> {
+
+    public static final int CHUNK_SIZE = 256;
+
+    private static final int CLEAR = -1;
+
+    @Getter
+    private final String name;
+    private final RedissonClient client;
+    private final Codec codec;
+    @Getter
+    private final RMap<K, V> map;
+
+    @Nullable
+    private final Cache<K, Entry<V>> nearCache;
+    // the encoded form of every key in the near cache, to find them again from an invalidation
+    private final Map<String, K> encodedKeys = new ConcurrentHashMap<>();
+    @Nullable
+    private final RedisPubSub<byte[]> invalidations;
+    private final long instanceId = ThreadLocalRandom.current().nextLong();
+    // bumped on every change, made here or announced by another server; a read only caches what it fetched
+    // if nothing changed meanwhile
+    private final AtomicLong invalidationVersion = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+    private final LongAdder roundTrips = new LongAdder();
+
+    public RedisMapCache(RedissonClient client, String name, Codec codec, int nearCacheSize) {
+        this.name = name;
+        this.client = client;
+        this.codec = codec;
+        this.map = client.getMap(name, codec);
+
+        if (nearCacheSize > 0) {
+            this.nearCache = Caffeine.newBuilder()
+                    .maximumSize(nearCacheSize)
+                    .writer(new CacheWriter<K, Entry<V>>() {
+                        @Override
+                        public void write(K key, Entry<V> entry) {
+                            encodedKeys.put(entry.encodedKey, key);
+                        }
+
+                        @Override
+                        public void delete(K key, @Nullable Entry<V> entry, RemovalCause cause) {
+                            if (entry != null) {
+                                encodedKeys.remove(entry.encodedKey, key);
+                            }
+                        }
+                    })
+                    .build();
+            this.invalidations = new RedisPubSub<>(name + ":invalidate", client, byte[].class, ByteArrayCodec.INSTANCE);
+            this.invalidations.subscribe(this::handleInvalidation);
+        } else {
+            this.nearCache = null;
+            this.invalidations = null;
+        }
+    }
+
+    @Nullable
+    public V get(K key) {
+        if (this.nearCache != null) {
+            Entry<V> entry = this.nearCache.getIfPresent(key);
+            if (entry != null) {
+                this.hits.increment();
+                return entry.value;
+            }
+        }
+
+        this.misses.increment();
+        long version = this.invalidationVersion.get();
+        this.roundTrips.increment();
+        V value = this.map.get(key);
+        this.cache(key, value, version);
+        return value;
+    }
+
+    /**
+     * @return the values of the keys present, read in a single round trip for the ones not cached locally
+     */
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new HashMap<>(keys.size());
+        Set<K> missing = new LinkedHashSet<>();
+        for (K key : keys) {
+            Entry<V> entry = this.nearCache != null ? this.nearCache.getIfPresent(key) : null;
+            if (entry != null) {
+                result.put(key, entry.value);
+            } else {
+                missing.add(key);
+            }
+        }
+        this.hits.add(result.size());
+        this.misses.add(missing.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long version = this.invalidationVersion.get();
+        RBatch batch = this.client.createBatch();
+        RMapAsync<K, V> map = batch.getMap(this.name, this.codec);
+        List<RFuture<Map<K, V>>> futures = new ArrayList<>();
+        for (Set<K> chunk : chunks(missing)) {
+            futures.add(map.getAllAsync(chunk));
+        }
+        this.execute(batch);
+
+        for (RFuture<Map<K, V>> future : futures) {
+            Map<K, V> values = future.getNow();
+            if (values == null) {
+                continue;
+            }
+
+            result.putAll(values);
+            values.forEach((key, value) -> this.cache(key, value, version));
+        }
+        return result;
+    }
+
+    public void put(K key, V value) {
+        this.roundTrips.increment();
+        this.map.fastPut(key, value);
+        this.invalidationVersion.incrementAndGet();
+
+        List<String> encoded = this.changed(Collections.singleton(key));
+        if (this.nearCache != null) {
+            this.nearCache.put(key, new Entry<>(value, encoded.get(0)));
+        }
+    }
+
+    /**
+     * Write every entry in a single round trip
+     */
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        RBatch batch = this.client.createBatch();
+        RMapAsync<K, V> map = batch.getMap(this.name, this.codec);
+        Map<K, V> chunk = new HashMap<>();
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            chunk.put(entry.getKey(), entry.getValue());
+            if (chunk.size() == CHUNK_SIZE) {
+                map.putAllAsync(chunk);
+                chunk = new HashMap<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            map.putAllAsync(chunk);
+        }
+        this.execute(batch);
+        this.invalidationVersion.incrementAndGet();
+
+        List<String> encoded = this.changed(entries.keySet());
+        if (this.nearCache != null) {
+            int index = 0;
+            for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+                this.nearCache.put(entry.getKey(), new Entry<>(entry.getValue(), encoded.get(index++)));
+            }
+        }
+    }
+
+    public void remove(K key) {
+        this.removeAll(Collections.singleton(key));
+    }
+
+    /**
+     * Remove every key in a single round trip
+     */
+    @SuppressWarnings("unchecked")
+    public void removeAll(Collection<? extends K> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        RBatch batch = this.client.createBatch();
+        RMapAsync<K, V> map = batch.getMap(this.name, this.codec);
+        for (Set<K> chunk : chunks(keys)) {
+            map.fastRemoveAsync((K[]) chunk.toArray());
+        }
+        this.execute(batch);
+
+        // only once they're gone from Redis, a read in between could cache them again otherwise
+        if (this.nearCache != null) {
+            this.invalidationVersion.incrementAndGet();
+            this.nearCache.invalidateAll(keys);
+        }
+        this.changed(keys);
+    }
+
+    /**
+     * Delete the whole map, on every server's near cache too
+     */
+    public void clear() {
+        this.roundTrips.increment();
+        this.map.delete();
+        this.invalidateLocal();
+        this.changed(null);
+    }
+
+    /**
+     * Drop everything kept locally, the next reads go to Redis
+     */
+    public void invalidateLocal() {
+        if (this.nearCache != null) {
+            this.invalidationVersion.incrementAndGet();
+            this.nearCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Stop listening for invalidations, the near cache can't be trusted anymore afterwards and is cleared
+     */
+    public void close() {
+        if (this.invalidations != null) {
+            this.invalidations.disable();
+            this.invalidateLocal();
+        }
+    }
+
+    public Statistics getStatistics() {
+        return new Statistics(this.hits.sum(), this.misses.sum(), this.invalidated.sum(), this.roundTrips.sum());
+    }
+
+    private void execute(RBatch batch) {
+        this.roundTrips.increment();
+        batch.execute();
+    }
+
+    private void cache(K key, @Nullable V value, long version) {
+        if (this.nearCache == null || value == null || this.invalidationVersion.get() != version) {
+            return;
+        }
+
+        final Entry<V> entry;
+        try {
+            entry = new Entry<>(value, this.encodeKey(key));
+        } catch (IOException ex) {
+            Stacktrace.print(ex);
+            return;
+        }
+
+        this.nearCache.put(key, entry);
+        // a change between the check and the put may have been overwritten, take back only what this read put
+        if (this.invalidationVersion.get() != version) {
+            this.nearCache.asMap().remove(key, entry);
+        }
+    }
+
+    /**
+     * Tell the other servers the keys changed
+     *
+     * @param keys the keys changed, or null if the whole map did
+     * @return the encoded keys, in the same order
+     */
+    private List<String> changed(@Nullable Collection<? extends K> keys) {
+        if (this.invalidations == null) {
+            return Collections.emptyList();
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeLong(this.instanceId);
+            if (keys == null) {
+                output.writeInt(CLEAR);
+                this.invalidations.publish(bytes.toByteArray());
+                return Collections.emptyList();
+            }
+
+            List<String> encoded = new ArrayList<>(keys.size());
+            output.writeInt(keys.size());
+            for (K key : keys) {
+                String encodedKey = this.encodeKey(key);
+                encoded.add(encodedKey);
+                output.writeUTF(encodedKey);
+            }
+            this.invalidations.publish(bytes.toByteArray());
+            return encoded;
+        } catch (IOException ex) {
+            // the other servers won't hear of it, don't keep anything locally they couldn't invalidate either
+            this.invalidateLocal();
+            Stacktrace.print(ex);
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @return the key as the codec writes it to Redis, one char per byte
+     */
+    private String encodeKey(K key) throws IOException {
+        ByteBuf buffer = this.codec.getMapKeyEncoder().encode(key);
+        try {
+            return new String(ByteBufUtil.getBytes(buffer), StandardCharsets.ISO_8859_1);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private void handleInvalidation(byte[] message) {
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(message));
+            if (input.readLong() == this.instanceId) {
+                return;
+            }
+
+            this.invalidationVersion.incrementAndGet();
+            int count = input.readInt();
+            if (count == CLEAR) {
+                this.nearCache.invalidateAll();
+                return;
+            }
+
+            for (int i = 0; i < count; i++) {
+                K key = this.encodedKeys.get(input.readUTF());
+                if (key != null) {
+                    this.nearCache.invalidate(key);
+                }
+            }
+            this.invalidated.add(count);
+        } catch (Throwable throwable) {
+            // whatever it was about can't be trusted anymore
+            this.nearCache.invalidateAll();
+            Stacktrace.print(throwable);
+        }
+    }
+
+    private static <K> List<Set<K>> chunks(Collection<? extends K> keys) {
+        List<Set<K>> chunks = new ArrayList<>((keys.size() + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        Set<K> chunk = new LinkedHashSet<>();
+        for (K key : keys) {
+            chunk.add(key);
+            if (chunk.size() == CHUNK_SIZE) {
+                chunks.add(chunk);
+                chunk = new LinkedHashSet<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final String encodedKey;
+
+        private Entry(V value, String encodedKey) {
+            this.value = value;
+            this.encodedKey = encodedKey;
+        }
+
+    }
+
+    @Value
+    public static class Statistics {
+
+        long hits;
+        long misses;
+        long invalidations;
+        long roundTrips;
+
+    }
+
+}
@@ -31,17 +31,27 @@ import org.redisson.Redisson;
 import org.redisson.api.RMap;
 import org.redisson.api.RReadWriteLock;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
 import org.redisson.codec.JsonJacksonCodec;
 import org.redisson.config.Config;
 
 import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service(name = "redis")
 @ServiceDependency(dependencies = "jackson")
 @Getter
 public class RedisService {
 
+    public static final String JSON_CODEC = "json";
+    public static final String STRING_CODEC = "string";
+    public static final String BYTES_CODEC = "bytes";
+
     private RedissonClient client;
+    private final Map<String, Codec> codecs = new ConcurrentHashMap<>();
 
     private final File configFile;
 
@@ -60,7 +70,12 @@ public class RedisService {
     @SneakyThrows
     @PreInitialize
     public void preInit() {
-        this.client = Redisson.create(Config.fromYAML(configFile).setCodec(new JsonJacksonCodec(JacksonService.INSTANCE.getMainMapper())));
+        Codec codec = new JsonJacksonCodec(JacksonService.INSTANCE.getMainMapper());
+        this.registerCodec(JSON_CODEC, codec);
+        this.registerCodec(STRING_CODEC, StringCodec.INSTANCE);
+        this.registerCodec(BYTES_CODEC, ByteArrayCodec.INSTANCE);
+
+        this.client = Redisson.create(Config.fromYAML(configFile).setCodec(codec));
     }
 
     @PostInitialize
@@ -80,6 +95,36 @@ public class RedisService {
         return this.client.getMap(name);
     }
 
+    /**
+     * A map with bulk reads and writes pipelined, using the default JSON codec and no near cache
+     */
+    public <K, V> RedisMapCache<K, V> getMapCache(String name) {
+        return this.getMapCache(name, JSON_CODEC, 0);
+    }
+
+    /**
+     * A map with bulk reads and writes pipelined
+     *
+     * @param codec the name of a codec registered with {@link #registerCodec(String, Codec)}
+     * @param nearCacheSize how many entries to keep locally, invalidated whenever another server changes them,
+     *                      or 0 to always read from Redis
+     */
+    public <K, V> RedisMapCache<K, V> getMapCache(String name, String codec, int nearCacheSize) {
+        return new RedisMapCache<>(this.client, name, this.getCodec(codec), nearCacheSize);
+    }
+
+    public void registerCodec(String name, Codec codec) {
+        this.codecs.put(name, codec);
+    }
+
+    public Codec getCodec(String name) {
+        Codec codec = this.codecs.get(name);
+        if (codec == null) {
+            throw new IllegalArgumentException("No codec registered as " + name);
+        }
+        return codec;
+    }
+
     public Iterable<String> getKeys(String pattern) {
         return this.client.getKeys().getKeysByPattern(pattern);
     }
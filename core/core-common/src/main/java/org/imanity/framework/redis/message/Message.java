@@ -32,4 +32,11 @@ import java.lang.annotation.Target;
 @Target({ElementType.TYPE})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Message {
+
+    /**
+     * @return the channel group this message and its subclasses are sent on when channels are split per type,
+     * or empty to give the annotated class a channel of its own
+     */
+    String channel() default "";
+
 }
@@ -24,12 +24,13 @@
 
 package org.imanity.framework.redis.message;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 
-@AllArgsConstructor
 @Getter
 public class MessageListenerData {
 
@@ -37,4 +38,23 @@ public class MessageListenerData {
     private final Method method;
     private final Class<?> messageClass;
 
+    /**
+     * The listener method bound to its instance, as {@code (Object)void}
+     */
+    private final MethodHandle handle;
+
+    public MessageListenerData(Object instance, Method method, Class<?> messageClass) {
+        this.instance = instance;
+        this.method = method;
+        this.messageClass = messageClass;
+
+        try {
+            this.handle = MethodHandles.lookup().unreflect(method)
+                    .bindTo(instance)
+                    .asType(MethodType.methodType(void.class, Object.class));
+        } catch (IllegalAccessException ex) {
+            throw new IllegalArgumentException("Couldn't access message listener " + method, ex);
+        }
+    }
+
 }
@@ -25,25 +25,48 @@
 package org.imanity.framework.redis.message;
 
 import org.imanity.framework.*;
+import org.imanity.framework.config.CoreConfig;
 import org.imanity.framework.redis.RedisService;
 import org.imanity.framework.redis.message.annotation.HandleMessage;
+import org.imanity.framework.redis.message.codec.BatchingPublisher;
+import org.imanity.framework.redis.message.codec.BinaryMessageCodec;
+import org.imanity.framework.redis.message.codec.MessageCodec;
+import org.imanity.framework.redis.message.codec.MessageTypeRegistry;
+import org.imanity.framework.redis.subscription.IRedisSubscription;
 import org.imanity.framework.redis.subscription.RedisPubSub;
 import org.imanity.framework.util.AccessUtil;
+import org.imanity.framework.util.Stacktrace;
+import org.redisson.api.RPatternTopic;
+import org.redisson.client.codec.ByteArrayCodec;
 
+import javax.annotation.Nullable;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Service(name = "messageService")
 @ServiceDependency(dependencies = "serverHandler", type = @DependencyType(ServiceDependencyType.SUB_DISABLE))
-public class MessageService {
+public class MessageService implements MessageTransport {
+
+    private static final MessageListenerData[] NO_LISTENERS = new MessageListenerData[0];
 
-    private RedisPubSub<Object> redisPubSub;
     private String channel;
+    private boolean channelPerType;
+    private CoreConfig.Messaging config;
+
+    private Map<String, RedisPubSub<byte[]>> pubSubs;
+    private Map<String, BatchingPublisher> publishers;
+    private Set<String> subscribed;
+    private RPatternTopic patternTopic;
+    private volatile boolean initialized;
+    private volatile boolean stopped;
+
+    private MessageTypeRegistry typeRegistry;
+    private MessageCodec codec;
 
     private Map<Class<?>, List<MessageListenerData>> messageListeners;
+    // listeners of every supertype per concrete message class, replaced whenever a listener registers
+    private volatile Map<Class<?>, MessageListenerData[]> dispatchTable;
 
     @Autowired
     private RedisService redisService;
@@ -51,6 +74,12 @@ public class MessageService {
     @PreInitialize
     public void preInit() {
         this.messageListeners = new ConcurrentHashMap<>(12);
+        this.dispatchTable = new ConcurrentHashMap<>(12);
+        this.typeRegistry = new MessageTypeRegistry();
+        this.pubSubs = new ConcurrentHashMap<>();
+        this.publishers = new ConcurrentHashMap<>();
+        this.subscribed = ConcurrentHashMap.newKeySet();
+        this.typeRegistry.addListener(this::subscribeForSupertypes);
 
         ComponentRegistry.registerComponentHolder(new ComponentHolder() {
 
@@ -72,22 +101,96 @@ public class MessageService {
 
     @PostInitialize
     public void init() {
-        this.channel = "imanity-server";
+        this.config = ImanityCommon.CORE_CONFIG.MESSAGING;
+        if (this.codec == null) {
+            this.codec = new BinaryMessageCodec(JacksonService.INSTANCE.getMainMapper(), this.typeRegistry, this.config.COMPRESSION_THRESHOLD);
+        }
 
-        this.redisPubSub = new RedisPubSub<>(this.channel, this.redisService, Object.class);
-        this.redisPubSub.subscribe((message -> {
-            List<MessageListenerData> listeners = this.messageListeners.get(message.getClass());
-            if (listeners == null) {
-                return;
-            }
-            for (MessageListenerData data : listeners) {
-                try {
-                    data.getMethod().invoke(data.getInstance(), message);
-                } catch (Throwable throwable) {
-                    throwable.printStackTrace();
+        this.subscribeListeners(this.config.CHANNEL_PER_TYPE);
+    }
+
+    void subscribeListeners(boolean channelPerType) {
+        // frames aren't readable by servers still on the JSON channel, so don't share it with them
+        this.channel = "imanity-server-frames";
+        this.channelPerType = channelPerType;
+
+        synchronized (this) {
+            this.initialized = true;
+            if (this.channelPerType) {
+                for (Class<?> type : this.messageListeners.keySet()) {
+                    this.subscribeFor(type);
                 }
+            } else {
+                this.subscribe(this.channel);
+            }
+        }
+    }
+
+    /**
+     * Publish everything still waiting in a batch; messages sent after this, like the ones of services
+     * stopping later, go out right away instead of waiting for a batch window nobody is left to flush
+     */
+    @PreDestroy
+    public void stop() {
+        this.stopped = true;
+        if (this.publishers != null) {
+            this.publishers.values().forEach(BatchingPublisher::close);
+        }
+    }
+
+    /**
+     * Replace the codec messages are framed with, has to be called before the service initializes
+     */
+    public void setCodec(MessageCodec codec) {
+        this.codec = codec;
+    }
+
+    public MessageTypeRegistry getTypeRegistry() {
+        return this.typeRegistry;
+    }
+
+    /**
+     * @return the channel messages of this type are sent on, or null if the type isn't a @Message
+     */
+    @Nullable
+    public String getChannel(Class<?> type) {
+        return this.channelPerType ? channelOf(this.channel, type) : this.channel;
+    }
+
+    /**
+     * The per type channel for a message type: the {@link Message#channel()} group of the closest @Message
+     * class in its hierarchy, or that class's name when it doesn't name one
+     *
+     * @return the channel, or null if the type isn't a @Message
+     */
+    @Nullable
+    public static String channelOf(String base, Class<?> type) {
+        while (type != null && type != Object.class) {
+            Message annotation = type.getAnnotation(Message.class);
+            if (annotation != null) {
+                return base + ":" + (annotation.channel().isEmpty() ? type.getName() : annotation.channel());
             }
-        }));
+
+            type = type.getSuperclass();
+        }
+        return null;
+    }
+
+    public void handleMessage(Object message) {
+        Map<Class<?>, MessageListenerData[]> dispatchTable = this.dispatchTable;
+        MessageListenerData[] listeners = dispatchTable.get(message.getClass());
+        if (listeners == null) {
+            listeners = this.resolveListeners(message.getClass());
+            dispatchTable.put(message.getClass(), listeners);
+        }
+
+        for (MessageListenerData data : listeners) {
+            try {
+                data.getHandle().invokeExact(message);
+            } catch (Throwable throwable) {
+                throwable.printStackTrace();
+            }
+        }
     }
 
     public void sendMessage(Object message) {
@@ -101,12 +204,38 @@ public class MessageService {
                 throw new IllegalArgumentException("The Message " + message.getClass() + " does not have @Message Annotation!");
             }
 
-            this.redisPubSub.publish(message);
+            this.typeRegistry.register(type);
+            this.getPublisher(this.getChannel(type)).publish(message);
         } catch (Throwable throwable) {
             throwable.printStackTrace();
         }
     }
 
+    /**
+     * Send a message on the given channel, to whoever subscribed to it with {@link #subscribe(String, IRedisSubscription)}
+     */
+    @Override
+    public void publish(String channel, Object message) {
+        this.typeRegistry.register(message.getClass());
+        this.getPublisher(channel).publish(message);
+    }
+
+    @Override
+    public void subscribe(String channel, IRedisSubscription subscription) {
+        this.getPubSub(channel).subscribe(frame -> {
+            try {
+                this.codec.decode(frame, subscription::onMessage);
+            } catch (Throwable throwable) {
+                Stacktrace.print(throwable);
+            }
+        });
+    }
+
+    @Override
+    public void registerType(Class<?> type) {
+        this.typeRegistry.register(type);
+    }
+
     public boolean isAnnotated(Class<?> messageClass) {
         while (messageClass != null && messageClass != Object.class) {
             if (messageClass.getAnnotation(Message.class) != null) {
@@ -119,7 +248,7 @@ public class MessageService {
         return false;
     }
 
-    public void registerListener(MessageListener messageListener) {
+    public synchronized void registerListener(MessageListener messageListener) {
         Method[] methods = messageListener.getClass().getDeclaredMethods();
 
         for (Method method : methods) {
@@ -130,21 +259,137 @@ public class MessageService {
                 continue;
             }
             Class<?> messageClass = method.getParameterTypes()[0];
-
-            List<MessageListenerData> listeners;
-            if (this.messageListeners.containsKey(messageClass)) {
-                listeners = this.messageListeners.get(messageClass);
-            } else {
-                listeners = new ArrayList<>();
-                this.messageListeners.put(messageClass, listeners);
-            }
+            this.typeRegistry.register(messageClass);
 
             try {
                 AccessUtil.setAccessible(method);
             } catch (ReflectiveOperationException e) {
                 throw new IllegalArgumentException(e);
             }
+
+            // copy on write, so resolving a dispatch table never sees a list being modified
+            List<MessageListenerData> listeners = new ArrayList<>(this.messageListeners.getOrDefault(messageClass, Collections.emptyList()));
             listeners.add(new MessageListenerData(messageListener, method, messageClass));
+            this.messageListeners.put(messageClass, Collections.unmodifiableList(listeners));
+
+            this.subscribeFor(messageClass);
+        }
+
+        this.dispatchTable = new ConcurrentHashMap<>(12);
+    }
+
+    /**
+     * Listeners of the class itself first, then its superclasses, then every interface it implements
+     */
+    private MessageListenerData[] resolveListeners(Class<?> messageClass) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        for (Class<?> type = messageClass; type != null; type = type.getSuperclass()) {
+            types.add(type);
+        }
+        Deque<Class<?>> interfaces = new ArrayDeque<>();
+        for (Class<?> type : new ArrayList<>(types)) {
+            interfaces.addAll(Arrays.asList(type.getInterfaces()));
+        }
+        while (!interfaces.isEmpty()) {
+            Class<?> type = interfaces.poll();
+            if (types.add(type)) {
+                interfaces.addAll(Arrays.asList(type.getInterfaces()));
+            }
+        }
+
+        List<MessageListenerData> listeners = new ArrayList<>();
+        for (Class<?> type : types) {
+            listeners.addAll(this.messageListeners.getOrDefault(type, Collections.emptyList()));
+        }
+        return listeners.isEmpty() ? NO_LISTENERS : listeners.toArray(new MessageListenerData[0]);
+    }
+
+    /**
+     * Subscribe to the channel of the listened type and the channels of its known subtypes,
+     * a @Message subclass is sent on a channel of its own so listening to the type's channel alone would miss it
+     */
+    private void subscribeFor(Class<?> messageClass) {
+        if (!this.initialized || !this.channelPerType) {
+            return;
+        }
+
+        String channel = channelOf(this.channel, messageClass);
+        if (channel == null) {
+            // an interface or a type above every @Message, it could arrive on any channel
+            this.subscribeAll();
+            return;
+        }
+
+        this.subscribe(channel);
+        for (Class<?> type : this.typeRegistry.getTypes()) {
+            if (type != messageClass && messageClass.isAssignableFrom(type)) {
+                this.subscribe(channelOf(this.channel, type));
+            }
+        }
+    }
+
+    /**
+     * A type only becomes decodable once registered, so a subtype registered after its supertype's listener
+     * is subscribed to here
+     */
+    private void subscribeForSupertypes(Class<?> type) {
+        if (!this.initialized || !this.channelPerType) {
+            return;
+        }
+
+        for (Class<?> listened : this.messageListeners.keySet()) {
+            if (listened != type && listened.isAssignableFrom(type)) {
+                this.subscribe(channelOf(this.channel, type));
+                return;
+            }
+        }
+    }
+
+    private synchronized void subscribe(@Nullable String channel) {
+        if (channel != null && this.patternTopic == null && this.subscribed.add(channel)) {
+            this.listen(channel);
+        }
+    }
+
+    void listen(String channel) {
+        this.getPubSub(channel).subscribe(this::handleFrame);
+    }
+
+    private synchronized void subscribeAll() {
+        if (this.patternTopic != null) {
+            return;
+        }
+
+        this.patternTopic = this.redisService.getClient().getPatternTopic(this.channel + ":*", ByteArrayCodec.INSTANCE);
+        this.patternTopic.addListenerAsync(byte[].class, (pattern, channel, frame) -> this.handleFrame(frame));
+
+        // the pattern covers them now, staying subscribed would deliver everything twice
+        for (String channel : this.subscribed) {
+            this.getPubSub(channel).disable();
+        }
+        this.subscribed.clear();
+    }
+
+    private void handleFrame(byte[] frame) {
+        try {
+            this.codec.decode(frame, this::handleMessage);
+        } catch (Throwable throwable) {
+            Stacktrace.print(throwable);
+        }
+    }
+
+    private RedisPubSub<byte[]> getPubSub(String channel) {
+        return this.pubSubs.computeIfAbsent(channel, name -> new RedisPubSub<>(name, this.redisService, byte[].class, ByteArrayCodec.INSTANCE));
+    }
+
+    private BatchingPublisher getPublisher(String channel) {
+        BatchingPublisher publisher = this.publishers.computeIfAbsent(channel, name -> {
+            RedisPubSub<byte[]> pubSub = this.getPubSub(name);
+            return new BatchingPublisher(this.codec, pubSub::publish, this.config.BATCH_WINDOW_MICROS, this.config.BATCH_MAX_MESSAGES);
+        });
+        if (this.stopped) {
+            publisher.close();
         }
+        return publisher;
     }
 }
@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.message.codec;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.imanity.framework.util.Stacktrace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces messages published close together into one frame
+ *
+ * A frame goes out once {@code maxMessages} are waiting or {@code windowMicros} after the first message of
+ * the batch was enqueued, whichever comes first. A window of 0 publishes every message on its own, right
+ * away, on the calling thread.
+ *
+ * Every message is encoded on the calling thread before {@link #publish(Object)} returns, so it can be
+ * changed or reused right after and a message that can't be encoded fails on its own; only the encoded
+ * records wait for the batch. Full batches are handed over in the order they were closed and sent by one
+ * thread at a time, so messages published from one thread arrive in order.
+ *
+ * Once {@link #close()} was called nothing waits anymore, every message is sent right away.
+ */
+public class BatchingPublisher {
+
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("imanity-message-batcher")
+            .setUncaughtExceptionHandler((thread, throwable) -> Stacktrace.print(throwable))
+            .build());
+
+    private final MessageCodec codec;
+    private final Consumer<byte[]> sink;
+    private final long windowMicros;
+    private final int maxMessages;
+
+    private final Object lock = new Object();
+    private List<byte[]> batch;
+    private boolean flushScheduled;
+    private volatile boolean closed;
+    private final Queue<List<byte[]>> ready = new ArrayDeque<>();
+    private final ReentrantLock sending = new ReentrantLock();
+
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    public BatchingPublisher(MessageCodec codec, Consumer<byte[]> sink, long windowMicros, int maxMessages) {
+        this.codec = codec;
+        this.sink = sink;
+        this.windowMicros = windowMicros;
+        this.maxMessages = Math.max(1, maxMessages);
+        this.batch = new ArrayList<>(this.maxMessages);
+    }
+
+    /**
+     * @throws UncheckedIOException if the message couldn't be encoded, nothing is sent for it then
+     */
+    public void publish(Object message) {
+        final byte[] record;
+        try {
+            record = this.codec.encodeRecord(message);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Couldn't encode " + message.getClass().getName(), ex);
+        }
+
+        if (this.windowMicros <= 0 || this.maxMessages == 1 || this.closed) {
+            final List<byte[]> single = new ArrayList<>(1);
+            single.add(record);
+            this.send(single);
+            return;
+        }
+
+        boolean full = false;
+        synchronized (this.lock) {
+            this.batch.add(record);
+            if (this.batch.size() >= this.maxMessages) {
+                this.swap();
+                full = true;
+            } else if (!this.flushScheduled) {
+                this.flushScheduled = true;
+                FLUSHER.schedule(this::flushScheduled, this.windowMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+
+        if (full) {
+            this.drain();
+        }
+    }
+
+    /**
+     * Publish whatever is waiting right now
+     */
+    public void flush() {
+        synchronized (this.lock) {
+            this.swap();
+        }
+        this.drain();
+    }
+
+    /**
+     * Publish whatever is waiting and send every message published from now on right away, for when
+     * whatever the frames are sent through is about to go away
+     */
+    public void close() {
+        this.closed = true;
+        this.flush();
+    }
+
+    public long getMessagesPublished() {
+        return this.messages.sum();
+    }
+
+    public long getFramesPublished() {
+        return this.frames.sum();
+    }
+
+    public long getBytesPublished() {
+        return this.bytes.sum();
+    }
+
+    private void flushScheduled() {
+        synchronized (this.lock) {
+            this.flushScheduled = false;
+            this.swap();
+        }
+        this.drain();
+    }
+
+    private void swap() {
+        if (!this.batch.isEmpty()) {
+            this.ready.add(this.batch);
+            this.batch = new ArrayList<>(this.maxMessages);
+        }
+    }
+
+    private void drain() {
+        // whoever holds the sending lock sends every ready batch, including the ones closed while it was busy
+        while (this.sending.tryLock()) {
+            try {
+                List<byte[]> records;
+                while ((records = this.poll()) != null) {
+                    this.send(records);
+                }
+            } finally {
+                this.sending.unlock();
+            }
+
+            synchronized (this.lock) {
+                if (this.ready.isEmpty()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<byte[]> poll() {
+        synchronized (this.lock) {
+            return this.ready.poll();
+        }
+    }
+
+    private void send(List<byte[]> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        final byte[] frame;
+        try {
+            frame = this.codec.frame(records);
+        } catch (Throwable throwable) {
+            Stacktrace.print(throwable);
+            return;
+        }
+
+        this.sink.accept(frame);
+        this.messages.add(records.size());
+        this.frames.increment();
+        this.bytes.add(frame.length);
+    }
+
+}
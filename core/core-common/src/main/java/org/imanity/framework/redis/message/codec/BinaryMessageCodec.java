@@ -0,0 +1,242 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.message.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.imanity.framework.util.Stacktrace;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A compact frame format: a header byte, then every message as its type id and Jackson payload
+ *
+ * <pre>
+ * frame   := header [varint uncompressed length if deflated] body
+ * body    := varint count (int32 type id, varint length, payload){count}
+ * </pre>
+ *
+ * The payload is written by the given {@link ObjectMapper} without any type information; hand it a mapper
+ * over a binary factory (Smile, CBOR) to shrink it further. Bodies above {@code compressionThreshold}
+ * bytes are deflated.
+ */
+public class BinaryMessageCodec implements MessageCodec {
+
+    private static final int VERSION = 1;
+    private static final int FLAG_DEFLATED = 0x01;
+
+    private final ObjectMapper mapper;
+    private final MessageTypeRegistry registry;
+    private final int compressionThreshold;
+
+    public BinaryMessageCodec(ObjectMapper mapper, MessageTypeRegistry registry, int compressionThreshold) {
+        this.mapper = mapper;
+        this.registry = registry;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] encodeRecord(Object message) throws IOException {
+        final byte[] payload = this.mapper.writeValueAsBytes(message);
+        final Output record = new Output(payload.length + 9);
+        record.writeInt(this.registry.register(message.getClass()));
+        record.writeVarInt(payload.length);
+        record.write(payload);
+        return record.toByteArray();
+    }
+
+    @Override
+    public byte[] frame(List<byte[]> records) throws IOException {
+        int size = 5;
+        for (byte[] record : records) {
+            size += record.length;
+        }
+
+        final Output body = new Output(size);
+        body.writeVarInt(records.size());
+        for (byte[] record : records) {
+            body.write(record);
+        }
+
+        if (this.compressionThreshold <= 0 || body.size() <= this.compressionThreshold) {
+            final Output frame = new Output(body.size() + 1);
+            frame.write(VERSION << 4);
+            frame.write(body.buffer(), 0, body.size());
+            return frame.toByteArray();
+        }
+
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body.buffer(), 0, body.size());
+            deflater.finish();
+
+            final Output frame = new Output(body.size() / 2 + 8);
+            frame.write(VERSION << 4 | FLAG_DEFLATED);
+            frame.writeVarInt(body.size());
+            final byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                frame.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return frame.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public void decode(byte[] frame, Consumer<Object> consumer) throws IOException {
+        Input input = new Input(frame, 0, frame.length);
+        final int header = input.read();
+        if (header >>> 4 != VERSION) {
+            throw new IOException("Unsupported message frame version " + (header >>> 4));
+        }
+
+        if ((header & FLAG_DEFLATED) != 0) {
+            final byte[] body = new byte[input.readVarInt()];
+            final Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(frame, input.position, frame.length - input.position);
+                int length = 0;
+                while (length < body.length && !inflater.finished()) {
+                    length += inflater.inflate(body, length, body.length - length);
+                }
+            } catch (DataFormatException ex) {
+                throw new IOException("Corrupted message frame", ex);
+            } finally {
+                inflater.end();
+            }
+            input = new Input(body, 0, body.length);
+        }
+
+        final int count = input.readVarInt();
+        for (int i = 0; i < count; i++) {
+            final int typeId = input.readInt();
+            final int length = input.readVarInt();
+            final int offset = input.skip(length);
+
+            final Class<?> type = this.registry.getType(typeId);
+            if (type == null) {
+                continue;
+            }
+
+            final Object message;
+            try {
+                message = this.mapper.readValue(input.bytes, offset, length, type);
+            } catch (IOException ex) {
+                // one bad message shouldn't take the rest of the frame with it
+                Stacktrace.print(ex);
+                continue;
+            }
+            consumer.accept(message);
+        }
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        private Output(int size) {
+            super(size);
+        }
+
+        private byte[] buffer() {
+            return this.buf;
+        }
+
+        private void writeInt(int value) {
+            this.write(value >>> 24);
+            this.write(value >>> 16);
+            this.write(value >>> 8);
+            this.write(value);
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                this.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.write(value);
+        }
+
+        @Override
+        public void write(byte[] bytes) {
+            this.write(bytes, 0, bytes.length);
+        }
+
+    }
+
+    private static final class Input {
+
+        private final byte[] bytes;
+        private final int limit;
+        private int position;
+
+        private Input(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.position = offset;
+            this.limit = offset + length;
+        }
+
+        private int read() throws IOException {
+            if (this.position >= this.limit) {
+                throw new IOException("Truncated message frame");
+            }
+            return this.bytes[this.position++] & 0xFF;
+        }
+
+        private int readInt() throws IOException {
+            return this.read() << 24 | this.read() << 16 | this.read() << 8 | this.read();
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                final int b = this.read();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in message frame");
+        }
+
+        /**
+         * @return the offset the skipped bytes started at
+         */
+        private int skip(int length) throws IOException {
+            if (length < 0 || this.position + length > this.limit) {
+                throw new IOException("Truncated message frame");
+            }
+            final int offset = this.position;
+            this.position += length;
+            return offset;
+        }
+
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.message.codec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Turns a batch of messages into a single frame for the wire and back
+ */
+public interface MessageCodec {
+
+    default byte[] encode(List<?> messages) throws IOException {
+        final List<byte[]> records = new ArrayList<>(messages.size());
+        for (Object message : messages) {
+            records.add(this.encodeRecord(message));
+        }
+        return this.frame(records);
+    }
+
+    /**
+     * Encode a single message into a record that {@link #frame(List)} can put into a frame, nothing of the
+     * message is read after this returns
+     */
+    byte[] encodeRecord(Object message) throws IOException;
+
+    /**
+     * Put records from {@link #encodeRecord(Object)} into one frame, in the order given
+     */
+    byte[] frame(List<byte[]> records) throws IOException;
+
+    /**
+     * Decode a frame, handing each message in it to {@code consumer} in the order they were encoded
+     *
+     * Messages of a type this side doesn't know are skipped
+     */
+    void decode(byte[] frame, Consumer<Object> consumer) throws IOException;
+
+}
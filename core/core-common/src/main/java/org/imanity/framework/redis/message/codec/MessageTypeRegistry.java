@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.message.codec;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Maps message classes to the 32 bit type ids written on the wire instead of class names
+ *
+ * Ids are derived from the class name, so every server agrees on them without having to coordinate; a
+ * server can only decode the types registered on its side, which is every type it listens to or sends.
+ */
+public class MessageTypeRegistry {
+
+    private final Map<Integer, Class<?>> types = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Integer> ids = new ConcurrentHashMap<>();
+    private final List<Consumer<Class<?>>> listeners = new CopyOnWriteArrayList<>();
+
+    public int register(Class<?> type) {
+        final Integer id = this.ids.get(type);
+        if (id != null) {
+            return id;
+        }
+
+        final int typeId = typeId(type.getName());
+        final Class<?> previous = this.types.putIfAbsent(typeId, type);
+        if (previous != null && previous != type) {
+            if (!previous.getName().equals(type.getName())) {
+                throw new IllegalArgumentException("Message type id collision between " + previous.getName() + " and " + type.getName());
+            }
+
+            // the same class loaded again, by a reloaded plugin for example
+            this.types.put(typeId, type);
+            this.ids.remove(previous);
+        }
+        this.ids.put(type, typeId);
+
+        for (Consumer<Class<?>> listener : this.listeners) {
+            listener.accept(type);
+        }
+        return typeId;
+    }
+
+    /**
+     * Get notified of every type registered from now on
+     */
+    public void addListener(Consumer<Class<?>> listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * @return every registered type, which are all the types this server is able to decode
+     */
+    public Set<Class<?>> getTypes() {
+        return Collections.unmodifiableSet(this.ids.keySet());
+    }
+
+    @Nullable
+    public Class<?> getType(int typeId) {
+        return this.types.get(typeId);
+    }
+
+    /**
+     * 32 bit FNV-1a over the class name
+     */
+    public static int typeId(String name) {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= name.charAt(i);
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.rpc;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.imanity.framework.task.TimingWheel;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+@Getter
+abstract class PendingCall {
+
+    private final long id;
+    private final String description;
+    @Setter
+    private TimingWheel.Timeout<PendingCall> timeout;
+
+    PendingCall(long id, String description) {
+        this.id = id;
+        this.description = description;
+    }
+
+    /**
+     * @return true once the call got every response it waits for
+     */
+    abstract boolean accept(RpcResponse response);
+
+    abstract void expire();
+
+    abstract void fail(Throwable throwable);
+
+    abstract CompletableFuture<?> getFuture();
+
+    static final class Single<R extends RpcResponse> extends PendingCall {
+
+        @Getter
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+
+        Single(long id, String description) {
+            super(id, description);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        boolean accept(RpcResponse response) {
+            if (response.isFailed()) {
+                this.future.completeExceptionally(new RpcException(response.getResponder(), response.getError()));
+            } else {
+                this.future.complete((R) response);
+            }
+            return true;
+        }
+
+        @Override
+        void expire() {
+            this.future.completeExceptionally(new TimeoutException(this.getDescription() + " timed out"));
+        }
+
+        @Override
+        void fail(Throwable throwable) {
+            this.future.completeExceptionally(throwable);
+        }
+
+    }
+
+    /**
+     * Waits for the responses of several servers, completing with the ones that succeeded
+     */
+    static final class Gather<R extends RpcResponse> extends PendingCall {
+
+        @Getter
+        private final CompletableFuture<Map<String, R>> future = new CompletableFuture<>();
+        private final Map<String, R> responses = new HashMap<>();
+        private int remaining;
+
+        Gather(long id, String description, int expected) {
+            super(id, description);
+            this.remaining = expected;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        synchronized boolean accept(RpcResponse response) {
+            if (!response.isFailed()) {
+                this.responses.put(response.getResponder(), (R) response);
+            }
+            if (--this.remaining > 0) {
+                return false;
+            }
+
+            this.future.complete(Collections.unmodifiableMap(this.responses));
+            return true;
+        }
+
+        @Override
+        synchronized void expire() {
+            this.future.complete(Collections.unmodifiableMap(new HashMap<>(this.responses)));
+        }
+
+        @Override
+        void fail(Throwable throwable) {
+            this.future.completeExceptionally(throwable);
+        }
+
+    }
+
+}
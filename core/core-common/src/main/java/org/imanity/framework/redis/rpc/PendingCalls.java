@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.rpc;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.imanity.framework.task.TimingWheel;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Calls waiting for their responses by call id, each with its timeout on a {@link TimingWheel}
+ * so expiring them takes no thread or scheduled task per call
+ */
+final class PendingCalls {
+
+    private final Long2ObjectOpenHashMap<PendingCall> calls = new Long2ObjectOpenHashMap<>();
+    private final TimingWheel<PendingCall> wheel = new TimingWheel<>();
+    private final LongSupplier clock;
+    private final long tickMillis;
+    private final long startMillis;
+
+    PendingCalls(LongSupplier clock, long tickMillis) {
+        this.clock = clock;
+        this.tickMillis = tickMillis;
+        this.startMillis = clock.getAsLong();
+    }
+
+    synchronized void add(PendingCall call, long timeoutMillis) {
+        long ticks = Math.min((timeoutMillis + this.tickMillis - 1) / this.tickMillis, TimingWheel.MAX_DELAY);
+        // the wheel may be up to a tick behind the clock, schedule relative to where it should be
+        long behind = this.currentTick() - this.wheel.getTick();
+        call.setTimeout(this.wheel.schedule(Math.max(1, ticks + behind), call));
+        this.calls.put(call.getId(), call);
+    }
+
+    @Nullable
+    synchronized PendingCall get(long id) {
+        return this.calls.get(id);
+    }
+
+    synchronized void remove(PendingCall call) {
+        if (this.calls.remove(call.getId(), call)) {
+            this.wheel.cancel(call.getTimeout());
+        }
+    }
+
+    /**
+     * Expire every call whose timeout passed
+     */
+    void tick() {
+        List<PendingCall> expired = new ArrayList<>();
+        synchronized (this) {
+            long target = this.currentTick();
+            while (this.wheel.getTick() < target) {
+                this.wheel.advance(call -> {
+                    this.calls.remove(call.getId());
+                    expired.add(call);
+                });
+            }
+        }
+
+        // completed outside the lock, callbacks on the futures may well make new calls
+        for (PendingCall call : expired) {
+            call.expire();
+        }
+    }
+
+    synchronized List<PendingCall> clear() {
+        List<PendingCall> calls = new ArrayList<>(this.calls.values());
+        for (PendingCall call : calls) {
+            this.wheel.cancel(call.getTimeout());
+        }
+        this.calls.clear();
+        return calls;
+    }
+
+    synchronized int size() {
+        return this.calls.size();
+    }
+
+    private long currentTick() {
+        return (this.clock.getAsLong() - this.startMillis) / this.tickMillis;
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.rpc;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A call to another server, answered with a {@code R}. Subclasses fill the type parameter in directly,
+ * so the response type can be read off the class:
+ *
+ * <pre>
+ * public class PlayerLocationRequest extends RpcRequest&lt;PlayerLocationResponse&gt; {
+ *     private UUID player;
+ * }
+ * </pre>
+ *
+ * A request is filled in by {@link RpcService} and encoded while it's sent, so one instance can be reused
+ * for any number of calls, also at once.
+ */
+@Getter
+@Setter
+public abstract class RpcRequest<R extends RpcResponse> {
+
+    private long callId;
+    private String sender;
+
+}
@@ -0,0 +1,285 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.rpc;
+
+import lombok.Getter;
+import org.imanity.framework.*;
+import org.imanity.framework.redis.message.MessageService;
+import org.imanity.framework.redis.message.MessageTransport;
+import org.imanity.framework.redis.server.ServerHandler;
+import org.imanity.framework.util.Stacktrace;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Request/response calls between servers on top of the messaging layer.
+ *
+ * Every server listens on a channel of its own, derived from its name; requests go to the channel of the
+ * server they're for, and responses back to the channel of the server that sent the request, matched to the
+ * waiting call by its id. Calls that don't get their response in time are failed from a timing wheel ticked
+ * by one thread, so any number of calls can be waiting without a thread or a scheduled task each.
+ */
+@Service(name = "rpc")
+@ServiceDependency(dependencies = {"messageService", "serverHandler"}, type = @DependencyType(ServiceDependencyType.SUB_DISABLE))
+public class RpcService {
+
+    public static final String CHANNEL = "imanity-rpc";
+    public static final long TICK_MILLIS = 10L;
+
+    private static final Map<Class<?>, Class<?>> RESPONSE_TYPES = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, Function<RpcRequest<?>, CompletionStage<? extends RpcResponse>>> handlers = new ConcurrentHashMap<>();
+    private final AtomicLong callIds = new AtomicLong(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE / 2));
+
+    @Getter
+    private String serverName;
+    private MessageTransport transport;
+    private PendingCalls pendingCalls;
+    private Thread ticker;
+
+    @Autowired
+    private ServerHandler serverHandler;
+    @Autowired
+    private MessageService messageService;
+
+    @PostInitialize
+    public void init() {
+        this.start(this.serverHandler.getCurrentServer().getName(), this.messageService, System::currentTimeMillis, TICK_MILLIS);
+
+        this.ticker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(TICK_MILLIS);
+                } catch (InterruptedException ex) {
+                    break;
+                }
+                this.tick();
+            }
+        }, "Imanity RPC Timeout Thread");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * Start listening for calls on the channel of the server, {@link #tick()} has to be called every tick from then on
+     */
+    public void start(String serverName, MessageTransport transport, LongSupplier clock, long tickMillis) {
+        this.serverName = serverName;
+        this.transport = transport;
+        this.pendingCalls = new PendingCalls(clock, tickMillis);
+
+        this.transport.subscribe(channelOf(serverName), this::handleMessage);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.ticker != null) {
+            this.ticker.interrupt();
+        }
+
+        if (this.pendingCalls != null) {
+            CancellationException exception = new CancellationException("The RPC service stopped");
+            for (PendingCall call : this.pendingCalls.clear()) {
+                call.fail(exception);
+            }
+        }
+    }
+
+    /**
+     * Expire the calls whose timeout passed
+     */
+    public void tick() {
+        try {
+            this.pendingCalls.tick();
+        } catch (Throwable throwable) {
+            Stacktrace.print(throwable);
+        }
+    }
+
+    /**
+     * Answer requests of a type with the handler
+     */
+    public <Q extends RpcRequest<R>, R extends RpcResponse> void registerHandler(Class<Q> type, Function<Q, R> handler) {
+        this.registerAsyncHandler(type, request -> CompletableFuture.completedFuture(handler.apply(request)));
+    }
+
+    /**
+     * Answer requests of a type with the handler, the response is sent once the returned stage completes
+     */
+    @SuppressWarnings("unchecked")
+    public <Q extends RpcRequest<R>, R extends RpcResponse> void registerAsyncHandler(Class<Q> type, Function<Q, ? extends CompletionStage<R>> handler) {
+        this.transport.registerType(type);
+        this.handlers.put(type, (Function<RpcRequest<?>, CompletionStage<? extends RpcResponse>>) (Function<?, ?>) handler);
+    }
+
+    /**
+     * Call a server
+     *
+     * @return the response, failed with a {@link TimeoutException} if it didn't arrive within the timeout
+     * or with an {@link RpcException} if the server couldn't answer
+     */
+    public <R extends RpcResponse> CompletableFuture<R> call(String server, RpcRequest<R> request, long timeout, TimeUnit unit) {
+        PendingCall.Single<R> call = new PendingCall.Single<>(this.callIds.incrementAndGet(), describe(request, server));
+        this.send(call, Collections.singleton(server), request, unit.toMillis(timeout));
+        return call.getFuture();
+    }
+
+    /**
+     * Call several servers at once
+     *
+     * @return the successful responses by server name, once every server answered or the timeout passed,
+     * servers that failed or didn't answer in time are left out
+     */
+    public <R extends RpcResponse> CompletableFuture<Map<String, R>> gather(Collection<String> servers, RpcRequest<R> request, long timeout, TimeUnit unit) {
+        if (servers.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+
+        PendingCall.Gather<R> call = new PendingCall.Gather<>(this.callIds.incrementAndGet(), describe(request, servers.size() + " servers"), servers.size());
+        this.send(call, servers, request, unit.toMillis(timeout));
+        return call.getFuture();
+    }
+
+    /**
+     * @return the number of calls still waiting for responses
+     */
+    public int getPendingCalls() {
+        return this.pendingCalls.size();
+    }
+
+    private void send(PendingCall call, Collection<String> servers, RpcRequest<?> request, long timeoutMillis) {
+        this.transport.registerType(responseTypeOf(request.getClass()));
+
+        this.pendingCalls.add(call, timeoutMillis);
+        // cancelled or completed, either way nothing needs to wait for it anymore
+        call.getFuture().whenComplete((result, throwable) -> this.pendingCalls.remove(call));
+
+        try {
+            // the transport encodes before publish returns, holding the request keeps another call sending
+            // the same instance from stamping its id in between
+            synchronized (request) {
+                request.setCallId(call.getId());
+                request.setSender(this.serverName);
+                for (String server : servers) {
+                    this.transport.publish(channelOf(server), request);
+                }
+            }
+        } catch (Throwable throwable) {
+            call.fail(throwable);
+        }
+    }
+
+    private void handleMessage(Object message) {
+        if (message instanceof RpcResponse) {
+            this.handleResponse((RpcResponse) message);
+        } else if (message instanceof RpcRequest) {
+            this.handleRequest((RpcRequest<?>) message);
+        }
+    }
+
+    private void handleResponse(RpcResponse response) {
+        PendingCall call = this.pendingCalls.get(response.getCallId());
+        if (call != null && call.accept(response)) {
+            this.pendingCalls.remove(call);
+        }
+    }
+
+    private void handleRequest(RpcRequest<?> request) {
+        Function<RpcRequest<?>, CompletionStage<? extends RpcResponse>> handler = this.handlers.get(request.getClass());
+        if (handler == null) {
+            this.reply(request, null, "No handler for " + request.getClass().getSimpleName());
+            return;
+        }
+
+        CompletionStage<? extends RpcResponse> stage;
+        try {
+            stage = handler.apply(request);
+        } catch (Throwable throwable) {
+            this.reply(request, null, throwable.toString());
+            return;
+        }
+
+        stage.whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                this.reply(request, null, throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause().toString() : throwable.toString());
+            } else if (response == null) {
+                this.reply(request, null, "The handler returned no response");
+            } else {
+                this.reply(request, response, null);
+            }
+        });
+    }
+
+    private void reply(RpcRequest<?> request, RpcResponse response, String error) {
+        try {
+            if (response == null) {
+                response = (RpcResponse) responseTypeOf(request.getClass()).newInstance();
+            }
+            // handlers may hand the same response to several requests at once
+            synchronized (response) {
+                response.setCallId(request.getCallId());
+                response.setResponder(this.serverName);
+                response.setError(error);
+
+                this.transport.publish(channelOf(request.getSender()), response);
+            }
+        } catch (Throwable throwable) {
+            Stacktrace.print(throwable);
+        }
+    }
+
+    public static String channelOf(String server) {
+        return CHANNEL + ":" + server;
+    }
+
+    /**
+     * @return the response type a request class fills the type parameter of {@link RpcRequest} in with
+     */
+    public static Class<?> responseTypeOf(Class<?> requestType) {
+        return RESPONSE_TYPES.computeIfAbsent(requestType, type -> {
+            for (Class<?> current = type; current != null && current != RpcRequest.class; current = current.getSuperclass()) {
+                Type superType = current.getGenericSuperclass();
+                if (superType instanceof ParameterizedType && ((ParameterizedType) superType).getRawType() == RpcRequest.class) {
+                    Type argument = ((ParameterizedType) superType).getActualTypeArguments()[0];
+                    if (argument instanceof Class) {
+                        return (Class<?>) argument;
+                    }
+                }
+            }
+            throw new IllegalArgumentException(type.getName() + " doesn't declare its response type, extend RpcRequest<YourResponse> directly");
+        });
+    }
+
+    private static String describe(RpcRequest<?> request, String target) {
+        return request.getClass().getSimpleName() + " to " + target;
+    }
+
+}
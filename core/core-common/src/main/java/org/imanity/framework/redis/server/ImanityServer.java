@@ -33,6 +33,7 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.imanity.framework.ImanityCommon;
@@ -40,8 +41,11 @@ import org.imanity.framework.redis.server.enums.ServerState;
 import org.imanity.framework.util.JsonChain;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 @Getter
 @Setter
@@ -50,11 +54,17 @@ import java.util.Map;
 public class ImanityServer {
 
     private String name;
-    private int onlinePlayers;
-    private int maxPlayers;
-    private ServerState serverState;
-
-    private final Map<String, String> metadata = new HashMap<>();
+    private volatile int onlinePlayers;
+    private volatile int maxPlayers;
+    private volatile ServerState serverState;
+
+    // replaced as a whole whenever it changes, so readers always see one consistent parsed snapshot
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile ServerMetadata metadata = ServerMetadata.EMPTY;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Map<String, String> metadataView = new MetadataView();
 
     public ImanityServer(String name) {
         this.name = name;
@@ -76,33 +86,55 @@ public class ImanityServer {
 
         object = data.get("metadata");
         if (object instanceof Map) {
-            this.metadata.clear();
-            this.metadata.putAll((Map<? extends String, ? extends String>) object);
+            this.metadata = this.metadata.update((Map<?, ?>) object);
         }
     }
 
+    /**
+     * @return the metadata as it is right now, parsed once, unaffected by later changes
+     */
+    public ServerMetadata getMetadataSnapshot() {
+        return this.metadata;
+    }
+
+    /**
+     * @return a live view of the raw metadata, changes made through it go through {@link #putMetadata(String, String)}
+     * and {@link #removeMetadata(String)}; prefer {@link #getMetadataSnapshot()} for reading
+     */
+    public Map<String, String> getMetadata() {
+        return this.metadataView;
+    }
+
+    public synchronized void putMetadata(String key, String value) {
+        this.metadata = this.metadata.with(key, value);
+    }
+
+    public synchronized void removeMetadata(String key) {
+        this.metadata = this.metadata.without(key);
+    }
+
+    public boolean isFull() {
+        return this.onlinePlayers >= this.maxPlayers;
+    }
+
     public int getInt(String key) {
-        try {
-            return Integer.parseInt(metadata.get(key));
-        } catch (NumberFormatException ex) {
-            return -1;
-        }
+        return this.metadata.getInt(key);
     }
 
     public double getDouble(String key) {
-        try {
-            return Double.parseDouble(metadata.get(key));
-        } catch (NumberFormatException ex) {
-            return -1D;
-        }
+        return this.metadata.getDouble(key);
     }
 
     public boolean getBoolean(String key) {
-        return Boolean.parseBoolean(metadata.get(key));
+        return this.metadata.getBoolean(key);
     }
 
     public String getString(String key) {
-        return metadata.get(key);
+        return this.metadata.getString(key);
+    }
+
+    private synchronized void clearMetadata() {
+        this.metadata = ServerMetadata.EMPTY;
     }
 
     public JsonChain json() {
@@ -110,6 +142,84 @@ public class ImanityServer {
                 .addProperty("serverName", this.name);
     }
 
+    private final class MetadataView extends AbstractMap<String, String> {
+
+        @Override
+        public String get(Object key) {
+            return key instanceof String ? metadata.getString((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && metadata.contains((String) key);
+        }
+
+        @Override
+        public int size() {
+            return metadata.size();
+        }
+
+        @Override
+        public String put(String key, String value) {
+            String previous = metadata.getString(key);
+            putMetadata(key, value);
+            return previous;
+        }
+
+        @Override
+        public String remove(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            String previous = metadata.getString((String) key);
+            removeMetadata((String) key);
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            clearMetadata();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    Iterator<Entry<String, String>> iterator = metadata.asMap().entrySet().iterator();
+                    return new Iterator<Entry<String, String>>() {
+                        private Entry<String, String> last;
+
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            return this.last = iterator.next();
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (this.last == null) {
+                                throw new IllegalStateException();
+                            }
+                            removeMetadata(this.last.getKey());
+                            this.last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return metadata.size();
+                }
+            };
+        }
+
+    }
+
     public static class Serializer extends StdSerializer<ImanityServer> {
 
         protected Serializer() {
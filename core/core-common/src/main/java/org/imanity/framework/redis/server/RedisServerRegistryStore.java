@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.server;
+
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RMapAsync;
+import org.redisson.api.RedissonClient;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the state of a server in the hash at {@code Server:<name>} and its heartbeat in an expiring
+ * {@code ServerHeartbeat:<name>} key. The hash expires along with the heartbeat, so a server that dies without
+ * deleting it doesn't leave it behind. Writes go out as one batch, and only the startup resync scans keys.
+ */
+public class RedisServerRegistryStore implements ServerRegistryStore {
+
+    public static final String HEARTBEAT = ServerHandler.METADATA + "Heartbeat";
+
+    private final RedissonClient client;
+
+    public RedisServerRegistryStore(RedissonClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public void write(String server, Map<String, Object> fields, long heartbeatMillis) {
+        RBatch batch = this.client.createBatch();
+        RMapAsync<String, Object> state = batch.getMap(stateKey(server));
+        state.putAllAsync(fields);
+        state.expireAsync(heartbeatMillis, TimeUnit.MILLISECONDS);
+        batch.getBucket(heartbeatKey(server)).setAsync(Boolean.TRUE, heartbeatMillis, TimeUnit.MILLISECONDS);
+        batch.execute();
+    }
+
+    @Override
+    public void heartbeat(String server, long heartbeatMillis) {
+        RBatch batch = this.client.createBatch();
+        batch.getMap(stateKey(server)).expireAsync(heartbeatMillis, TimeUnit.MILLISECONDS);
+        batch.getBucket(heartbeatKey(server)).setAsync(Boolean.TRUE, heartbeatMillis, TimeUnit.MILLISECONDS);
+        batch.execute();
+    }
+
+    @Nullable
+    @Override
+    public Map<String, Object> read(String server) {
+        Map<String, Object> data = this.client.<String, Object>getMap(stateKey(server)).readAllMap();
+        return data.isEmpty() ? null : data;
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> readAll() {
+        RBatch batch = this.client.createBatch();
+        Map<String, RFuture<Map<String, Object>>> futures = new LinkedHashMap<>();
+        for (String key : this.client.getKeys().getKeysByPattern(HEARTBEAT + ":*")) {
+            String name = serverName(key);
+            futures.put(name, batch.<String, Object>getMap(stateKey(name)).readAllMapAsync());
+        }
+        if (futures.isEmpty()) {
+            return new HashMap<>();
+        }
+        batch.execute();
+
+        Map<String, Map<String, Object>> servers = new HashMap<>(futures.size());
+        futures.forEach((name, future) -> {
+            Map<String, Object> data = future.getNow();
+            if (data != null && !data.isEmpty()) {
+                servers.put(name, data);
+            }
+        });
+        return servers;
+    }
+
+    @Override
+    public void delete(String server) {
+        RBatch batch = this.client.createBatch();
+        batch.getMap(stateKey(server)).deleteAsync();
+        batch.getBucket(heartbeatKey(server)).deleteAsync();
+        batch.execute();
+    }
+
+    public static String stateKey(String server) {
+        return ServerHandler.METADATA + ":" + server;
+    }
+
+    public static String heartbeatKey(String server) {
+        return HEARTBEAT + ":" + server;
+    }
+
+    /**
+     * @return the server name a state or heartbeat key belongs to
+     */
+    public static String serverName(String key) {
+        return key.substring(key.indexOf(':') + 1);
+    }
+
+}
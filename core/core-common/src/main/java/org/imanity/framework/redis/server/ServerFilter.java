@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.server;
+
+import lombok.experimental.UtilityClass;
+import org.imanity.framework.redis.server.enums.ServerState;
+
+import java.util.Objects;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Filters for {@link ServerHandler#findServers(Predicate)}, combine them with {@link Predicate#and(Predicate)}
+ *
+ * <pre>
+ * serverHandler.findServers(ServerFilter.inState(ServerState.RUNNING).and(ServerFilter.notFull()));
+ * </pre>
+ *
+ * They only read the parsed metadata snapshots, so running them over every server on each refresh is cheap.
+ */
+@UtilityClass
+public class ServerFilter {
+
+    public Predicate<ImanityServer> inState(ServerState state) {
+        return server -> server.getServerState() == state;
+    }
+
+    public Predicate<ImanityServer> notFull() {
+        return server -> !server.isFull();
+    }
+
+    public Predicate<ImanityServer> hasMetadata(String key) {
+        return server -> server.getMetadataSnapshot().contains(key);
+    }
+
+    public Predicate<ImanityServer> metadataEquals(String key, String value) {
+        return server -> Objects.equals(server.getMetadataSnapshot().getString(key), value);
+    }
+
+    /**
+     * Servers whose metadata value is an int matching the predicate
+     */
+    public Predicate<ImanityServer> metadataInt(String key, IntPredicate predicate) {
+        return server -> {
+            ServerMetadata metadata = server.getMetadataSnapshot();
+            return metadata.isInt(key) && predicate.test(metadata.getInt(key));
+        };
+    }
+
+    /**
+     * Servers whose metadata value is a number matching the predicate
+     */
+    public Predicate<ImanityServer> metadataDouble(String key, DoublePredicate predicate) {
+        return server -> {
+            ServerMetadata metadata = server.getMetadataSnapshot();
+            return metadata.isDouble(key) && predicate.test(metadata.getDouble(key));
+        };
+    }
+
+    public Predicate<ImanityServer> metadataTrue(String key) {
+        return server -> server.getMetadataSnapshot().getBoolean(key);
+    }
+
+}
@@ -30,12 +30,12 @@ import org.imanity.framework.redis.RedisService;
 import org.imanity.framework.redis.message.MessageService;
 import org.imanity.framework.redis.server.enums.ServerState;
 import org.imanity.framework.redis.server.message.ServerDeleteMessage;
-import org.imanity.framework.redis.server.message.ServerStateChangedMessage;
-import org.imanity.framework.redis.server.thread.FetchThread;
-import org.imanity.framework.redis.server.thread.PushThread;
+import org.imanity.framework.redis.server.thread.HeartbeatThread;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 @Service(name = "serverHandler")
 @ServiceDependency(dependencies = "redis", type = @DependencyType(ServiceDependencyType.SUB_DISABLE))
@@ -44,10 +44,8 @@ public class ServerHandler {
 
     public static final String METADATA = ImanityCommon.METADATA_PREFIX + "Server";
 
-    private final Map<String, ImanityServer> servers = new HashMap<>();
-
-    private FetchThread fetchThread;
-    private PushThread pushThread;
+    private ServerRegistry registry;
+    private HeartbeatThread heartbeatThread;
 
     private ImanityServer currentServer;
 
@@ -61,23 +59,42 @@ public class ServerHandler {
         this.currentServer = new ImanityServer(ImanityCommon.CORE_CONFIG.CURRENT_SERVER);
         this.currentServer.setServerState(ServerState.BOOTING);
 
-        this.fetchThread = new FetchThread(this);
-        this.fetchThread.start();
+        long interval = ImanityCommon.CORE_CONFIG.MESSAGING.SERVER_HEARTBEAT_MILLIS;
+        this.registry = new ServerRegistry(this.currentServer,
+                new RedisServerRegistryStore(this.redis.getClient()),
+                message -> this.messageService.sendMessage(message),
+                System::currentTimeMillis,
+                interval * 3);
+        this.registry.start();
+
+        this.heartbeatThread = new HeartbeatThread(this.registry, interval);
+        this.heartbeatThread.start();
+    }
 
-        this.pushThread = new PushThread(this);
-        this.pushThread.start();
+    /**
+     * @return a copy of every other server known right now
+     */
+    public Map<String, ImanityServer> getServers() {
+        return this.registry.getServers();
+    }
+
+    /**
+     * @return every other server matching the filter, see {@link ServerFilter}
+     */
+    public List<ImanityServer> findServers(Predicate<ImanityServer> filter) {
+        return this.registry.findServers(filter);
     }
 
     public ImanityServer getServer(String name) {
-        return this.servers.getOrDefault(name, null);
+        return this.registry.getServer(name);
     }
 
     public void addServer(String name, ImanityServer server) {
-        this.servers.put(name, server);
+        this.registry.addServer(name, server);
     }
 
     public void removeServer(String name) {
-        this.servers.remove(name);
+        this.registry.removeServer(name);
     }
 
     public void changeServerState(ServerState serverState) {
@@ -87,26 +104,32 @@ public class ServerHandler {
         }
 
         this.currentServer.setServerState(serverState);
-        this.messageService.sendMessage(new ServerStateChangedMessage(this.currentServer, serverState));
+        this.registry.flush();
     }
 
+    /**
+     * Metadata changes are announced with the next heartbeat
+     */
     public void addMetadata(String key, String value) {
-        this.getCurrentServer().getMetadata().put(key, value);
+        this.getCurrentServer().putMetadata(key, value);
     }
 
     public void removeMetadata(String key) {
-        this.getCurrentServer().getMetadata().remove(key);
+        this.getCurrentServer().removeMetadata(key);
     }
 
     @PostDestroy
     public void stop() {
-        this.redis.getMap(ServerHandler.METADATA + ":" + this.currentServer.getName()).clear();
+        this.heartbeatThread.interrupt();
+        try {
+            // a tick still running could write the state again after it's deleted
+            this.heartbeatThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        this.registry.stop();
 
         this.messageService.sendMessage(new ServerDeleteMessage(this.currentServer));
-        this.pushThread.shutdown();
-
-        this.pushThread.interrupt();
-        this.fetchThread.interrupt();
     }
 
 }
@@ -0,0 +1,317 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.server;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectMaps;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the metadata of a server. Every value is parsed once when the snapshot is built
+ * and kept in primitive slots next to its raw string, so reading it as a number doesn't parse anything.
+ *
+ * Keys map to slots through an index that is shared by every following snapshot with the same keys, and
+ * values a snapshot already held are copied over instead of parsed again.
+ */
+public final class ServerMetadata {
+
+    private static final byte INT = 1;
+    private static final byte DOUBLE = 1 << 1;
+    private static final byte TRUE = 1 << 2;
+
+    public static final ServerMetadata EMPTY = new ServerMetadata(newIndex(0), new String[0]);
+
+    private final Object2IntOpenHashMap<String> index;
+    private final String[] keys;
+    private final String[] values;
+    private final int[] ints;
+    private final double[] doubles;
+    private final byte[] flags;
+
+    private volatile Map<String, String> view;
+
+    private ServerMetadata(Object2IntOpenHashMap<String> index, String[] keys) {
+        this.index = index;
+        this.keys = keys;
+        this.values = new String[keys.length];
+        this.ints = new int[keys.length];
+        this.doubles = new double[keys.length];
+        this.flags = new byte[keys.length];
+    }
+
+    public static ServerMetadata of(Map<?, ?> raw) {
+        return EMPTY.update(raw);
+    }
+
+    /**
+     * @return a snapshot of the raw values, values this one already holds aren't parsed again
+     */
+    public ServerMetadata update(Map<?, ?> raw) {
+        if (raw.isEmpty()) {
+            return EMPTY;
+        }
+
+        if (raw.size() == this.keys.length) {
+            ServerMetadata metadata = this.updateValues(raw);
+            if (metadata != null) {
+                return metadata;
+            }
+        }
+
+        Object2IntOpenHashMap<String> index = newIndex(raw.size());
+        String[] keys = new String[raw.size()];
+        int size = 0;
+        for (Map.Entry<?, ?> entry : raw.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                String key = entry.getKey().toString();
+                if (!index.containsKey(key)) {
+                    keys[size] = key;
+                    index.put(key, size++);
+                }
+            }
+        }
+        if (size != keys.length) {
+            String[] present = new String[size];
+            System.arraycopy(keys, 0, present, 0, size);
+            keys = present;
+        }
+
+        ServerMetadata metadata = new ServerMetadata(index, keys);
+        for (Map.Entry<?, ?> entry : raw.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                continue;
+            }
+
+            String key = entry.getKey().toString();
+            String value = entry.getValue().toString();
+            int slot = index.getInt(key);
+            int previous = this.index.getInt(key);
+            if (previous >= 0 && value.equals(this.values[previous])) {
+                metadata.copy(this, previous, slot);
+            } else {
+                metadata.parse(slot, value);
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * The usual update, where the keys stay the same and only some values change
+     *
+     * @return the updated snapshot, this one if nothing changed, or null if the keys did change
+     */
+    @Nullable
+    private ServerMetadata updateValues(Map<?, ?> raw) {
+        ServerMetadata metadata = new ServerMetadata(this.index, this.keys);
+        boolean changed = false;
+        for (Map.Entry<?, ?> entry : raw.entrySet()) {
+            Object key = entry.getKey();
+            int slot = key instanceof String ? this.index.getInt(key) : -1;
+            if (slot < 0 || entry.getValue() == null) {
+                return null;
+            }
+
+            String value = entry.getValue().toString();
+            if (value.equals(this.values[slot])) {
+                metadata.copy(this, slot, slot);
+            } else {
+                metadata.parse(slot, value);
+                changed = true;
+            }
+        }
+        return changed ? metadata : this;
+    }
+
+    private void copy(ServerMetadata from, int fromSlot, int slot) {
+        this.values[slot] = from.values[fromSlot];
+        this.ints[slot] = from.ints[fromSlot];
+        this.doubles[slot] = from.doubles[fromSlot];
+        this.flags[slot] = from.flags[fromSlot];
+    }
+
+    private static Object2IntOpenHashMap<String> newIndex(int size) {
+        Object2IntOpenHashMap<String> index = new Object2IntOpenHashMap<>(size);
+        index.defaultReturnValue(-1);
+        return index;
+    }
+
+    /**
+     * @return a copy with the key set to the value
+     */
+    public ServerMetadata with(String key, String value) {
+        Map<String, String> raw = new HashMap<>(this.asMap());
+        raw.put(key, value);
+        return this.update(raw);
+    }
+
+    /**
+     * @return a copy without the key
+     */
+    public ServerMetadata without(String key) {
+        if (!this.contains(key)) {
+            return this;
+        }
+
+        Map<String, String> raw = new HashMap<>(this.asMap());
+        raw.remove(key);
+        return this.update(raw);
+    }
+
+    private void parse(int slot, String value) {
+        this.values[slot] = value;
+
+        // a failed parse costs an exception, so only hand over what looks like a number
+        if (isInteger(value)) {
+            try {
+                int parsed = Integer.parseInt(value);
+                // whatever parseInt reads, parseDouble reads as the same number
+                this.ints[slot] = parsed;
+                this.doubles[slot] = parsed;
+                this.flags[slot] = INT | DOUBLE;
+                return;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+
+        // parseDouble trims and also reads NaN and Infinity, only try what it could possibly accept
+        String trimmed = value.trim();
+        char first = trimmed.isEmpty() ? ' ' : trimmed.charAt(0);
+        if (first == '-' || first == '+' || first == '.' || first == 'N' || first == 'I' || (first >= '0' && first <= '9')) {
+            try {
+                this.doubles[slot] = Double.parseDouble(value);
+                this.flags[slot] = DOUBLE;
+                return;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+
+        if (Boolean.parseBoolean(value)) {
+            this.flags[slot] = TRUE;
+        }
+    }
+
+    private static boolean isInteger(String value) {
+        int start = !value.isEmpty() && (value.charAt(0) == '-' || value.charAt(0) == '+') ? 1 : 0;
+        if (start == value.length()) {
+            return false;
+        }
+
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the value as an int, or -1 if it's missing or isn't one
+     */
+    public int getInt(String key) {
+        return this.getInt(key, -1);
+    }
+
+    public int getInt(String key, int def) {
+        int slot = this.index.getInt(key);
+        return slot >= 0 && (this.flags[slot] & INT) != 0 ? this.ints[slot] : def;
+    }
+
+    public boolean isInt(String key) {
+        int slot = this.index.getInt(key);
+        return slot >= 0 && (this.flags[slot] & INT) != 0;
+    }
+
+    /**
+     * @return the value as a double, or -1 if it's missing or isn't one
+     */
+    public double getDouble(String key) {
+        return this.getDouble(key, -1D);
+    }
+
+    public double getDouble(String key, double def) {
+        int slot = this.index.getInt(key);
+        return slot >= 0 && (this.flags[slot] & DOUBLE) != 0 ? this.doubles[slot] : def;
+    }
+
+    public boolean isDouble(String key) {
+        int slot = this.index.getInt(key);
+        return slot >= 0 && (this.flags[slot] & DOUBLE) != 0;
+    }
+
+    public boolean getBoolean(String key) {
+        int slot = this.index.getInt(key);
+        return slot >= 0 && (this.flags[slot] & TRUE) != 0;
+    }
+
+    @Nullable
+    public String getString(String key) {
+        int slot = this.index.getInt(key);
+        return slot >= 0 ? this.values[slot] : null;
+    }
+
+    public boolean contains(String key) {
+        return this.index.containsKey(key);
+    }
+
+    public int size() {
+        return this.keys.length;
+    }
+
+    /**
+     * @return the raw values, unmodifiable
+     */
+    public Map<String, String> asMap() {
+        Map<String, String> view = this.view;
+        if (view == null) {
+            Object2ObjectOpenHashMap<String, String> map = new Object2ObjectOpenHashMap<>(this.keys.length);
+            for (int slot = 0; slot < this.keys.length; slot++) {
+                map.put(this.keys[slot], this.values[slot]);
+            }
+            this.view = view = Object2ObjectMaps.unmodifiable(map);
+        }
+        return view;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof ServerMetadata && this.asMap().equals(((ServerMetadata) o).asMap()));
+    }
+
+    @Override
+    public int hashCode() {
+        return this.asMap().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.asMap().toString();
+    }
+
+}
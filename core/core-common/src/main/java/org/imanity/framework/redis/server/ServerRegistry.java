@@ -0,0 +1,306 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.server;
+
+import lombok.Getter;
+import org.imanity.framework.redis.server.message.ServerStateChangedMessage;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Keeps track of every server in the cluster from the state they push, instead of polling the store for it.
+ *
+ * Every tick the current server writes the fields it changed along with its heartbeat in one call and announces
+ * them in a {@link ServerStateChangedMessage}, or only refreshes the heartbeat when nothing changed. The store
+ * is read in full once on startup, and afterwards only for a single server when a gap in its announcements
+ * shows one was missed. Servers that stop announcing are dropped once their heartbeat runs out.
+ */
+public class ServerRegistry {
+
+    private static final String EPOCH = "epoch";
+    private static final String SEQUENCE = "sequence";
+
+    private final Map<String, Remote> remotes = new ConcurrentHashMap<>();
+
+    @Getter
+    private final ImanityServer currentServer;
+    private final ServerRegistryStore store;
+    private final Consumer<Object> publisher;
+    private final LongSupplier clock;
+    @Getter
+    private final long heartbeatMillis;
+
+    @Getter
+    private final long epoch;
+    @Getter
+    private long sequence;
+    private Map<String, Object> published = Collections.emptyMap();
+    private boolean stopped;
+
+    /**
+     * @param publisher sends messages to every server
+     * @param heartbeatMillis how long a server counts as alive after its last announcement
+     */
+    public ServerRegistry(ImanityServer currentServer, ServerRegistryStore store, Consumer<Object> publisher, LongSupplier clock, long heartbeatMillis) {
+        this.currentServer = currentServer;
+        this.store = store;
+        this.publisher = publisher;
+        this.clock = clock;
+        this.heartbeatMillis = heartbeatMillis;
+
+        long epoch;
+        do {
+            epoch = ThreadLocalRandom.current().nextLong();
+        } while (epoch == 0);
+        this.epoch = epoch;
+    }
+
+    /**
+     * Load every live server from the store and write the current one
+     */
+    public void start() {
+        Map<String, Map<String, Object>> servers = this.store.readAll();
+        synchronized (this) {
+            long now = this.clock.getAsLong();
+            servers.forEach((name, data) -> {
+                if (!name.equals(this.currentServer.getName())) {
+                    this.load(name, data, now);
+                }
+            });
+        }
+
+        this.push(false);
+    }
+
+    /**
+     * Announce the current server and drop the servers whose heartbeat ran out
+     */
+    public void tick() {
+        this.push(true);
+
+        long now = this.clock.getAsLong();
+        synchronized (this) {
+            this.remotes.values().removeIf(remote -> now - remote.lastSeen > this.heartbeatMillis);
+        }
+    }
+
+    /**
+     * Announce the changes of the current server right away, without waiting for the next tick
+     */
+    public void flush() {
+        this.push(false);
+    }
+
+    private synchronized void push(boolean heartbeat) {
+        if (this.stopped) {
+            return;
+        }
+
+        Map<String, Object> fields = fieldsOf(this.currentServer);
+        Map<String, Object> changes = new HashMap<>();
+        fields.forEach((key, value) -> {
+            if (!Objects.equals(this.published.get(key), value)) {
+                changes.put(key, value);
+            }
+        });
+
+        String name = this.currentServer.getName();
+        if (changes.isEmpty()) {
+            if (!heartbeat) {
+                return;
+            }
+
+            this.store.heartbeat(name, this.heartbeatMillis);
+            this.publisher.accept(new ServerStateChangedMessage(name, this.epoch, this.sequence, Collections.emptyMap()));
+            return;
+        }
+
+        this.sequence++;
+        Map<String, Object> write = new HashMap<>(changes);
+        write.put(EPOCH, this.epoch);
+        write.put(SEQUENCE, this.sequence);
+
+        // written before the announcement, so anyone resyncing because of it reads at least this state
+        this.store.write(name, write, this.heartbeatMillis);
+        this.published = fields;
+        this.publisher.accept(new ServerStateChangedMessage(name, this.epoch, this.sequence, changes));
+    }
+
+    /**
+     * Apply a state announcement of another server
+     */
+    public synchronized void handle(ServerStateChangedMessage message) {
+        String name = message.getServerName();
+        if (name == null || name.equals(this.currentServer.getName())) {
+            return;
+        }
+
+        long now = this.clock.getAsLong();
+        Remote remote = this.remotes.get(name);
+
+        if (remote == null || remote.epoch != message.getEpoch()) {
+            if (message.isHeartbeat() || message.getSequence() != 1) {
+                // joined or restarted while we weren't listening
+                this.resync(name);
+                return;
+            }
+
+            remote = this.remotes.computeIfAbsent(name, ignored -> new Remote(new ImanityServer(name)));
+            remote.epoch = message.getEpoch();
+            remote.sequence = 0;
+        }
+
+        long sequence = message.getSequence();
+        if (message.isHeartbeat()) {
+            // carries the number of the last announcement, if that's ahead of ours we missed it
+            remote.lastSeen = now;
+            if (sequence > remote.sequence) {
+                this.resync(name);
+            }
+            return;
+        }
+
+        if (sequence <= remote.sequence) {
+            // an announcement a resync already covered
+            remote.lastSeen = now;
+            return;
+        }
+
+        if (sequence != remote.sequence + 1) {
+            this.resync(name);
+            return;
+        }
+
+        remote.server.load(message.getChanges());
+        remote.sequence = sequence;
+        remote.lastSeen = now;
+    }
+
+    /**
+     * Reload a single server from the store
+     */
+    public synchronized void resync(String name) {
+        Map<String, Object> data = this.store.read(name);
+        if (data == null) {
+            this.remotes.remove(name);
+            return;
+        }
+
+        this.load(name, data, this.clock.getAsLong());
+    }
+
+    private void load(String name, Map<String, Object> data, long now) {
+        Remote remote = this.remotes.computeIfAbsent(name, ignored -> new Remote(new ImanityServer(name)));
+        remote.server.load(data);
+        remote.epoch = longOf(data.get(EPOCH));
+        remote.sequence = longOf(data.get(SEQUENCE));
+        remote.lastSeen = now;
+    }
+
+    /**
+     * Remove the current server from the store
+     */
+    /**
+     * Remove the current server from the store, nothing is written or announced for it afterwards
+     */
+    public synchronized void stop() {
+        this.stopped = true;
+        this.store.delete(this.currentServer.getName());
+    }
+
+    @Nullable
+    public ImanityServer getServer(String name) {
+        Remote remote = this.remotes.get(name);
+        return remote != null ? remote.server : null;
+    }
+
+    public void addServer(String name, ImanityServer server) {
+        Remote remote = new Remote(server);
+        remote.lastSeen = this.clock.getAsLong();
+        this.remotes.put(name, remote);
+    }
+
+    public void removeServer(String name) {
+        this.remotes.remove(name);
+    }
+
+    /**
+     * @return a copy of the servers currently known, changes to the registry don't show up in it
+     */
+    public Map<String, ImanityServer> getServers() {
+        Map<String, ImanityServer> servers = new HashMap<>(this.remotes.size());
+        this.remotes.forEach((name, remote) -> servers.put(name, remote.server));
+        return Collections.unmodifiableMap(servers);
+    }
+
+    /**
+     * @return every server matching the filter, without copying the registry first
+     */
+    public List<ImanityServer> findServers(Predicate<ImanityServer> filter) {
+        List<ImanityServer> servers = new ArrayList<>();
+        for (Remote remote : this.remotes.values()) {
+            if (filter.test(remote.server)) {
+                servers.add(remote.server);
+            }
+        }
+        return servers;
+    }
+
+    private static Map<String, Object> fieldsOf(ImanityServer server) {
+        Map<String, Object> fields = new HashMap<>(4);
+        fields.put("onlinePlayers", server.getOnlinePlayers());
+        fields.put("maxPlayers", server.getMaxPlayers());
+        if (server.getServerState() != null) {
+            fields.put("state", server.getServerState().name());
+        }
+        // a plain map, the store codec records the concrete type
+        fields.put("metadata", new HashMap<>(server.getMetadataSnapshot().asMap()));
+        return fields;
+    }
+
+    private static long longOf(Object object) {
+        return object instanceof Number ? ((Number) object).longValue() : 0L;
+    }
+
+    private static class Remote {
+
+        private final ImanityServer server;
+        private long epoch;
+        private long sequence;
+        private long lastSeen;
+
+        private Remote(ImanityServer server) {
+            this.server = server;
+        }
+
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.server;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+
+/**
+ * Where the {@link ServerRegistry} keeps the state of every server, so servers joining later can catch up
+ */
+public interface ServerRegistryStore {
+
+    /**
+     * Write the changed state fields of a server and refresh its heartbeat, the state expires with the heartbeat
+     */
+    void write(String server, Map<String, Object> fields, long heartbeatMillis);
+
+    /**
+     * Refresh the heartbeat and state of a server, it counts as gone once the heartbeat expires
+     */
+    void heartbeat(String server, long heartbeatMillis);
+
+    /**
+     * @return the state of a server, or null if it's gone
+     */
+    @Nullable
+    Map<String, Object> read(String server);
+
+    /**
+     * @return the state of every server with a live heartbeat
+     */
+    Map<String, Map<String, Object>> readAll();
+
+    void delete(String server);
+
+}
@@ -33,7 +33,7 @@ import org.imanity.framework.redis.server.ImanityServer;
 
 @Getter
 @NoArgsConstructor
-@Message
+@Message(channel = "server")
 public class ServerCommandMessage extends ServerMessage {
 
     @Setter
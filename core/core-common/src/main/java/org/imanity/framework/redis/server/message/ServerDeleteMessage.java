@@ -29,7 +29,7 @@ import org.imanity.framework.redis.message.Message;
 import org.imanity.framework.redis.server.ImanityServer;
 
 @NoArgsConstructor
-@Message
+@Message(channel = "server")
 public class ServerDeleteMessage extends ServerMessage {
 
     public ServerDeleteMessage(ImanityServer server) {
@@ -24,6 +24,7 @@
 
 package org.imanity.framework.redis.server.message;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -31,17 +32,78 @@ import org.imanity.framework.redis.message.Message;
 import org.imanity.framework.redis.server.ImanityServer;
 import org.imanity.framework.redis.server.enums.ServerState;
 
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The state fields a server changed since its previous announcement, or none at all for a heartbeat.
+ * A server numbers its announcements per epoch, so receivers can tell when they missed one.
+ *
+ * Still a {@link ServerMessage} for listeners written against the old full-state message, but the server
+ * itself isn't sent anymore: received messages only carry {@link #getServerName()}.
+ */
 @Getter
 @Setter
 @NoArgsConstructor
-@Message
+@Message(channel = "server")
 public class ServerStateChangedMessage extends ServerMessage {
 
-    private ServerState state;
+    private String serverName;
+    private long epoch;
+    private long sequence;
+    private Map<String, Object> changes = Collections.emptyMap();
 
+    public ServerStateChangedMessage(String serverName, long epoch, long sequence, Map<String, Object> changes) {
+        this.serverName = serverName;
+        this.epoch = epoch;
+        this.sequence = sequence;
+        this.changes = changes;
+    }
+
+    /**
+     * @deprecated servers announce their state through {@link org.imanity.framework.redis.server.ServerRegistry},
+     * a message built this way carries no epoch and makes receivers resync the server from Redis
+     */
+    @Deprecated
     public ServerStateChangedMessage(ImanityServer server, ServerState state) {
-        this.setServer(server);
-        this.state = state;
+        super(server);
+        this.serverName = server.getName();
+        this.changes = Collections.singletonMap("state", state.name());
+    }
+
+    /**
+     * @deprecated not sent anymore, only set on messages built with the deprecated constructor;
+     * look the server up by {@link #getServerName()} instead
+     */
+    @Deprecated
+    @Nullable
+    @Override
+    @JsonIgnore
+    public ImanityServer getServer() {
+        return super.getServer();
+    }
+
+    @Deprecated
+    @Override
+    @JsonIgnore
+    public void setServer(ImanityServer server) {
+        super.setServer(server);
+    }
+
+    @JsonIgnore
+    public boolean isHeartbeat() {
+        return this.changes.isEmpty();
+    }
+
+    /**
+     * @return the new state, or null if it didn't change
+     */
+    @Nullable
+    @JsonIgnore
+    public ServerState getState() {
+        Object state = this.changes.get("state");
+        return state instanceof String ? ServerState.valueOf((String) state) : null;
     }
 
 }
@@ -29,7 +29,6 @@ import org.imanity.framework.redis.message.MessageListener;
 import org.imanity.framework.redis.message.annotation.HandleMessage;
 import org.imanity.framework.redis.server.ImanityServer;
 import org.imanity.framework.redis.server.ServerHandler;
-import org.imanity.framework.redis.server.enums.ServerState;
 import org.imanity.framework.redis.server.message.ServerAddMessage;
 import org.imanity.framework.redis.server.message.ServerCommandMessage;
 import org.imanity.framework.redis.server.message.ServerDeleteMessage;
@@ -45,16 +44,11 @@ public class ServerListener implements MessageListener {
     @HandleMessage
     public void onServerAdd(ServerAddMessage message) {
         String serverName = message.getServerName();
-        ImanityServer server = this.serverHandler.getServer(serverName);
-
-        if (server != null) {
+        if (this.serverHandler.getServer(serverName) != null) {
             return;
         }
 
-        server = new ImanityServer(serverName);
-        this.serverHandler.addServer(serverName, server);
-
-        server.load(this.serverHandler.getRedis().getMap(serverName));
+        this.serverHandler.getRegistry().resync(serverName);
     }
 
     @HandleMessage
@@ -85,14 +79,7 @@ public class ServerListener implements MessageListener {
 
     @HandleMessage
     public void onServerStateChanged(ServerStateChangedMessage message) {
-        ImanityServer server = message.getServer();
-
-        if (server == null) {
-            return;
-        }
-
-        ServerState newState = message.getState();
-        server.setServerState(newState);
+        this.serverHandler.getRegistry().handle(message);
     }
 
 }
@@ -25,52 +25,36 @@
 package org.imanity.framework.redis.server.thread;
 
 import org.imanity.framework.ImanityCommon;
-import org.imanity.framework.redis.server.ImanityServer;
-import org.imanity.framework.redis.server.ServerHandler;
+import org.imanity.framework.redis.server.ServerRegistry;
 
-import java.util.Map;
+public class HeartbeatThread extends Thread {
 
-public class FetchThread extends Thread {
+    private final ServerRegistry registry;
+    private final long intervalMillis;
 
-    private final ServerHandler serverHandler;
+    public HeartbeatThread(ServerRegistry registry, long intervalMillis) {
+        this.registry = registry;
+        this.intervalMillis = intervalMillis;
 
-    public FetchThread(ServerHandler serverHandler) {
-        super();
-
-        this.serverHandler = serverHandler;
-
-        this.setName("Imanity Server Fetch Thread");
+        this.setName("Imanity Server Heartbeat Thread");
         this.setDaemon(true);
     }
 
     @Override
     public void run() {
-        while (!ImanityCommon.PLATFORM.isShuttingDown()) {
+        while (!ImanityCommon.PLATFORM.isShuttingDown() && !this.isInterrupted()) {
             try {
-                this.fetch();
+                this.registry.tick();
             } catch (Throwable throwable) {
                 throwable.printStackTrace();
             }
 
             try {
-                Thread.sleep(5000L);
-            } catch (Throwable throwable) {
-                throwable.printStackTrace();
+                Thread.sleep(this.intervalMillis);
+            } catch (InterruptedException ex) {
+                break;
             }
         }
     }
 
-    private void fetch() {
-        for (String key : this.serverHandler.getRedis().getKeys(ServerHandler.METADATA + ":*")) {
-            String name = key.substring(0, ServerHandler.METADATA.length());
-            ImanityServer server = this.serverHandler.getServer(name);
-            if (server == null) {
-                server = new ImanityServer(name);
-                this.serverHandler.addServer(name, server);
-            }
-
-            Map<String, Object> data = this.serverHandler.getRedis().getMap(key);
-            server.load(data);
-        }
-    }
 }
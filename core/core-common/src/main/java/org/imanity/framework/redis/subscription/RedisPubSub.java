@@ -27,6 +27,8 @@ package org.imanity.framework.redis.subscription;
 import lombok.Getter;
 import org.imanity.framework.redis.RedisService;
 import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
 
 import java.util.function.Consumer;
 
@@ -43,6 +45,16 @@ public class RedisPubSub<T> {
         this.type = type;
     }
 
+    public RedisPubSub(String name, RedisService redis, Class<T> type, Codec codec) {
+        this(name, redis.getClient(), type, codec);
+    }
+
+    public RedisPubSub(String name, RedissonClient client, Class<T> type, Codec codec) {
+        this.name = name;
+        this.topic = client.getTopic(name, codec);
+        this.type = type;
+    }
+
     public void subscribe(Consumer<T> subscription) {
         this.topic.addListenerAsync(this.type, (channel, message) -> subscription.accept(message));
     }
@@ -0,0 +1,226 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.command;
+
+import org.imanity.framework.command.parameter.ParameterMeta;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CommandDispatchTest {
+
+    private static final String[] WORDS = {"kit", "Kit", "kits", "give", "GIVE", "k", "a", "ab", "abc", "x y", ""};
+
+    private CommandService commandService;
+    private Method noParameters;
+    private Method oneParameter;
+
+    @Before
+    public void setup() throws Exception {
+        this.commandService = new CommandService();
+        this.commandService.preInit();
+        this.commandService.init();
+
+        this.noParameters = Holder.class.getDeclaredMethod("noParameters", CommandEvent.class);
+        this.oneParameter = Holder.class.getDeclaredMethod("oneParameter", CommandEvent.class, String.class);
+    }
+
+    @Test
+    public void matchesLinearDispatch() {
+        final Random random = new Random(7L);
+
+        for (int i = 0; i < 300; i++) {
+            final String[] names = new String[1 + random.nextInt(3)];
+            for (int j = 0; j < names.length; j++) {
+                names[j] = this.phrase(random, 1 + random.nextInt(3));
+            }
+            this.register(names, random.nextBoolean());
+        }
+
+        for (int i = 0; i < 20_000; i++) {
+            String input = this.phrase(random, 1 + random.nextInt(5));
+            if (random.nextInt(8) == 0) {
+                input = input + " ";
+            }
+            if (input.isEmpty()) {
+                continue;
+            }
+
+            final CommandMatch expected = linearDispatch(this.commandService.getCommands(), input);
+            final CommandMatch actual = this.commandService.findCommand(input);
+
+            if (expected == null) {
+                Assert.assertNull(input, actual);
+            } else {
+                Assert.assertNotNull(input, actual);
+                Assert.assertSame(input, expected.getMeta(), actual.getMeta());
+                Assert.assertArrayEquals(input, expected.getArguments(), actual.getArguments());
+            }
+        }
+    }
+
+    @Test
+    public void prefersRegistrationOrderOverLongestMatch() {
+        final CommandMeta kit = this.register(new String[] {"kit"}, true);
+        final CommandMeta create = this.register(new String[] {"kit create"}, true);
+        final CommandMeta stop = this.register(new String[] {"STOP"}, false);
+
+        Assert.assertSame(kit, this.commandService.findCommand("kit create test").getMeta());
+        Assert.assertArrayEquals(new String[] {"create", "test"}, this.commandService.findCommand("kit create test").getArguments());
+        Assert.assertNotSame(create, this.commandService.findCommand("Kit create").getMeta());
+        Assert.assertNull(this.commandService.findCommand("kits"));
+
+        // commands without parameters still match extra input, as a last resort and without arguments
+        Assert.assertSame(stop, this.commandService.findCommand("stop now").getMeta());
+        Assert.assertEquals(0, this.commandService.findCommand("stop now").getArguments().length);
+    }
+
+    @Test
+    public void tokenizesLikeSplit() {
+        final String[] inputs = {"cmd a b", "cmd a  b", "cmd  a", "cmd a ", "cmd a   ", "cmd    ", "cmd a b c d e f g h i j k l m n o p q r s t u"};
+        for (String input : inputs) {
+            Assert.assertArrayEquals(input, input.substring(4).split(" "), CommandService.tokenize(input, 4));
+        }
+    }
+
+    @Test
+    public void executesThroughCompiledInvoker() {
+        final CommandMeta meta = this.register(new String[] {"echo"}, true);
+        final TestEvent event = new TestEvent("echo hello");
+
+        Assert.assertTrue(this.commandService.evalCommand(event));
+        Assert.assertEquals("hello", Holder.LAST.get());
+        Assert.assertSame(meta, this.commandService.findCommand("ECHO hello").getMeta());
+    }
+
+    private CommandMeta register(String[] names, boolean parameter) {
+        final List<ParameterMeta> parameters = parameter
+                ? Collections.singletonList(new ParameterMeta("value", false, "", new String[] {""}, String.class))
+                : Collections.emptyList();
+        final CommandMeta meta = new CommandMeta(names, "", parameters, new Holder(), parameter ? this.oneParameter : this.noParameters, new TestPresenceProvider());
+        this.commandService.registerCommand(meta);
+        return meta;
+    }
+
+    private String phrase(Random random, int words) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(random.nextInt(10) == 0 ? "  " : " ");
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * CommandService's dispatch loop before the trie, kept as the reference behaviour
+     */
+    private static CommandMatch linearDispatch(List<CommandMeta> commands, String command) {
+        CommandMeta commandMeta = null;
+        String[] arguments = new String[0];
+
+        search:
+        for (CommandMeta meta : commands) {
+            for (String alias : meta.getNames()) {
+                String message = command.toLowerCase() + " ";
+                String alia = alias.toLowerCase() + " ";
+
+                if (message.startsWith(alia)) {
+                    commandMeta = meta;
+
+                    if (message.length() > alia.length()) {
+                        if (commandMeta.getParameters().size() == 0) {
+                            continue;
+                        }
+                    }
+
+                    if (command.length() > alias.length() + 1) {
+                        arguments = command.substring(alias.length() + 1).split(" ");
+                    }
+
+                    break search;
+                }
+            }
+        }
+
+        return commandMeta == null ? null : new CommandMatch(commandMeta, arguments);
+    }
+
+    public static class Holder {
+
+        private static final AtomicReference<String> LAST = new AtomicReference<>();
+
+        public void noParameters(CommandEvent event) {
+        }
+
+        public void oneParameter(CommandEvent event, String value) {
+            LAST.set(value);
+        }
+
+    }
+
+    private static class TestEvent extends CommandEvent {
+
+        private TestEvent(String command) {
+            super(null, command);
+        }
+
+    }
+
+    private static class TestPresenceProvider extends PresenceProvider<CommandEvent> {
+
+        @Override
+        public Class<CommandEvent> type() {
+            return CommandEvent.class;
+        }
+
+        @Override
+        public void sendUsage(CommandEvent event, String usage) {
+            Assert.fail("usage: " + usage);
+        }
+
+        @Override
+        public void sendError(CommandEvent event, Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+
+        @Override
+        public void sendNoPermission(CommandEvent event) {
+            Assert.fail("no permission");
+        }
+
+        @Override
+        public void sendInternalError(CommandEvent event, String message) {
+            Assert.fail(message);
+        }
+
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.metadata;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentMetadataMapTest {
+
+    private static final MetadataKey<Integer> INT_KEY = MetadataKey.createIntegerKey("int");
+    private static final MetadataKey<String> STRING_KEY = MetadataKey.createStringKey("int");
+
+    @Test
+    public void putAndGet() {
+        MetadataMap map = new ConcurrentMetadataMap();
+        map.put(INT_KEY, 20);
+
+        assertEquals((Integer) 20, map.getOrNull(INT_KEY));
+        assertTrue(map.has(INT_KEY));
+        assertFalse(map.has(STRING_KEY));
+        assertFalse(map.putIfAbsent(INT_KEY, 30));
+
+        try {
+            map.put(STRING_KEY, "20");
+            fail("Put with a different type should have failed");
+        } catch (ClassCastException ignored) {
+        }
+
+        map.forcePut(STRING_KEY, "20");
+        assertEquals("20", map.getOrNull(STRING_KEY));
+
+        assertTrue(map.remove(STRING_KEY));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void expiredValueIsNeverReturned() throws InterruptedException {
+        MetadataMap map = new ConcurrentMetadataMap(new MetadataExpiryWheel(1, TimeUnit.HOURS, 8));
+        map.put(INT_KEY, ExpiringValue.of(20, 0, TimeUnit.MILLISECONDS));
+        Thread.sleep(5);
+
+        assertFalse(map.has(INT_KEY));
+        assertNull(map.getOrNull(INT_KEY));
+        assertTrue(map.putIfAbsent(INT_KEY, 30));
+        assertEquals((Integer) 30, map.getOrNull(INT_KEY));
+    }
+
+    @Test
+    public void wheelRemovesExpiredValues() throws InterruptedException {
+        MetadataExpiryWheel wheel = new MetadataExpiryWheel(5, TimeUnit.MILLISECONDS, 16);
+        MetadataMap map = new ConcurrentMetadataMap(wheel);
+
+        map.put(INT_KEY, ExpiringValue.of(20, 20, TimeUnit.MILLISECONDS));
+        map.put(MetadataKey.createIntegerKey("persistent"), 10);
+        // more than a full rotation of the wheel away
+        map.put(MetadataKey.createIntegerKey("later"), ExpiringValue.of(30, 1, TimeUnit.HOURS));
+
+        awaitSize(map, 2);
+        assertFalse(map.asMap().containsKey(INT_KEY));
+    }
+
+    @Test
+    public void wheelKeepsAccessedValues() throws InterruptedException {
+        MetadataExpiryWheel wheel = new MetadataExpiryWheel(5, TimeUnit.MILLISECONDS, 16);
+        MetadataMap map = new ConcurrentMetadataMap(wheel);
+
+        // accessed every 50ms, far more often than it expires, for well over its lifetime
+        map.put(INT_KEY, ExpireAfterAccessValue.of(20, 500, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < 20; i++) {
+            Thread.sleep(50);
+            assertEquals((Integer) 20, map.getOrNull(INT_KEY));
+        }
+
+        awaitSize(map, 0);
+    }
+
+    @Test
+    public void clearedReferencesAreRemoved() throws InterruptedException {
+        MetadataMap map = new ConcurrentMetadataMap();
+        map.put(MetadataKey.create("weak", StringBuilder.class), WeakValue.of(new StringBuilder()));
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!map.asMap().isEmpty()) {
+            assertTrue("Weak value was not removed", System.currentTimeMillis() < deadline);
+            System.gc();
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    public void expiryNeverRemovesNewerValue() throws Exception {
+        MetadataExpiryWheel wheel = new MetadataExpiryWheel(1, TimeUnit.MILLISECONDS, 64);
+        ConcurrentMetadataMap map = new ConcurrentMetadataMap(wheel);
+
+        int writers = 4;
+        int iterations = 20_000;
+        List<MetadataKey<Integer>> keys = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            keys.add(MetadataKey.createIntegerKey("key-" + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 4);
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                readers.add(executor.submit(() -> {
+                    start.await();
+                    while (running.get()) {
+                        for (MetadataKey<Integer> key : keys) {
+                            map.getOrNull(key);
+                            map.has(key);
+                        }
+                        map.cleanup();
+                    }
+                    return null;
+                }));
+            }
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (MetadataKey<Integer> key : keys) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        map.put(key, ExpiringValue.of(-i, 0, TimeUnit.MILLISECONDS));
+                        map.put(key, i);
+                        assertEquals((Integer) i, map.getOrNull(key));
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+            running.set(false);
+            for (Future<?> future : readers) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // let the wheel go over every stale entry
+        Thread.sleep(100);
+        for (MetadataKey<Integer> key : keys) {
+            assertEquals((Integer) (iterations - 1), map.getOrNull(key));
+        }
+    }
+
+    @Test
+    public void getOrPutSuppliesOnce() throws Exception {
+        MetadataMap map = new ConcurrentMetadataMap();
+        AtomicInteger supplied = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return map.getOrPut(INT_KEY, supplied::incrementAndGet);
+                }));
+            }
+
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                assertEquals((Integer) 1, future.get(1, TimeUnit.MINUTES));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, supplied.get());
+    }
+
+    private static void awaitSize(MetadataMap map, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (map.asMap().size() != size) {
+            assertTrue("Expected " + size + " entries but got " + map.asMap(), System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -0,0 +1,371 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.redisson.api.*;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.misc.RedissonPromise;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class RedisMapCacheTest {
+
+    private static final int KEYS = 1000;
+
+    private FakeRedis redis;
+    private Map<String, String> entries;
+
+    @Before
+    public void setup() {
+        this.redis = new FakeRedis();
+        this.entries = new LinkedHashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            this.entries.put("player-" + i, "lobby-" + i % 7);
+        }
+    }
+
+    @Test
+    public void bulkReadIsOneRoundTrip() {
+        RedisMapCache<String, String> cache = new RedisMapCache<>(this.redis.client(), "players", StringCodec.INSTANCE, 0);
+        cache.putAll(this.entries);
+        Assert.assertEquals(1, this.redis.roundTrips);
+
+        this.redis.reset();
+        for (String key : this.entries.keySet()) {
+            Assert.assertEquals(this.entries.get(key), cache.get(key));
+        }
+        Assert.assertEquals(KEYS, this.redis.roundTrips);
+
+        this.redis.reset();
+        Assert.assertEquals(this.entries, cache.getAll(this.entries.keySet()));
+        Assert.assertEquals(1, this.redis.roundTrips);
+        Assert.assertEquals((KEYS + RedisMapCache.CHUNK_SIZE - 1) / RedisMapCache.CHUNK_SIZE, this.redis.commands);
+        Assert.assertEquals(KEYS, this.redis.keysRequested);
+    }
+
+    @Test
+    public void nearCacheServesRepeatedReads() {
+        RedisMapCache<String, String> cache = new RedisMapCache<>(this.redis.client(), "players", StringCodec.INSTANCE, KEYS);
+        cache.putAll(this.entries);
+        cache.invalidateLocal();
+
+        this.redis.reset();
+        Assert.assertEquals(this.entries, cache.getAll(this.entries.keySet()));
+        Assert.assertEquals(this.entries, cache.getAll(this.entries.keySet()));
+        Assert.assertEquals("lobby-3", cache.get("player-3"));
+        Assert.assertEquals(1, this.redis.roundTrips);
+
+        RedisMapCache.Statistics statistics = cache.getStatistics();
+        Assert.assertEquals(KEYS + 1, statistics.getHits());
+        Assert.assertEquals(KEYS, statistics.getMisses());
+    }
+
+    @Test
+    public void invalidatesOtherServers() {
+        RedisMapCache<String, String> writer = new RedisMapCache<>(this.redis.client(), "players", StringCodec.INSTANCE, KEYS);
+        RedisMapCache<String, String> reader = new RedisMapCache<>(this.redis.client(), "players", StringCodec.INSTANCE, KEYS);
+        writer.putAll(this.entries);
+        reader.getAll(this.entries.keySet());
+        long invalidations = reader.getStatistics().getInvalidations();
+
+        Map<String, String> changes = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            changes.put("player-" + i * 50, "game-" + i);
+        }
+        writer.putAll(changes);
+        Assert.assertEquals(invalidations + 10, reader.getStatistics().getInvalidations());
+        Assert.assertEquals(0, writer.getStatistics().getInvalidations());
+
+        this.redis.reset();
+        Map<String, String> expected = new HashMap<>(this.entries);
+        expected.putAll(changes);
+        Assert.assertEquals(expected, reader.getAll(this.entries.keySet()));
+        Assert.assertEquals(expected, writer.getAll(this.entries.keySet()));
+        Assert.assertEquals(1, this.redis.roundTrips);
+        Assert.assertEquals(10, this.redis.keysRequested);
+    }
+
+    @Test
+    public void propagatesRemovals() {
+        Codec codec = new JsonJacksonCodec();
+        RedisMapCache<UUID, Integer> writer = new RedisMapCache<>(this.redis.client(), "levels", codec, KEYS);
+        RedisMapCache<UUID, Integer> reader = new RedisMapCache<>(this.redis.client(), "levels", codec, KEYS);
+
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        writer.put(first, 10);
+        writer.put(second, 20);
+        Assert.assertEquals(Integer.valueOf(10), reader.get(first));
+        Assert.assertEquals(Integer.valueOf(20), reader.get(second));
+
+        writer.remove(first);
+        Assert.assertNull(reader.get(first));
+        Assert.assertEquals(Integer.valueOf(20), reader.get(second));
+
+        writer.clear();
+        Assert.assertNull(reader.get(second));
+    }
+
+    @Test
+    public void closedCacheStopsListening() {
+        RedisMapCache<String, String> writer = new RedisMapCache<>(this.redis.client(), "players", StringCodec.INSTANCE, KEYS);
+        RedisMapCache<String, String> reader = new RedisMapCache<>(this.redis.client(), "players", StringCodec.INSTANCE, KEYS);
+        reader.close();
+
+        writer.put("player-1", "lobby-1");
+        Assert.assertEquals(0, reader.getStatistics().getInvalidations());
+    }
+
+    @Test
+    public void readRacingALocalPutDoesNotCacheTheOldValue() {
+        RedisMapCache<String, String> cache = new RedisMapCache<>(this.redis.client(), "players", StringCodec.INSTANCE, KEYS);
+        cache.put("player-1", "lobby-1");
+        cache.invalidateLocal();
+
+        // the put lands while the read's answer is on its way back
+        this.redis.afterGet = () -> cache.put("player-1", "game-1");
+        Assert.assertEquals("lobby-1", cache.get("player-1"));
+        Assert.assertEquals("game-1", cache.get("player-1"));
+
+        this.redis.afterGet = () -> cache.putAll(Collections.singletonMap("player-1", "game-2"));
+        cache.invalidateLocal();
+        Assert.assertEquals("game-1", cache.get("player-1"));
+        Assert.assertEquals("game-2", cache.get("player-1"));
+    }
+
+    @Test
+    public void concurrentReadsNeverKeepAnOverwrittenValue() throws Exception {
+        RedisMapCache<String, String> cache = new RedisMapCache<>(this.redis.client(), "players", StringCodec.INSTANCE, KEYS);
+        cache.put("player-1", "lobby-0");
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread reader = new Thread(() -> {
+            while (writing.get()) {
+                cache.invalidateLocal();
+                cache.get("player-1");
+                cache.get("player-1");
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= 20_000; i++) {
+            cache.put("player-1", "lobby-" + i);
+        }
+        writing.set(false);
+        reader.join();
+
+        Assert.assertEquals("lobby-20000", cache.get("player-1"));
+    }
+
+    @Test
+    public void readRacingALocalRemoveDoesNotCacheTheOldValue() {
+        RedisMapCache<String, String> cache = new RedisMapCache<>(this.redis.client(), "players", StringCodec.INSTANCE, KEYS);
+        cache.put("player-1", "lobby-1");
+        cache.invalidateLocal();
+
+        this.redis.afterGet = () -> cache.remove("player-1");
+        Assert.assertEquals("lobby-1", cache.get("player-1"));
+        Assert.assertNull(cache.get("player-1"));
+    }
+
+    /**
+     * Just enough of Redis and RedissonClient for the cache, counting every round trip made to it
+     */
+    private static class FakeRedis {
+
+        private final Map<String, Map<Object, Object>> hashes = new ConcurrentHashMap<>();
+        private final Map<String, List<Subscriber>> topics = new ConcurrentHashMap<>();
+        private int roundTrips;
+        private int commands;
+        private int keysRequested;
+        // runs once, after the next single key read took its value
+        private Runnable afterGet;
+
+        private void reset() {
+            this.roundTrips = 0;
+            this.commands = 0;
+            this.keysRequested = 0;
+        }
+
+        private Map<Object, Object> hash(String name) {
+            return this.hashes.computeIfAbsent(name, ignored -> new ConcurrentHashMap<>());
+        }
+
+        private RedissonClient client() {
+            return proxy(RedissonClient.class, (method, args) -> {
+                switch (method) {
+                    case "getMap":
+                        return this.map((String) args[0]);
+                    case "createBatch":
+                        return this.batch();
+                    case "getTopic":
+                        return this.topic((String) args[0]);
+                    default:
+                        return null;
+                }
+            });
+        }
+
+        private RMap<?, ?> map(String name) {
+            return proxy(RMap.class, (method, args) -> {
+                this.roundTrips++;
+                this.commands++;
+                switch (method) {
+                    case "get":
+                        this.keysRequested++;
+                        Object value = this.hash(name).get(args[0]);
+                        Runnable afterGet = this.afterGet;
+                        if (afterGet != null) {
+                            this.afterGet = null;
+                            afterGet.run();
+                        }
+                        return value;
+                    case "fastPut":
+                        return this.hash(name).put(args[0], args[1]) == null;
+                    case "delete":
+                        return this.hashes.remove(name) != null;
+                    default:
+                        return null;
+                }
+            });
+        }
+
+        private RBatch batch() {
+            List<Runnable> queued = new ArrayList<>();
+            return proxy(RBatch.class, (method, args) -> {
+                switch (method) {
+                    case "getMap":
+                        return this.batchMap((String) args[0], queued);
+                    case "execute":
+                        this.roundTrips++;
+                        queued.forEach(Runnable::run);
+                        return new BatchResult<>(Collections.emptyList(), 0);
+                    default:
+                        return null;
+                }
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private RMapAsync<?, ?> batchMap(String name, List<Runnable> queued) {
+            return proxy(RMapAsync.class, (method, args) -> {
+                RedissonPromise<Object> promise = new RedissonPromise<>();
+                queued.add(() -> {
+                    this.commands++;
+                    Map<Object, Object> hash = this.hash(name);
+                    switch (method) {
+                        case "getAllAsync":
+                            Map<Object, Object> values = new HashMap<>();
+                            for (Object key : (Set<Object>) args[0]) {
+                                this.keysRequested++;
+                                Object value = hash.get(key);
+                                if (value != null) {
+                                    values.put(key, value);
+                                }
+                            }
+                            promise.trySuccess(values);
+                            break;
+                        case "putAllAsync":
+                            hash.putAll((Map<Object, Object>) args[0]);
+                            promise.trySuccess(null);
+                            break;
+                        case "fastRemoveAsync":
+                            long removed = 0;
+                            for (Object key : (Object[]) args[0]) {
+                                removed += hash.remove(key) != null ? 1 : 0;
+                            }
+                            promise.trySuccess(removed);
+                            break;
+                        default:
+                            throw new UnsupportedOperationException(method);
+                    }
+                });
+                return promise;
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private RTopic topic(String name) {
+            List<Subscriber> subscribers = this.topics.computeIfAbsent(name, ignored -> new CopyOnWriteArrayList<>());
+            Object owner = new Object();
+            return proxy(RTopic.class, (method, args) -> {
+                switch (method) {
+                    case "addListenerAsync":
+                        subscribers.add(new Subscriber(owner, (MessageListener<Object>) args[1]));
+                        return RedissonPromise.newSucceededFuture(subscribers.size());
+                    case "publishAsync":
+                        for (Subscriber subscriber : subscribers) {
+                            subscriber.listener.onMessage(name, args[0]);
+                        }
+                        return RedissonPromise.newSucceededFuture((long) subscribers.size());
+                    case "removeAllListeners":
+                        subscribers.removeIf(subscriber -> subscriber.owner == owner);
+                        return null;
+                    default:
+                        return null;
+                }
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, Handler handler) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[] {type}, (proxy, method, args) -> {
+                if (method.getDeclaringClass() == Object.class) {
+                    return method.getName().equals("equals") ? proxy == args[0] : method.getName().equals("hashCode") ? System.identityHashCode(proxy) : type.getSimpleName();
+                }
+                return handler.handle(method.getName(), args);
+            });
+        }
+
+        private interface Handler {
+
+            Object handle(String method, Object[] args);
+
+        }
+
+        private static class Subscriber {
+
+            private final Object owner;
+            private final MessageListener<Object> listener;
+
+            private Subscriber(Object owner, MessageListener<Object> listener) {
+                this.owner = owner;
+                this.listener = listener;
+            }
+
+        }
+
+    }
+
+}
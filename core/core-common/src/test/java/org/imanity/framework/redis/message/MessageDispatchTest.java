@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.message;
+
+import org.imanity.framework.redis.message.annotation.HandleMessage;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MessageDispatchTest {
+
+    private MessageService messageService;
+    private List<String> received;
+
+    @Before
+    public void setup() {
+        this.messageService = new MessageService();
+        this.messageService.preInit();
+        this.received = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @Test
+    public void dispatchesToEverySupertype() {
+        this.messageService.registerListener(new HierarchyListener(this.received));
+
+        this.messageService.handleMessage(new PlayerJoinMessage());
+        Assert.assertEquals(Arrays.asList("concrete", "abstract", "interface"), this.received);
+
+        this.received.clear();
+        this.messageService.handleMessage(new ServerPingMessage());
+        Assert.assertEquals(Collections.singletonList("interface"), this.received);
+    }
+
+    @Test
+    public void rebuildsTableOnRegistration() {
+        this.messageService.handleMessage(new PlayerJoinMessage());
+        Assert.assertTrue(this.received.isEmpty());
+
+        this.messageService.registerListener(new HierarchyListener(this.received));
+        this.messageService.handleMessage(new PlayerJoinMessage());
+        Assert.assertEquals(3, this.received.size());
+
+        this.messageService.registerListener(new HierarchyListener(this.received));
+        this.messageService.handleMessage(new PlayerJoinMessage());
+        Assert.assertEquals(3 + 6, this.received.size());
+    }
+
+    @Test
+    public void keepsDispatchingAfterListenerFailure() {
+        this.messageService.registerListener(new FailingListener());
+        this.messageService.registerListener(new HierarchyListener(this.received));
+
+        this.messageService.handleMessage(new PlayerJoinMessage());
+        Assert.assertEquals(3, this.received.size());
+    }
+
+    @Test
+    public void resolvesChannelGroups() {
+        Assert.assertEquals("base:players", MessageService.channelOf("base", PlayerJoinMessage.class));
+        Assert.assertEquals("base:" + ServerPingMessage.class.getName(), MessageService.channelOf("base", ServerPingMessage.class));
+        Assert.assertNull(MessageService.channelOf("base", ClusterMessage.class));
+    }
+
+    @Test
+    public void subscribesToChannelsOfKnownSubtypes() {
+        RecordingMessageService messageService = new RecordingMessageService();
+        messageService.preInit();
+        messageService.registerType(PlayerQuitMessage.class);
+        messageService.registerListener(new PlayerListener());
+
+        messageService.subscribeListeners(true);
+
+        Assert.assertEquals(Arrays.asList(
+                "imanity-server-frames:players",
+                "imanity-server-frames:" + PlayerQuitMessage.class.getName()
+        ), messageService.channels);
+    }
+
+    @Test
+    public void subscribesToChannelsOfSubtypesRegisteredLater() {
+        RecordingMessageService messageService = new RecordingMessageService();
+        messageService.preInit();
+        messageService.registerListener(new PlayerListener());
+        messageService.subscribeListeners(true);
+        Assert.assertEquals(Collections.singletonList("imanity-server-frames:players"), messageService.channels);
+
+        messageService.registerType(PlayerQuitMessage.class);
+        messageService.registerType(ServerPingMessage.class);
+
+        Assert.assertEquals(Arrays.asList(
+                "imanity-server-frames:players",
+                "imanity-server-frames:" + PlayerQuitMessage.class.getName()
+        ), messageService.channels);
+    }
+
+    public interface ClusterMessage {
+    }
+
+    @Message(channel = "players")
+    public static abstract class PlayerMessage implements ClusterMessage {
+    }
+
+    public static class PlayerJoinMessage extends PlayerMessage {
+    }
+
+    @Message
+    public static class PlayerQuitMessage extends PlayerMessage {
+    }
+
+    @Message
+    public static class ServerPingMessage implements ClusterMessage {
+    }
+
+    public static class HierarchyListener implements MessageListener {
+
+        private final List<String> received;
+
+        public HierarchyListener(List<String> received) {
+            this.received = received;
+        }
+
+        @HandleMessage
+        public void onAny(ClusterMessage message) {
+            this.received.add("interface");
+        }
+
+        @HandleMessage
+        public void onPlayer(PlayerMessage message) {
+            this.received.add("abstract");
+        }
+
+        @HandleMessage
+        public void onJoin(PlayerJoinMessage message) {
+            this.received.add("concrete");
+        }
+
+    }
+
+    public static class PlayerListener implements MessageListener {
+
+        @HandleMessage
+        public void onPlayer(PlayerMessage message) {
+        }
+
+    }
+
+    public static class RecordingMessageService extends MessageService {
+
+        private final List<String> channels = new ArrayList<>();
+
+        @Override
+        void listen(String channel) {
+            this.channels.add(channel);
+        }
+
+    }
+
+    public static class FailingListener implements MessageListener {
+
+        @HandleMessage
+        private void onJoin(PlayerJoinMessage message) {
+            throw new IllegalStateException("expected");
+        }
+
+    }
+
+}
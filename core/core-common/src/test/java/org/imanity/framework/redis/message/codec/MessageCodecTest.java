@@ -0,0 +1,269 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.message.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.redisson.codec.JsonJacksonCodec;
+
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class MessageCodecTest {
+
+    private ObjectMapper mapper;
+    private MessageTypeRegistry registry;
+    private BinaryMessageCodec codec;
+
+    @Before
+    public void setup() {
+        this.mapper = new ObjectMapper();
+        this.registry = new MessageTypeRegistry();
+        this.registry.register(StateMessage.class);
+        this.registry.register(ChatMessage.class);
+        this.codec = new BinaryMessageCodec(this.mapper, this.registry, 512);
+    }
+
+    @Test
+    public void roundTripsBatch() throws Exception {
+        final List<Object> messages = Arrays.asList(
+                new StateMessage("lobby-1", 3, 120),
+                new ChatMessage(UUID.randomUUID().toString(), "hello"),
+                new StateMessage("lobby-2", 1, 0)
+        );
+
+        Assert.assertEquals(messages, this.decode(this.codec.encode(messages)));
+    }
+
+    @Test
+    public void deflatesAboveThreshold() throws Exception {
+        final List<Object> messages = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            messages.add(new StateMessage("server-" + i, i % 4, i * 10));
+        }
+
+        final byte[] frame = this.codec.encode(messages);
+        Assert.assertEquals(1, frame[0] & 0x01);
+        Assert.assertEquals(messages, this.decode(frame));
+
+        final byte[] uncompressed = new BinaryMessageCodec(this.mapper, this.registry, 0).encode(messages);
+        Assert.assertEquals(0, uncompressed[0] & 0x01);
+        Assert.assertTrue(frame.length < uncompressed.length);
+    }
+
+    @Test
+    public void skipsUnknownTypes() throws Exception {
+        final MessageTypeRegistry receiver = new MessageTypeRegistry();
+        receiver.register(ChatMessage.class);
+        final BinaryMessageCodec receiverCodec = new BinaryMessageCodec(this.mapper, receiver, 512);
+
+        final ChatMessage chat = new ChatMessage("id", "still here");
+        final List<Object> decoded = new ArrayList<>();
+        receiverCodec.decode(this.codec.encode(Arrays.asList(new StateMessage("lobby", 0, 0), chat)), decoded::add);
+
+        Assert.assertEquals(Collections.singletonList(chat), decoded);
+    }
+
+    @Test
+    public void smallerThanJsonWithClassNames() throws Exception {
+        final JsonJacksonCodec legacy = new JsonJacksonCodec(this.mapper);
+        final List<Object> messages = new ArrayList<>();
+        long legacyBytes = 0;
+        for (int i = 0; i < 64; i++) {
+            final StateMessage message = new StateMessage("server-" + i, i % 4, i * 10);
+            messages.add(message);
+
+            final ByteBuf buf = legacy.getValueEncoder().encode(message);
+            legacyBytes += buf.readableBytes();
+            buf.release();
+        }
+
+        final double legacyPerMessage = legacyBytes / 64.0;
+        final double singlePerMessage = this.codec.encode(messages.subList(0, 1)).length;
+        final double batchedPerMessage = this.codec.encode(messages).length / 64.0;
+
+        Assert.assertTrue("single " + singlePerMessage + " vs json " + legacyPerMessage, singlePerMessage < legacyPerMessage / 2);
+        Assert.assertTrue("batched " + batchedPerMessage + " vs json " + legacyPerMessage, batchedPerMessage < legacyPerMessage / 4);
+    }
+
+    @Test
+    public void batchesBursts() throws Exception {
+        final int threads = 4;
+        final int perThread = 5_000;
+        final ConcurrentLinkedQueue<Object> received = new ConcurrentLinkedQueue<>();
+        final CountDownLatch latch = new CountDownLatch(threads * perThread);
+
+        // loops straight back into the decoder, standing in for the redis topic
+        final BatchingPublisher publisher = new BatchingPublisher(this.codec, frame -> {
+            try {
+                this.codec.decode(frame, message -> {
+                    received.add(message);
+                    latch.countDown();
+                });
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }, 2000, 64);
+
+        final long start = System.nanoTime();
+        final List<Thread> publishers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final String server = "server-" + t;
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    publisher.publish(new StateMessage(server, i, i));
+                }
+            });
+            thread.start();
+            publishers.add(thread);
+        }
+        for (Thread thread : publishers) {
+            thread.join();
+        }
+        Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        // the counters are bumped once the sink returned, the latch opens from inside it
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (publisher.getMessagesPublished() < threads * perThread && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        final double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        final long messages = publisher.getMessagesPublished();
+        final long frames = publisher.getFramesPublished();
+        Assert.assertEquals(threads * perThread, messages);
+        Assert.assertTrue(frames + " publishes for " + messages + " messages", frames <= messages / 16);
+        Assert.assertTrue((messages / seconds) + " messages/s", messages / seconds > 10_000);
+
+        // every publisher's messages arrive in the order it sent them
+        final Map<String, Integer> last = new HashMap<>();
+        for (Object message : received) {
+            final StateMessage state = (StateMessage) message;
+            final int previous = last.getOrDefault(state.getServer(), -1);
+            Assert.assertEquals(previous + 1, state.getPlayers());
+            last.put(state.getServer(), state.getPlayers());
+        }
+    }
+
+    @Test
+    public void publishesImmediatelyWithoutWindow() {
+        final List<byte[]> frames = new ArrayList<>();
+        final BatchingPublisher publisher = new BatchingPublisher(this.codec, frames::add, 0, 64);
+
+        publisher.publish(new ChatMessage("a", "b"));
+        publisher.publish(new ChatMessage("c", "d"));
+        Assert.assertEquals(2, frames.size());
+    }
+
+    @Test
+    public void encodesBeforePublishReturns() throws Exception {
+        final List<byte[]> frames = new ArrayList<>();
+        final BatchingPublisher publisher = new BatchingPublisher(this.codec, frames::add, TimeUnit.SECONDS.toMicros(10), 64);
+
+        final ChatMessage message = new ChatMessage("a", "before");
+        publisher.publish(message);
+        message.setText("after");
+        publisher.flush();
+
+        Assert.assertEquals(1, frames.size());
+        Assert.assertEquals(Collections.singletonList(new ChatMessage("a", "before")), this.decode(frames.get(0)));
+    }
+
+    @Test
+    public void unencodableMessageFailsAlone() throws Exception {
+        final List<byte[]> frames = new ArrayList<>();
+        final BatchingPublisher publisher = new BatchingPublisher(this.codec, frames::add, TimeUnit.SECONDS.toMicros(10), 64);
+
+        publisher.publish(new ChatMessage("a", "b"));
+        try {
+            publisher.publish(new BrokenMessage());
+            Assert.fail();
+        } catch (UncheckedIOException expected) {
+        }
+        publisher.publish(new ChatMessage("c", "d"));
+        publisher.flush();
+
+        Assert.assertEquals(1, frames.size());
+        Assert.assertEquals(Arrays.asList(new ChatMessage("a", "b"), new ChatMessage("c", "d")), this.decode(frames.get(0)));
+    }
+
+    @Test
+    public void publishesImmediatelyOnceClosed() throws Exception {
+        final List<byte[]> frames = new ArrayList<>();
+        final BatchingPublisher publisher = new BatchingPublisher(this.codec, frames::add, TimeUnit.SECONDS.toMicros(10), 64);
+
+        publisher.publish(new ChatMessage("a", "b"));
+        publisher.close();
+        Assert.assertEquals(1, frames.size());
+
+        publisher.publish(new ChatMessage("c", "d"));
+        Assert.assertEquals(2, frames.size());
+        Assert.assertEquals(Collections.singletonList(new ChatMessage("c", "d")), this.decode(frames.get(1)));
+    }
+
+    private List<Object> decode(byte[] frame) throws Exception {
+        final List<Object> messages = new ArrayList<>();
+        this.codec.decode(frame, messages::add);
+        return messages;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StateMessage {
+
+        private String server;
+        private int players;
+        private int tps;
+
+    }
+
+    public static class BrokenMessage {
+
+        public String getText() {
+            throw new IllegalStateException("expected");
+        }
+
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ChatMessage {
+
+        private String sender;
+        private String text;
+
+    }
+
+}
@@ -0,0 +1,348 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.rpc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.imanity.framework.redis.message.MessageTransport;
+import org.imanity.framework.redis.subscription.IRedisSubscription;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RpcServiceTest {
+
+    private static final int SERVERS = 5;
+
+    private AtomicLong clock;
+    private MemoryTransport transport;
+    private Map<String, RpcService> servers;
+
+    @Before
+    public void setup() {
+        this.clock = new AtomicLong();
+        this.transport = new MemoryTransport();
+        this.servers = new LinkedHashMap<>();
+
+        for (int i = 0; i < SERVERS; i++) {
+            String name = "server-" + i;
+            RpcService service = new RpcService();
+            service.start(name, this.transport, this.clock::get, RpcService.TICK_MILLIS);
+            service.registerHandler(LocateRequest.class, request -> new LocateResponse(name + ":" + request.getPlayer()));
+            this.servers.put(name, service);
+        }
+    }
+
+    @After
+    public void shutdown() {
+        this.transport.executor.shutdownNow();
+    }
+
+    @Test
+    public void callsRoundTrip() throws Exception {
+        RpcService caller = this.servers.get("server-0");
+
+        LocateResponse response = caller.call("server-3", new LocateRequest("notsu"), 1, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("server-3:notsu", response.getLocation());
+        Assert.assertEquals("server-3", response.getResponder());
+        Assert.assertEquals(0, caller.getPendingCalls());
+
+        // a response only ever goes to the channel of the server that asked
+        Assert.assertEquals(Collections.singletonList(RpcService.channelOf("server-0")), this.transport.responseChannels);
+    }
+
+    @Test
+    public void measuresRoundTripLatency() throws Exception {
+        this.transport.async = true;
+        RpcService caller = this.servers.get("server-0");
+
+        int calls = 2000;
+        long[] latencies = new long[calls];
+        for (int i = 0; i < calls; i++) {
+            long start = System.nanoTime();
+            caller.call("server-" + (1 + i % (SERVERS - 1)), new LocateRequest("player-" + i), 1, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        long median = latencies[calls / 2];
+        Assert.assertTrue(median < TimeUnit.MILLISECONDS.toNanos(5));
+        Assert.assertEquals(0, caller.getPendingCalls());
+    }
+
+    @Test
+    public void reusesOneRequestAcrossConcurrentCalls() throws Exception {
+        RpcService caller = this.servers.get("server-0");
+        LocateRequest request = new LocateRequest("notsu");
+        this.transport.pauseFirst(LocateRequest.class);
+
+        CompletableFuture<CompletableFuture<LocateResponse>> first = CompletableFuture.supplyAsync(() -> caller.call("server-1", request, 1, TimeUnit.MINUTES));
+        Assert.assertTrue(this.transport.paused.await(5, TimeUnit.SECONDS));
+        CompletableFuture<LocateResponse> second = caller.call("server-2", request, 1, TimeUnit.MINUTES);
+
+        Assert.assertEquals("server-2:notsu", second.get(5, TimeUnit.SECONDS).getLocation());
+        Assert.assertEquals("server-1:notsu", first.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS).getLocation());
+        Assert.assertEquals(0, caller.getPendingCalls());
+    }
+
+    @Test
+    public void reusesOneResponseAcrossConcurrentReplies() throws Exception {
+        RpcService caller = this.servers.get("server-0");
+        LocateResponse shared = new LocateResponse("everywhere");
+        this.servers.get("server-1").registerHandler(LocateRequest.class, request -> shared);
+        this.transport.pauseFirst(LocateResponse.class);
+
+        CompletableFuture<CompletableFuture<LocateResponse>> first = CompletableFuture.supplyAsync(() -> caller.call("server-1", new LocateRequest("a"), 1, TimeUnit.MINUTES));
+        Assert.assertTrue(this.transport.paused.await(5, TimeUnit.SECONDS));
+        CompletableFuture<LocateResponse> second = caller.call("server-1", new LocateRequest("b"), 1, TimeUnit.MINUTES);
+
+        Assert.assertEquals("everywhere", second.get(5, TimeUnit.SECONDS).getLocation());
+        Assert.assertEquals("everywhere", first.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS).getLocation());
+        Assert.assertEquals(0, caller.getPendingCalls());
+    }
+
+    @Test
+    public void timesOutWithoutLeaking() {
+        RpcService caller = this.servers.get("server-0");
+        this.transport.down.add("server-4");
+
+        List<CompletableFuture<LocateResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(caller.call("server-4", new LocateRequest("player-" + i), 100 + i % 50, TimeUnit.MILLISECONDS));
+        }
+        Assert.assertEquals(1000, caller.getPendingCalls());
+
+        this.advance(90);
+        Assert.assertEquals(1000, caller.getPendingCalls());
+        this.advance(80);
+
+        Assert.assertEquals(0, caller.getPendingCalls());
+        for (CompletableFuture<LocateResponse> future : futures) {
+            try {
+                future.join();
+                Assert.fail();
+            } catch (CompletionException ex) {
+                Assert.assertTrue(ex.getCause() instanceof TimeoutException);
+            }
+        }
+    }
+
+    @Test
+    public void ignoresLateResponses() throws Exception {
+        RpcService caller = this.servers.get("server-0");
+        this.transport.delayed.add("server-2");
+
+        CompletableFuture<LocateResponse> future = caller.call("server-2", new LocateRequest("notsu"), 50, TimeUnit.MILLISECONDS);
+        this.advance(60);
+        Assert.assertTrue(future.isCompletedExceptionally());
+
+        this.transport.releaseDelayed();
+        Assert.assertEquals(0, caller.getPendingCalls());
+    }
+
+    @Test
+    public void gathersFromEveryServer() throws Exception {
+        RpcService caller = this.servers.get("server-0");
+
+        Map<String, LocateResponse> responses = caller.gather(this.servers.keySet(), new LocateRequest("notsu"), 1, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(this.servers.keySet(), responses.keySet());
+        Assert.assertEquals("server-2:notsu", responses.get("server-2").getLocation());
+        Assert.assertEquals(0, caller.getPendingCalls());
+    }
+
+    @Test
+    public void gathersWhatArrivedBeforeTheTimeout() {
+        RpcService caller = this.servers.get("server-0");
+        this.transport.down.add("server-1");
+        this.servers.get("server-2").registerHandler(LocateRequest.class, request -> {
+            throw new IllegalStateException("expected");
+        });
+
+        CompletableFuture<Map<String, LocateResponse>> future = caller.gather(this.servers.keySet(), new LocateRequest("notsu"), 100, TimeUnit.MILLISECONDS);
+        Assert.assertFalse(future.isDone());
+
+        this.advance(110);
+        Assert.assertEquals(new HashSet<>(Arrays.asList("server-0", "server-3", "server-4")), future.join().keySet());
+        Assert.assertEquals(0, caller.getPendingCalls());
+    }
+
+    @Test
+    public void reportsHandlerFailures() {
+        RpcService caller = this.servers.get("server-0");
+        this.servers.get("server-1").registerHandler(LocateRequest.class, request -> {
+            throw new IllegalStateException("no such player");
+        });
+
+        CompletableFuture<LocateResponse> failed = caller.call("server-1", new LocateRequest("notsu"), 1, TimeUnit.SECONDS);
+        CompletableFuture<UnknownResponse> unknown = caller.call("server-1", new UnknownRequest(), 1, TimeUnit.SECONDS);
+
+        for (CompletableFuture<?> future : Arrays.asList(failed, unknown)) {
+            try {
+                future.join();
+                Assert.fail();
+            } catch (CompletionException ex) {
+                Assert.assertTrue(ex.getCause() instanceof RpcException);
+                Assert.assertEquals("server-1", ((RpcException) ex.getCause()).getServer());
+            }
+        }
+        Assert.assertEquals(0, caller.getPendingCalls());
+    }
+
+    @Test
+    public void cancelledCallsStopWaiting() {
+        RpcService caller = this.servers.get("server-0");
+        this.transport.down.add("server-1");
+
+        caller.call("server-1", new LocateRequest("notsu"), 1, TimeUnit.MINUTES).cancel(false);
+        Assert.assertEquals(0, caller.getPendingCalls());
+    }
+
+    @Test
+    public void resolvesResponseTypes() {
+        Assert.assertEquals(LocateResponse.class, RpcService.responseTypeOf(LocateRequest.class));
+        Assert.assertEquals(LocateResponse.class, RpcService.responseTypeOf(PartyLocateRequest.class));
+    }
+
+    private void advance(long millis) {
+        for (long target = this.clock.get() + millis; this.clock.get() < target; ) {
+            this.clock.addAndGet(RpcService.TICK_MILLIS);
+            this.servers.values().forEach(RpcService::tick);
+        }
+    }
+
+    /**
+     * Delivers a copy of every message to the subscriptions of its channel, in place or on a separate thread;
+     * the copy is taken before publish returns, like the real transport encodes it
+     */
+    private static class MemoryTransport implements MessageTransport {
+
+        private static final ObjectMapper MAPPER = new ObjectMapper();
+
+        private final Map<String, List<IRedisSubscription>> subscriptions = new ConcurrentHashMap<>();
+        private final ExecutorService executor = Executors.newSingleThreadExecutor();
+        private final Set<String> down = ConcurrentHashMap.newKeySet();
+        private final Set<String> delayed = ConcurrentHashMap.newKeySet();
+        private final List<Runnable> held = new CopyOnWriteArrayList<>();
+        private final List<String> responseChannels = new CopyOnWriteArrayList<>();
+        private final CountDownLatch paused = new CountDownLatch(1);
+        private volatile Class<?> pauseType;
+        private volatile boolean async;
+
+        @Override
+        public void publish(String channel, Object message) {
+            String server = channel.substring(RpcService.CHANNEL.length() + 1);
+            if (this.down.contains(server)) {
+                return;
+            }
+            if (message instanceof RpcResponse) {
+                this.responseChannels.add(channel);
+            }
+
+            if (this.pauseType != null && this.pauseType.isInstance(message)) {
+                this.pauseType = null;
+                this.paused.countDown();
+                try {
+                    // long enough for the test to send the same instance again meanwhile
+                    Thread.sleep(200L);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            Object copy = MAPPER.convertValue(message, message.getClass());
+            Runnable delivery = () -> this.subscriptions.getOrDefault(channel, Collections.emptyList())
+                    .forEach(subscription -> subscription.onMessage(copy));
+            if (this.delayed.contains(server)) {
+                this.held.add(delivery);
+            } else if (this.async) {
+                this.executor.execute(delivery);
+            } else {
+                delivery.run();
+            }
+        }
+
+        @Override
+        public void subscribe(String channel, IRedisSubscription subscription) {
+            this.subscriptions.computeIfAbsent(channel, name -> new CopyOnWriteArrayList<>()).add(subscription);
+        }
+
+        /**
+         * Hold the next message of the type for a moment before it's copied
+         */
+        private void pauseFirst(Class<?> type) {
+            this.pauseType = type;
+        }
+
+        private void releaseDelayed() {
+            this.delayed.clear();
+            this.held.forEach(Runnable::run);
+            this.held.clear();
+        }
+
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    public static class LocateRequest extends RpcRequest<LocateResponse> {
+
+        private String player;
+
+        public LocateRequest(String player) {
+            this.player = player;
+        }
+
+    }
+
+    public static class PartyLocateRequest extends LocateRequest {
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    public static class LocateResponse extends RpcResponse {
+
+        private String location;
+
+        public LocateResponse(String location) {
+            this.location = location;
+        }
+
+    }
+
+    public static class UnknownRequest extends RpcRequest<UnknownResponse> {
+    }
+
+    public static class UnknownResponse extends RpcResponse {
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.server;
+
+import org.imanity.framework.redis.server.enums.ServerState;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class ServerMetadataTest {
+
+    private static final String[] VALUES = {"12", "-3", "+7", " 4", "2147483648", "1.5", "1e3", "NaN", "-Infinity", ".5", "0x10", "true", "TRUE", "false", "desert", "", "5 "};
+
+    @Test
+    public void readsLikeParsingEveryCall() {
+        Map<String, String> raw = new HashMap<>();
+        for (int i = 0; i < VALUES.length; i++) {
+            raw.put("key" + i, VALUES[i]);
+        }
+        ServerMetadata metadata = ServerMetadata.of(raw);
+
+        for (String key : raw.keySet()) {
+            String value = raw.get(key);
+            Assert.assertEquals(key, parseInt(value), metadata.getInt(key));
+            Assert.assertEquals(key, parseDouble(value), metadata.getDouble(key), 0D);
+            Assert.assertEquals(key, Boolean.parseBoolean(value), metadata.getBoolean(key));
+            Assert.assertEquals(key, value, metadata.getString(key));
+        }
+
+        Assert.assertEquals(-1, metadata.getInt("missing"));
+        Assert.assertEquals(-1D, metadata.getDouble("missing"), 0D);
+        Assert.assertEquals(9, metadata.getInt("missing", 9));
+        Assert.assertFalse(metadata.getBoolean("missing"));
+        Assert.assertNull(metadata.getString("missing"));
+    }
+
+    @Test
+    public void updatesLeaveSnapshotsAlone() {
+        ServerMetadata before = ServerMetadata.of(Collections.singletonMap("players", "10"));
+        ServerMetadata after = before.with("players", "text").with("map", "forest");
+
+        Assert.assertEquals(10, before.getInt("players"));
+        Assert.assertFalse(before.contains("map"));
+        Assert.assertFalse(after.isInt("players"));
+        Assert.assertEquals("forest", after.getString("map"));
+
+        ServerMetadata removed = after.without("players");
+        Assert.assertFalse(removed.contains("players"));
+        Assert.assertEquals(-1, removed.getInt("players"));
+        Assert.assertSame(removed, removed.without("players"));
+
+        try {
+            after.asMap().put("map", "desert");
+            Assert.fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
+
+    @Test
+    public void mapViewWritesThroughToTheServer() {
+        ImanityServer server = new ImanityServer("lobby-1");
+        ServerMetadata before = server.getMetadataSnapshot();
+
+        server.getMetadata().put("map", "desert");
+        server.getMetadata().putAll(Collections.singletonMap("players", "12"));
+        Assert.assertEquals("desert", server.getString("map"));
+        Assert.assertEquals(12, server.getMetadataSnapshot().getInt("players"));
+        Assert.assertEquals(0, before.size());
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put("map", "desert");
+        expected.put("players", "12");
+        Assert.assertEquals(expected, server.getMetadata());
+
+        Assert.assertEquals("desert", server.getMetadata().remove("map"));
+        Assert.assertFalse(server.getMetadataSnapshot().contains("map"));
+        server.getMetadata().clear();
+        Assert.assertTrue(server.getMetadata().isEmpty());
+    }
+
+    @Test
+    public void filtersServers() {
+        List<ImanityServer> servers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ImanityServer server = new ImanityServer("server-" + i);
+            server.setServerState(i % 2 == 0 ? ServerState.RUNNING : ServerState.BOOTING);
+            server.setOnlinePlayers(i * 10);
+            server.setMaxPlayers(50);
+            server.load(Collections.singletonMap("metadata", Collections.singletonMap("rank", String.valueOf(i))));
+            servers.add(server);
+        }
+
+        List<String> names = servers.stream()
+                .filter(ServerFilter.inState(ServerState.RUNNING)
+                        .and(ServerFilter.notFull())
+                        .and(ServerFilter.metadataInt("rank", rank -> rank >= 2)))
+                .map(ImanityServer::getName)
+                .collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList("server-2", "server-4"), names);
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            return -1D;
+        }
+    }
+
+}
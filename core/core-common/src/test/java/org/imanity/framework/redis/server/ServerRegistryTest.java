@@ -0,0 +1,358 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.redis.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.imanity.framework.redis.server.enums.ServerState;
+import org.imanity.framework.redis.server.message.ServerMessage;
+import org.imanity.framework.redis.server.message.ServerStateChangedMessage;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+public class ServerRegistryTest {
+
+    private static final int SERVERS = 200;
+    private static final long INTERVAL = 1000L;
+
+    private long now;
+    private MemoryStore store;
+    private Deque<ServerStateChangedMessage> bus;
+    private BiPredicate<ServerRegistry, ServerStateChangedMessage> dropped;
+    private List<ServerRegistry> registries;
+    private int published;
+
+    @Before
+    public void setup() {
+        this.now = 0L;
+        this.store = new MemoryStore();
+        this.bus = new ArrayDeque<>();
+        this.dropped = (receiver, message) -> false;
+        this.registries = new ArrayList<>();
+
+        for (int i = 0; i < SERVERS; i++) {
+            this.registries.add(this.boot("server-" + i));
+        }
+        this.deliver();
+    }
+
+    @Test
+    public void convergesOnStartup() {
+        for (ServerRegistry registry : this.registries) {
+            Assert.assertEquals(SERVERS - 1, registry.getServers().size());
+            Assert.assertNull(registry.getServer(registry.getCurrentServer().getName()));
+        }
+    }
+
+    @Test
+    public void stateChangesConvergeBeforeTheNextTick() {
+        ServerRegistry changed = this.registries.get(42);
+        changed.getCurrentServer().setServerState(ServerState.RUNNING);
+        changed.flush();
+
+        long elapsed = this.untilConverged(registry -> {
+            ImanityServer server = registry.getServer("server-42");
+            return server == null || server.getServerState() == ServerState.RUNNING;
+        });
+        Assert.assertEquals(0L, elapsed);
+    }
+
+    @Test
+    public void metadataConvergesWithinOneTick() {
+        this.registries.get(7).getCurrentServer().putMetadata("map", "desert");
+
+        long elapsed = this.untilConverged(registry -> {
+            ImanityServer server = registry.getServer("server-7");
+            return server == null || "desert".equals(server.getString("map"));
+        });
+        Assert.assertEquals(INTERVAL, elapsed);
+    }
+
+    @Test
+    public void steadyTicksOnlyHeartbeat() {
+        this.tick();
+        this.store.commands = 0;
+        this.store.reads = 0;
+        this.published = 0;
+
+        this.tick();
+
+        // polling took a KEYS plus a read per server on every server, and four writes each
+        int polling = SERVERS * (1 + SERVERS + 4);
+        Assert.assertEquals(SERVERS, this.store.commands);
+        Assert.assertEquals(0, this.store.reads);
+        Assert.assertEquals(SERVERS, this.published);
+        Assert.assertTrue(this.store.commands + this.published < polling / 100);
+    }
+
+    @Test
+    public void changesAreWrittenInOneCommand() {
+        this.tick();
+        this.store.commands = 0;
+
+        for (ServerRegistry registry : this.registries) {
+            registry.getCurrentServer().setOnlinePlayers(10);
+            registry.getCurrentServer().putMetadata("map", "forest");
+        }
+        this.tick();
+
+        Assert.assertEquals(SERVERS, this.store.commands);
+        Assert.assertEquals(0, this.store.reads);
+    }
+
+    @Test
+    public void resyncsOnlyTheServerWithAGap() {
+        ServerRegistry sender = this.registries.get(3);
+        ServerRegistry receiver = this.registries.get(4);
+        this.dropped = (to, message) -> to == receiver && message.getServerName().equals("server-3");
+
+        sender.getCurrentServer().setMaxPlayers(150);
+        sender.flush();
+        this.deliver();
+        Assert.assertEquals(100, receiver.getServer("server-3").getMaxPlayers());
+
+        this.dropped = (to, message) -> false;
+        this.store.reads = 0;
+        sender.getCurrentServer().setOnlinePlayers(20);
+        sender.flush();
+        this.deliver();
+
+        Assert.assertEquals(1, this.store.reads);
+        Assert.assertEquals(150, receiver.getServer("server-3").getMaxPlayers());
+        Assert.assertEquals(20, receiver.getServer("server-3").getOnlinePlayers());
+    }
+
+    @Test
+    public void heartbeatAfterALostChangeResyncs() {
+        this.tick();
+        ServerRegistry sender = this.registries.get(5);
+        ServerRegistry receiver = this.registries.get(6);
+        this.dropped = (to, message) -> to == receiver && !message.isHeartbeat();
+
+        sender.getCurrentServer().setOnlinePlayers(42);
+        sender.flush();
+        this.deliver();
+        Assert.assertEquals(0, receiver.getServer("server-5").getOnlinePlayers());
+
+        this.store.reads = 0;
+        this.tick();
+        this.tick();
+
+        Assert.assertEquals(42, receiver.getServer("server-5").getOnlinePlayers());
+        // the first heartbeat resyncs, the ones after it agree again
+        Assert.assertEquals(1, this.store.reads);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void legacyStateMessageStillWorks() throws Exception {
+        ServerStateChangedMessage legacy = new ServerStateChangedMessage(new ImanityServer("server-8"), ServerState.RUNNING);
+        Assert.assertTrue(legacy instanceof ServerMessage);
+        Assert.assertEquals("server-8", legacy.getServer().getName());
+        Assert.assertEquals("server-8", legacy.getServerName());
+        Assert.assertEquals(ServerState.RUNNING, legacy.getState());
+
+        // the server isn't sent, only its name
+        ObjectMapper mapper = new ObjectMapper();
+        ServerStateChangedMessage received = mapper.readValue(mapper.writeValueAsBytes(legacy), ServerStateChangedMessage.class);
+        Assert.assertNull(received.getServer());
+        Assert.assertEquals("server-8", received.getServerName());
+        Assert.assertEquals(ServerState.RUNNING, received.getState());
+
+        // it carries no epoch, so receivers resync the server instead of trusting it
+        this.store.reads = 0;
+        this.registries.get(0).handle(received);
+        Assert.assertEquals(1, this.store.reads);
+    }
+
+    @Test
+    public void stoppedServerIsNotWrittenAgain() {
+        ServerRegistry stopped = this.registries.get(9);
+        stopped.stop();
+        Assert.assertNull(this.store.read("server-9"));
+
+        // a tick or flush racing the shutdown
+        stopped.getCurrentServer().setOnlinePlayers(5);
+        stopped.flush();
+        stopped.tick();
+        Assert.assertNull(this.store.read("server-9"));
+        Assert.assertFalse(this.store.heartbeats.containsKey("server-9"));
+    }
+
+    @Test
+    public void dropsServersThatStopAnnouncing() {
+        ServerRegistry crashed = this.registries.remove(SERVERS - 1);
+
+        for (int i = 0; i < 4; i++) {
+            this.tick();
+        }
+
+        for (ServerRegistry registry : this.registries) {
+            Assert.assertNull(registry.getServer(crashed.getCurrentServer().getName()));
+            Assert.assertEquals(SERVERS - 2, registry.getServers().size());
+        }
+    }
+
+    @Test
+    public void acceptsRestartedServer() {
+        this.tick();
+        ServerRegistry previous = this.registries.get(0);
+        previous.getCurrentServer().setServerState(ServerState.RUNNING);
+        previous.flush();
+        this.deliver();
+
+        ServerRegistry restarted = this.boot("server-0");
+        this.registries.set(0, restarted);
+        this.store.reads = 0;
+        this.deliver();
+
+        Assert.assertNotEquals(previous.getEpoch(), restarted.getEpoch());
+        Assert.assertEquals(0, this.store.reads);
+        for (ServerRegistry registry : this.registries.subList(1, SERVERS)) {
+            Assert.assertEquals(ServerState.BOOTING, registry.getServer("server-0").getServerState());
+        }
+    }
+
+    @Test
+    public void snapshotsDontFollowTheRegistry() {
+        ServerRegistry registry = this.registries.get(0);
+        Map<String, ImanityServer> snapshot = registry.getServers();
+
+        registry.removeServer("server-1");
+        Assert.assertTrue(snapshot.containsKey("server-1"));
+        Assert.assertFalse(registry.getServers().containsKey("server-1"));
+    }
+
+    @Test
+    public void extractsServerNameFromKeys() {
+        Assert.assertEquals("lobby-1", RedisServerRegistryStore.serverName(RedisServerRegistryStore.stateKey("lobby-1")));
+        Assert.assertEquals("lobby-1", RedisServerRegistryStore.serverName(RedisServerRegistryStore.heartbeatKey("lobby-1")));
+    }
+
+    private ServerRegistry boot(String name) {
+        ImanityServer server = new ImanityServer(name);
+        server.setServerState(ServerState.BOOTING);
+        server.setMaxPlayers(100);
+
+        ServerRegistry registry = new ServerRegistry(server, this.store, message -> {
+            this.published++;
+            this.bus.add((ServerStateChangedMessage) message);
+        }, () -> this.now, INTERVAL * 3);
+        registry.start();
+        return registry;
+    }
+
+    private void tick() {
+        this.now += INTERVAL;
+        for (ServerRegistry registry : this.registries) {
+            registry.tick();
+        }
+        this.deliver();
+    }
+
+    private void deliver() {
+        ServerStateChangedMessage message;
+        while ((message = this.bus.poll()) != null) {
+            for (ServerRegistry registry : this.registries) {
+                if (!this.dropped.test(registry, message)) {
+                    registry.handle(message);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the simulated time it took until every registry saw the change
+     */
+    private long untilConverged(Predicate<ServerRegistry> converged) {
+        long start = this.now;
+        this.deliver();
+        while (!this.registries.stream().allMatch(converged)) {
+            Assert.assertTrue("didn't converge", this.now - start < INTERVAL * 10);
+            this.tick();
+        }
+        return this.now - start;
+    }
+
+    /**
+     * Redis stand-in counting every command sent to it
+     */
+    private class MemoryStore implements ServerRegistryStore {
+
+        private final Map<String, Map<String, Object>> states = new HashMap<>();
+        private final Map<String, Long> heartbeats = new HashMap<>();
+        private int commands;
+        private int reads;
+
+        @Override
+        public void write(String server, Map<String, Object> fields, long heartbeatMillis) {
+            this.commands++;
+            this.states.computeIfAbsent(server, ignored -> new HashMap<>()).putAll(fields);
+            this.heartbeats.put(server, now + heartbeatMillis);
+        }
+
+        @Override
+        public void heartbeat(String server, long heartbeatMillis) {
+            this.commands++;
+            this.heartbeats.put(server, now + heartbeatMillis);
+        }
+
+        @Nullable
+        @Override
+        public Map<String, Object> read(String server) {
+            this.commands++;
+            this.reads++;
+            Map<String, Object> state = this.states.get(server);
+            return state != null ? new HashMap<>(state) : null;
+        }
+
+        @Override
+        public Map<String, Map<String, Object>> readAll() {
+            // a scan of the heartbeats and one batch for the states
+            this.commands += 2;
+            Map<String, Map<String, Object>> servers = new HashMap<>();
+            this.heartbeats.forEach((server, expiry) -> {
+                if (expiry > now) {
+                    servers.put(server, new HashMap<>(this.states.get(server)));
+                }
+            });
+            return servers;
+        }
+
+        @Override
+        public void delete(String server) {
+            this.commands++;
+            this.states.remove(server);
+            this.heartbeats.remove(server);
+        }
+
+    }
+
+}
@@ -51,4 +51,12 @@ import java.lang.annotation.*;
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Async {
+
+    /**
+     * @return the name of the {@link org.imanity.framework.aspect.AsyncExecutor} to run on,
+     * registered through {@link org.imanity.framework.aspect.AsyncAspect#registerExecutor},
+     * or empty for the shared default executor
+     */
+    String value() default "";
+
 }
@@ -45,4 +45,11 @@ public @interface CacheEvict {
      */
     boolean preventArgumentNull() default true;
 
+    /**
+     * Evict every entry whose key starts with the value instead of the exact key,
+     * or every entry of the declaring class if the value is empty
+     *
+     */
+    boolean allEntries() default false;
+
 }
@@ -70,6 +70,27 @@ public @interface Cacheable {
      */
     boolean preventArgumentNull() default true;
 
+    /**
+     * The maximum amount of entries the cache of the declaring class holds, -1 for unbounded.
+     *
+     * <p>Only applies to cache managers supporting bounds, such as
+     * {@link org.imanity.framework.cache.manager.CacheManagerCaffeine}. As the whole class shares a cache,
+     * the largest value declared among its methods is used.</p>
+     */
+    long maximumSize() default -1;
+
+    /**
+     * The maximum total {@link #weight()} of entries the cache of the declaring class holds, -1 for unbounded.
+     *
+     * <p>Same as {@link #maximumSize()}, can't be used together with it in the same class.</p>
+     */
+    long maximumWeight() default -1;
+
+    /**
+     * The weight of each entry cached by this method, only used with {@link #maximumWeight()}.
+     */
+    int weight() default 1;
+
     /**
      * Identifies a method that should flush all cached entities of
      * this class/object, before being executed.
@@ -39,7 +39,7 @@ public class FrameworkMisc {
     public static LibraryHandler LIBRARY_HANDLER;
 
     public static void close() {
-        AsyncAspect.EXECUTOR.shutdown();
+        AsyncAspect.shutdown();
 
         CacheableAspect.CLEANER_SERVICE.shutdown();
         CacheableAspect.UPDATER_SERVICE.shutdown();
@@ -24,66 +24,187 @@
 
 package org.imanity.framework.aspect;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.imanity.framework.Async;
 import org.imanity.framework.util.Stacktrace;
 
 @Aspect
 public final class AsyncAspect {
 
-    public static final ExecutorService EXECUTOR =
-            Executors.newCachedThreadPool(
-                    new ThreadFactoryBuilder()
-                        .setDaemon(true)
-                        .setNameFormat("imanity-async-%d")
-                        .setUncaughtExceptionHandler((thread, throwable) -> Stacktrace.print(throwable))
-                    .build()
-            );
+    private static final Map<String, AsyncExecutor> EXECUTORS = new ConcurrentHashMap<>();
+    private static final boolean GUAVA_PRESENT = isPresent("com.google.common.util.concurrent.SettableFuture");
+
+    static {
+        registerExecutor(new AsyncExecutor(
+                AsyncExecutor.DEFAULT,
+                Math.max(4, Runtime.getRuntime().availableProcessors() * 2),
+                4096,
+                AsyncExecutor.RejectionPolicy.CALLER_RUNS
+        ));
+    }
+
+    /**
+     * Register an executor for {@code @Async(name)} methods, replacing and shutting down
+     * any executor previously registered with the same name
+     *
+     * Registering with {@link AsyncExecutor#DEFAULT} replaces the shared default executor
+     */
+    public static void registerExecutor(AsyncExecutor executor) {
+        final AsyncExecutor previous = EXECUTORS.put(executor.getName(), executor);
+        if (previous != null && previous != executor) {
+            previous.shutdown();
+        }
+    }
+
+    public static AsyncExecutor getExecutor(String name) {
+        final AsyncExecutor executor = EXECUTORS.get(name);
+        if (executor == null) {
+            throw new IllegalStateException(String.format("No AsyncExecutor registered with name '%s'", name));
+        }
+        return executor;
+    }
+
+    public static AsyncExecutor getDefaultExecutor() {
+        return getExecutor(AsyncExecutor.DEFAULT);
+    }
+
+    public static void shutdown() {
+        EXECUTORS.values().forEach(AsyncExecutor::shutdown);
+    }
 
     @Around("execution(@org.imanity.framework.Async * * (..))")
     public Object wrap(final ProceedingJoinPoint point) {
-        final Class<?> returned = ((MethodSignature) point.getSignature()).getMethod().getReturnType();
+        final Method method = ((MethodSignature) point.getSignature()).getMethod();
+        final Class<?> returned = method.getReturnType();
+        final boolean isVoid = returned.equals(Void.TYPE);
 
-        if (!Future.class.isAssignableFrom(returned) && !returned.equals(Void.TYPE)) {
+        final Function<CompletableFuture<Object>, Object> adapter = isVoid ? null : adapter(returned);
+        if (!isVoid && adapter == null) {
             throw new IllegalStateException(
                     String.format(
-                            "%s: Return type is %s, not void or Future, cannot use @Async",
+                            "%s: Return type is %s, not void, Future, CompletableFuture or ListenableFuture, cannot use @Async",
                             point.toShortString(),
                             returned.getCanonicalName()
                     )
             );
         }
 
-        final Future<?> future = EXECUTOR.submit(() -> {
-                    Object returned1 = null;
-                    try {
-                        final Object result1 = point.proceed();
-                        if (result1 instanceof Future) {
-                            returned1 = ((Future<?>) result1).get();
-                        }
-                    } catch (final Throwable ex) {
-                        throw new IllegalStateException(
-                                String.format("%s: Exception thrown", point.toShortString()),
-                                ex
-                        );
+        final AsyncExecutor executor = getExecutor(method.getAnnotation(Async.class).value());
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        executor.execute(() -> {
+            final Object result;
+            try {
+                result = point.proceed();
+            } catch (final Throwable ex) {
+                future.completeExceptionally(new IllegalStateException(
+                        String.format("%s: Exception thrown", point.toShortString()),
+                        ex
+                ));
+                return;
+            }
+
+            if (result instanceof CompletionStage) {
+                // chain instead of waiting, the pool thread is released right away
+                ((CompletionStage<?>) result).whenComplete((value, throwable) -> {
+                    if (throwable != null) {
+                        future.completeExceptionally(throwable);
+                    } else {
+                        future.complete(value);
                     }
-                    return returned1;
+                });
+            } else if (result instanceof Future) {
+                // a plain Future has no completion callback; usually it is already done
+                // (a result holder), otherwise there is no choice but to wait for it here
+                try {
+                    future.complete(((Future<?>) result).get());
+                } catch (final Throwable ex) {
+                    future.completeExceptionally(new IllegalStateException(
+                            String.format("%s: Exception thrown", point.toShortString()),
+                            ex
+                    ));
+                }
+            } else {
+                future.complete(null);
+            }
+        });
+
+        if (isVoid) {
+            future.whenComplete((value, throwable) -> {
+                if (throwable != null) {
+                    Stacktrace.print(throwable);
                 }
-        );
-        Object resultObject = null;
-        if (Future.class.isAssignableFrom(returned)) {
-            resultObject = future;
+            });
+            return null;
         }
-        return resultObject;
+        return adapter.apply(future);
+    }
+
+    /**
+     * @return how the result future is handed back as the return type, or null if it can't be
+     */
+    private static Function<CompletableFuture<Object>, Object> adapter(final Class<?> returned) {
+        if (!Future.class.isAssignableFrom(returned)) {
+            return null;
+        }
+        if (returned.isAssignableFrom(CompletableFuture.class)) {
+            return future -> future;
+        }
+        if (GUAVA_PRESENT && ListenableFutures.accepts(returned)) {
+            return ListenableFutures::adapt;
+        }
+        return null;
+    }
+
+    private static boolean isPresent(final String className) {
+        try {
+            Class.forName(className, false, AsyncAspect.class.getClassLoader());
+            return true;
+        } catch (final ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Guava is optional, keep its classes out of AsyncAspect so they are only loaded when it's present
+     */
+    private static final class ListenableFutures {
+
+        private static boolean accepts(final Class<?> returned) {
+            return returned.isAssignableFrom(SettableFuture.class);
+        }
+
+        private static Object adapt(final CompletableFuture<Object> future) {
+            final SettableFuture<Object> settableFuture = SettableFuture.create();
+            future.whenComplete((value, throwable) -> {
+                if (throwable != null) {
+                    settableFuture.setException(throwable);
+                } else {
+                    settableFuture.set(value);
+                }
+            });
+            settableFuture.addListener(() -> {
+                if (settableFuture.isCancelled()) {
+                    future.cancel(false);
+                }
+            }, MoreExecutors.directExecutor());
+            return settableFuture;
+        }
+
     }
 
 }
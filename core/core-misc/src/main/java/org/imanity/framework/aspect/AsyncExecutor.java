@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.aspect;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Getter;
+import org.imanity.framework.util.Stacktrace;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded executor that {@link org.imanity.framework.Async} methods are submitted to
+ *
+ * At most {@code threads} threads are ever started, idle threads time out after {@code keepAlive},
+ * and once {@code queueSize} tasks are waiting the {@link RejectionPolicy} decides what happens
+ */
+public final class AsyncExecutor implements Executor {
+
+    public static final String DEFAULT = "";
+
+    @Getter
+    private final String name;
+    @Getter
+    private final RejectionPolicy rejectionPolicy;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejectedCount;
+
+    public AsyncExecutor(String name, int threads, int queueSize, RejectionPolicy rejectionPolicy) {
+        this(name, threads, queueSize, rejectionPolicy, 60L, TimeUnit.SECONDS);
+    }
+
+    public AsyncExecutor(String name, int threads, int queueSize, RejectionPolicy rejectionPolicy, long keepAlive, TimeUnit unit) {
+        if (threads <= 0 || queueSize <= 0) {
+            throw new IllegalArgumentException("threads and queueSize must be positive");
+        }
+        this.name = name;
+        this.rejectionPolicy = rejectionPolicy;
+        this.rejectedCount = new LongAdder();
+
+        // core == max: a ThreadPoolExecutor only grows past its core size once the queue is full,
+        // so every thread has to be a core thread for the queue to actually be used
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                keepAlive,
+                unit,
+                new ArrayBlockingQueue<>(queueSize),
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat(name.isEmpty() ? "imanity-async-%d" : "imanity-async-" + name + "-%d")
+                        .setUncaughtExceptionHandler((thread, throwable) -> Stacktrace.print(throwable))
+                        .build(),
+                (runnable, executor) -> {
+                    this.rejectedCount.increment();
+                    this.rejectionPolicy.rejected(runnable, executor);
+                }
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        this.executor.execute(command);
+    }
+
+    /**
+     * @return the number of tasks waiting for a thread
+     */
+    public int getQueueDepth() {
+        return this.executor.getQueue().size();
+    }
+
+    /**
+     * @return the approximate number of threads currently running a task
+     */
+    public int getActiveThreads() {
+        return this.executor.getActiveCount();
+    }
+
+    /**
+     * @return the number of threads currently alive, running or idle
+     */
+    public int getPoolSize() {
+        return this.executor.getPoolSize();
+    }
+
+    /**
+     * @return the largest number of threads that have ever been alive at the same time
+     */
+    public int getLargestPoolSize() {
+        return this.executor.getLargestPoolSize();
+    }
+
+    public int getMaximumPoolSize() {
+        return this.executor.getMaximumPoolSize();
+    }
+
+    /**
+     * @return the number of tasks handed to the {@link RejectionPolicy}, whichever way it handled them
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount.sum();
+    }
+
+    public long getCompletedCount() {
+        return this.executor.getCompletedTaskCount();
+    }
+
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.executor.awaitTermination(timeout, unit);
+    }
+
+    public enum RejectionPolicy {
+
+        /**
+         * Run the task on the submitting thread, which slows producers down to the pool's pace
+         *
+         * Once the executor is shut down there is nothing to slow down for, so the task is refused with a
+         * {@link RejectedExecutionException} instead, same as {@link #FAIL_FAST}, rather than dropped
+         */
+        CALLER_RUNS {
+            @Override
+            void rejected(Runnable runnable, ThreadPoolExecutor executor) {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Task " + runnable + " rejected from " + executor + ", it was shut down");
+                }
+                runnable.run();
+            }
+        },
+
+        /**
+         * Throw a {@link RejectedExecutionException} to the submitting thread
+         */
+        FAIL_FAST {
+            @Override
+            void rejected(Runnable runnable, ThreadPoolExecutor executor) {
+                throw new RejectedExecutionException("Task " + runnable + " rejected from " + executor);
+            }
+        };
+
+        abstract void rejected(Runnable runnable, ThreadPoolExecutor executor);
+
+    }
+
+}
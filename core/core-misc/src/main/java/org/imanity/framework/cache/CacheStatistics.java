@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.cache;
+
+import lombok.Value;
+
+/**
+ * A snapshot of the statistics recorded by a {@link org.imanity.framework.cache.manager.CacheManager}
+ */
+@Value
+public class CacheStatistics {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long totalLoadTime;
+    private final long evictionCount;
+    private final long evictionWeight;
+
+    public long requestCount() {
+        return this.hitCount + this.missCount;
+    }
+
+    public double hitRate() {
+        long requestCount = this.requestCount();
+        return requestCount == 0 ? 1.0 : (double) this.hitCount / requestCount;
+    }
+
+    public double missRate() {
+        long requestCount = this.requestCount();
+        return requestCount == 0 ? 0.0 : (double) this.missCount / requestCount;
+    }
+
+    /**
+     * @return the average time spent on computing a cached value, in nanoseconds
+     */
+    public double averageLoadPenalty() {
+        return this.loadCount == 0 ? 0.0 : (double) this.totalLoadTime / this.loadCount;
+    }
+
+}
@@ -35,6 +35,8 @@ public class CacheWrapper<T> {
 
     private long expireTime;
 
+    private int weight = 1;
+
     public CacheWrapper(T cacheObject, long expireTime) {
         if (cacheObject == null) {
             new Throwable().printStackTrace();
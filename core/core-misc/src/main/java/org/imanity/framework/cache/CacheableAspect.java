@@ -143,7 +143,7 @@ public class CacheableAspect {
                 } catch (Throwable throwable) {
                     throw new RuntimeException("Something wrong while creating Cache Manager instance for " + type.getName() + "!", throwable);
                 }
-                cacheManager.init(this);
+                cacheManager.init(this, type);
                 this.cacheManagers.put(type, cacheManager);
             }
         }
@@ -186,14 +186,17 @@ public class CacheableAspect {
             return wrapper.get();
         }
 
+        long start = System.nanoTime();
         Object result = point.proceed();
+        long loadTime = System.nanoTime() - start;
 
         if (condition.length() != 0 && !this.checkCondition(condition, point.getTarget(), point.getArgs(), result, true)) {
             return result;
         }
 
         wrapper = new CacheWrapper<>(result, annotation.forever() ? 0L : annotation.unit().toMillis(annotation.lifetime()));
-        manager.cache(key, wrapper);
+        wrapper.setWeight(annotation.weight());
+        manager.cache(key, wrapper, loadTime);
         return result;
     }
 
@@ -237,7 +240,12 @@ public class CacheableAspect {
                 return;
             }
         }
-        this.getCacheManager(method.getDeclaringClass()).evict(point, keyString);
+        CacheManager cacheManager = this.getCacheManager(method.getDeclaringClass());
+        if (annotation.allEntries()) {
+            cacheManager.evictAll(point, keyString);
+        } else {
+            cacheManager.evict(point, keyString);
+        }
     }
 
     @Before
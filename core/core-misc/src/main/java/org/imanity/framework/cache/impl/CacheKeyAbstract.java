@@ -25,34 +25,48 @@
 package org.imanity.framework.cache.impl;
 
 import lombok.Getter;
-import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.reflect.MethodSignature;
-
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.util.Objects;
 
 public abstract class CacheKeyAbstract {
 
     @Getter
     private final Class<?> parentClass;
+    private final int hash;
 
     public CacheKeyAbstract(Class<?> parentClass) {
+        this(parentClass, parentClass.hashCode());
+    }
+
+    /**
+     * @param parentClass the class declaring the cached method
+     * @param hash the full hash of the key, computed once as keys are immutable
+     */
+    protected CacheKeyAbstract(Class<?> parentClass, int hash) {
         this.parentClass = parentClass;
+        this.hash = hash;
+    }
+
+    /**
+     * Compare the content of the key, only called with a key of the same class and hash
+     *
+     * @param other the other key
+     * @return true if the key matches
+     */
+    protected boolean matches(CacheKeyAbstract other) {
+        return this.parentClass == other.parentClass;
     }
 
     @Override
-    public boolean equals(Object o) {
+    public final boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
 
         CacheKeyAbstract that = (CacheKeyAbstract) o;
 
-        return this.parentClass == that.parentClass;
+        return this.hash == that.hash && this.matches(that);
     }
 
     @Override
-    public int hashCode() {
-        return this.parentClass.hashCode();
+    public final int hashCode() {
+        return this.hash;
     }
 }
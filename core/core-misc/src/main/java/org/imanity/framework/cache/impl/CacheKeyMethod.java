@@ -24,41 +24,42 @@
 
 package org.imanity.framework.cache.impl;
 
+import lombok.Getter;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.reflect.MethodSignature;
+
 import java.lang.reflect.Method;
 import java.util.Arrays;
-import java.util.Objects;
 
 public class CacheKeyMethod extends CacheKeyAbstract {
 
+    @Getter
     private final Method method;
     private final Object[] arguments;
 
     public CacheKeyMethod(Class<?> parentClass, final JoinPoint point) {
-        super(parentClass);
-        this.method = ((MethodSignature) point.getSignature()).getMethod();
-        this.arguments = point.getArgs();
+        this(parentClass, ((MethodSignature) point.getSignature()).getMethod(), point.getArgs());
     }
 
-    @Override
-    public final int hashCode() {
-        return Objects.hash(this.method);
+    public CacheKeyMethod(Class<?> parentClass, Method method, Object[] arguments) {
+        super(parentClass, hash(parentClass, method, arguments));
+        this.method = method;
+        this.arguments = arguments;
     }
 
     @Override
-    public final boolean equals(Object object) {
-        boolean equals;
-        if (this == object) {
-            equals = true;
-        } else if (object instanceof CacheKeyMethod) {
-            CacheKeyMethod key = (CacheKeyMethod) object;
-            equals = key.method.equals(this.method)
-                    && Arrays.deepEquals(key.arguments, this.arguments);
-        } else {
-            equals = false;
-        }
-        return equals && super.equals(object);
+    protected boolean matches(CacheKeyAbstract other) {
+        CacheKeyMethod key = (CacheKeyMethod) other;
+        return super.matches(other)
+                && key.method.equals(this.method)
+                && (key.arguments == this.arguments || Arrays.deepEquals(key.arguments, this.arguments));
+    }
+
+    private static int hash(Class<?> parentClass, Method method, Object[] arguments) {
+        int result = parentClass.hashCode();
+        result = 31 * result + method.hashCode();
+        result = 31 * result + Arrays.deepHashCode(arguments);
+        return result;
     }
 
 }
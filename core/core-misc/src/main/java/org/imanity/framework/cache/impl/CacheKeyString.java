@@ -24,33 +24,25 @@
 
 package org.imanity.framework.cache.impl;
 
-import org.aspectj.lang.JoinPoint;
+import lombok.Getter;
 
 import java.util.Objects;
 import java.util.StringJoiner;
 
 public class CacheKeyString extends CacheKeyAbstract {
 
+    @Getter
     private final String key;
 
     public CacheKeyString(Class<?> parentClass, String key) {
-        super(parentClass);
+        super(parentClass, key != null ? key.hashCode() : 0);
         this.key = key;
     }
 
     @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-
-        CacheKeyString that = (CacheKeyString) o;
-
-        return Objects.equals(key, that.key);
-    }
-
-    @Override
-    public int hashCode() {
-        return key != null ? key.hashCode() : 0;
+    protected boolean matches(CacheKeyAbstract other) {
+        // string keys are shared between every class using the same cache manager
+        return Objects.equals(this.key, ((CacheKeyString) other).key);
     }
 
     @Override
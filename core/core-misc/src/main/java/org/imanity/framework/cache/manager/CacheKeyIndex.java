@@ -0,0 +1,181 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.cache.manager;
+
+import org.imanity.framework.cache.CacheWrapper;
+import org.imanity.framework.cache.impl.CacheKeyAbstract;
+import org.imanity.framework.cache.impl.CacheKeyMethod;
+import org.imanity.framework.cache.impl.CacheKeyString;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Secondary indexes over the keys of a cache manager, so lookups by method, declaring class, value type
+ * or key prefix only visit the matching keys.
+ *
+ * The cache manager must call {@link #add(CacheKeyAbstract, CacheWrapper)} and {@link #remove(CacheKeyAbstract)}
+ * while holding the lock of the key, so updates of the same key are never reordered.
+ */
+public class CacheKeyIndex {
+
+    // what has been indexed for each key, string keys from different classes are equal so the key is kept too
+    private final Map<CacheKeyAbstract, Indexed> indexed = new ConcurrentHashMap<>();
+
+    private final Map<Method, Set<CacheKeyAbstract>> byMethod = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Set<CacheKeyAbstract>> byParentClass = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Set<CacheKeyAbstract>> byValueType = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<String, CacheKeyString> byKey = new ConcurrentSkipListMap<>();
+
+    /**
+     * Index the key mapped to the wrapper, replacing the previous mapping of the key if any
+     *
+     * @param key the key
+     * @param wrapper the wrapper
+     */
+    public void add(CacheKeyAbstract key, CacheWrapper<?> wrapper) {
+        this.remove(key);
+
+        Object value = wrapper.get();
+        Class<?> valueType = value != null ? value.getClass() : null;
+        this.indexed.put(key, new Indexed(key, valueType));
+
+        if (key instanceof CacheKeyMethod) {
+            add(this.byMethod, ((CacheKeyMethod) key).getMethod(), key);
+        } else if (key instanceof CacheKeyString && ((CacheKeyString) key).getKey() != null) {
+            this.byKey.put(((CacheKeyString) key).getKey(), (CacheKeyString) key);
+        }
+
+        add(this.byParentClass, key.getParentClass(), key);
+        if (valueType != null) {
+            add(this.byValueType, valueType, key);
+        }
+    }
+
+    /**
+     * Remove the key from the indexes
+     *
+     * @param key the key
+     */
+    public void remove(CacheKeyAbstract key) {
+        Indexed previous = this.indexed.remove(key);
+        if (previous == null) {
+            return;
+        }
+
+        key = previous.key;
+        if (key instanceof CacheKeyMethod) {
+            remove(this.byMethod, ((CacheKeyMethod) key).getMethod(), key);
+        } else if (key instanceof CacheKeyString && ((CacheKeyString) key).getKey() != null) {
+            this.byKey.remove(((CacheKeyString) key).getKey());
+        }
+
+        remove(this.byParentClass, key.getParentClass(), key);
+        if (previous.valueType != null) {
+            remove(this.byValueType, previous.valueType, key);
+        }
+    }
+
+    /**
+     * @param method the method
+     * @return the keys of every value cached by the method
+     */
+    public Collection<CacheKeyAbstract> findByMethod(Method method) {
+        Set<CacheKeyAbstract> keys = this.byMethod.get(method);
+        return keys == null ? new ArrayList<>() : new ArrayList<>(keys);
+    }
+
+    /**
+     * @param parentClass the class
+     * @return the keys of every value cached by methods declared in the class or its subclasses
+     */
+    public Collection<CacheKeyAbstract> findByParentClass(Class<?> parentClass) {
+        return findAssignable(this.byParentClass, parentClass);
+    }
+
+    /**
+     * @param type the type
+     * @return the keys of every cached value which is an instance of the type
+     */
+    public Collection<CacheKeyAbstract> findByValueType(Class<?> type) {
+        return findAssignable(this.byValueType, type);
+    }
+
+    /**
+     * @param prefix the prefix
+     * @return the string keys starting with the prefix
+     */
+    public Collection<CacheKeyAbstract> findByPrefix(String prefix) {
+        List<CacheKeyAbstract> keys = new ArrayList<>();
+        for (Map.Entry<String, CacheKeyString> entry : this.byKey.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            keys.add(entry.getValue());
+        }
+        return keys;
+    }
+
+    private static Collection<CacheKeyAbstract> findAssignable(Map<Class<?>, Set<CacheKeyAbstract>> index, Class<?> type) {
+        List<CacheKeyAbstract> keys = new ArrayList<>();
+        // the amount of distinct classes is small compared to the amount of keys
+        for (Map.Entry<Class<?>, Set<CacheKeyAbstract>> entry : index.entrySet()) {
+            if (type.isAssignableFrom(entry.getKey())) {
+                keys.addAll(entry.getValue());
+            }
+        }
+        return keys;
+    }
+
+    private static <K> void add(Map<K, Set<CacheKeyAbstract>> index, K indexKey, CacheKeyAbstract key) {
+        index.computeIfAbsent(indexKey, ignored -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    private static <K> void remove(Map<K, Set<CacheKeyAbstract>> index, K indexKey, CacheKeyAbstract key) {
+        Set<CacheKeyAbstract> keys = index.get(indexKey);
+        if (keys != null) {
+            keys.remove(key);
+        }
+    }
+
+    private static final class Indexed {
+
+        private final CacheKeyAbstract key;
+        private final Class<?> valueType;
+
+        private Indexed(CacheKeyAbstract key, Class<?> valueType) {
+            this.key = key;
+            this.valueType = valueType;
+        }
+    }
+
+}
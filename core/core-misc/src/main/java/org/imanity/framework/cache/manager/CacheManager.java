@@ -25,16 +25,29 @@
 package org.imanity.framework.cache.manager;
 
 import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.imanity.framework.cache.CacheStatistics;
 import org.imanity.framework.cache.CacheWrapper;
 import org.imanity.framework.cache.CacheableAspect;
 import org.imanity.framework.cache.impl.CacheKeyAbstract;
 
+import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.Map;
 
 public interface CacheManager {
     void init(CacheableAspect cacheableAspect);
 
+    /**
+     * Initialize the cache manager for the given class annotated with {@link org.imanity.framework.cache.EnableOwnCacheManager}
+     *
+     * @param cacheableAspect the aspect
+     * @param type the class owning the cache manager
+     */
+    default void init(CacheableAspect cacheableAspect, Class<?> type) {
+        this.init(cacheableAspect);
+    }
+
     void clean();
 
     Map<CacheKeyAbstract, CacheWrapper<?>> getAsMap();
@@ -45,7 +58,49 @@ public interface CacheManager {
 
     void cache(CacheKeyAbstract key, CacheWrapper<?> wrapper) throws Throwable;
 
+    /**
+     * Cache the wrapper which took loadTime nanoseconds to compute
+     *
+     * @param key the key
+     * @param wrapper the wrapper
+     * @param loadTime the time spent on computing the value, in nanoseconds
+     * @throws Throwable if caching failed
+     */
+    default void cache(CacheKeyAbstract key, CacheWrapper<?> wrapper, long loadTime) throws Throwable {
+        this.cache(key, wrapper);
+    }
+
     void evict(JoinPoint point, String keyString);
 
+    /**
+     * Evict every entry with a string key starting with the prefix, or every entry of the
+     * declaring class of the join point if the prefix is empty
+     *
+     * @param point the join point
+     * @param keyPrefix the key prefix
+     */
+    default void evictAll(JoinPoint point, String keyPrefix) {
+        this.flush(((MethodSignature) point.getSignature()).getMethod().getDeclaringClass());
+    }
+
+    /**
+     * Evict every entry cached by the method without a key
+     *
+     * @param method the method
+     */
+    default void evictMethod(Method method) {
+        this.flush(method.getDeclaringClass());
+    }
+
     void flush(Class<?> parentClass);
+
+    /**
+     * Get the statistics recorded by this cache manager
+     *
+     * @return the statistics
+     * @throws UnsupportedOperationException if the cache manager doesn't record statistics
+     */
+    default CacheStatistics getStatistics() {
+        throw new UnsupportedOperationException(this.getClass().getName() + " doesn't record statistics!");
+    }
 }
@@ -0,0 +1,237 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.cache.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.google.common.collect.ImmutableMap;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.imanity.framework.Cacheable;
+import org.imanity.framework.cache.CacheStatistics;
+import org.imanity.framework.cache.CacheWrapper;
+import org.imanity.framework.cache.CacheableAspect;
+import org.imanity.framework.cache.impl.CacheKeyAbstract;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded cache manager backed by Caffeine.
+ *
+ * Bounds are read from {@link Cacheable#maximumSize()} and {@link Cacheable#maximumWeight()} of the class owning
+ * the cache manager, entries expire on their own after {@link CacheWrapper#getExpireTime()} so nothing has to be
+ * scanned by {@link #clean()}, and hit, miss, load and eviction statistics are recorded.
+ */
+public class CacheManagerCaffeine implements CacheManager {
+
+    private transient Cache<CacheKeyAbstract, CacheWrapper<?>> cache;
+    private transient ConcurrentStatsCounter statsCounter;
+    private transient CacheKeyIndex index;
+
+    private CacheableAspect cacheableAspect;
+
+    @Override
+    public void init(CacheableAspect cacheableAspect) {
+        this.init(cacheableAspect, -1L, -1L);
+    }
+
+    @Override
+    public void init(CacheableAspect cacheableAspect, Class<?> type) {
+        long maximumSize = -1L;
+        long maximumWeight = -1L;
+
+        for (Method method : type.getDeclaredMethods()) {
+            Cacheable annotation = method.getAnnotation(Cacheable.class);
+            if (annotation == null) {
+                continue;
+            }
+
+            maximumSize = Math.max(maximumSize, annotation.maximumSize());
+            maximumWeight = Math.max(maximumWeight, annotation.maximumWeight());
+        }
+
+        if (maximumSize >= 0 && maximumWeight >= 0) {
+            throw new IllegalArgumentException("Both maximumSize and maximumWeight were declared in " + type.getName() + "!");
+        }
+
+        this.init(cacheableAspect, maximumSize, maximumWeight);
+    }
+
+    private void init(CacheableAspect cacheableAspect, long maximumSize, long maximumWeight) {
+        this.cacheableAspect = cacheableAspect;
+        this.statsCounter = new ConcurrentStatsCounter();
+        this.index = new CacheKeyIndex();
+
+        Caffeine<CacheKeyAbstract, CacheWrapper<?>> builder = Caffeine.newBuilder()
+                .expireAfter(new WrapperExpiry())
+                .writer(new IndexWriter(this.index))
+                .recordStats(() -> this.statsCounter);
+
+        if (maximumSize >= 0) {
+            builder.maximumSize(maximumSize);
+        } else if (maximumWeight >= 0) {
+            builder.maximumWeight(maximumWeight)
+                    .weigher((key, wrapper) -> wrapper.getWeight());
+        }
+
+        this.cache = builder.build();
+    }
+
+    @Override
+    public void clean() {
+        this.cache.cleanUp();
+    }
+
+    @Override
+    public Map<CacheKeyAbstract, CacheWrapper<?>> getAsMap() {
+        return ImmutableMap.copyOf(this.cache.asMap());
+    }
+
+    @Override
+    public <T> Collection<T> findByType(Class<T> type) {
+        Set<T> results = new HashSet<>();
+        for (CacheKeyAbstract key : this.index.findByValueType(type)) {
+            CacheWrapper<?> wrapper = this.cache.getIfPresent(key);
+            if (wrapper == null) {
+                continue;
+            }
+
+            Object object = wrapper.get();
+            if (type.isInstance(object)) {
+                results.add((T) object);
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    public CacheWrapper<?> find(CacheKeyAbstract key) {
+        return this.cache.getIfPresent(key);
+    }
+
+    @Override
+    public void cache(CacheKeyAbstract key, CacheWrapper<?> wrapper) throws Throwable {
+        this.cache.put(key, wrapper);
+    }
+
+    @Override
+    public void cache(CacheKeyAbstract key, CacheWrapper<?> wrapper, long loadTime) throws Throwable {
+        this.statsCounter.recordLoadSuccess(loadTime);
+        this.cache(key, wrapper);
+    }
+
+    @Override
+    public void evict(JoinPoint point, String keyString) {
+        this.cache.invalidate(this.cacheableAspect.toKey(point, keyString));
+    }
+
+    @Override
+    public void evictAll(JoinPoint point, String keyPrefix) {
+        if (keyPrefix == null || keyPrefix.isEmpty()) {
+            this.flush(((MethodSignature) point.getSignature()).getMethod().getDeclaringClass());
+            return;
+        }
+
+        this.cache.invalidateAll(this.index.findByPrefix(keyPrefix));
+    }
+
+    @Override
+    public void evictMethod(Method method) {
+        this.cache.invalidateAll(this.index.findByMethod(method));
+    }
+
+    @Override
+    public void flush(Class<?> parentClass) {
+        if (parentClass == null) {
+            this.cache.invalidateAll();
+            return;
+        }
+
+        this.cache.invalidateAll(this.index.findByParentClass(parentClass));
+    }
+
+    @Override
+    public CacheStatistics getStatistics() {
+        CacheStats stats = this.cache.stats();
+        return new CacheStatistics(
+                stats.hitCount(),
+                stats.missCount(),
+                stats.loadCount(),
+                stats.totalLoadTime(),
+                stats.evictionCount(),
+                stats.evictionWeight()
+        );
+    }
+
+    private static final class IndexWriter implements CacheWriter<CacheKeyAbstract, CacheWrapper<?>> {
+
+        private final CacheKeyIndex index;
+
+        private IndexWriter(CacheKeyIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        public void write(CacheKeyAbstract key, CacheWrapper<?> wrapper) {
+            this.index.add(key, wrapper);
+        }
+
+        @Override
+        public void delete(CacheKeyAbstract key, CacheWrapper<?> wrapper, RemovalCause cause) {
+            this.index.remove(key);
+        }
+    }
+
+    private static final class WrapperExpiry implements Expiry<CacheKeyAbstract, CacheWrapper<?>> {
+
+        @Override
+        public long expireAfterCreate(CacheKeyAbstract key, CacheWrapper<?> wrapper, long currentTime) {
+            long expireTime = wrapper.getExpireTime();
+            return expireTime > 0 ? TimeUnit.MILLISECONDS.toNanos(expireTime) : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(CacheKeyAbstract key, CacheWrapper<?> wrapper, long currentTime, long currentDuration) {
+            return this.expireAfterCreate(key, wrapper, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(CacheKeyAbstract key, CacheWrapper<?> wrapper, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+}
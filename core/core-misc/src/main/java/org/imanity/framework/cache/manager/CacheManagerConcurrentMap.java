@@ -26,10 +26,12 @@ package org.imanity.framework.cache.manager;
 
 import com.google.common.collect.ImmutableMap;
 import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.imanity.framework.cache.CacheWrapper;
 import org.imanity.framework.cache.CacheableAspect;
 import org.imanity.framework.cache.impl.CacheKeyAbstract;
 
+import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
@@ -39,6 +41,7 @@ import java.util.concurrent.*;
 public class CacheManagerConcurrentMap implements CacheManager {
 
     private transient ConcurrentMap<CacheKeyAbstract, CacheWrapper<?>> cache;
+    private transient CacheKeyIndex index;
 
     private CacheableAspect cacheableAspect;
 
@@ -46,11 +49,16 @@ public class CacheManagerConcurrentMap implements CacheManager {
     public void init(CacheableAspect cacheableAspect) {
         this.cacheableAspect = cacheableAspect;
         this.cache = new ConcurrentHashMap<>();
+        this.index = new CacheKeyIndex();
     }
 
     @Override
     public void clean() {
-        this.cache.entrySet().removeIf(entry -> entry.getValue().isExpired());
+        for (Map.Entry<CacheKeyAbstract, CacheWrapper<?>> entry : this.cache.entrySet()) {
+            if (entry.getValue().isExpired()) {
+                this.remove(entry.getKey(), entry.getValue());
+            }
+        }
     }
 
     @Override
@@ -61,7 +69,12 @@ public class CacheManagerConcurrentMap implements CacheManager {
     @Override
     public <T> Collection<T> findByType(Class<T> type) {
         Set<T> results = new HashSet<>();
-        for (CacheWrapper<?> wrapper : this.cache.values()) {
+        for (CacheKeyAbstract key : this.index.findByValueType(type)) {
+            CacheWrapper<?> wrapper = this.cache.get(key);
+            if (wrapper == null) {
+                continue;
+            }
+
             Object object = wrapper.get();
             if (type.isInstance(object)) {
                 results.add((T) object);
@@ -75,7 +88,7 @@ public class CacheManagerConcurrentMap implements CacheManager {
     public CacheWrapper<?> find(CacheKeyAbstract key) {
         CacheWrapper<?> wrapper = this.cache.get(key);
         if (wrapper != null && wrapper.isExpired()) {
-            this.cache.remove(key);
+            this.remove(key, wrapper);
             return null;
         }
 
@@ -84,27 +97,59 @@ public class CacheManagerConcurrentMap implements CacheManager {
 
     @Override
     public void cache(CacheKeyAbstract key, CacheWrapper<?> wrapper) throws Throwable {
-        this.cache.put(key, wrapper);
+        this.cache.compute(key, (k, previous) -> {
+            this.index.add(k, wrapper);
+            return wrapper;
+        });
     }
 
     @Override
     public void evict(JoinPoint point, String keyString) {
-        for (final CacheKeyAbstract key : this.cache.keySet()) {
-            if (!key.equals(this.cacheableAspect.toKey(point, keyString))) {
-                continue;
-            }
-            this.cache.remove(key);
+        this.remove(this.cacheableAspect.toKey(point, keyString));
+    }
+
+    @Override
+    public void evictAll(JoinPoint point, String keyPrefix) {
+        Collection<CacheKeyAbstract> keys;
+        if (keyPrefix == null || keyPrefix.isEmpty()) {
+            keys = this.index.findByParentClass(((MethodSignature) point.getSignature()).getMethod().getDeclaringClass());
+        } else {
+            keys = this.index.findByPrefix(keyPrefix);
         }
+
+        keys.forEach(this::remove);
+    }
+
+    @Override
+    public void evictMethod(Method method) {
+        this.index.findByMethod(method).forEach(this::remove);
     }
 
     @Override
     public void flush(Class<?> parentClass) {
-        for (final CacheKeyAbstract key : this.cache.keySet()) {
-            if (parentClass != null && !parentClass.isAssignableFrom(key.getParentClass())) {
-                continue;
-            }
-            this.cache.remove(key);
+        if (parentClass == null) {
+            this.cache.keySet().forEach(this::remove);
+            return;
         }
+
+        this.index.findByParentClass(parentClass).forEach(this::remove);
+    }
+
+    private void remove(CacheKeyAbstract key) {
+        this.cache.computeIfPresent(key, (k, previous) -> {
+            this.index.remove(k);
+            return null;
+        });
+    }
+
+    private void remove(CacheKeyAbstract key, CacheWrapper<?> wrapper) {
+        this.cache.computeIfPresent(key, (k, previous) -> {
+            if (previous != wrapper) {
+                return previous;
+            }
+            this.index.remove(k);
+            return null;
+        });
     }
 
 }
@@ -27,6 +27,9 @@ package org.imanity.framework.cache.script;
 import org.imanity.framework.cache.CacheUtil;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 
@@ -38,7 +41,9 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * Spring EL表达式解析处理
  *
- *
+ * Expressions are compiled to bytecode (SpelCompilerMode.IMMEDIATE) and evaluated against a {@link ScriptRoot}
+ * within one shared evaluation context, falling back to interpreting them if the compiled code fails.
+ * Keys which only read an argument or its properties don't go through SpEL at all, see {@link TrivialKey}.
  */
 public class SpringELParser extends AbstractScriptParser {
 
@@ -52,9 +57,11 @@ public class SpringELParser extends AbstractScriptParser {
      */
     private static final String apostrophe = "'";
 
-    private final ExpressionParser parser = new SpelExpressionParser();
+    private final ExpressionParser parser = new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, SpringELParser.class.getClassLoader()));
+
+    private final ExpressionParser interpretedParser = new SpelExpressionParser();
 
-    private final ConcurrentHashMap<String, Expression> expCache = new ConcurrentHashMap<String, Expression>();
+    private final ConcurrentHashMap<String, CompiledExpression> expCache = new ConcurrentHashMap<String, CompiledExpression>();
 
     private static Method hash = null;
 
@@ -75,6 +82,11 @@ public class SpringELParser extends AbstractScriptParser {
 
     private final ConcurrentHashMap<String, Method> funcs = new ConcurrentHashMap<String, Method>(8);
 
+    /**
+     * Shared by every evaluation, never modified once published as the arguments live in the root object
+     */
+    private volatile StandardEvaluationContext context = this.createContext();
+
     /**
      * @param name   方法名
      * @param method 方法
@@ -82,6 +94,7 @@ public class SpringELParser extends AbstractScriptParser {
     @Override
     public void addFunction(String name, Method method) {
         funcs.put(name, method);
+        this.context = this.createContext();
     }
 
     @SuppressWarnings("unchecked")
@@ -94,6 +107,23 @@ public class SpringELParser extends AbstractScriptParser {
                 return (T) keySpEL;
             }
         }
+
+        CompiledExpression expression = expCache.get(keySpEL);
+        if (null == expression) {
+            expression = expCache.computeIfAbsent(keySpEL, CompiledExpression::new);
+        }
+
+        if (expression.trivialKey != null) {
+            Object value = expression.trivialKey.resolve(arguments, valueType);
+            if (value != TrivialKey.UNRESOLVED) {
+                return (T) value;
+            }
+        }
+
+        return expression.getValue(new ScriptRoot(target, arguments, hasRetVal ? retVal : null), valueType);
+    }
+
+    private StandardEvaluationContext createContext() {
         StandardEvaluationContext context = new StandardEvaluationContext();
 
         context.registerFunction(HASH, hash);
@@ -103,17 +133,118 @@ public class SpringELParser extends AbstractScriptParser {
             Map.Entry<String, Method> entry = it.next();
             context.registerFunction(entry.getKey(), entry.getValue());
         }
-        context.setVariable(TARGET, target);
-        context.setVariable(ARGS, arguments);
-        if (hasRetVal) {
-            context.setVariable(RET_VAL, retVal);
+
+        // initialize the lazy defaults before sharing the context between threads
+        context.getPropertyAccessors();
+        context.getMethodResolvers();
+        context.getConstructorResolvers();
+        context.getTypeLocator();
+        context.getTypeConverter();
+        return context;
+    }
+
+    /**
+     * Rewrite the variables holding the arguments to properties of the {@link ScriptRoot}, so
+     * #args[0] becomes args[0] and #p0, #a0 or #arg0 become args[0] as well
+     *
+     * @param expression the expression
+     * @return the rewritten expression
+     */
+    static String rewrite(String expression) {
+        StringBuilder builder = new StringBuilder(expression.length());
+        char quote = 0;
+
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                builder.append(c);
+                continue;
+            }
+
+            if (c == '\'' || c == '"') {
+                quote = c;
+                builder.append(c);
+                continue;
+            }
+
+            if (c != '#') {
+                builder.append(c);
+                continue;
+            }
+
+            int end = i + 1;
+            while (end < expression.length() && Character.isJavaIdentifierPart(expression.charAt(end))) {
+                end++;
+            }
+
+            String name = expression.substring(i + 1, end);
+            builder.append(rewriteVariable(name));
+            i = end - 1;
+        }
+
+        return builder.toString();
+    }
+
+    private static String rewriteVariable(String name) {
+        switch (name) {
+            case TARGET:
+            case ARGS:
+            case RET_VAL:
+                return name;
+        }
+
+        for (String prefix : new String[]{"p", "a", "arg"}) {
+            if (name.length() > prefix.length() && name.startsWith(prefix) && isDigits(name.substring(prefix.length()))) {
+                return ARGS + "[" + name.substring(prefix.length()) + "]";
+            }
         }
-        Expression expression = expCache.get(keySpEL);
-        if (null == expression) {
-            expression = parser.parseExpression(keySpEL);
-            expCache.put(keySpEL, expression);
+
+        return POUND + name;
+    }
+
+    private static boolean isDigits(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class CompiledExpression {
+
+        private final String source;
+        private final TrivialKey trivialKey;
+        private volatile Expression expression;
+        private volatile boolean interpreted;
+
+        private CompiledExpression(String source) {
+            this.source = rewrite(source);
+            this.trivialKey = TrivialKey.parse(source);
+            this.expression = parser.parseExpression(this.source);
+        }
+
+        private <T> T getValue(ScriptRoot root, Class<T> valueType) {
+            try {
+                return this.expression.getValue(context, root, valueType);
+            } catch (SpelEvaluationException ex) {
+                if (this.interpreted) {
+                    throw ex;
+                }
+
+                // the compiled code may not fit anymore, for example when the type of an argument changes
+                Expression interpreted = interpretedParser.parseExpression(this.source);
+                T value = interpreted.getValue(context, root, valueType);
+
+                this.expression = interpreted;
+                this.interpreted = true;
+                return value;
+            }
         }
-        return expression.getValue(context, valueType);
+
     }
 
 }
@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.cache.script;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A key which is only an argument or a chain of properties of an argument, such as #arg0, #p0.id or #args[0].name,
+ * optionally prefixed by a string literal such as 'user-' + #p0.id, resolved through method handles without touching SpEL.
+ *
+ * SpEL can't compile the concatenation of a string and anything else, so without the prefix form the most
+ * common keys would always be interpreted.
+ *
+ * Anything unusual (an index out of bounds, a null in the chain, a property without a public getter or field)
+ * returns {@link #UNRESOLVED} so the caller evaluates the expression with SpEL, which fails the same way it always did.
+ */
+final class TrivialKey {
+
+    static final Object UNRESOLVED = new Object();
+
+    private static final Pattern PATTERN = Pattern.compile("(?:'((?:[^']|'')*)'\\s*\\+\\s*)?(#(?:p|a|arg|args\\[)(\\d+)]?((?:\\.[A-Za-z_$][A-Za-z0-9_$]*)*))");
+    private static final ConversionService CONVERSION_SERVICE = DefaultConversionService.getSharedInstance();
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private final String prefix;
+    private final int index;
+    private final Property[] properties;
+
+    private TrivialKey(String prefix, int index, String[] properties) {
+        this.prefix = prefix;
+        this.index = index;
+        this.properties = new Property[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            this.properties[i] = new Property(properties[i]);
+        }
+    }
+
+    /**
+     * Parse a trivial key
+     *
+     * @param expression the expression
+     * @return the trivial key, or null if the expression isn't one
+     */
+    static TrivialKey parse(String expression) {
+        Matcher matcher = PATTERN.matcher(expression.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        // #p0] and #args[0 are not valid forms
+        String argument = matcher.group(2);
+        boolean indexer = argument.startsWith("#args[");
+        if (indexer != argument.contains("]")) {
+            return null;
+        }
+
+        String prefix = matcher.group(1) != null ? matcher.group(1).replace("''", "'") : null;
+        String chain = matcher.group(4);
+        String[] properties = chain.isEmpty() ? new String[0] : chain.substring(1).split("\\.");
+        return new TrivialKey(prefix, Integer.parseInt(matcher.group(3)), properties);
+    }
+
+    Object resolve(Object[] arguments, Class<?> valueType) {
+        if (arguments == null || this.index >= arguments.length) {
+            return UNRESOLVED;
+        }
+
+        Object value = arguments[this.index];
+        for (Property property : this.properties) {
+            if (value == null) {
+                return UNRESOLVED;
+            }
+
+            value = property.get(value);
+            if (value == UNRESOLVED) {
+                return UNRESOLVED;
+            }
+        }
+
+        if (this.prefix != null) {
+            if (valueType != String.class) {
+                return UNRESOLVED;
+            }
+
+            // same as SpEL's OpPlus, which converts the right operand to a string
+            return this.prefix + (value == null || value instanceof String ? value : CONVERSION_SERVICE.convert(value, String.class));
+        }
+
+        if (value == null || valueType.isInstance(value)) {
+            return value;
+        }
+
+        // same conversion as SpEL's StandardTypeConverter
+        return CONVERSION_SERVICE.canConvert(value.getClass(), valueType) ? CONVERSION_SERVICE.convert(value, valueType) : UNRESOLVED;
+    }
+
+    private static final class Property {
+
+        private static final MethodHandle NOT_FOUND = MethodHandles.constant(Object.class, UNRESOLVED);
+
+        private final String name;
+        private final ConcurrentMap<Class<?>, MethodHandle> getters = new ConcurrentHashMap<>();
+
+        private Property(String name) {
+            this.name = name;
+        }
+
+        Object get(Object instance) {
+            MethodHandle getter = this.getters.computeIfAbsent(instance.getClass(), this::findGetter);
+            if (getter == NOT_FOUND) {
+                return UNRESOLVED;
+            }
+
+            try {
+                return getter.invoke(instance);
+            } catch (Throwable throwable) {
+                return UNRESOLVED;
+            }
+        }
+
+        private MethodHandle findGetter(Class<?> type) {
+            if (!Modifier.isPublic(type.getModifiers())) {
+                return NOT_FOUND;
+            }
+
+            String capitalized = Character.toUpperCase(this.name.charAt(0)) + this.name.substring(1);
+            try {
+                for (String methodName : new String[]{"get" + capitalized, "is" + capitalized}) {
+                    try {
+                        Method method = type.getMethod(methodName);
+                        if (method.getReturnType() != void.class && !Modifier.isStatic(method.getModifiers())
+                                && (methodName.startsWith("get") || method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class)) {
+                            return adapt(LOOKUP.unreflect(method));
+                        }
+                    } catch (NoSuchMethodException ignored) {
+                    }
+                }
+
+                Field field = type.getField(this.name);
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    return adapt(LOOKUP.unreflectGetter(field));
+                }
+            } catch (ReflectiveOperationException ignored) {
+            }
+
+            return NOT_FOUND;
+        }
+
+        private static MethodHandle adapt(MethodHandle handle) {
+            return handle.asType(handle.type().changeParameterType(0, Object.class).changeReturnType(Object.class));
+        }
+
+    }
+
+}
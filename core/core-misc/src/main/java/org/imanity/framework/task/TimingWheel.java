@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.task;
+
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel, in the style of the classic kernel timer wheels
+ *
+ * Each of the {@link #LEVELS} levels has 64 slots; a slot on level {@code n} spans 64^n ticks. A timeout
+ * is placed on the lowest level that can hold its deadline and is cascaded one level down every time
+ * the level below wraps around, so scheduling and cancelling are O(1) and {@link #advance(Consumer)}
+ * only ever touches timeouts that are due (plus the occasional cascade).
+ *
+ * Deadlines further away than {@link #MAX_DELAY} ticks are parked on the top level and re-placed each
+ * time it comes around. Not thread safe, callers are expected to synchronize.
+ */
+public final class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+
+    public static final int LEVELS = 4;
+    public static final long MAX_DELAY = (1L << (BITS * LEVELS)) - 1;
+
+    private final Timeout<T>[][] slots;
+    private long tick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel() {
+        this.slots = new Timeout[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                this.slots[level][slot] = Timeout.sentinel();
+            }
+        }
+    }
+
+    /**
+     * @return the tick the wheel is currently at, starting from 0
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Schedule a value to be expired {@code delay} ticks from now
+     *
+     * @param delay the delay in ticks, anything lower than 1 expires on the next tick
+     * @return the timeout that can be handed to {@link #cancel(Timeout)}
+     */
+    public Timeout<T> schedule(long delay, T value) {
+        final Timeout<T> timeout = new Timeout<>(value, this.tick + Math.max(delay, 1L));
+        this.place(timeout);
+        this.size++;
+        return timeout;
+    }
+
+    /**
+     * @return true if the timeout was still pending and has been removed
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (!timeout.isLinked()) {
+            return false;
+        }
+        timeout.unlink();
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Move the wheel one tick forward, handing every value due on the new tick to {@code expired}
+     *
+     * {@code expired} may schedule new timeouts, they will not be expired within this same call
+     */
+    public void advance(Consumer<? super T> expired) {
+        final long tick = ++this.tick;
+
+        int index = (int) (tick & MASK);
+        for (int level = 1; index == 0 && level < LEVELS; level++) {
+            index = (int) ((tick >>> (BITS * level)) & MASK);
+            this.cascade(this.slots[level][index]);
+        }
+
+        final Timeout<T> head = this.slots[0][(int) (tick & MASK)];
+        Timeout<T> timeout;
+        while ((timeout = head.next) != head) {
+            timeout.unlink();
+            this.size--;
+            expired.accept(timeout.value);
+        }
+    }
+
+    private void cascade(Timeout<T> head) {
+        Timeout<T> timeout = head.next;
+        if (timeout == head) {
+            return;
+        }
+
+        // detach the whole list first, re-placing may put timeouts back into this very slot
+        final Timeout<T> last = head.prev;
+        head.next = head.prev = head;
+        last.next = null;
+
+        while (timeout != null) {
+            final Timeout<T> next = timeout.next;
+            timeout.prev = timeout.next = null;
+            timeout.head = null;
+            this.place(timeout);
+            timeout = next;
+        }
+    }
+
+    private void place(Timeout<T> timeout) {
+        long delta = timeout.deadline - this.tick;
+        long deadline = timeout.deadline;
+        if (delta > MAX_DELAY) {
+            delta = MAX_DELAY;
+            deadline = this.tick + MAX_DELAY;
+        }
+
+        int level = 0;
+        while (delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+        final int index = (int) ((deadline >>> (BITS * level)) & MASK);
+        timeout.link(this.slots[level][index]);
+    }
+
+    public static final class Timeout<T> {
+
+        private final T value;
+        private final long deadline;
+
+        private Timeout<T> head;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        private static <T> Timeout<T> sentinel() {
+            final Timeout<T> sentinel = new Timeout<>(null, -1L);
+            sentinel.prev = sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        public T getValue() {
+            return this.value;
+        }
+
+        /**
+         * @return the tick this timeout expires on
+         */
+        public long getDeadline() {
+            return this.deadline;
+        }
+
+        private boolean isLinked() {
+            return this.head != null;
+        }
+
+        private void link(Timeout<T> head) {
+            this.head = head;
+            this.prev = head.prev;
+            this.next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        private void unlink() {
+            this.prev.next = this.next;
+            this.next.prev = this.prev;
+            this.head = this.prev = this.next = null;
+        }
+
+    }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.task;
+
+import org.imanity.framework.util.Stacktrace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * An {@link ITaskScheduler} backed by a {@link TimingWheel}, for platforms without a main thread
+ *
+ * Nothing here owns a thread: something has to call {@link #tick()} regularly, which advances the wheel
+ * up to the clock and hands due tasks to the worker executor. Sync and async variants behave the same.
+ *
+ * Repeating tasks run at a fixed rate; an occurrence that comes due while the previous one is still
+ * running is skipped rather than run concurrently.
+ */
+public class TimingWheelScheduler implements ITaskScheduler {
+
+    private final LongSupplier clock;
+    private final long tickNanos;
+    private final long start;
+    private final Executor workers;
+
+    private final AtomicInteger id = new AtomicInteger(0);
+    private final Map<Integer, ScheduledTask> tasks = new ConcurrentHashMap<>();
+    private final TimingWheel<ScheduledTask> wheel = new TimingWheel<>();
+
+    /**
+     * @param clock the time source in nanoseconds, {@code System::nanoTime} outside of tests
+     * @param tickMillis the length of one scheduler tick
+     * @param workers the executor task bodies run on
+     */
+    public TimingWheelScheduler(LongSupplier clock, long tickMillis, Executor workers) {
+        this.clock = clock;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.start = clock.getAsLong();
+        this.workers = workers;
+    }
+
+    /**
+     * Advance to the current time, running every task that came due since the last call
+     *
+     * Missed ticks are caught up on, so a late call doesn't shift the schedule. Should only be called
+     * from one thread at a time.
+     */
+    public void tick() {
+        final long target = (this.clock.getAsLong() - this.start) / this.tickNanos;
+        final List<ScheduledTask> due = new ArrayList<>(0);
+
+        synchronized (this.wheel) {
+            while (this.wheel.getTick() < target) {
+                this.wheel.advance(task -> {
+                    // rescheduled from its deadline, so catching up keeps the original rate
+                    if (task.period > 0) {
+                        task.timeout = this.wheel.schedule(task.period, task);
+                    } else {
+                        this.tasks.remove(task.id);
+                    }
+                    due.add(task);
+                });
+            }
+        }
+
+        for (ScheduledTask task : due) {
+            this.dispatch(task);
+        }
+    }
+
+    /**
+     * @return the number of ticks passed since this scheduler was created, as of the last {@link #tick()}
+     */
+    public long getCurrentTick() {
+        synchronized (this.wheel) {
+            return this.wheel.getTick();
+        }
+    }
+
+    /**
+     * @return the number of tasks waiting to run, repeating tasks included
+     */
+    public int getScheduledCount() {
+        return this.tasks.size();
+    }
+
+    @Override
+    public int runAsync(Runnable runnable) {
+        return this.handle(0L, -1L, runnable);
+    }
+
+    @Override
+    public int runAsyncScheduled(Runnable runnable, long time) {
+        return this.handle(time, -1L, runnable);
+    }
+
+    @Override
+    public int runAsyncRepeated(Runnable runnable, long time) {
+        return this.handle(time, runnable);
+    }
+
+    @Override
+    public int runAsyncRepeated(Runnable runnable, long delay, long time) {
+        return this.handle(delay, time, runnable);
+    }
+
+    @Override
+    public int runSync(Runnable runnable) {
+        return this.runAsync(runnable);
+    }
+
+    @Override
+    public int runScheduled(Runnable runnable, long time) {
+        return this.runAsyncScheduled(runnable, time);
+    }
+
+    @Override
+    public int runRepeated(Runnable runnable, long time) {
+        return this.runAsyncRepeated(runnable, time);
+    }
+
+    @Override
+    public int runRepeated(Runnable runnable, long delay, long time) {
+        return this.runAsyncRepeated(runnable, delay, time);
+    }
+
+    public int handle(long period, Runnable runnable) {
+        return this.handle(period, period, runnable);
+    }
+
+    /**
+     * @param next the delay in ticks before the first run, a one-off task with no delay runs right away
+     * @param period the ticks between runs, or lower than 1 to only run once
+     */
+    public int handle(long next, long period, Runnable runnable) {
+        final int id = this.id.getAndIncrement();
+        final ScheduledTask task = new ScheduledTask(id, period, runnable);
+
+        if (next <= 0 && period < 1) {
+            this.dispatch(task);
+            return id;
+        }
+
+        synchronized (this.wheel) {
+            this.tasks.put(id, task);
+            task.timeout = this.wheel.schedule(next, task);
+        }
+        return id;
+    }
+
+    @Override
+    public void cancel(int taskId) {
+        final ScheduledTask task = this.tasks.remove(taskId);
+        if (task == null) {
+            return;
+        }
+
+        synchronized (this.wheel) {
+            task.cancelled = true;
+            if (task.timeout != null) {
+                this.wheel.cancel(task.timeout);
+            }
+        }
+    }
+
+    private void dispatch(ScheduledTask task) {
+        if (task.cancelled || !task.running.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            this.workers.execute(task);
+        } catch (Throwable throwable) {
+            task.running.set(false);
+            Stacktrace.print(throwable);
+        }
+    }
+
+    private static final class ScheduledTask implements Runnable {
+
+        private final int id;
+        private final long period;
+        private final Runnable runnable;
+        private final AtomicBoolean running = new AtomicBoolean(false);
+
+        // guarded by the wheel
+        private TimingWheel.Timeout<ScheduledTask> timeout;
+        private volatile boolean cancelled;
+
+        private ScheduledTask(int id, long period, Runnable runnable) {
+            this.id = id;
+            this.period = period;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.runnable.run();
+            } catch (Throwable throwable) {
+                Stacktrace.print(throwable);
+            } finally {
+                this.running.set(false);
+            }
+        }
+
+    }
+
+}
@@ -23,15 +23,17 @@
  */
 package org.imanity.frameworktest;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import org.hamcrest.CoreMatchers;
 import org.hamcrest.MatcherAssert;
 import org.imanity.framework.Async;
+import org.imanity.framework.aspect.AsyncAspect;
+import org.imanity.framework.aspect.AsyncExecutor;
+import org.junit.Assert;
 import org.junit.Test;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
 public final class AsyncTest {
 
@@ -73,8 +75,128 @@ public final class AsyncTest {
         new Foo().asyncMethodThatReturnsInt();
     }
 
+    @Test
+    public void returnsListenableFuture() throws Exception {
+        MatcherAssert.assertThat(
+                new Foo().listenableThreadName().get(30, TimeUnit.SECONDS),
+                CoreMatchers.startsWith("imanity-async")
+        );
+    }
+
+    @Test
+    public void rejectsFutureTypesItCannotReturn() {
+        try {
+            new Foo().asyncMethodThatReturnsFutureTask();
+            Assert.fail("Expected FutureTask to be rejected");
+        } catch (final IllegalStateException ex) {
+            MatcherAssert.assertThat(
+                    ex.getMessage(),
+                    CoreMatchers.endsWith("Return type is java.util.concurrent.FutureTask, not void, Future, CompletableFuture or ListenableFuture, cannot use @Async")
+            );
+        }
+    }
+
+    @Test
+    public void boundsThreadsUnderLoad() throws Exception {
+        final AsyncExecutor executor = new AsyncExecutor("bounded", 4, 64, AsyncExecutor.RejectionPolicy.CALLER_RUNS);
+        AsyncAspect.registerExecutor(executor);
+
+        final int calls = 100_000;
+        final CountDownLatch latch = new CountDownLatch(calls);
+        final Foo foo = new Foo();
+        for (int i = 0; i < calls; i++) {
+            foo.countDown(latch);
+        }
+
+        Assert.assertTrue(latch.await(1, TimeUnit.MINUTES));
+        Assert.assertTrue(executor.getLargestPoolSize() <= 4);
+        Assert.assertTrue(Thread.getAllStackTraces().keySet()
+                .stream()
+                .filter(thread -> thread.getName().startsWith("imanity-async-bounded"))
+                .count() <= 4);
+        executor.shutdown();
+    }
+
+    @Test
+    public void failsFastWhenSaturated() throws Exception {
+        final AsyncExecutor executor = new AsyncExecutor("fail-fast", 1, 1, AsyncExecutor.RejectionPolicy.FAIL_FAST);
+        AsyncAspect.registerExecutor(executor);
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final Foo foo = new Foo();
+        final Future<String> running = foo.awaitRelease(release);
+        final Future<String> queued = foo.awaitRelease(release);
+        try {
+            foo.awaitRelease(release);
+            Assert.fail("Expected the third call to be rejected");
+        } catch (final RejectedExecutionException ignored) {
+        }
+        Assert.assertEquals(1, executor.getRejectedCount());
+
+        release.countDown();
+        running.get(30, TimeUnit.SECONDS);
+        queued.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    @Test
+    public void rejectsOnceShutDownInsteadOfDropping() throws Exception {
+        final AsyncExecutor executor = new AsyncExecutor("compose", 1, 16, AsyncExecutor.RejectionPolicy.CALLER_RUNS);
+        AsyncAspect.registerExecutor(executor);
+        executor.shutdown();
+
+        try {
+            new Foo().threadName();
+            Assert.fail("Expected the call to be rejected once the executor is shut down");
+        } catch (final RejectedExecutionException ignored) {
+        }
+        Assert.assertEquals(1, executor.getRejectedCount());
+    }
+
+    @Test
+    public void composesWithoutHoldingThread() throws Exception {
+        final AsyncExecutor executor = new AsyncExecutor("compose", 1, 16, AsyncExecutor.RejectionPolicy.FAIL_FAST);
+        AsyncAspect.registerExecutor(executor);
+
+        final CompletableFuture<String> pending = new CompletableFuture<>();
+        final Foo foo = new Foo();
+        final CompletableFuture<String> composed = foo.returnPending(pending);
+
+        // only one thread, this can only finish if it isn't stuck waiting on the pending future
+        MatcherAssert.assertThat(
+                foo.threadName().get(30, TimeUnit.SECONDS),
+                CoreMatchers.startsWith("imanity-async-compose")
+        );
+        Assert.assertFalse(composed.isDone());
+
+        pending.complete("done");
+        Assert.assertEquals("done", composed.get(30, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
     private static final class Foo {
 
+        @Async("bounded")
+        public void countDown(final CountDownLatch latch) {
+            latch.countDown();
+        }
+
+        @Async("fail-fast")
+        public Future<String> awaitRelease(final CountDownLatch release) throws InterruptedException {
+            release.await();
+            return CompletableFuture.completedFuture(Thread.currentThread().getName());
+        }
+
+        @Async("compose")
+        public CompletableFuture<String> returnPending(final CompletableFuture<String> pending) {
+            return pending;
+        }
+
+        @Async("compose")
+        public CompletableFuture<String> threadName() {
+            return CompletableFuture.completedFuture(Thread.currentThread().getName());
+        }
+
         @Async
         public Future<String> asyncMethodWithReturnValue() {
             return new Future<String>() {
@@ -101,6 +223,18 @@ public final class AsyncTest {
             };
         }
 
+        @Async
+        public ListenableFuture<String> listenableThreadName() {
+            final SettableFuture<String> future = SettableFuture.create();
+            future.set(Thread.currentThread().getName());
+            return future;
+        }
+
+        @Async
+        public FutureTask<String> asyncMethodThatReturnsFutureTask() {
+            return new FutureTask<>(() -> "");
+        }
+
         @Async
         public int asyncMethodThatReturnsInt() {
             return 0;
@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.frameworktest;
+
+import org.imanity.framework.cache.CacheWrapper;
+import org.imanity.framework.cache.impl.CacheKeyAbstract;
+import org.imanity.framework.cache.impl.CacheKeyMethod;
+import org.imanity.framework.cache.impl.CacheKeyString;
+import org.imanity.framework.cache.manager.CacheManager;
+import org.imanity.framework.cache.manager.CacheManagerCaffeine;
+import org.imanity.framework.cache.manager.CacheManagerConcurrentMap;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CacheKeyIndexTest {
+
+    private static final int METHODS = 50;
+    private static final int ENTRIES = 100_000;
+
+    @Test
+    public void methodKeysHashOverArguments() {
+        Method method = methods().get(0);
+        Set<Integer> hashes = new HashSet<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            hashes.add(new CacheKeyMethod(CacheKeyIndexTest.class, method, new Object[]{i, "argument"}).hashCode());
+        }
+
+        assertTrue(hashes.size() > ENTRIES * 0.99);
+        assertEquals(
+                new CacheKeyMethod(CacheKeyIndexTest.class, method, new Object[]{1, new int[]{2}}),
+                new CacheKeyMethod(CacheKeyIndexTest.class, method, new Object[]{1, new int[]{2}})
+        );
+    }
+
+    @Test
+    public void evictByMethodConcurrentMap() throws Throwable {
+        CacheManager cacheManager = new CacheManagerConcurrentMap();
+        cacheManager.init(null);
+        this.evictByMethod(cacheManager);
+    }
+
+    @Test
+    public void evictByMethodCaffeine() throws Throwable {
+        CacheManager cacheManager = new CacheManagerCaffeine();
+        cacheManager.init(null);
+        this.evictByMethod(cacheManager);
+    }
+
+    @Test
+    public void evictByPrefix() throws Throwable {
+        CacheManager cacheManager = new CacheManagerConcurrentMap();
+        cacheManager.init(null);
+
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 100; j++) {
+                cacheManager.cache(new CacheKeyString(CacheKeyIndexTest.class, "user-" + i + "-" + j), new CacheWrapper<>(j, 0L));
+            }
+        }
+
+        cacheManager.evictAll(null, "user-3-");
+        assertEquals(9_900, cacheManager.getAsMap().size());
+        assertNull(cacheManager.find(new CacheKeyString(CacheKeyIndexTest.class, "user-3-5")));
+        assertNotNull(cacheManager.find(new CacheKeyString(CacheKeyIndexTest.class, "user-30-5")));
+    }
+
+    @Test
+    public void findByTypeAndFlush() throws Throwable {
+        CacheManager cacheManager = new CacheManagerConcurrentMap();
+        cacheManager.init(null);
+
+        for (int i = 0; i < 1_000; i++) {
+            cacheManager.cache(new CacheKeyString(CacheKeyIndexTest.class, "int-" + i), new CacheWrapper<>(i, 0L));
+            cacheManager.cache(new CacheKeyString(String.class, "string-" + i), new CacheWrapper<>("value-" + i, 0L));
+        }
+        // replacing the value also replaces its type
+        cacheManager.cache(new CacheKeyString(CacheKeyIndexTest.class, "int-0"), new CacheWrapper<>("replaced", 0L));
+
+        assertEquals(999, cacheManager.findByType(Integer.class).size());
+        assertEquals(1_001, cacheManager.findByType(CharSequence.class).size());
+        assertEquals(2_000, cacheManager.findByType(Object.class).size());
+
+        cacheManager.flush(String.class);
+        assertEquals(1_000, cacheManager.getAsMap().size());
+        assertTrue(cacheManager.findByType(String.class).contains("replaced"));
+    }
+
+    private void evictByMethod(CacheManager cacheManager) throws Throwable {
+        List<Method> methods = methods();
+        for (int i = 0; i < ENTRIES; i++) {
+            Method method = methods.get(i % METHODS);
+            cacheManager.cache(new CacheKeyMethod(CacheKeyIndexTest.class, method, new Object[]{i}), new CacheWrapper<>(i, 0L));
+        }
+
+        assertEquals(ENTRIES, cacheManager.getAsMap().size());
+
+        for (int i = 0; i < METHODS; i++) {
+            cacheManager.evictMethod(methods.get(i));
+            assertEquals(ENTRIES - (i + 1) * (ENTRIES / METHODS), cacheManager.getAsMap().size());
+        }
+    }
+
+    private static List<Method> methods() {
+        // any distinct methods do, the keys are never invoked
+        List<Method> methods = new ArrayList<>(Arrays.asList(String.class.getDeclaredMethods()));
+        methods.sort(Comparator.comparing(Method::toGenericString));
+        return methods.subList(0, METHODS);
+    }
+
+}
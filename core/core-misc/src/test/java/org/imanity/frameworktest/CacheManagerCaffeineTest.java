@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.frameworktest;
+
+import org.imanity.framework.Cacheable;
+import org.imanity.framework.cache.CacheStatistics;
+import org.imanity.framework.cache.CacheableAspect;
+import org.imanity.framework.cache.EnableOwnCacheManager;
+import org.imanity.framework.cache.manager.CacheManager;
+import org.imanity.framework.cache.manager.CacheManagerCaffeine;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CacheManagerCaffeineTest {
+
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    @Test
+    public void evictsUnderSizePressure() {
+        SizeBounded bounded = new SizeBounded();
+        for (int i = 0; i < 10_000; i++) {
+            bounded.get(i);
+        }
+
+        CacheManager cacheManager = CacheableAspect.INSTANCE.getCacheManager(SizeBounded.class);
+        assertTrue(cacheManager instanceof CacheManagerCaffeine);
+
+        cacheManager.clean();
+        assertTrue(cacheManager.getAsMap().size() <= 100);
+
+        CacheStatistics statistics = cacheManager.getStatistics();
+        assertEquals(10_000, statistics.getMissCount());
+        assertEquals(10_000, statistics.getLoadCount());
+        assertTrue(statistics.getEvictionCount() >= 9_900);
+    }
+
+    @Test
+    public void evictsUnderWeightPressure() {
+        WeightBounded bounded = new WeightBounded();
+        for (int i = 0; i < 1_000; i++) {
+            bounded.get(i);
+        }
+
+        CacheManager cacheManager = CacheableAspect.INSTANCE.getCacheManager(WeightBounded.class);
+        cacheManager.clean();
+
+        assertTrue(cacheManager.getAsMap().size() <= 10);
+        assertTrue(cacheManager.getStatistics().getEvictionWeight() >= 9_900);
+    }
+
+    @Test
+    public void recordsHits() {
+        Expiring expiring = new Expiring();
+        long first = expiring.get(1);
+        assertEquals(first, expiring.get(1));
+        assertEquals(first, expiring.get(1));
+
+        CacheStatistics statistics = CacheableAspect.INSTANCE.getCacheManager(Expiring.class).getStatistics();
+        assertTrue(statistics.getHitCount() >= 2);
+        assertTrue(statistics.hitRate() > 0.0);
+        assertTrue(statistics.getTotalLoadTime() > 0);
+    }
+
+    @Test
+    public void expiresPerEntry() throws InterruptedException {
+        Expiring expiring = new Expiring();
+        long first = expiring.get(2);
+        long forever = expiring.forever(2);
+
+        Thread.sleep(200L);
+
+        assertNotEquals(first, expiring.get(2));
+        assertEquals(forever, expiring.forever(2));
+    }
+
+    @EnableOwnCacheManager(CacheManagerCaffeine.class)
+    private static final class SizeBounded {
+
+        @Cacheable(key = "'size-' + #args[0]", forever = true, maximumSize = 100)
+        public long get(int id) {
+            return COUNTER.incrementAndGet();
+        }
+
+    }
+
+    @EnableOwnCacheManager(CacheManagerCaffeine.class)
+    private static final class WeightBounded {
+
+        @Cacheable(key = "'weight-' + #args[0]", forever = true, maximumWeight = 100, weight = 10)
+        public long get(int id) {
+            return COUNTER.incrementAndGet();
+        }
+
+    }
+
+    @EnableOwnCacheManager(CacheManagerCaffeine.class)
+    private static final class Expiring {
+
+        @Cacheable(key = "'expiring-' + #args[0]", lifetime = 100, unit = TimeUnit.MILLISECONDS)
+        public long get(int id) {
+            return COUNTER.incrementAndGet();
+        }
+
+        @Cacheable(key = "'forever-' + #args[0]", forever = true)
+        public long forever(int id) {
+            return COUNTER.incrementAndGet();
+        }
+
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.frameworktest;
+
+import org.imanity.framework.cache.CacheUtil;
+import org.imanity.framework.cache.script.AbstractScriptParser;
+import org.imanity.framework.cache.script.JavaScriptParser;
+import org.imanity.framework.cache.script.SpringELParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SpringELParserTest {
+
+    private final AbstractScriptParser parser = new SpringELParser();
+
+    @Test
+    public void plainKey() throws Exception {
+        assertEquals("plain-key", this.key("plain-key", 1));
+    }
+
+    @Test
+    public void argumentKeys() throws Exception {
+        Dummy dummy = new Dummy(5, "five");
+
+        // evaluated repeatedly, so the expressions get compiled
+        for (int i = 0; i < 10; i++) {
+            assertEquals("test-2", this.key("'test-' + #args[0]", 2));
+            assertEquals("2", this.key("#args[0]", 2));
+            assertEquals("5", this.key("#args[0].getId()", dummy));
+            assertEquals("test-5", this.key("'test-' + #args[0].getId()", dummy));
+            assertEquals("five", this.key("#args[1].name", 0, dummy));
+            assertEquals("2-five", this.key("#args[0] + '-' + #args[1].name", 2, dummy));
+            assertEquals("TimeUnit-SECONDS", this.key("'TimeUnit-' + #args[0]", TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void shortArgumentKeys() throws Exception {
+        Dummy dummy = new Dummy(7, "seven");
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("2", this.key("#arg0", 2));
+            assertEquals("2", this.key("#p0", 2));
+            assertEquals("2", this.key("#a0", 2));
+            assertEquals("seven", this.key("#p1.name", 0, dummy));
+            assertEquals("7", this.key("#arg0.id", dummy));
+            assertEquals("SECONDS", this.key("#p0", TimeUnit.SECONDS));
+            assertEquals("true", this.key("#p0.active", dummy));
+            assertEquals("key-7", this.key("'key-' + #p0.id", dummy));
+            assertEquals("it's-7", this.key("'it''s-' + #p0.id", dummy));
+            assertEquals("key-SECONDS", this.key("'key-' +#p0", TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void nullArguments() throws Exception {
+        assertNull(this.key("#p0", (Object) null));
+        assertNull(this.key("#args[0]", (Object) null));
+        assertEquals("test-null", this.key("'test-' + #args[0]", (Object) null));
+
+        try {
+            this.key("#p0.id", (Object) null);
+            fail("Reading a property of null should have failed");
+        } catch (Exception ignored) {
+        }
+    }
+
+    @Test
+    public void quotedPound() throws Exception {
+        assertEquals("#args-2", this.key("'#args-' + #args[0]", 2));
+        assertEquals("#p0", this.key("'#p0'", 2));
+    }
+
+    @Test
+    public void targetAndFunctions() throws Exception {
+        Dummy dummy = new Dummy(3, "three");
+
+        assertEquals("three", this.parser.getDefinedCacheKey("#target.name", dummy, new Object[0], null, false));
+        assertEquals(CacheUtil.getUniqueHashString(dummy), this.key("#hash(#args[0])", dummy));
+        assertEquals("true", this.key("#empty(#args[0])", ""));
+        assertEquals("false", this.key("#empty(#args[0])", Collections.singletonList(1)));
+    }
+
+    @Test
+    public void customFunction() throws Exception {
+        SpringELParser parser = new SpringELParser();
+        parser.addFunction("twice", SpringELParserTest.class.getDeclaredMethod("twice", Object.class));
+
+        assertEquals("22", parser.getDefinedCacheKey("#twice(#args[0])", null, new Object[]{2}, null, false));
+    }
+
+    @Test
+    public void conditions() throws Exception {
+        Object[] arguments = {2};
+        for (int i = 0; i < 10; i++) {
+            assertTrue(this.parser.getElValue("#retVal != null", null, arguments, "value", true, Boolean.class));
+            assertFalse(this.parser.getElValue("#retVal != null", null, arguments, null, true, Boolean.class));
+            assertTrue(this.parser.getElValue("#args[0] > 1", null, arguments, Boolean.class));
+            assertFalse(this.parser.getElValue("#p0 > 5", null, arguments, Boolean.class));
+        }
+    }
+
+    @Test
+    public void fallsBackWhenArgumentTypeChanges() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertEquals("key-1", this.key("'key-' + #args[0].id", new Dummy(1, "one")));
+        }
+
+        // compiled against Dummy, now given another type with the same property
+        assertEquals("key-2", this.key("'key-' + #args[0].id", new OtherDummy(2)));
+        assertEquals("key-3", this.key("'key-' + #args[0].id", new Dummy(3, "three")));
+    }
+
+    @Test
+    public void sameAsJavaScript() throws Exception {
+        AbstractScriptParser javaScript = new JavaScriptParser();
+        Dummy dummy = new Dummy(4, "four");
+        Object[] arguments = {dummy, 2};
+
+        String[][] forms = {
+                {"'test-' + args[1]", "'test-' + #args[1]"},
+                {"'test-' + args[0].getId()", "'test-' + #args[0].getId()"},
+                {"args[0].name", "#args[0].name"},
+                {"'test-' + target.getName()", "'test-' + #target.getName()"},
+                {"hash(args[0])", "#hash(#args[0])"},
+        };
+
+        for (String[] form : forms) {
+            assertEquals(form[1],
+                    String.valueOf(javaScript.getDefinedCacheKey(form[0], dummy, arguments, null, false)),
+                    this.parser.getDefinedCacheKey(form[1], dummy, arguments, null, false));
+        }
+
+        assertEquals(
+                javaScript.getElValue("empty(args[0])", null, new Object[]{Arrays.asList()}, Boolean.class),
+                this.parser.getElValue("#empty(#args[0])", null, new Object[]{Arrays.asList()}, Boolean.class)
+        );
+    }
+
+    private String key(String expression, Object... arguments) throws Exception {
+        return this.parser.getDefinedCacheKey(expression, null, arguments, null, false);
+    }
+
+    public static String twice(Object object) {
+        return String.valueOf(object) + object;
+    }
+
+    public static final class Dummy {
+
+        private final int id;
+        private final String name;
+
+        public Dummy(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public int getId() {
+            return this.id;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+
+    }
+
+    public static final class OtherDummy {
+
+        private final int id;
+
+        public OtherDummy(int id) {
+            this.id = id;
+        }
+
+        public int getId() {
+            return this.id;
+        }
+
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.frameworktest;
+
+import org.imanity.framework.task.TimingWheel;
+import org.imanity.framework.task.TimingWheelScheduler;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TimingWheelSchedulerTest {
+
+    private static final long TICK_MILLIS = 50L;
+
+    private AtomicLong clock;
+    private List<Runnable> workerQueue;
+    private TimingWheelScheduler scheduler;
+
+    @Before
+    public void setup() {
+        this.clock = new AtomicLong(1_000_000L);
+        this.workerQueue = new ArrayList<>();
+        this.scheduler = new TimingWheelScheduler(this.clock::get, TICK_MILLIS, this.workerQueue::add);
+    }
+
+    @Test
+    public void wheelExpiresOnDeadline() {
+        final TimingWheel<Long> wheel = new TimingWheel<>();
+        final Random random = new Random(42L);
+        final Map<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 5000; i++) {
+            // spread over every level of the wheel
+            final long delay = 1L + (long) Math.floor(Math.pow(random.nextDouble(), 4) * 1_000_000);
+            final TimingWheel.Timeout<Long> timeout = wheel.schedule(delay, delay);
+            expected.merge(timeout.getDeadline(), 1, Integer::sum);
+        }
+        wheel.schedule(TimingWheel.MAX_DELAY + 1000L, TimingWheel.MAX_DELAY + 1000L);
+        expected.merge(TimingWheel.MAX_DELAY + 1000L, 1, Integer::sum);
+
+        final Map<Long, Integer> fired = new HashMap<>();
+        while (wheel.size() > 0) {
+            wheel.advance(delay -> {
+                Assert.assertEquals((long) delay, wheel.getTick());
+                fired.merge(wheel.getTick(), 1, Integer::sum);
+            });
+        }
+        Assert.assertEquals(expected, fired);
+    }
+
+    @Test
+    public void wheelCancel() {
+        final TimingWheel<String> wheel = new TimingWheel<>();
+        final TimingWheel.Timeout<String> near = wheel.schedule(5L, "near");
+        final TimingWheel.Timeout<String> far = wheel.schedule(5000L, "far");
+        wheel.schedule(10L, "kept");
+
+        Assert.assertTrue(wheel.cancel(near));
+        Assert.assertTrue(wheel.cancel(far));
+        Assert.assertFalse(wheel.cancel(far));
+        Assert.assertEquals(1, wheel.size());
+
+        final List<String> fired = new ArrayList<>();
+        for (int i = 0; i < 6000; i++) {
+            wheel.advance(fired::add);
+        }
+        Assert.assertEquals(Collections.singletonList("kept"), fired);
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void runsScheduledTaskAfterDelay() {
+        final AtomicInteger runs = new AtomicInteger();
+        this.scheduler.runAsyncScheduled(runs::incrementAndGet, 3L);
+
+        this.advance(2);
+        Assert.assertTrue(this.workerQueue.isEmpty());
+
+        this.advance(1);
+        Assert.assertEquals(1, this.workerQueue.size());
+        this.runWorkers();
+        Assert.assertEquals(1, runs.get());
+        Assert.assertEquals(0, this.scheduler.getScheduledCount());
+
+        this.advance(100);
+        Assert.assertTrue(this.workerQueue.isEmpty());
+    }
+
+    @Test
+    public void runsImmediateTaskWithoutTicking() {
+        final AtomicInteger runs = new AtomicInteger();
+        this.scheduler.runAsync(runs::incrementAndGet);
+
+        Assert.assertEquals(1, this.workerQueue.size());
+        this.runWorkers();
+        Assert.assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void repeatsAtFixedRateAndCatchesUp() {
+        final AtomicInteger runs = new AtomicInteger();
+        final int id = this.scheduler.runAsyncRepeated(runs::incrementAndGet, 1L, 2L);
+
+        this.advance(1);
+        this.runWorkers();
+        Assert.assertEquals(1, runs.get());
+
+        // one late tick() covering 10 ticks still runs every occurrence, on a direct executor
+        final TimingWheelScheduler direct = new TimingWheelScheduler(this.clock::get, TICK_MILLIS, Runnable::run);
+        final AtomicInteger directRuns = new AtomicInteger();
+        direct.runAsyncRepeated(directRuns::incrementAndGet, 2L);
+        this.clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS * 10));
+        direct.tick();
+        Assert.assertEquals(5, directRuns.get());
+        Assert.assertEquals(10, direct.getCurrentTick());
+
+        this.scheduler.cancel(id);
+        this.scheduler.tick();
+        this.runWorkers();
+        this.advance(10);
+        Assert.assertTrue(this.workerQueue.isEmpty());
+        Assert.assertEquals(0, this.scheduler.getScheduledCount());
+    }
+
+    @Test
+    public void skipsOccurrenceWhileStillRunning() {
+        final AtomicInteger runs = new AtomicInteger();
+        this.scheduler.runAsyncRepeated(runs::incrementAndGet, 1L);
+
+        this.advance(1);
+        Assert.assertEquals(1, this.workerQueue.size());
+
+        // the first run hasn't been picked up by a worker yet
+        this.advance(3);
+        Assert.assertEquals(1, this.workerQueue.size());
+
+        this.runWorkers();
+        this.advance(1);
+        this.runWorkers();
+        Assert.assertEquals(2, runs.get());
+    }
+
+    @Test
+    public void keepsIncrementingIds() {
+        final int first = this.scheduler.runAsyncScheduled(() -> {}, 10L);
+        final int second = this.scheduler.runAsync(() -> {});
+        final int third = this.scheduler.runRepeated(() -> {}, 5L);
+
+        Assert.assertEquals(first + 1, second);
+        Assert.assertEquals(second + 1, third);
+    }
+
+    private void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            this.clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS));
+            this.scheduler.tick();
+        }
+    }
+
+    private void runWorkers() {
+        final List<Runnable> runnables = new ArrayList<>(this.workerQueue);
+        this.workerQueue.clear();
+        runnables.forEach(Runnable::run);
+    }
+
+}
@@ -35,5 +35,6 @@ public class MongoFactory {
 
     private final MongoClient client;
     private final MongoDatabase database;
+    private final int poolSize;
 
 }
@@ -74,7 +74,8 @@ public class MongoService {
                 MongoClient client = MongoClients.create(clientSettings);
 
                 // TODO: a way to reduce client count by checking if configuration is the same target
-                databases.put(configuration.getClass(), new MongoFactory(client, client.getDatabase(configuration.database())));
+                databases.put(configuration.getClass(), new MongoFactory(client, client.getDatabase(configuration.database()),
+                        clientSettings.getConnectionPoolSettings().getMaxSize()));
             }
 
             @Override
@@ -117,6 +118,21 @@ public class MongoService {
     }
 
     public <T> JacksonMongoCollection<T> collection(String name, Class<?> use, Class<T> tClass, ObjectMapper objectMapper) {
+        MongoFactory mongoFactory = this.factory(use);
+
+        return JacksonMongoCollection.builder()
+                .withObjectMapper(objectMapper)
+                .build(mongoFactory.getDatabase(), name, tClass, UuidRepresentation.JAVA_LEGACY);
+    }
+
+    /**
+     * The maximum number of connections of the client the class use reads from.
+     */
+    public int poolSize(Class<?> use) {
+        return this.factory(use).getPoolSize();
+    }
+
+    private MongoFactory factory(Class<?> use) {
         Class<?> type;
         ProvideConfiguration configuration = use.getAnnotation(ProvideConfiguration.class);
         if (configuration != null) {
@@ -137,10 +153,7 @@ public class MongoService {
         if (mongoFactory == null) {
             throw new IllegalArgumentException("The database hasn't registered");
         }
-
-        return JacksonMongoCollection.builder()
-                .withObjectMapper(objectMapper)
-                .build(mongoFactory.getDatabase(), name, tClass, UuidRepresentation.JAVA_LEGACY);
+        return mongoFactory;
     }
 
 }
@@ -31,6 +31,7 @@ import org.imanity.framework.mysql.pojo.Query;
 import org.imanity.framework.mysql.pojo.Transaction;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @AllArgsConstructor
 @Data
@@ -56,6 +57,13 @@ public class Session implements AutoCloseable {
         return this.query().whereQuery(query, value).first(clazz);
     }
 
+    /**
+     * The rows of clazz with one of the given primary keys, in the order of ids, see {@link Query#findByIds(Class, List)}.
+     */
+    public <T> List<T> findByIds(Class<T> clazz, List<?> ids) {
+        return this.query().findByIds(clazz, ids);
+    }
+
     public Query byId(Class<?> clazz, Object id) {
         return this.query().byId(clazz, id);
     }
@@ -77,6 +85,13 @@ public class Session implements AutoCloseable {
         return this.query().insert(row);
     }
 
+    /**
+     * Insert many rows of the same type in batches, see {@link Query#insertBatch(List)}.
+     */
+    public Query insertBatch(List<?> rows) {
+        return this.query().insertBatch(rows);
+    }
+
     /**
      * See {@link Query#generatedKeyReceiver(Object, String...)
      * generateKeyReceiver} method.
@@ -104,6 +119,21 @@ public class Session implements AutoCloseable {
         return this.query().results(clazz);
     }
 
+    /**
+     * Stream every row of the table of clazz while it is read, see {@link Query#stream(Class)}.
+     * The stream must be closed before the session is.
+     */
+    public <T> Stream<T> stream(Class<T> clazz) {
+        return this.query().stream(clazz);
+    }
+
+    /**
+     * Up to limit rows with a primary key greater than afterId, see {@link Query#page(Class, Object, int)}.
+     */
+    public <T> List<T> page(Class<T> clazz, Object afterId, int limit) {
+        return this.query().page(clazz, afterId, limit).results(clazz);
+    }
+
     /**
      * Returns the first row in a query in a pojo. Will return it in a Map if a
      * class that implements Map is specified.
@@ -128,6 +158,13 @@ public class Session implements AutoCloseable {
         return this.query().upsert(row);
     }
 
+    /**
+     * Upsert many rows of the same type in batches, see {@link Query#upsertBatch(List)}.
+     */
+    public Query upsertBatch(List<?> rows) {
+        return this.query().upsertBatch(rows);
+    }
+
     /**
      * Create a query and specify which table it operates on.
      */
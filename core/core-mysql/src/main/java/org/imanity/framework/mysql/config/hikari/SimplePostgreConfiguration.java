@@ -24,6 +24,7 @@
 
 package org.imanity.framework.mysql.config.hikari;
 
+import com.zaxxer.hikari.HikariConfig;
 import org.imanity.framework.RepositoryType;
 import org.imanity.framework.mysql.connection.hikari.PostgreConnectionFactory;
 
@@ -34,6 +35,14 @@ public abstract class SimplePostgreConfiguration extends SimpleHikariConfigurati
         return PostgreConnectionFactory.class;
     }
 
+    @Override
+    public void setupFactory(PostgreConnectionFactory factory) {
+        super.setupFactory(factory);
+        HikariConfig config = factory.getConfig();
+
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+    }
+
     @Override
     public RepositoryType type() {
         return RepositoryType.POSTGRE;
@@ -50,6 +50,20 @@ public abstract class AbstractConnectionFactory {
 
     public abstract Connection connection() throws SQLException;
 
+    /**
+     * The number of connections this factory can hand out at once.
+     */
+    public int poolSize() {
+        return 1;
+    }
+
+    /**
+     * The fetch size a streamed query gives its statement for the fetchSize it asked for.
+     */
+    public int streamingFetchSize(int fetchSize) {
+        return fetchSize;
+    }
+
     public Session session(Transaction transaction) {
         return new Session(this, transaction);
     }
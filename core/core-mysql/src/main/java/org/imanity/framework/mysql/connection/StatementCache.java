@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework.mysql.connection;
+
+import lombok.Getter;
+import org.imanity.framework.mysql.connection.file.NonClosableConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A bounded LRU of {@link PreparedStatement}s prepared on one {@link Connection}, keyed by their sql.
+ *
+ * Statements are checked out with {@link #prepare(String)} and handed back with {@link #release(String, PreparedStatement)},
+ * so a statement is never used by two queries at once. A query asking for sql that is currently checked out simply prepares its own statement.
+ * The least recently released statement is closed once the cache goes over its capacity.
+ */
+public class StatementCache {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    @Getter
+    private final Connection connection;
+    @Getter
+    private final int capacity;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+    private boolean closed;
+
+    @Getter
+    private long hits;
+    @Getter
+    private long misses;
+
+    public StatementCache(Connection connection) {
+        this(connection, DEFAULT_CAPACITY);
+    }
+
+    public StatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.statements = new LinkedHashMap<>(16, 0.75F, true);
+    }
+
+    /**
+     * @param connection the connection
+     * @return the cache that lives as long as the connection does, or null if the connection doesn't have one
+     */
+    public static StatementCache of(Connection connection) {
+        if (connection instanceof NonClosableConnection) {
+            return ((NonClosableConnection) connection).getStatementCache();
+        }
+        return null;
+    }
+
+    /**
+     * Checks out a statement for the sql, preparing a new one if there is none cached.
+     *
+     * @param sql the sql
+     * @return the statement, to be handed back with {@link #release(String, PreparedStatement)}
+     * @throws SQLException if the statement couldn't be prepared
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        synchronized (this) {
+            PreparedStatement statement = this.statements.remove(sql);
+            if (statement != null) {
+                this.hits++;
+                return statement;
+            }
+            this.misses++;
+        }
+
+        return this.connection.prepareStatement(sql);
+    }
+
+    /**
+     * Hands a statement back, clearing its parameters and batch so it can be reused.
+     *
+     * @param sql the sql the statement was prepared with
+     * @param statement the statement
+     */
+    public void release(String sql, PreparedStatement statement) {
+        try {
+            statement.clearParameters();
+            statement.clearBatch();
+        } catch (SQLException ex) {
+            close(statement);
+            return;
+        }
+
+        List<PreparedStatement> evicted = null;
+        synchronized (this) {
+            if (this.closed || this.capacity <= 0) {
+                evicted = new ArrayList<>(1);
+                evicted.add(statement);
+            } else {
+                PreparedStatement previous = this.statements.put(sql, statement);
+                if (previous != null) {
+                    // another query for the same sql released first, keep only one of them
+                    evicted = new ArrayList<>(1);
+                    evicted.add(previous);
+                }
+
+                Iterator<PreparedStatement> iterator = this.statements.values().iterator();
+                while (this.statements.size() > this.capacity && iterator.hasNext()) {
+                    if (evicted == null) {
+                        evicted = new ArrayList<>(1);
+                    }
+                    evicted.add(iterator.next());
+                    iterator.remove();
+                }
+            }
+        }
+
+        if (evicted != null) {
+            evicted.forEach(StatementCache::close);
+        }
+    }
+
+    /**
+     * @return the amount of statements currently cached
+     */
+    public synchronized int size() {
+        return this.statements.size();
+    }
+
+    /**
+     * Closes every cached statement, statements released afterwards are closed right away.
+     */
+    public void close() {
+        List<PreparedStatement> statements;
+        synchronized (this) {
+            this.closed = true;
+            statements = new ArrayList<>(this.statements.values());
+            this.statements.clear();
+        }
+
+        statements.forEach(StatementCache::close);
+    }
+
+    private static void close(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+}
@@ -25,7 +25,9 @@
 package org.imanity.framework.mysql.connection.file;
 
 import lombok.Getter;
+import lombok.Setter;
 import org.imanity.framework.mysql.connection.AbstractConnectionFactory;
+import org.imanity.framework.mysql.connection.StatementCache;
 import org.imanity.framework.mysql.pojo.statement.MySqlStatementBuilder;
 import org.imanity.framework.mysql.pojo.statement.SqlStatementBuilder;
 import org.imanity.framework.mysql.pojo.statement.StandardSqlStatementBuilder;
@@ -40,6 +42,13 @@ abstract class FileConnectionFactory extends AbstractConnectionFactory {
     @Getter
     protected final Path path;
 
+    /**
+     * The amount of prepared statements the connection keeps for reuse, takes effect on the next connect
+     */
+    @Getter
+    @Setter
+    protected int statementCacheSize = StatementCache.DEFAULT_CAPACITY;
+
     FileConnectionFactory(Path path) {
         this.path = path;
     }
@@ -82,7 +82,7 @@ public class H2ConnectionFactory extends FileConnectionFactory {
 
         Connection connection = this.driver.connect(this.url(), new Properties());
         if (connection != null) {
-            this.connection = NonClosableConnection.wrap(connection);
+            this.connection = NonClosableConnection.wrap(connection, this.statementCacheSize);
         } else {
             throw new SQLException("Unable to get a connection.");
         }
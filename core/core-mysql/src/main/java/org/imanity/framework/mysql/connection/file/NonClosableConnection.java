@@ -27,6 +27,7 @@ package org.imanity.framework.mysql.connection.file;
 import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
 import net.bytebuddy.implementation.MethodDelegation;
+import org.imanity.framework.mysql.connection.StatementCache;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
@@ -68,17 +69,21 @@ public abstract class NonClosableConnection implements Connection {
      * Creates a {@link NonClosableConnection} that delegates calls to the given {@link Connection}.
      *
      * @param connection the connection to wrap
+     * @param statementCacheSize the amount of prepared statements to keep for reuse
      * @return a non closable connection
      */
-    static NonClosableConnection wrap(Connection connection) {
+    static NonClosableConnection wrap(Connection connection, int statementCacheSize) {
         try {
-            return (NonClosableConnection) CONSTRUCTOR.invokeExact(connection);
+            NonClosableConnection nonClosableConnection = (NonClosableConnection) CONSTRUCTOR.invokeExact(connection);
+            nonClosableConnection.statementCache = new StatementCache(connection, statementCacheSize);
+            return nonClosableConnection;
         } catch (Throwable e) {
             throw new RuntimeException(e);
         }
     }
 
     protected final Connection delegate;
+    private StatementCache statementCache;
 
     protected NonClosableConnection(Connection delegate) {
         this.delegate = delegate;
@@ -88,9 +93,17 @@ public abstract class NonClosableConnection implements Connection {
      * Actually {@link #close() closes} the underlying connection.
      */
     public final void shutdown() throws SQLException {
+        this.statementCache.close();
         this.delegate.close();
     }
 
+    /**
+     * @return the statements prepared on this connection, which lives until {@link #shutdown()}
+     */
+    public final StatementCache getStatementCache() {
+        return this.statementCache;
+    }
+
     @Override
     public final void close() throws SQLException {
         // do nothing
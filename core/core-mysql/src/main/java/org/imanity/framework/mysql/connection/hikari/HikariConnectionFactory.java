@@ -86,6 +86,11 @@ public abstract class HikariConnectionFactory extends AbstractConnectionFactory
         }
     }
 
+    @Override
+    public int poolSize() {
+        return this.config.getMaximumPoolSize();
+    }
+
     @Override
     public Connection connection() throws SQLException {
         if (this.dataSource == null) {
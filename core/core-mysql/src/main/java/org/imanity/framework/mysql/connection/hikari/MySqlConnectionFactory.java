@@ -57,6 +57,15 @@ public class MySqlConnectionFactory extends HikariConnectionFactory {
         return new MySqlStatementBuilder();
     }
 
+    /**
+     * Connector/J reads the whole result into memory unless the fetch size is Integer.MIN_VALUE, which streams
+     * it row by row.
+     */
+    @Override
+    public int streamingFetchSize(int fetchSize) {
+        return Integer.MIN_VALUE;
+    }
+
     @Override
     protected void postInitialize() {
         super.postInitialize();
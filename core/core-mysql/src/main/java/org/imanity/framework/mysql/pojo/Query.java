@@ -27,21 +27,31 @@ package org.imanity.framework.mysql.pojo;
 import lombok.Getter;
 import org.imanity.framework.mysql.ImanitySqlException;
 import org.imanity.framework.mysql.connection.AbstractConnectionFactory;
+import org.imanity.framework.mysql.connection.StatementCache;
 import org.imanity.framework.mysql.pojo.info.PojoInfo;
+import org.imanity.framework.mysql.pojo.mapper.RowMapper;
+import org.imanity.framework.mysql.pojo.mapper.RowMapperCompiler;
 import org.imanity.framework.mysql.pojo.statement.SqlStatementBuilder;
 import org.imanity.framework.mysql.util.SQLUtil;
 import org.intellij.lang.annotations.Language;
 
-import java.lang.reflect.InvocationTargetException;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Getter
 public class Query {
 
+	public static final int DEFAULT_BATCH_SIZE = 500;
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+
+	/**
+	 * The number of placeholders a statement of .findByIds() can have.
+	 */
+	private static final int[] ID_BUCKETS = {1, 8, 32, 128};
+
 	private Object generatedKeyReceiver;
 	private String[] generatedKeyNames;
 
@@ -55,6 +65,9 @@ public class Query {
 	private List<Where> wheres;
 
 	private int rowsAffected;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int fetchSize = DEFAULT_FETCH_SIZE;
+	private int limit;
 
 	private ResultSetMetaData metaData;
 
@@ -102,20 +115,102 @@ public class Query {
 	public Query byMultipleIds(Class<?> type, List ids) {
 		PojoInfo info = this.sqlStatementBuilder.getPojoInfo(type);
 		if (info != null) {
-			this.where = info.getPrimaryKeyName() + " in ";
+			if (ids.isEmpty()) {
+				// "in ()" isn't valid sql
+				this.where = "1=0";
+				this.args = null;
+				return this;
+			}
+
+			this.where = info.getPrimaryKeyName() + " in (" + SQLUtil.getQuestionMarks(ids.size()) + ")";
 
 			Object[] idArray = new Object[ids.size()];
 			for (int i = 0; i < idArray.length; i++) {
 				idArray[i] = info.toReadableValue(info.getProperty(info.getPrimaryKeyName()), ids.get(i));
 			}
 
-			this.args = new Object[] {ids};
+			this.args = idArray;
 		} else {
 			throw new IllegalArgumentException("The POJO info for type " + type.getName() + " does not exists!");
 		}
 		return this;
 	}
 
+	/**
+	 * Load the rows of type whose primary key is in ids, in the order of ids.
+	 * Ids without a row are left out and repeated ids give their row once.
+	 * <p>
+	 * Ids are looked up in buckets of 1, 8, 32 or 128 placeholders, the last one
+	 * padded by repeating its final id, so however many ids are asked for only
+	 * a handful of statements are ever prepared. Dialects with array binding get
+	 * all of them in a single statement instead.
+	 * </p>
+	 */
+	public <T> List<T> findByIds(Class<T> type, List<?> ids) {
+		PojoInfo info = this.sqlStatementBuilder.getPojoInfo(type);
+		if (info == null) {
+			throw new IllegalArgumentException("The POJO info for type " + type.getName() + " does not exists!");
+		}
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		String primaryKey = info.getPrimaryKeyName();
+		Property property = info.getProperty(primaryKey);
+
+		Set<Object> keys = new LinkedHashSet<>(ids.size() * 2);
+		for (Object id : ids) {
+			keys.add(info.toReadableValue(property, id));
+		}
+		Object[] idArray = keys.toArray();
+
+		List<T> rows = new ArrayList<>(idArray.length);
+		String arrayType = this.sqlStatementBuilder.getIdArrayType(type);
+		if (arrayType != null) {
+			this.sql = this.sqlStatementBuilder.getSelectByIdsSql(this, type, idArray.length);
+			this.args = new Object[] {new IdArray(arrayType, idArray)};
+			rows.addAll(this.results(type));
+		} else {
+			int maxBucket = ID_BUCKETS[ID_BUCKETS.length - 1];
+			for (int from = 0; from < idArray.length; from += maxBucket) {
+				int count = Math.min(idArray.length - from, maxBucket);
+				int bucket = idBucket(count);
+
+				Object[] bucketIds = new Object[bucket];
+				System.arraycopy(idArray, from, bucketIds, 0, count);
+				Arrays.fill(bucketIds, count, bucket, idArray[from + count - 1]);
+
+				this.sql = this.sqlStatementBuilder.getSelectByIdsSql(this, type, bucket);
+				this.args = bucketIds;
+				rows.addAll(this.results(type));
+			}
+		}
+
+		// back into the order they were asked for
+		Map<Object, T> byId = new HashMap<>(rows.size() * 2);
+		for (T row : rows) {
+			byId.put(info.getValue(row, primaryKey), row);
+		}
+
+		List<T> out = new ArrayList<>(byId.size());
+		for (Object key : idArray) {
+			T row = byId.get(key);
+			if (row != null) {
+				out.add(row);
+			}
+		}
+		return out;
+	}
+
+	private static int idBucket(int count) {
+		for (int bucket : ID_BUCKETS) {
+			if (count <= bucket) {
+				return bucket;
+			}
+		}
+		return ID_BUCKETS[ID_BUCKETS.length - 1];
+	}
+
 	public Query byId(Class<?> type, Object id) {
 		PojoInfo info = this.sqlStatementBuilder.getPojoInfo(type);
 		if (info != null) {
@@ -161,12 +256,53 @@ public class Query {
 		return this;
 	}
 
+	/**
+	 * Limit the number of rows a "select" returns. Generated sql gets a limit
+	 * clause from the statement builder, straight sql simply stops reading.
+	 */
+	public Query limit(int limit) {
+		if (limit < 0) {
+			throw new IllegalArgumentException("limit can't be negative");
+		}
+		this.limit = limit;
+		return this;
+	}
+
+	/**
+	 * Specify how many rows .stream() asks the driver to fetch at once.
+	 */
+	public Query fetchSize(int fetchSize) {
+		if (fetchSize <= 0) {
+			throw new IllegalArgumentException("fetchSize must be positive");
+		}
+		this.fetchSize = fetchSize;
+		return this;
+	}
+
+	/**
+	 * Select up to limit rows with a primary key greater than afterId, ordered by
+	 * primary key. Pass the id of the last row of a page to get the next one, or
+	 * null for the first page.
+	 */
+	public Query page(Class<?> type, Object afterId, int limit) {
+		PojoInfo info = this.sqlStatementBuilder.getPojoInfo(type);
+		if (info == null) {
+			throw new IllegalArgumentException("The POJO info for type " + type.getName() + " does not exists!");
+		}
+
+		String primaryKey = info.getPrimaryKeyName();
+		if (afterId != null) {
+			this.where(primaryKey + ">?", info.toReadableValue(info.getProperty(primaryKey), afterId));
+		}
+		return this.orderBy(primaryKey).limit(limit);
+	}
+
 	/**
 	 * Returns the first row in a query in a pojo, or null if the query returns no
 	 * results. Will return it in a Map if a class that implements Map is specified.
 	 */
 	public <T> T first(Class<T> clazz) {
-		List<T> list = results(clazz);
+		List<T> list = this.limit(1).results(clazz);
 		if (list.size() > 0) {
 			return list.get(0);
 		} else {
@@ -175,18 +311,18 @@ public class Query {
 	}
 
 	/**
-	 * Provides the results as a list of Map objects instead of a list of pojos.
+	 * Execute a "select" query and return a list of results where each row is an
+	 * instance of clazz. Returns an empty list if there are no results.
 	 */
-	private List<Map<String, Object>> resultsMap(Class<Map<String, Object>> clazz) {
-
-		List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
+	public <T> List<T> results(Class<T> clazz) {
+		List<T> out = new ArrayList<T>();
 		Connection con = null;
 		PreparedStatement state = null;
+		ResultSet rs = null;
+		StatementCache statementCache = null;
 
 		try {
-			if (sql == null) {
-				sql = sqlStatementBuilder.getSelectSql(this, clazz);
-			}
+			prepareSelect(clazz);
 
 			Connection localCon;
 			if (transaction == null) {
@@ -196,115 +332,151 @@ public class Query {
 				localCon = transaction.getConnection();
 			}
 
-			state = localCon.prepareStatement(sql);
+			statementCache = statementCache(localCon);
+			state = prepare(localCon, statementCache);
 			loadArgs(state);
 
-			ResultSet resultSet = state.executeQuery();
-
-			metaData = resultSet.getMetaData();
-			int colCount = metaData.getColumnCount();
-
-			while (resultSet.next()) {
-				Map<String, Object> map;
-				if (clazz.equals(Map.class)) {
-					map = new HashMap<>();
-				} else {
-					map = clazz.getDeclaredConstructor().newInstance();
-				}
+			rs = state.executeQuery();
 
-				for (int i = 1; i <= colCount; i++) {
-					String columnName = metaData.getColumnLabel(i);
-					map.put(columnName, resultSet.getObject(i));
-				}
-				result.add(map);
+			metaData = rs.getMetaData();
+			RowMapper<T> rowMapper = rowMapper(clazz);
+			while ((limit == 0 || out.size() < limit) && rs.next()) {
+				out.add(rowMapper.map(rs));
 			}
 
-		} catch (InstantiationException | IllegalAccessException | SQLException | IllegalArgumentException
-				| InvocationTargetException | NoSuchMethodException | SecurityException e) {
-			throw new ImanitySqlException(e);
+		} catch (SQLException | IllegalArgumentException | SecurityException e) {
+			ImanitySqlException dbe = new ImanitySqlException(e);
+			dbe.setSql(sql);
+			throw dbe;
 		} finally {
-			close(state);
+			close(rs);
+			release(statementCache, state);
 			close(con);
 		}
 
-		return result;
+		return out;
 	}
 
 	/**
-	 * Execute a "select" query and return a list of results where each row is an
-	 * instance of clazz. Returns an empty list if there are no results.
+	 * Execute a "select" query and stream the rows as instances of clazz while
+	 * they are read. The result set is forward-only and read-only, and the driver
+	 * is asked to fetch .fetchSize() rows at a time instead of the whole result.
+	 * <p>
+	 * The stream holds the statement, and the connection if the query has no
+	 * transaction, until it is closed, so always use it in a try-with-resources.
+	 * </p>
 	 */
-	@SuppressWarnings("unchecked")
-	public <T> List<T> results(Class<T> clazz) {
-		if (Map.class.isAssignableFrom(clazz)) {
-			return (List<T>) resultsMap((Class<Map<String, Object>>) clazz);
-		}
-
-		List<T> out = new ArrayList<T>();
+	public <T> Stream<T> stream(Class<T> clazz) {
 		Connection con = null;
 		PreparedStatement state = null;
+		ResultSet rs = null;
 
 		try {
-			if (sql == null) {
-				sql = sqlStatementBuilder.getSelectSql(this, clazz);
-			}
+			prepareSelect(clazz);
 
 			Connection localCon;
 			if (transaction == null) {
 				localCon = factory.connection();
-				con = localCon; // con gets closed below if non-null
+				con = localCon;
 			} else {
 				localCon = transaction.getConnection();
 			}
 
-			state = localCon.prepareStatement(sql);
+			// never cached, the statement is busy for as long as the stream is open
+			state = localCon.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			state.setFetchSize(factory.streamingFetchSize(fetchSize));
 			loadArgs(state);
 
-			ResultSet rs = state.executeQuery();
+			rs = state.executeQuery();
 
 			metaData = rs.getMetaData();
-			int colCount = metaData.getColumnCount();
+			RowIterator<T> iterator = new RowIterator<>(rs, rowMapper(clazz), limit);
+
+			ResultSet resultSet = rs;
+			PreparedStatement statement = state;
+			Connection connection = con;
+			return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+					.onClose(() -> {
+						close(resultSet);
+						close(statement);
+						close(connection);
+					});
+		} catch (SQLException | IllegalArgumentException | SecurityException e) {
+			close(rs);
+			close(state);
+			close(con);
 
-			if (SQLUtil.isPrimitiveOrString(clazz) || clazz.getPackage().getName().startsWith("java.sql")) {
-				// if the receiver class is a primitive or jdbc type just grab the first column
-				// and assign it
-				while (rs.next()) {
-					Object colValue = rs.getObject(1);
-					out.add((T) colValue);
-				}
+			ImanitySqlException dbe = new ImanitySqlException(e);
+			dbe.setSql(sql);
+			throw dbe;
+		}
+	}
 
-			} else {
-				PojoInfo pojoInfo = sqlStatementBuilder.getPojoInfo(clazz);
-				while (rs.next()) {
-					T row = clazz.getDeclaredConstructor().newInstance();
+	/**
+	 * Stream the rows of a "select" query into consumer, see .stream().
+	 */
+	public <T> void forEach(Class<T> clazz, Consumer<? super T> consumer) {
+		try (Stream<T> stream = this.stream(clazz)) {
+			stream.forEach(consumer);
+		}
+	}
 
-					for (int i = 1; i <= colCount; i++) {
-						String colName = metaData.getColumnLabel(i);
-						Object colValue = sqlStatementBuilder.convertValue(rs.getObject(i), metaData.getColumnTypeName(i));
+	private void prepareSelect(Class<?> clazz) {
+		if (sql == null) {
+			sql = sqlStatementBuilder.getSelectSql(this, clazz);
+			args = sqlStatementBuilder.getSelectArgs(this, clazz);
+		}
+	}
 
-						pojoInfo.putValue(row, colName, colValue, true);
+	@SuppressWarnings("unchecked")
+	private <T> RowMapper<T> rowMapper(Class<T> clazz) throws SQLException {
+		if (Map.class.isAssignableFrom(clazz)) {
+			// provides the row as a Map of column label to value instead of a pojo
+			int colCount = metaData.getColumnCount();
+			String[] labels = new String[colCount];
+			for (int i = 0; i < colCount; i++) {
+				labels[i] = metaData.getColumnLabel(i + 1);
+			}
+
+			return resultSet -> {
+				Map<String, Object> map;
+				if (clazz.equals(Map.class)) {
+					map = new HashMap<>();
+				} else {
+					try {
+						map = (Map<String, Object>) clazz.getDeclaredConstructor().newInstance();
+					} catch (ReflectiveOperationException e) {
+						throw new ImanitySqlException(e);
 					}
-					out.add(row);
 				}
-			}
 
-		} catch (InstantiationException | IllegalAccessException | SQLException | IllegalArgumentException
-				| InvocationTargetException | NoSuchMethodException | SecurityException e) {
-			ImanitySqlException dbe = new ImanitySqlException(e);
-			dbe.setSql(sql);
-			throw dbe;
-		} finally {
-			close(state);
-			close(con);
+				for (int i = 0; i < labels.length; i++) {
+					map.put(labels[i], resultSet.getObject(i + 1));
+				}
+				return (T) map;
+			};
 		}
 
-		return out;
+		if (SQLUtil.isPrimitiveOrString(clazz) || clazz.getPackage().getName().startsWith("java.sql")) {
+			// if the receiver class is a primitive or jdbc type just grab the first column
+			// and assign it
+			return resultSet -> (T) resultSet.getObject(1);
+		}
+
+		PojoInfo pojoInfo = sqlStatementBuilder.getPojoInfo(clazz);
+		return RowMapperCompiler.get(clazz, pojoInfo, sqlStatementBuilder, metaData);
 	}
 
 	private void loadArgs(PreparedStatement state) throws SQLException {
 		if (args != null) {
 			for (int i = 0; i < args.length; i++) {
-				state.setObject(i + 1, args[i]);
+				Object arg = args[i];
+				if (arg instanceof IdArray) {
+					IdArray idArray = (IdArray) arg;
+					state.setArray(i + 1, state.getConnection().createArrayOf(idArray.type, idArray.ids));
+				} else {
+					state.setObject(i + 1, arg);
+				}
 			}
 		}
 	}
@@ -380,6 +552,7 @@ public class Query {
 
 		Connection con = null;
 		PreparedStatement state = null;
+		StatementCache statementCache = null;
 
 		try {
 
@@ -395,22 +568,13 @@ public class Query {
 			if (generatedKeyReceiver != null) {
 				state = localCon.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
 			} else {
-				state = localCon.prepareStatement(sql);
+				statementCache = statementCache(localCon);
+				state = prepare(localCon, statementCache);
 			}
 
 			if (args != null) {
 				for (int i = 0; i < args.length; i++) {
-					Object arg = args[i];
-
-					/*
-					 * The purpose of this is to allow List args to be inserted into JDBC array
-					 * fields. Postgres JDBC drivers do not handle this correctly.
-					 */
-					if (arg != null && List.class.isAssignableFrom(arg.getClass())) {
-						arg = ((List<?>) arg).toArray();
-					}
-
-					state.setObject(i + 1, arg);
+					setArg(state, i + 1, args[i]);
 				}
 			}
 
@@ -425,13 +589,215 @@ public class Query {
 			dbe.setSql(sql);
 			throw dbe;
 		} finally {
-			close(state);
+			release(statementCache, state);
 			close(con);
 		}
 
 		return this;
 	}
 
+	/**
+	 * The statements a query on this connection reuses: the transaction's if
+	 * there is one, else the connection's own if it outlives the query.
+	 */
+	private StatementCache statementCache(Connection connection) {
+		if (transaction != null) {
+			return transaction.getStatementCache();
+		}
+		return StatementCache.of(connection);
+	}
+
+	private PreparedStatement prepare(Connection connection, StatementCache statementCache) throws SQLException {
+		if (statementCache != null) {
+			return statementCache.prepare(sql);
+		}
+		return connection.prepareStatement(sql);
+	}
+
+	private void release(StatementCache statementCache, PreparedStatement state) {
+		if (state == null) {
+			return;
+		}
+		if (statementCache != null) {
+			statementCache.release(sql, state);
+		} else {
+			close(state);
+		}
+	}
+
+	private void setArg(PreparedStatement state, int index, Object arg) throws SQLException {
+		/*
+		 * The purpose of this is to allow List args to be inserted into JDBC array
+		 * fields. Postgres JDBC drivers do not handle this correctly.
+		 */
+		if (arg != null && List.class.isAssignableFrom(arg.getClass())) {
+			arg = ((List<?>) arg).toArray();
+		}
+
+		state.setObject(index, arg);
+	}
+
+	/**
+	 * Specify how many rows a single statement of .insertBatch() and
+	 * .upsertBatch() carries.
+	 */
+	public Query batchSize(int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be positive!");
+		}
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Insert many rows. Rows are sent as multi-row inserts of batchSize rows
+	 * each, all through one PreparedStatement and one executeBatch call, so the
+	 * whole list costs a single round-trip where the driver supports it. Rows of
+	 * different classes are batched separately. Unlike .insert(), generated keys
+	 * are not written back into the rows.
+	 */
+	public Query insertBatch(List<?> rows) {
+		return executeBatch(rows, false);
+	}
+
+	/**
+	 * Upsert many rows, batched the same way as .insertBatch(). When a primary
+	 * key shows up more than once only its last row is written, a single
+	 * statement can't touch a row twice on every database (Postgres rejects it).
+	 */
+	public Query upsertBatch(List<?> rows) {
+		return executeBatch(rows, true);
+	}
+
+	private Query executeBatch(List<?> rows, boolean upsert) {
+		rowsAffected = 0;
+		if (rows.isEmpty()) {
+			return this;
+		}
+
+		// every statement is built from the mapping of one class
+		Map<Class<?>, List<Object>> rowsByClass = new LinkedHashMap<>();
+		for (Object row : rows) {
+			rowsByClass.computeIfAbsent(row.getClass(), ignored -> new ArrayList<>()).add(row);
+		}
+
+		for (Map.Entry<Class<?>, List<Object>> entry : rowsByClass.entrySet()) {
+			List<?> classRows = upsert ? lastRowPerKey(entry.getKey(), entry.getValue()) : entry.getValue();
+			executeBatch(entry.getKey(), classRows, upsert);
+		}
+		return this;
+	}
+
+	private List<?> lastRowPerKey(Class<?> rowClass, List<Object> rows) {
+		PojoInfo pojoInfo = sqlStatementBuilder.getPojoInfo(rowClass);
+		String primaryKey = pojoInfo.getPrimaryKeyName();
+		if (primaryKey == null) {
+			return rows;
+		}
+
+		Property generated = pojoInfo.getGeneratedColumnProperty();
+		boolean generatedKey = generated != null && primaryKey.equals(generated.getName());
+
+		Map<Object, Object> byKey = new LinkedHashMap<>(rows.size() * 2);
+		List<Object> withoutKey = null;
+		for (Object row : rows) {
+			Object key = pojoInfo.getValue(row, primaryKey);
+			if (key == null || generatedKey && key instanceof Number && ((Number) key).longValue() == 0L) {
+				// generated on insert, can't collide
+				if (withoutKey == null) {
+					withoutKey = new ArrayList<>();
+				}
+				withoutKey.add(row);
+				continue;
+			}
+			byKey.put(key, row);
+		}
+
+		if (byKey.size() == rows.size()) {
+			return rows;
+		}
+
+		List<Object> unique = new ArrayList<>(byKey.values());
+		if (withoutKey != null) {
+			unique.addAll(withoutKey);
+		}
+		return unique;
+	}
+
+	private void executeBatch(Class<?> rowClass, List<?> rows, boolean upsert) {
+		int chunkSize = Math.min(batchSize, rows.size());
+		int fullChunks = rows.size() / chunkSize;
+		int remainder = rows.size() % chunkSize;
+
+		Connection con = null;
+		PreparedStatement state = null;
+		StatementCache statementCache = null;
+		boolean executed = false;
+
+		try {
+
+			Connection localCon;
+			if (transaction == null) {
+				localCon = factory.connection();
+				con = localCon; // con gets closed below if non-null
+			} else {
+				localCon = transaction.getConnection();
+			}
+			statementCache = statementCache(localCon);
+
+			// every full chunk shares one statement, the remainder needs a shorter one
+			sql = upsert ? sqlStatementBuilder.getUpsertSql(this, rowClass, chunkSize) : sqlStatementBuilder.getInsertSql(this, rowClass, chunkSize);
+			state = prepare(localCon, statementCache);
+			for (int chunk = 0; chunk < fullChunks; chunk++) {
+				loadRows(state, rows, chunk * chunkSize, chunkSize);
+				state.addBatch();
+			}
+			addRowsAffected(state.executeBatch());
+
+			if (remainder > 0) {
+				release(statementCache, state);
+				state = null;
+
+				sql = upsert ? sqlStatementBuilder.getUpsertSql(this, rowClass, remainder) : sqlStatementBuilder.getInsertSql(this, rowClass, remainder);
+				state = prepare(localCon, statementCache);
+				loadRows(state, rows, fullChunks * chunkSize, remainder);
+				rowsAffected += state.executeUpdate();
+			}
+			executed = true;
+
+		} catch (SQLException | IllegalArgumentException e) {
+			ImanitySqlException dbe = new ImanitySqlException(e);
+			dbe.setSql(sql);
+			throw dbe;
+		} finally {
+			if (executed) {
+				release(statementCache, state);
+			} else {
+				// may still hold rows added to its batch, the next batch of the same sql must not run them
+				close(state);
+			}
+			close(con);
+		}
+	}
+
+	private void loadRows(PreparedStatement state, List<?> rows, int from, int count) throws SQLException {
+		int index = 1;
+		for (int i = from; i < from + count; i++) {
+			for (Object arg : sqlStatementBuilder.getInsertArgs(this, rows.get(i))) {
+				setArg(state, index++, arg);
+			}
+		}
+	}
+
+	private void addRowsAffected(int[] counts) {
+		for (int count : counts) {
+			// drivers may answer Statement.SUCCESS_NO_INFO for rewritten batches
+			if (count > 0) {
+				rowsAffected += count;
+			}
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	private void populateGeneratedKeys(PreparedStatement state, Object generatedKeyReceiver,
 			String[] generatedKeyNames) {
@@ -594,4 +960,65 @@ public class Query {
 		return this;
 	}
 
+	/**
+	 * Ids bound as one sql array, created on the connection of the statement.
+	 */
+	private static class IdArray {
+
+		private final String type;
+		private final Object[] ids;
+
+		private IdArray(String type, Object[] ids) {
+			this.type = type;
+			this.ids = ids;
+		}
+	}
+
+	/**
+	 * Reads one row ahead of the stream, stopping at the end of the result set or
+	 * after limit rows.
+	 */
+	private static class RowIterator<T> implements Iterator<T> {
+
+		private final ResultSet resultSet;
+		private final RowMapper<T> rowMapper;
+		private final int limit;
+
+		private int read;
+		private Boolean hasNext;
+
+		private RowIterator(ResultSet resultSet, RowMapper<T> rowMapper, int limit) {
+			this.resultSet = resultSet;
+			this.rowMapper = rowMapper;
+			this.limit = limit;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.hasNext == null) {
+				try {
+					this.hasNext = (this.limit == 0 || this.read < this.limit) && this.resultSet.next();
+				} catch (SQLException e) {
+					throw new ImanitySqlException(e);
+				}
+			}
+			return this.hasNext;
+		}
+
+		@Override
+		public T next() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.hasNext = null;
+			this.read++;
+
+			try {
+				return this.rowMapper.map(this.resultSet);
+			} catch (SQLException e) {
+				throw new ImanitySqlException(e);
+			}
+		}
+	}
+
 }
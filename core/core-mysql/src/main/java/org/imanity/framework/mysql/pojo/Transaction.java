@@ -25,6 +25,7 @@
 package org.imanity.framework.mysql.pojo;
 
 import org.imanity.framework.mysql.ImanitySqlException;
+import org.imanity.framework.mysql.connection.StatementCache;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -40,6 +41,11 @@ import java.sql.Connection;
  * or rolled back.
  * </p>
  * <p>
+ * Queries in the transaction share the prepared statements of its connection.
+ * They are closed together with the transaction unless the connection outlives
+ * it, so pooled connections are always handed back without open statements.
+ * </p>
+ * <p>
  * This is just a convenience class. If the implementation is too restrictive,
  * then you can manage your own transactions by calling Database.getConnection()
  * and operate on the Connection directly.
@@ -47,6 +53,7 @@ import java.sql.Connection;
  */
 public class Transaction implements Closeable {
 	private Connection connection;
+	private StatementCache statementCache;
 
 	public void setConnection(Connection con) {
 		this.connection = con;
@@ -63,6 +70,7 @@ public class Transaction implements Closeable {
 		} catch (Throwable t) {
 			throw new ImanitySqlException(t);
 		} finally {
+			closeStatements();
 			try {
 				connection.close();
 			} catch (Throwable t) {
@@ -77,6 +85,7 @@ public class Transaction implements Closeable {
 		} catch (Throwable t) {
 			throw new ImanitySqlException(t);
 		} finally {
+			closeStatements();
 			try {
 				connection.close();
 			} catch (Throwable t) {
@@ -89,6 +98,24 @@ public class Transaction implements Closeable {
 		return connection;
 	}
 
+	/**
+	 * The prepared statements queries in this transaction reuse.
+	 */
+	public StatementCache getStatementCache() {
+		if (statementCache == null) {
+			StatementCache shared = StatementCache.of(connection);
+			statementCache = shared != null ? shared : new StatementCache(connection);
+		}
+		return statementCache;
+	}
+
+	private void closeStatements() {
+		// a connection that outlives the transaction keeps its statements
+		if (statementCache != null && statementCache != StatementCache.of(connection)) {
+			statementCache.close();
+		}
+	}
+
 	/**
 	 * This simply calls .commit();
 	 */
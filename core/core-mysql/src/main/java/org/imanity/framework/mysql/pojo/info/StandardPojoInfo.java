@@ -41,6 +41,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @SuppressWarnings("rawtypes")
 @Getter
@@ -67,6 +68,11 @@ public class StandardPojoInfo implements PojoInfo {
 
 	private String selectColumns;
 
+	/**
+	 * Generated sql that depends on more than the type, keyed by operation and shape
+	 */
+	private final Map<String, String> sqlCache = new ConcurrentHashMap<>();
+
 	public StandardPojoInfo(Class<?> type) {
 
 		try {
@@ -0,0 +1,315 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework.mysql.pojo.mapper;
+
+import org.imanity.framework.mysql.ImanitySqlException;
+import org.imanity.framework.mysql.pojo.Property;
+import org.imanity.framework.mysql.pojo.info.StandardPojoInfo;
+import org.imanity.framework.mysql.pojo.statement.SqlStatementBuilder;
+
+import javax.persistence.EnumType;
+import java.lang.invoke.MethodHandle;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps a row through one {@link ColumnWriter} per mapped column, each bound to its column index and a {@link MethodHandle}
+ * setter of the field. Primitive fields are read with the matching {@link ResultSet} getter so the value is never boxed.
+ */
+final class CompiledRowMapper<T> implements RowMapper<T> {
+
+    private final MethodHandle constructor;
+    private final ColumnWriter[] writers;
+
+    CompiledRowMapper(MethodHandle constructor, ColumnWriter[] writers) {
+        this.constructor = constructor;
+        this.writers = writers;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T map(ResultSet resultSet) throws SQLException {
+        Object row;
+        try {
+            row = (Object) this.constructor.invokeExact();
+        } catch (Throwable throwable) {
+            throw new ImanitySqlException(throwable);
+        }
+
+        for (ColumnWriter writer : this.writers) {
+            writer.write(row, resultSet);
+        }
+        return (T) row;
+    }
+
+    static abstract class ColumnWriter {
+
+        protected final int column;
+        protected final Property property;
+        protected final MethodHandle setter;
+
+        ColumnWriter(int column, Property property, MethodHandle setter) {
+            this.column = column;
+            this.property = property;
+            this.setter = setter;
+        }
+
+        abstract void write(Object row, ResultSet resultSet) throws SQLException;
+
+        protected ImanitySqlException failure(Object value, Throwable cause) {
+            return new ImanitySqlException("Could not set value into pojo. Field: " + this.property.getField().toString() + " value: " + value, cause);
+        }
+
+        protected void checkNotNull(ResultSet resultSet) throws SQLException {
+            if (resultSet.wasNull()) {
+                throw this.failure(null, new IllegalArgumentException("Can not set primitive field to null"));
+            }
+        }
+    }
+
+    static final class IntWriter extends ColumnWriter {
+
+        IntWriter(int column, Property property, MethodHandle setter) {
+            super(column, property, setter);
+        }
+
+        @Override
+        void write(Object row, ResultSet resultSet) throws SQLException {
+            int value = resultSet.getInt(this.column);
+            this.checkNotNull(resultSet);
+            try {
+                this.setter.invokeExact(row, value);
+            } catch (Throwable throwable) {
+                throw this.failure(value, throwable);
+            }
+        }
+    }
+
+    static final class LongWriter extends ColumnWriter {
+
+        LongWriter(int column, Property property, MethodHandle setter) {
+            super(column, property, setter);
+        }
+
+        @Override
+        void write(Object row, ResultSet resultSet) throws SQLException {
+            long value = resultSet.getLong(this.column);
+            this.checkNotNull(resultSet);
+            try {
+                this.setter.invokeExact(row, value);
+            } catch (Throwable throwable) {
+                throw this.failure(value, throwable);
+            }
+        }
+    }
+
+    static final class DoubleWriter extends ColumnWriter {
+
+        DoubleWriter(int column, Property property, MethodHandle setter) {
+            super(column, property, setter);
+        }
+
+        @Override
+        void write(Object row, ResultSet resultSet) throws SQLException {
+            double value = resultSet.getDouble(this.column);
+            this.checkNotNull(resultSet);
+            try {
+                this.setter.invokeExact(row, value);
+            } catch (Throwable throwable) {
+                throw this.failure(value, throwable);
+            }
+        }
+    }
+
+    static final class FloatWriter extends ColumnWriter {
+
+        FloatWriter(int column, Property property, MethodHandle setter) {
+            super(column, property, setter);
+        }
+
+        @Override
+        void write(Object row, ResultSet resultSet) throws SQLException {
+            float value = resultSet.getFloat(this.column);
+            this.checkNotNull(resultSet);
+            try {
+                this.setter.invokeExact(row, value);
+            } catch (Throwable throwable) {
+                throw this.failure(value, throwable);
+            }
+        }
+    }
+
+    static final class ShortWriter extends ColumnWriter {
+
+        ShortWriter(int column, Property property, MethodHandle setter) {
+            super(column, property, setter);
+        }
+
+        @Override
+        void write(Object row, ResultSet resultSet) throws SQLException {
+            short value = resultSet.getShort(this.column);
+            this.checkNotNull(resultSet);
+            try {
+                this.setter.invokeExact(row, value);
+            } catch (Throwable throwable) {
+                throw this.failure(value, throwable);
+            }
+        }
+    }
+
+    static final class ByteWriter extends ColumnWriter {
+
+        ByteWriter(int column, Property property, MethodHandle setter) {
+            super(column, property, setter);
+        }
+
+        @Override
+        void write(Object row, ResultSet resultSet) throws SQLException {
+            byte value = resultSet.getByte(this.column);
+            this.checkNotNull(resultSet);
+            try {
+                this.setter.invokeExact(row, value);
+            } catch (Throwable throwable) {
+                throw this.failure(value, throwable);
+            }
+        }
+    }
+
+    static final class BooleanWriter extends ColumnWriter {
+
+        BooleanWriter(int column, Property property, MethodHandle setter) {
+            super(column, property, setter);
+        }
+
+        @Override
+        void write(Object row, ResultSet resultSet) throws SQLException {
+            boolean value = resultSet.getBoolean(this.column);
+            this.checkNotNull(resultSet);
+            try {
+                this.setter.invokeExact(row, value);
+            } catch (Throwable throwable) {
+                throw this.failure(value, throwable);
+            }
+        }
+    }
+
+    /**
+     * Reference typed fields, the value goes through {@link SqlStatementBuilder#convertValue(Object, String)} like the reflective path.
+     */
+    static final class ObjectWriter extends ColumnWriter {
+
+        private final SqlStatementBuilder builder;
+        private final String typeName;
+
+        ObjectWriter(int column, Property property, MethodHandle setter, SqlStatementBuilder builder, String typeName) {
+            super(column, property, setter);
+            this.builder = builder;
+            this.typeName = typeName;
+        }
+
+        @Override
+        void write(Object row, ResultSet resultSet) throws SQLException {
+            Object value = this.builder.convertValue(resultSet.getObject(this.column), this.typeName);
+            try {
+                this.setter.invokeExact(row, value);
+            } catch (Throwable throwable) {
+                throw this.failure(value, throwable);
+            }
+        }
+    }
+
+    /**
+     * Enum fields, with the constants resolved once instead of scanned for every row.
+     */
+    static final class EnumWriter extends ColumnWriter {
+
+        private final SqlStatementBuilder builder;
+        private final String typeName;
+        private final Enum<?>[] constants;
+        private final Map<String, Enum<?>> byName;
+
+        EnumWriter(int column, Property property, MethodHandle setter, SqlStatementBuilder builder, String typeName) {
+            super(column, property, setter);
+            this.builder = builder;
+            this.typeName = typeName;
+            this.constants = property.getEnumClass().getEnumConstants();
+            this.byName = new HashMap<>();
+            for (Enum<?> constant : this.constants) {
+                this.byName.putIfAbsent(constant.toString(), constant);
+            }
+        }
+
+        @Override
+        void write(Object row, ResultSet resultSet) throws SQLException {
+            Object value = this.builder.convertValue(resultSet.getObject(this.column), this.typeName);
+            Enum<?> constant = null;
+            if (value != null) {
+                if (this.property.getEnumType() == EnumType.ORDINAL) {
+                    int ordinal = (Integer) value;
+                    if (ordinal < 0 || ordinal >= this.constants.length) {
+                        throw new ImanitySqlException("Invalid ordinal number " + ordinal + " for enum class " + this.property.getEnumClass().getCanonicalName());
+                    }
+                    constant = this.constants[ordinal];
+                } else {
+                    constant = this.byName.get(value.toString());
+                    if (constant == null) {
+                        throw new ImanitySqlException("Enum value does not exist. value:" + value);
+                    }
+                }
+            }
+
+            try {
+                this.setter.invokeExact(row, (Object) constant);
+            } catch (Throwable throwable) {
+                throw this.failure(constant, throwable);
+            }
+        }
+    }
+
+    /**
+     * The reflective path for a single column.
+     */
+    static final class PojoInfoWriter extends ColumnWriter {
+
+        private final StandardPojoInfo pojoInfo;
+        private final SqlStatementBuilder builder;
+        private final String typeName;
+
+        PojoInfoWriter(int column, Property property, StandardPojoInfo pojoInfo, SqlStatementBuilder builder, String typeName) {
+            super(column, property, null);
+            this.pojoInfo = pojoInfo;
+            this.builder = builder;
+            this.typeName = typeName;
+        }
+
+        @Override
+        void write(Object row, ResultSet resultSet) throws SQLException {
+            Object value = this.builder.convertValue(resultSet.getObject(this.column), this.typeName);
+            this.pojoInfo.putValue(row, this.property.getName(), value, true);
+        }
+    }
+
+}
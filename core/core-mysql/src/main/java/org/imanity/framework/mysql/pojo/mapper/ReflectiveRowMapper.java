@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework.mysql.pojo.mapper;
+
+import org.imanity.framework.mysql.ImanitySqlException;
+import org.imanity.framework.mysql.pojo.info.PojoInfo;
+import org.imanity.framework.mysql.pojo.statement.SqlStatementBuilder;
+
+import java.lang.reflect.Constructor;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Maps every column through {@link PojoInfo#putValue(Object, String, Object, boolean)}, which resolves the property by name
+ * and writes it reflectively. Works for any {@link PojoInfo}, used where a compiled mapper can't be built.
+ */
+final class ReflectiveRowMapper<T> implements RowMapper<T> {
+
+    private final Constructor<T> constructor;
+    private final PojoInfo pojoInfo;
+    private final SqlStatementBuilder builder;
+    private final String[] labels;
+    private final String[] typeNames;
+
+    ReflectiveRowMapper(Class<T> type, PojoInfo pojoInfo, SqlStatementBuilder builder, ResultSetMetaData metaData) throws SQLException {
+        try {
+            this.constructor = type.getDeclaredConstructor();
+            this.constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new ImanitySqlException(e);
+        }
+        this.pojoInfo = pojoInfo;
+        this.builder = builder;
+
+        int columnCount = metaData.getColumnCount();
+        this.labels = new String[columnCount];
+        this.typeNames = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            this.labels[i] = metaData.getColumnLabel(i + 1);
+            this.typeNames[i] = metaData.getColumnTypeName(i + 1);
+        }
+    }
+
+    @Override
+    public T map(ResultSet resultSet) throws SQLException {
+        T row;
+        try {
+            row = this.constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new ImanitySqlException(e);
+        }
+
+        for (int i = 0; i < this.labels.length; i++) {
+            Object value = this.builder.convertValue(resultSet.getObject(i + 1), this.typeNames[i]);
+            this.pojoInfo.putValue(row, this.labels[i], value, true);
+        }
+        return row;
+    }
+}
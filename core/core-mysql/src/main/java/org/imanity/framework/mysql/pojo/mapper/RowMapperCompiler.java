@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework.mysql.pojo.mapper;
+
+import lombok.experimental.UtilityClass;
+import org.imanity.framework.mysql.ImanitySqlException;
+import org.imanity.framework.mysql.pojo.Property;
+import org.imanity.framework.mysql.pojo.info.PojoInfo;
+import org.imanity.framework.mysql.pojo.info.StandardPojoInfo;
+import org.imanity.framework.mysql.pojo.mapper.CompiledRowMapper.*;
+import org.imanity.framework.mysql.pojo.statement.SqlStatementBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds {@link RowMapper}s and caches them per pojo type and result set shape, which is the list of column labels.
+ *
+ * Column indices and properties are resolved once per shape. Columns without a matching property are skipped like before,
+ * columns of properties with a serializer or a write method are written through the reflective path of {@link PojoInfo}.
+ */
+@UtilityClass
+public class RowMapperCompiler {
+
+    private final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private final Map<Class<?>, Map<String, RowMapper<?>>> MAPPERS = new ConcurrentHashMap<>();
+
+    /**
+     * Find or build the mapper for the type and the columns of the result set.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> RowMapper<T> get(Class<T> type, PojoInfo pojoInfo, SqlStatementBuilder builder, ResultSetMetaData metaData) throws SQLException {
+        Map<String, RowMapper<?>> mappers = MAPPERS.computeIfAbsent(type, ignored -> new ConcurrentHashMap<>());
+
+        String shape = shape(metaData);
+        RowMapper<T> mapper = (RowMapper<T>) mappers.get(shape);
+        if (mapper == null) {
+            mapper = compile(type, pojoInfo, builder, metaData);
+            mappers.put(shape, mapper);
+        }
+        return mapper;
+    }
+
+    /**
+     * Build a mapper writing fields through method handles, or a reflective one if the pojo info isn't a {@link StandardPojoInfo}.
+     */
+    public <T> RowMapper<T> compile(Class<T> type, PojoInfo pojoInfo, SqlStatementBuilder builder, ResultSetMetaData metaData) throws SQLException {
+        if (!(pojoInfo instanceof StandardPojoInfo)) {
+            return reflective(type, pojoInfo, builder, metaData);
+        }
+        StandardPojoInfo standardPojoInfo = (StandardPojoInfo) pojoInfo;
+
+        MethodHandle constructor;
+        try {
+            Constructor<T> declaredConstructor = type.getDeclaredConstructor();
+            declaredConstructor.setAccessible(true);
+            constructor = LOOKUP.unreflectConstructor(declaredConstructor).asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ImanitySqlException(e);
+        }
+
+        int columnCount = metaData.getColumnCount();
+        List<ColumnWriter> writers = new ArrayList<>(columnCount);
+        for (int column = 1; column <= columnCount; column++) {
+            Property property = standardPojoInfo.getPropertyMap().get(metaData.getColumnLabel(column).toUpperCase());
+            if (property == null) {
+                continue;
+            }
+
+            writers.add(writer(column, property, standardPojoInfo, builder, metaData.getColumnTypeName(column)));
+        }
+
+        return new CompiledRowMapper<>(constructor, writers.toArray(new ColumnWriter[0]));
+    }
+
+    /**
+     * Build a mapper going through {@link PojoInfo#putValue(Object, String, Object, boolean)} for every column.
+     */
+    public <T> RowMapper<T> reflective(Class<T> type, PojoInfo pojoInfo, SqlStatementBuilder builder, ResultSetMetaData metaData) throws SQLException {
+        return new ReflectiveRowMapper<>(type, pojoInfo, builder, metaData);
+    }
+
+    private ColumnWriter writer(int column, Property property, StandardPojoInfo pojoInfo, SqlStatementBuilder builder, String typeName) {
+        Field field = property.getField();
+        if (property.getSerializer() != null || property.getWriteMethod() != null || field == null) {
+            return new PojoInfoWriter(column, property, pojoInfo, builder, typeName);
+        }
+
+        MethodHandle setter;
+        try {
+            setter = LOOKUP.unreflectSetter(field);
+        } catch (IllegalAccessException e) {
+            throw new ImanitySqlException(e);
+        }
+
+        Class<?> fieldType = field.getType();
+        setter = setter.asType(MethodType.methodType(void.class, Object.class, fieldType.isPrimitive() ? fieldType : Object.class));
+
+        if (fieldType == int.class) {
+            return new IntWriter(column, property, setter);
+        } else if (fieldType == long.class) {
+            return new LongWriter(column, property, setter);
+        } else if (fieldType == double.class) {
+            return new DoubleWriter(column, property, setter);
+        } else if (fieldType == float.class) {
+            return new FloatWriter(column, property, setter);
+        } else if (fieldType == boolean.class) {
+            return new BooleanWriter(column, property, setter);
+        } else if (fieldType == short.class) {
+            return new ShortWriter(column, property, setter);
+        } else if (fieldType == byte.class) {
+            return new ByteWriter(column, property, setter);
+        } else if (fieldType.isPrimitive()) {
+            // char has no ResultSet getter
+            return new PojoInfoWriter(column, property, pojoInfo, builder, typeName);
+        } else if (property.isEnumField()) {
+            return new EnumWriter(column, property, setter, builder, typeName);
+        }
+        return new ObjectWriter(column, property, setter, builder, typeName);
+    }
+
+    private String shape(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        StringBuilder builder = new StringBuilder(columnCount * 8);
+        for (int column = 1; column <= columnCount; column++) {
+            builder.append(metaData.getColumnLabel(column)).append(',');
+        }
+        return builder.toString();
+    }
+
+}
@@ -52,6 +52,40 @@ public class MySqlStatementBuilder extends StandardSqlStatementBuilder {
 	}
 	
 
+	@Override
+	public String getUpsertSql(Query query, Class<?> rowClass, int rowCount) {
+
+		// INSERT INTO table (a,b) VALUES (1,2),(3,4) ON DUPLICATE KEY UPDATE a=VALUES(a),b=VALUES(b);
+		// VALUES(col) refers to the row that collided, so every row only binds its insert args once
+
+		StandardPojoInfo pojoInfo = getPojoInfo(rowClass);
+		String key = "mysql-upsert:" + rowCount;
+		String sql = pojoInfo.getSqlCache().get(key);
+		if (sql != null) {
+			return sql;
+		}
+
+		StringBuilder buf = new StringBuilder(getInsertSql(query, rowClass, rowCount));
+		buf.append(" on duplicate key update ");
+
+		boolean first = true;
+		for (String colName: pojoInfo.getInsertColumnNames()) {
+			if (first) {
+				first = false;
+			} else {
+				buf.append(',');
+			}
+			buf.append(colName);
+			buf.append("=values(");
+			buf.append(colName);
+			buf.append(')');
+		}
+
+		sql = buf.toString();
+		pojoInfo.getSqlCache().put(key, sql);
+		return sql;
+	}
+
 	@Override
 	public void makeUpsertSql(StandardPojoInfo pojoInfo) {
 
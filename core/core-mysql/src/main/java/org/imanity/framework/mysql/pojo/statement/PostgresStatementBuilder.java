@@ -24,10 +24,14 @@
 
 package org.imanity.framework.mysql.pojo.statement;
 
+import org.imanity.framework.mysql.ImanitySqlException;
 import org.imanity.framework.mysql.pojo.Property;
+import org.imanity.framework.mysql.pojo.Query;
 import org.imanity.framework.mysql.pojo.info.StandardPojoInfo;
 
 import javax.persistence.Column;
+import javax.persistence.EnumType;
+import java.util.UUID;
 
 public class PostgresStatementBuilder extends StandardSqlStatementBuilder {
 
@@ -98,5 +102,113 @@ public class PostgresStatementBuilder extends StandardSqlStatementBuilder {
 		return buf.toString();
 	}
 
+	@Override
+	public String getUpsertSql(Query query, Object row) {
+		StandardPojoInfo pojoInfo = getPojoInfo(row.getClass());
+		if (pojoInfo.getUpsertSql() == null) {
+			throw new ImanitySqlException("No primary key specified in the row. Use the @Id annotation.");
+		}
+		return pojoInfo.getUpsertSql();
+	}
+
+	@Override
+	public Object[] getUpsertArgs(Query query, Object row) {
+		// excluded.col refers to the proposed row, so the insert args are enough
+		return getInsertArgs(query, row);
+	}
+
+	@Override
+	public String getUpsertSql(Query query, Class<?> rowClass, int rowCount) {
+		StandardPojoInfo pojoInfo = getPojoInfo(rowClass);
+		if (pojoInfo.getUpsertSql() == null) {
+			throw new ImanitySqlException("No primary key specified in the row. Use the @Id annotation.");
+		}
+		String key = "postgres-upsert:" + rowCount;
+		String sql = pojoInfo.getSqlCache().get(key);
+		if (sql == null) {
+			sql = getInsertSql(query, rowClass, rowCount) + getConflictSql(pojoInfo);
+			pojoInfo.getSqlCache().put(key, sql);
+		}
+		return sql;
+	}
+
+	@Override
+	public String getSelectByIdsSql(Query query, Class<?> rowClass, int idCount) {
+		StandardPojoInfo pojoInfo = getPojoInfo(rowClass);
+		if (pojoInfo.getPrimaryKeyName() == null) {
+			throw new ImanitySqlException("No primary key specified in the row. Use the @Id annotation.");
+		}
+
+		// a single array parameter, so there is one statement for any number of ids
+		String sql = pojoInfo.getSqlCache().get("ids:any");
+		if (sql == null) {
+			sql = "select " + pojoInfo.getSelectColumns() + " from " + pojoInfo.getTable()
+					+ " where " + pojoInfo.getPrimaryKeyName() + " = any(?)";
+			pojoInfo.getSqlCache().put("ids:any", sql);
+		}
+		return sql;
+	}
+
+	@Override
+	public String getIdArrayType(Class<?> rowClass) {
+		StandardPojoInfo pojoInfo = getPojoInfo(rowClass);
+		Property property = pojoInfo.getProperty(pojoInfo.getPrimaryKeyName());
+
+		if (property.isEnumField()) {
+			return property.getEnumType() == EnumType.ORDINAL ? "integer" : "varchar";
+		}
+
+		Class<?> dataType = property.getDataType();
+		if (dataType == Integer.class || dataType == int.class) {
+			return "integer";
+		} else if (dataType == Long.class || dataType == long.class) {
+			return "bigint";
+		} else if (dataType == Short.class || dataType == short.class) {
+			return "smallint";
+		} else if (dataType == UUID.class) {
+			return "uuid";
+		}
+		return "varchar";
+	}
+
+	@Override
+	public void makeUpsertSql(StandardPojoInfo pojoInfo) {
+		if (pojoInfo.getPrimaryKeyName() == null) {
+			return;
+		}
+		pojoInfo.setUpsertSql(pojoInfo.getInsertSql() + getConflictSql(pojoInfo));
+	}
+
+	private String getConflictSql(StandardPojoInfo pojoInfo) {
+
+		// INSERT INTO table (id,a,b) VALUES (1,2,3),(4,5,6) ON CONFLICT (id) DO UPDATE SET a=EXCLUDED.a,b=EXCLUDED.b;
+
+		StringBuilder buf = new StringBuilder();
+		buf.append(" on conflict (");
+		buf.append(pojoInfo.getPrimaryKeyName());
+		buf.append(") do ");
+
+		boolean first = true;
+		for (Property prop : pojoInfo.getPropertyMap().values()) {
+			if (prop.isPrimaryKey() || prop.isGenerated()) {
+				continue;
+			}
+
+			if (first) {
+				buf.append("update set ");
+				first = false;
+			} else {
+				buf.append(',');
+			}
+			buf.append(prop.getName());
+			buf.append("=excluded.");
+			buf.append(prop.getName());
+		}
+
+		if (first) {
+			buf.append("nothing");
+		}
+		return buf.toString();
+	}
 
 }
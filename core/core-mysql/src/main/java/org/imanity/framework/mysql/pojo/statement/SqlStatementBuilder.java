@@ -32,6 +32,11 @@ public interface SqlStatementBuilder {
 	public String getInsertSql(Query query, Object row);
 	public Object[] getInsertArgs(Query query, Object row);
 
+	/**
+	 * Multi-row insert for rowCount rows of the same type, the args are the insert args of each row one after another.
+	 */
+	public String getInsertSql(Query query, Class<?> rowClass, int rowCount);
+
 	public String getUpdateSql(Query query, Object row);
 	public Object[] getUpdateArgs(Query query, Object row);
 	
@@ -40,8 +45,26 @@ public interface SqlStatementBuilder {
 
 	public String getUpsertSql(Query query, Object row);
 	public Object[] getUpsertArgs(Query query, Object row);
+
+	/**
+	 * Multi-row upsert for rowCount rows of the same type, the args are the insert args of each row one after another.
+	 */
+	public String getUpsertSql(Query query, Class<?> rowClass, int rowCount);
 	
 	public String getSelectSql(Query query, Class<?> rowClass);
+	public Object[] getSelectArgs(Query query, Class<?> rowClass);
+
+	/**
+	 * Select for the rows of rowClass whose primary key is one of idCount ids, one parameter per id.
+	 * Dialects that bind all ids as a single array parameter ignore idCount, see getIdArrayType.
+	 */
+	public String getSelectByIdsSql(Query query, Class<?> rowClass, int idCount);
+
+	/**
+	 * The sql type of the array that carries the ids of getSelectByIdsSql, or null if every id is bound on its own.
+	 */
+	public String getIdArrayType(Class<?> rowClass);
+
 	public String getCreateTableSql(Class<?> clazz);
 	
 	public PojoInfo getPojoInfo(Class<?> rowClass);
@@ -36,7 +36,7 @@ import org.imanity.framework.mysql.util.SQLUtil;
 import javax.persistence.Column;
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -77,6 +77,32 @@ public class StandardSqlStatementBuilder implements SqlStatementBuilder {
 		}
 		return args;
 	}
+
+	@Override
+	public String getInsertSql(Query query, Class<?> rowClass, int rowCount) {
+		StandardPojoInfo pojoInfo = getPojoInfo(rowClass);
+		if (rowCount == 1) {
+			return pojoInfo.getInsertSql();
+		}
+
+		String key = "insert:" + rowCount;
+		String sql = pojoInfo.getSqlCache().get(key);
+		if (sql == null) {
+			sql = makeInsertSql(pojoInfo, rowCount);
+			pojoInfo.getSqlCache().put(key, sql);
+		}
+		return sql;
+	}
+
+	private String makeInsertSql(StandardPojoInfo pojoInfo, int rowCount) {
+		String row = ",(" + SQLUtil.getQuestionMarks(pojoInfo.getInsertSqlArgCount()) + ")";
+		StringBuilder buf = new StringBuilder(pojoInfo.getInsertSql().length() + row.length() * (rowCount - 1));
+		buf.append(pojoInfo.getInsertSql());
+		for (int i = 1; i < rowCount; i++) {
+			buf.append(row);
+		}
+		return buf.toString();
+	}
 	
 	@Override
 	public String getUpdateSql(Query query, Object row) {
@@ -183,38 +209,63 @@ public class StandardSqlStatementBuilder implements SqlStatementBuilder {
 	@Override
 	public String getSelectSql(Query query, Class<?> rowClass) {
 
-		// unlike insert and update, this needs to be done dynamically
-		// and can't be precalculated because of the where and order by
-		
+		// unlike insert and update, this depends on the where and order by,
+		// so it's cached per shape of those instead of being precalculated
+
 		StandardPojoInfo pojoInfo = getPojoInfo(rowClass);
-		String columns = pojoInfo.getSelectColumns();
-		
-		String where = query.getWhere();
-		if (where == null) {
+		if (query.getWhere() != null) {
 			if (query.getWheres().size() > 0) {
-				where = "";
-				Iterator<Where> iterator = query.getWheres().iterator();
+				LOGGER.error(new IllegalArgumentException("There is where statement specified but Where list also not empty!"));
+			}
 
-				while (iterator.hasNext()) {
+			// hand written where clauses may carry values, so they aren't worth caching
+			return makeSelectSql(query, pojoInfo);
+		}
 
-					Where whereObj = iterator.next();
+		String key = getSelectShape(query);
+		String sql = pojoInfo.getSqlCache().get(key);
+		if (sql == null) {
+			sql = makeSelectSql(query, pojoInfo);
+			pojoInfo.getSqlCache().put(key, sql);
+		}
+		return sql;
+	}
 
-					Object value;
-					Property property = pojoInfo.getProperty(whereObj.getProperty());
-					if (property != null) {
-						value = pojoInfo.toReadableValue(property, whereObj.getValue());
-					} else {
-						value = whereObj.getValue().toString();
-					}
+	/**
+	 * Everything the select sql depends on besides the type. Where values are
+	 * bound as parameters, so only the where properties are part of it.
+	 */
+	private String getSelectShape(Query query) {
+		List<Where> wheres = query.getWheres();
+		if (query.getTable() == null && query.getOrderBy() == null && wheres.size() <= 1) {
+			// by far the most common shapes, all rows or a single property like byId
+			String shape = wheres.isEmpty() ? "select:" : "select:" + wheres.get(0).getProperty();
+			return query.getLimit() == 0 ? shape : shape + "|" + query.getLimit();
+		}
 
-					where += whereObj.getProperty() + "=\'" + value.toString() + "\'";
-					if (iterator.hasNext()) {
-						where += ",";
-					}
+		StringBuilder buf = new StringBuilder("select:");
+		for (Where where : wheres) {
+			buf.append(where.getProperty()).append(',');
+		}
+		buf.append('|').append(query.getLimit());
+		buf.append('|').append(query.getTable());
+		buf.append('|').append(query.getOrderBy());
+		return buf.toString();
+	}
+
+	private String makeSelectSql(Query query, StandardPojoInfo pojoInfo) {
+		String columns = pojoInfo.getSelectColumns();
+
+		String where = query.getWhere();
+		if (where == null && query.getWheres().size() > 0) {
+			StringBuilder buf = new StringBuilder();
+			for (Where whereObj : query.getWheres()) {
+				if (buf.length() > 0) {
+					buf.append(" and ");
 				}
+				buf.append(whereObj.getProperty()).append("=?");
 			}
-		} else if (query.getWheres().size() > 0) {
-			LOGGER.error(new IllegalArgumentException("There is where statement specified but Where list also not empty!"));
+			where = buf.toString();
 		}
 
 		String table = query.getTable();
@@ -236,9 +287,64 @@ public class StandardSqlStatementBuilder implements SqlStatementBuilder {
 			out.append(" order by ");
 			out.append(orderBy);
 		}
+		if (query.getLimit() > 0) {
+			appendLimit(out, query.getLimit());
+		}
 		return out.toString();
 	}
 
+	@Override
+	public String getSelectByIdsSql(Query query, Class<?> rowClass, int idCount) {
+		StandardPojoInfo pojoInfo = getPojoInfo(rowClass);
+		if (pojoInfo.getPrimaryKeyName() == null) {
+			throw new ImanitySqlException("No primary key specified in the row. Use the @Id annotation.");
+		}
+
+		String key = "ids:" + idCount;
+		String sql = pojoInfo.getSqlCache().get(key);
+		if (sql == null) {
+			sql = "select " + pojoInfo.getSelectColumns() + " from " + pojoInfo.getTable()
+					+ " where " + pojoInfo.getPrimaryKeyName() + " in (" + SQLUtil.getQuestionMarks(idCount) + ")";
+			pojoInfo.getSqlCache().put(key, sql);
+		}
+		return sql;
+	}
+
+	@Override
+	public String getIdArrayType(Class<?> rowClass) {
+		return null;
+	}
+
+	/**
+	 * Limit the rows of a select, H2, MySQL and Postgres all understand "limit".
+	 */
+	protected void appendLimit(StringBuilder out, int limit) {
+		out.append(" limit ").append(limit);
+	}
+
+
+	@Override
+	public Object[] getSelectArgs(Query query, Class<?> rowClass) {
+		List<Where> wheres = query.getWheres();
+		if (query.getWhere() != null || wheres.isEmpty()) {
+			return query.getArgs();
+		}
+
+		StandardPojoInfo pojoInfo = getPojoInfo(rowClass);
+		Object[] args = new Object[wheres.size()];
+		for (int i = 0; i < args.length; i++) {
+			Where whereObj = wheres.get(i);
+
+			Property property = pojoInfo.getProperty(whereObj.getProperty());
+			if (property != null) {
+				args[i] = pojoInfo.toReadableValue(property, whereObj.getValue());
+			} else {
+				args[i] = whereObj.getValue().toString();
+			}
+		}
+		return args;
+	}
+
 
 	@Override
 	public String getCreateTableSql(Class<?> clazz) {
@@ -380,6 +486,11 @@ public class StandardSqlStatementBuilder implements SqlStatementBuilder {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public String getUpsertSql(Query query, Class<?> rowClass, int rowCount) {
+		throw new UnsupportedOperationException("There's no standard multi-row upsert implementation.");
+	}
+
 
 
 }
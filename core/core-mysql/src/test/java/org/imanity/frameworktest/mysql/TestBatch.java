@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.frameworktest.mysql;
+
+import org.imanity.framework.ObjectSerializer;
+import org.imanity.framework.mysql.ImanitySqlException;
+import org.imanity.framework.mysql.connection.file.H2ConnectionFactory;
+import org.imanity.framework.mysql.pojo.CustomSerialize;
+import org.imanity.framework.mysql.pojo.statement.MySqlStatementBuilder;
+import org.imanity.framework.mysql.pojo.statement.PostgresStatementBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestBatch {
+
+	private static final int ROWS = 10000;
+
+	private H2ConnectionFactory db;
+
+	@Before
+	public void setup() {
+		this.db = new H2ConnectionFactory(new File("./h2test").toPath().toAbsolutePath(), true);
+		this.db.query().sql("drop table if exists batchtest").execute();
+		this.db.createTable(Row.class);
+	}
+
+	@After
+	public void shutdown() throws Exception {
+		this.db.shutdown();
+	}
+
+	@Test
+	public void insertBatch() {
+		// not a multiple of the batch size so the remainder statement is used as well
+		List<Row> rows = rows(0, 1234, "bob");
+		int affected = this.db.query().batchSize(100).insertBatch(rows).getRowsAffected();
+
+		assertEquals(1234, affected);
+		assertEquals(1234L, this.db.count(Row.class));
+		assertEquals("bob", this.db.query().sql("select name from batchtest where id=?", 1233L).first(String.class));
+	}
+
+	@Test
+	public void upsertBatch() {
+		this.db.query().insertBatch(rows(0, 100, "bob"));
+
+		// half of them collide with existing rows
+		this.db.query().batchSize(30).upsertBatch(rows(50, 100, "joe"));
+
+		assertEquals(150L, this.db.count(Row.class));
+		assertEquals("bob", this.db.query().sql("select name from batchtest where id=?", 49L).first(String.class));
+		assertEquals("joe", this.db.query().sql("select name from batchtest where id=?", 50L).first(String.class));
+		assertEquals("joe", this.db.query().sql("select name from batchtest where id=?", 149L).first(String.class));
+	}
+
+	@Test
+	public void upsertBatchKeepsLastRowPerKey() {
+		List<Row> rows = rows(0, 10, "bob");
+		rows.addAll(rows(3, 2, "joe"));
+
+		int affected = this.db.query().upsertBatch(rows).getRowsAffected();
+
+		assertEquals(10, affected);
+		assertEquals(10L, this.db.count(Row.class));
+		assertEquals("bob", this.db.query().sql("select name from batchtest where id=?", 2L).first(String.class));
+		assertEquals("joe", this.db.query().sql("select name from batchtest where id=?", 3L).first(String.class));
+		assertEquals("joe", this.db.query().sql("select name from batchtest where id=?", 4L).first(String.class));
+	}
+
+	@Test
+	public void batchesEveryRowClassSeparately() {
+		this.db.query().sql("drop table if exists batchtest_other").execute();
+		this.db.createTable(OtherRow.class);
+
+		List<Object> rows = new ArrayList<>(rows(0, 5, "bob"));
+		for (int i = 0; i < 3; i++) {
+			OtherRow row = new OtherRow();
+			row.id = i;
+			row.coins = i * 10;
+			rows.add(i * 2, row);
+		}
+
+		int affected = this.db.query().insertBatch(rows).getRowsAffected();
+
+		assertEquals(8, affected);
+		assertEquals(5L, this.db.count(Row.class));
+		assertEquals(3L, this.db.count(OtherRow.class));
+		assertEquals(Integer.valueOf(20), this.db.query().sql("select coins from batchtest_other where id=?", 2L).first(Integer.class));
+	}
+
+	@Test
+	public void failedBatchDoesNotLeakIntoTheNext() {
+		// same table and columns as Row, so both share one cached statement
+		List<FailingRow> failing = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			FailingRow row = new FailingRow();
+			row.id = i;
+			row.name = i == 15 ? "boom" : "bob";
+			failing.add(row);
+		}
+
+		try {
+			this.db.query().batchSize(10).insertBatch(failing);
+			fail();
+		} catch (ImanitySqlException expected) {
+		}
+		// the first chunk was added to the batch before the second one failed to load
+		assertEquals(0L, this.db.count(Row.class));
+
+		int affected = this.db.query().batchSize(10).insertBatch(rows(100, 10, "joe")).getRowsAffected();
+
+		assertEquals(10, affected);
+		assertEquals(10L, this.db.count(Row.class));
+		assertNull(this.db.query().sql("select name from batchtest where id=?", 0L).first(String.class));
+	}
+
+	@Test
+	public void loopAndBatchWriteTheSameRows() {
+		List<Row> rows = rows(0, ROWS, "bob");
+
+		for (Row row : rows) {
+			this.db.upsert(row);
+		}
+		List<String> loop = this.db.query().sql("select name from batchtest order by id").results(String.class);
+
+		this.db.query().sql("delete from batchtest").execute();
+
+		this.db.query().upsertBatch(rows);
+		List<String> batch = this.db.query().sql("select name from batchtest order by id").results(String.class);
+
+		assertEquals((long) ROWS, this.db.count(Row.class));
+		assertEquals(loop, batch);
+	}
+
+	@Test
+	public void multiRowSql() {
+		assertEquals("insert into batchtest (id,name) values (?,?),(?,?) on duplicate key update id=values(id),name=values(name)",
+				new MySqlStatementBuilder().getUpsertSql(null, Row.class, 2));
+		assertEquals("insert into batchtest (id,name) values (?,?),(?,?) on conflict (id) do update set name=excluded.name",
+				new PostgresStatementBuilder().getUpsertSql(null, Row.class, 2));
+	}
+
+	private static List<Row> rows(int from, int count, String name) {
+		List<Row> rows = new ArrayList<>(count);
+		for (int i = from; i < from + count; i++) {
+			Row row = new Row();
+			row.id = i;
+			row.name = name;
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	@Table(name="batchtest")
+	public static class Row {
+		@Id
+		public long id;
+		public String name;
+	}
+
+	@Table(name="batchtest")
+	public static class FailingRow {
+		@Id
+		public long id;
+		@CustomSerialize(FailingSerializer.class)
+		public String name;
+	}
+
+	public static class FailingSerializer implements ObjectSerializer<String, String> {
+
+		@Override
+		public String serialize(String input) {
+			if ("boom".equals(input)) {
+				throw new IllegalStateException("expected");
+			}
+			return input;
+		}
+
+		@Override
+		public String deserialize(String output) {
+			return output;
+		}
+
+		@Override
+		public Class<String> inputClass() {
+			return String.class;
+		}
+
+		@Override
+		public Class<String> outputClass() {
+			return String.class;
+		}
+	}
+
+	@Table(name="batchtest_other")
+	public static class OtherRow {
+		@Id
+		public long id;
+		public int coins;
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.frameworktest.mysql;
+
+import org.imanity.framework.mysql.connection.StatementCache;
+import org.imanity.framework.mysql.connection.file.H2ConnectionFactory;
+import org.imanity.framework.mysql.pojo.statement.PostgresStatementBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestMultipleIds {
+
+	private static final int ROWS = 10_000;
+
+	private H2ConnectionFactory db;
+
+	@Before
+	public void setup() {
+		this.db = new H2ConnectionFactory(new File("./h2test").toPath().toAbsolutePath(), true);
+		this.db.query().sql("drop table if exists idtest").execute();
+		this.db.createTable(Row.class);
+		this.db.query().sql("insert into idtest select x, concat('row-', x) from system_range(1, ?)", ROWS).execute();
+	}
+
+	@After
+	public void shutdown() throws Exception {
+		this.db.query().sql("drop table if exists idtest").execute();
+		this.db.shutdown();
+	}
+
+	@Test
+	public void noIds() {
+		assertTrue(this.db.query().findByIds(Row.class, Collections.emptyList()).isEmpty());
+		assertTrue(this.db.query().byMultipleIds(Row.class, Collections.emptyList()).results(Row.class).isEmpty());
+	}
+
+	@Test
+	public void oneId() {
+		List<Row> rows = this.db.query().findByIds(Row.class, Collections.singletonList(42L));
+		assertEquals(1, rows.size());
+		assertEquals("row-42", rows.get(0).name);
+	}
+
+	@Test
+	public void idsComeBackInRequestOrder() {
+		this.assertFound(shuffledIds(127, 1));
+		this.assertFound(shuffledIds(ROWS, 2));
+	}
+
+	@Test
+	public void missingAndRepeatedIds() {
+		List<Long> ids = Arrays.asList(5L, -1L, 3L, 5L, 20_000L, 1L);
+		List<Row> rows = this.db.query().findByIds(Row.class, ids);
+
+		assertEquals(3, rows.size());
+		assertEquals(5L, rows.get(0).id);
+		assertEquals(3L, rows.get(1).id);
+		assertEquals(1L, rows.get(2).id);
+	}
+
+	@Test
+	public void preparesOneStatementPerBucket() throws Exception {
+		StatementCache statementCache = StatementCache.of(this.db.connection());
+		assertNotNull(statementCache);
+
+		int before = statementCache.size();
+		for (int count = 1; count <= 300; count++) {
+			this.db.query().findByIds(Row.class, shuffledIds(count, count));
+		}
+		assertEquals(before + 4, statementCache.size());
+	}
+
+	@Test
+	public void byMultipleIdsBindsIds() {
+		List<Row> rows = this.db.query().byMultipleIds(Row.class, Arrays.asList(7L, 8L, 9L)).orderBy("id").results(Row.class);
+		assertEquals(3, rows.size());
+		assertEquals(9L, rows.get(2).id);
+	}
+
+	@Test
+	public void postgresBindsArray() {
+		PostgresStatementBuilder builder = new PostgresStatementBuilder();
+		assertEquals("select id,name from idtest where id = any(?)", builder.getSelectByIdsSql(null, Row.class, 10));
+		assertEquals("bigint", builder.getIdArrayType(Row.class));
+	}
+
+	private void assertFound(List<Long> ids) {
+		List<Row> rows = this.db.query().findByIds(Row.class, ids);
+		assertEquals(ids.size(), rows.size());
+		for (int i = 0; i < ids.size(); i++) {
+			assertEquals((long) ids.get(i), rows.get(i).id);
+			assertEquals("row-" + ids.get(i), rows.get(i).name);
+		}
+	}
+
+	private static List<Long> shuffledIds(int count, long seed) {
+		List<Long> ids = new ArrayList<>(ROWS);
+		for (long id = 1; id <= ROWS; id++) {
+			ids.add(id);
+		}
+		Collections.shuffle(ids, new Random(seed));
+		return new ArrayList<>(ids.subList(0, count));
+	}
+
+	@Table(name = "idtest")
+	public static class Row {
+
+		@Id
+		public long id;
+		public String name;
+
+	}
+
+}
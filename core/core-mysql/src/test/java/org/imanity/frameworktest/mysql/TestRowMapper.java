@@ -0,0 +1,207 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.frameworktest.mysql;
+
+import org.imanity.framework.mysql.ImanitySqlException;
+import org.imanity.framework.mysql.connection.file.H2ConnectionFactory;
+import org.imanity.framework.mysql.pojo.CustomSerialize;
+import org.imanity.framework.mysql.pojo.impl.UUIDObjectSerializer;
+import org.imanity.framework.mysql.pojo.info.PojoInfo;
+import org.imanity.framework.mysql.pojo.mapper.RowMapper;
+import org.imanity.framework.mysql.pojo.mapper.RowMapperCompiler;
+import org.imanity.framework.mysql.pojo.statement.SqlStatementBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.Column;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class TestRowMapper {
+
+	private H2ConnectionFactory db;
+
+	@Before
+	public void setup() {
+		this.db = new H2ConnectionFactory(new File("./h2test").toPath().toAbsolutePath(), true);
+		this.db.query().sql("drop table if exists mappertest").execute();
+		this.db.query().sql("create table mappertest (id bigint, intValue integer, doubleValue double, floatValue real, " +
+				"boolValue boolean, shortValue smallint, boxedInt integer, boxedLong bigint, " +
+				"boxedDouble double, boxedBool boolean, text varchar(255), decimalValue decimal(10,2), dateValue datetime, " +
+				"rank varchar(255), ordinalRank integer, uuid varchar(255), renamed_column varchar(255), primary key (id))").execute();
+
+		for (int i = 0; i < 20; i++) {
+			this.db.insert(AllTypes.create(i));
+		}
+
+		// a row where everything that can be null is
+		AllTypes empty = new AllTypes();
+		empty.id = 100;
+		this.db.insert(empty);
+	}
+
+	@After
+	public void shutdown() throws Exception {
+		this.db.shutdown();
+	}
+
+	@Test
+	public void compiledMatchesReflective() throws Exception {
+		List<AllTypes> reflective = this.map(false);
+		List<AllTypes> compiled = this.map(true);
+
+		assertEquals(21, compiled.size());
+		for (int i = 0; i < compiled.size(); i++) {
+			assertFieldsEqual(reflective.get(i), compiled.get(i));
+		}
+
+		AllTypes row = compiled.get(7);
+		assertEquals(7L, row.id);
+		assertEquals(Rank.values()[7 % 3], row.rank);
+		assertEquals(Rank.values()[(7 + 1) % 3], row.ordinalRank);
+		assertEquals(new UUID(7, 7), row.uuid);
+		assertEquals("renamed-7", row.renamed);
+		assertEquals(new BigDecimal("7.25"), row.decimalValue);
+		assertNull(compiled.get(20).text);
+		assertNull(compiled.get(20).rank);
+	}
+
+	@Test
+	public void queryUsesCachedMapper() throws Exception {
+		List<AllTypes> rows = this.db.query().orderBy("id").results(AllTypes.class);
+		assertEquals(21, rows.size());
+		assertFieldsEqual(this.map(false).get(3), rows.get(3));
+
+		// a different column list is a different shape
+		AllTypes partial = this.db.query().sql("select id, text from mappertest where id=?", 5L).first(AllTypes.class);
+		assertEquals(5L, partial.id);
+		assertEquals("text-5", partial.text);
+		assertEquals(0, partial.intValue);
+		assertNull(partial.uuid);
+	}
+
+	@Test
+	public void nullIntoPrimitiveFails() throws Exception {
+		this.db.query().sql("update mappertest set intValue=null where id=1").execute();
+
+		for (boolean compiled : new boolean[] {false, true}) {
+			try {
+				this.map(compiled);
+				fail();
+			} catch (ImanitySqlException ignored) {
+			}
+		}
+	}
+
+	private List<AllTypes> map(boolean compiled) throws SQLException {
+		SqlStatementBuilder builder = this.db.builder();
+		PojoInfo pojoInfo = builder.getPojoInfo(AllTypes.class);
+
+		List<AllTypes> rows = new ArrayList<>();
+		try (PreparedStatement statement = this.db.connection().prepareStatement("select * from mappertest order by id");
+			 ResultSet resultSet = statement.executeQuery()) {
+			RowMapper<AllTypes> mapper = compiled
+					? RowMapperCompiler.compile(AllTypes.class, pojoInfo, builder, resultSet.getMetaData())
+					: RowMapperCompiler.reflective(AllTypes.class, pojoInfo, builder, resultSet.getMetaData());
+			while (resultSet.next()) {
+				rows.add(mapper.map(resultSet));
+			}
+		}
+		return rows;
+	}
+
+	private static void assertFieldsEqual(AllTypes expected, AllTypes actual) throws IllegalAccessException {
+		for (Field field : AllTypes.class.getDeclaredFields()) {
+			assertEquals(field.getName(), field.get(expected), field.get(actual));
+		}
+	}
+
+	public enum Rank {
+		MEMBER, VIP, ADMIN
+	}
+
+	@Table(name = "mappertest")
+	public static class AllTypes {
+
+		@Id
+		public long id;
+		public int intValue;
+		public double doubleValue;
+		public float floatValue;
+		public boolean boolValue;
+		public short shortValue;
+		public Integer boxedInt;
+		public Long boxedLong;
+		public Double boxedDouble;
+		public Boolean boxedBool;
+		public String text;
+		public BigDecimal decimalValue;
+		public Date dateValue;
+		public Rank rank;
+		@Enumerated(EnumType.ORDINAL)
+		public Rank ordinalRank;
+		@CustomSerialize(UUIDObjectSerializer.class)
+		public UUID uuid;
+		@Column(name = "renamed_column")
+		public String renamed;
+
+		static AllTypes create(int i) {
+			AllTypes row = new AllTypes();
+			row.id = i;
+			row.intValue = i * 3;
+			row.doubleValue = i * 1.5D;
+			row.floatValue = i * 0.5F;
+			row.boolValue = i % 2 == 0;
+			row.shortValue = (short) (i * 2);
+			row.boxedInt = i % 4 == 0 ? null : i;
+			row.boxedLong = (long) i << 33;
+			row.boxedDouble = i * 2.25D;
+			row.boxedBool = i % 3 == 0;
+			row.text = "text-" + i;
+			row.decimalValue = new BigDecimal(i + ".25");
+			row.dateValue = new Date(1600000000000L + i * 1000L);
+			row.rank = Rank.values()[i % 3];
+			row.ordinalRank = Rank.values()[(i + 1) % 3];
+			row.uuid = new UUID(i, i);
+			row.renamed = "renamed-" + i;
+			return row;
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.frameworktest.mysql;
+
+import org.imanity.framework.mysql.connection.StatementCache;
+import org.imanity.framework.mysql.connection.file.H2ConnectionFactory;
+import org.imanity.framework.mysql.pojo.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+
+import static org.junit.Assert.*;
+
+public class TestStatementCache {
+
+	private H2ConnectionFactory db;
+	private H2ConnectionFactory otherDb;
+
+	@Before
+	public void setup() throws Exception {
+		this.db = create("./h2test");
+		this.otherDb = create("./h2test-other");
+	}
+
+	@After
+	public void shutdown() throws Exception {
+		this.db.shutdown();
+		this.otherDb.shutdown();
+	}
+
+	private static H2ConnectionFactory create(String path) {
+		H2ConnectionFactory db = new H2ConnectionFactory(new File(path).toPath().toAbsolutePath(), true);
+		db.query().sql("drop table if exists cachetest").execute();
+		db.createTable(Row.class);
+		for (int i = 0; i < 10; i++) {
+			db.insert(new Row(i, "row" + i));
+		}
+		return db;
+	}
+
+	@Test
+	public void reusesStatements() throws Exception {
+		StatementCache cache = StatementCache.of(this.db.connection());
+		long misses = cache.getMisses();
+
+		for (int i = 0; i < 10; i++) {
+			Row row = this.db.query().byId(Row.class, i).first(Row.class);
+			assertEquals("row" + i, row.name);
+		}
+
+		// every lookup shares the same sql, only the first one prepared it
+		assertEquals(misses + 1, cache.getMisses());
+		assertTrue(cache.getHits() >= 9);
+	}
+
+	@Test
+	public void notSharedAcrossConnections() throws Exception {
+		this.db.query().byId(Row.class, 1).first(Row.class);
+		this.otherDb.query().byId(Row.class, 1).first(Row.class);
+
+		Connection connection = this.db.connection();
+		Connection otherConnection = this.otherDb.connection();
+		StatementCache cache = StatementCache.of(connection);
+		StatementCache otherCache = StatementCache.of(otherConnection);
+		assertNotSame(cache, otherCache);
+
+		String sql = "select id,name from cachetest where id=?";
+		PreparedStatement statement = cache.prepare(sql);
+		PreparedStatement otherStatement = otherCache.prepare(sql);
+		try {
+			assertNotSame(statement, otherStatement);
+			assertSame(connection.unwrap(Connection.class), statement.getConnection());
+			assertSame(otherConnection.unwrap(Connection.class), otherStatement.getConnection());
+		} finally {
+			cache.release(sql, statement);
+			otherCache.release(sql, otherStatement);
+		}
+	}
+
+	@Test
+	public void checkedOutStatementsAreExclusive() throws Exception {
+		StatementCache cache = StatementCache.of(this.db.connection());
+		String sql = "select count(*) from cachetest";
+
+		PreparedStatement first = cache.prepare(sql);
+		PreparedStatement second = cache.prepare(sql);
+		assertNotSame(first, second);
+
+		cache.release(sql, first);
+		cache.release(sql, second);
+		assertSame(second, cache.prepare(sql));
+		assertTrue(first.isClosed());
+	}
+
+	@Test
+	public void releaseClearsPendingBatch() throws Exception {
+		StatementCache cache = StatementCache.of(this.db.connection());
+		String sql = "insert into cachetest (id,name) values (?,?)";
+
+		PreparedStatement statement = cache.prepare(sql);
+		statement.setLong(1, 100L);
+		statement.setString(2, "stale");
+		statement.addBatch();
+		cache.release(sql, statement);
+
+		PreparedStatement reused = cache.prepare(sql);
+		assertSame(statement, reused);
+		assertEquals(0, reused.executeBatch().length);
+		cache.release(sql, reused);
+		assertNull(this.db.query().byId(Row.class, 100).first(Row.class));
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() throws Exception {
+		StatementCache cache = new StatementCache(this.db.connection(), 2);
+
+		PreparedStatement a = cache.prepare("select 1");
+		PreparedStatement b = cache.prepare("select 2");
+		PreparedStatement c = cache.prepare("select 3");
+		cache.release("select 1", a);
+		cache.release("select 2", b);
+		cache.release("select 3", c);
+
+		assertEquals(2, cache.size());
+		assertTrue(a.isClosed());
+		assertFalse(c.isClosed());
+
+		cache.close();
+		assertTrue(c.isClosed());
+	}
+
+	@Test
+	public void transactionClosesStatementsOfPooledConnection() throws Exception {
+		// a connection that goes back to its pool once the transaction is over
+		Connection connection = DriverManager.getConnection("jdbc:h2:mem:cachetest;mode=MySQL");
+		Transaction transaction = new Transaction();
+		transaction.setConnection(connection);
+
+		this.db.query().transaction(transaction).sql("create table if not exists cachetest (id bigint, name varchar(255), primary key (id))").execute();
+		this.db.query().transaction(transaction).insert(new Row(1, "pooled"));
+		assertEquals("pooled", this.db.query().transaction(transaction).byId(Row.class, 1).first(Row.class).name);
+
+		StatementCache cache = transaction.getStatementCache();
+		assertNull(StatementCache.of(connection));
+		assertEquals(3, cache.size());
+
+		String sql = "select id,name from cachetest where id=?";
+		PreparedStatement statement = cache.prepare(sql);
+		cache.release(sql, statement);
+
+		transaction.commit();
+		assertEquals(0, cache.size());
+		assertTrue(statement.isClosed());
+	}
+
+	@Table(name = "cachetest")
+	public static class Row {
+		@Id
+		public long id;
+		public String name;
+
+		public Row() {
+		}
+
+		public Row(long id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+	}
+
+}
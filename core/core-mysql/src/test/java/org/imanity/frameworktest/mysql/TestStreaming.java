@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.frameworktest.mysql;
+
+import org.imanity.framework.mysql.connection.file.H2ConnectionFactory;
+import org.imanity.framework.mysql.pojo.Query;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class TestStreaming {
+
+	private static final int ROWS = 1_000_000;
+
+	private H2ConnectionFactory db;
+
+	@Before
+	public void setup() {
+		this.db = new H2ConnectionFactory(new File("./h2test").toPath().toAbsolutePath(), true);
+		this.db.query().sql("drop table if exists stream_rows").execute();
+		this.db.createTable(Row.class);
+		this.db.query().sql("insert into stream_rows select x, concat('player-', x), x from system_range(1, 1000)").execute();
+	}
+
+	@After
+	public void shutdown() throws Exception {
+		this.db.query().sql("drop table if exists stream_rows").execute();
+		this.db.shutdown();
+	}
+
+	@Test
+	public void streamsMillionRowsWithBoundedHeap() {
+		this.db.query().sql("insert into stream_rows select x, concat('player-', x), x from system_range(1001, ?)", ROWS).execute();
+
+		long baseline = usedHeap();
+		long peak = 0;
+		long sum = 0;
+		int count = 0;
+
+		try (Stream<Row> stream = this.db.query().fetchSize(500).stream(Row.class)) {
+			for (Row row : (Iterable<Row>) stream::iterator) {
+				sum += row.coins;
+				if (++count % 100_000 == 0) {
+					peak = Math.max(peak, usedHeap() - baseline);
+				}
+			}
+		}
+
+		assertEquals(ROWS, count);
+		assertEquals((long) ROWS * (ROWS + 1) / 2, sum);
+		// the same rows held in a list take about 90mb
+		assertTrue("heap grew by " + (peak >> 20) + "mb while streaming", peak < 32L << 20);
+	}
+
+	@Test
+	public void streamHonoursLimitAndWhere() {
+		List<Row> rows;
+		try (Stream<Row> stream = this.db.query().orderBy("id").limit(10).stream(Row.class)) {
+			rows = stream.collect(Collectors.toList());
+		}
+		assertEquals(10, rows.size());
+		assertEquals(1L, rows.get(0).id);
+		assertEquals(10L, rows.get(9).id);
+
+		AtomicLong found = new AtomicLong();
+		this.db.query().whereQuery("name", "player-500").forEach(Row.class, row -> found.set(row.id));
+		assertEquals(500L, found.get());
+
+		try (Stream<Map> stream = this.db.query().sql("select id, name from stream_rows where id <= ?", 3).stream(Map.class)) {
+			assertEquals(3, stream.count());
+		}
+	}
+
+	@Test
+	public void firstIssuesLimit() {
+		Query query = this.db.query().whereQuery("coins", 42);
+		Row row = query.first(Row.class);
+
+		assertEquals(42L, row.id);
+		assertTrue(query.getSql(), query.getSql().endsWith(" limit 1"));
+
+		Query ordered = this.db.query().orderBy("id desc");
+		assertEquals(1000L, ordered.first(Row.class).id);
+		assertTrue(ordered.getSql(), ordered.getSql().endsWith(" order by id desc limit 1"));
+
+		assertNull(this.db.query().whereQuery("coins", -1).first(Row.class));
+		assertEquals(1000L, (long) this.db.query().count(Row.class).first(Long.class));
+	}
+
+	@Test
+	public void pagesByPrimaryKey() {
+		long last = 0;
+		int pages = 0;
+		Long afterId = null;
+
+		List<Row> page;
+		while (!(page = this.db.query().page(Row.class, afterId, 128).results(Row.class)).isEmpty()) {
+			for (Row row : page) {
+				assertEquals(last + 1, row.id);
+				last = row.id;
+			}
+			afterId = last;
+			pages++;
+		}
+
+		assertEquals(1000L, last);
+		assertEquals(8, pages);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	@Table(name = "stream_rows")
+	public static class Row {
+
+		@Id
+		public long id;
+		public String name;
+		public int coins;
+
+	}
+
+}
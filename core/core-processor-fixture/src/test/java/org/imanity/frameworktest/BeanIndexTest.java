@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.frameworktest;
+
+import org.imanity.framework.*;
+import org.imanity.framework.lookup.BeanLookup;
+import org.imanity.framework.lookup.IndexedBeanLookup;
+import org.imanity.framework.lookup.ReflectBeanLookup;
+import org.imanity.frameworktest.fixture.FixtureBeans;
+import org.imanity.frameworktest.fixture.FixtureDependantService;
+import org.imanity.frameworktest.fixture.FixtureService;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class BeanIndexTest {
+
+    private static final Collection<String> CLASS_PATHS = Collections.singletonList("org.imanity.frameworktest.fixture");
+    private static final List<Class<? extends Annotation>> TYPE_ANNOTATIONS = Arrays.asList(Service.class, Component.class, ClasspathScan.class);
+
+    @Test
+    public void indexedLookupIsPreferred() throws Exception {
+        BeanLookup beanLookup = BeanLookup.create(this.getClass().getClassLoader(), CLASS_PATHS);
+
+        assertTrue(beanLookup instanceof IndexedBeanLookup);
+    }
+
+    @Test
+    public void indexedLookupNeverBuildsReflectLookup() throws Exception {
+        BeanLookup beanLookup = BeanLookup.create(this.getClass().getClassLoader(), CLASS_PATHS, () -> {
+            throw new AssertionError("The reflection lookup shouldn't be built when the index covers the class paths");
+        });
+
+        assertTrue(beanLookup instanceof IndexedBeanLookup);
+    }
+
+    @Test
+    public void partiallyIndexedClassPathFallsBackToReflection() throws Exception {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        // org.imanity.frameworktest is in the indexed main classes and in the test classes which have no index
+        Collection<String> classPaths = Collections.singletonList("org.imanity.frameworktest");
+
+        assertNull(IndexedBeanLookup.load(classLoader, classPaths));
+        assertTrue(BeanLookup.create(classLoader, classPaths) instanceof ReflectBeanLookup);
+    }
+
+    @Test
+    public void indexedAndReflectLookupDiscoverSameBeans() throws Exception {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        IndexedBeanLookup indexed = IndexedBeanLookup.load(classLoader, CLASS_PATHS);
+        ReflectBeanLookup reflect = new ReflectBeanLookup(classLoader, CLASS_PATHS);
+
+        assertNotNull(indexed);
+        for (Class<? extends Annotation> annotation : TYPE_ANNOTATIONS) {
+            assertFalse(indexed.findAnnotatedClasses(annotation).isEmpty());
+            assertEquals(reflect.findAnnotatedClasses(annotation), indexed.findAnnotatedClasses(annotation));
+        }
+        assertEquals(4, indexed.findAnnotatedClasses(Service.class).size() + indexed.findAnnotatedClasses(Component.class).size());
+
+        assertEquals(1, indexed.findAnnotatedStaticMethods(Bean.class).size());
+        assertEquals(reflect.findAnnotatedStaticMethods(Bean.class), indexed.findAnnotatedStaticMethods(Bean.class));
+
+        assertEquals(1, indexed.findAnnotatedStaticFields(Autowired.class).size());
+        assertEquals(reflect.findAnnotatedStaticFields(Autowired.class), indexed.findAnnotatedStaticFields(Autowired.class));
+    }
+
+    @Test
+    public void uncoveredClassPathFallsBackToReflection() throws Exception {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+
+        assertNull(IndexedBeanLookup.load(classLoader, Collections.singletonList("org.imanity.frameworktest.missing")));
+        assertTrue(BeanLookup.create(classLoader, Collections.singletonList("org.imanity.frameworktest.missing")) instanceof ReflectBeanLookup);
+    }
+
+    @Test
+    public void indexOnlyListsWhatTheLookupReads() throws Exception {
+        List<String> lines;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(this.getClass().getClassLoader().getResourceAsStream(IndexedBeanLookup.LOCATION), StandardCharsets.UTF_8))) {
+            lines = reader.lines().collect(Collectors.toList());
+        }
+
+        assertTrue(lines.contains("type\t" + Service.class.getName() + "\t" + FixtureDependantService.Nested.class.getName()));
+        assertTrue(lines.contains("method\t" + Bean.class.getName() + "\t" + FixtureBeans.class.getName() + "\tfixtureBean"));
+
+        // dependencies and lifecycle methods are read from the bean class anyway
+        for (String line : lines) {
+            assertFalse(line, line.startsWith("dependency\t"));
+            assertFalse(line, line.contains(FixtureService.class.getName() + "\tonPreInitialize"));
+        }
+    }
+
+}
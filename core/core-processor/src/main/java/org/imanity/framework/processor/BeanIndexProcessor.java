@@ -0,0 +1,148 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.processor;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes META-INF/imanity/beans.idx at compile time, so BeanContext doesn't need to scan the classpath with reflection
+ *
+ * Every line is tab separated, the first column being the record kind
+ * package    [package]
+ * type       [annotation] [class]
+ * method     [annotation] [class] [method]
+ * field      [annotation] [class] [field]
+ *
+ * Only what IndexedBeanLookup reads is written, dependencies and lifecycle methods are still read from the bean
+ * class itself once it's loaded, which the index can't save
+ */
+@SupportedAnnotationTypes("*")
+public class BeanIndexProcessor extends AbstractProcessor {
+
+    public static final String LOCATION = "META-INF/imanity/beans.idx";
+
+    private static final String PACKAGE = "org.imanity.framework.";
+
+    private static final Set<String> TYPE_ANNOTATIONS = new HashSet<>(Arrays.asList(
+            PACKAGE + "Service", PACKAGE + "Component", PACKAGE + "ClasspathScan"
+    ));
+    private static final Set<String> STATIC_METHOD_ANNOTATIONS = Collections.singleton(PACKAGE + "Bean");
+    private static final Set<String> STATIC_FIELD_ANNOTATIONS = Collections.singleton(PACKAGE + "Autowired");
+
+    private final Set<String> packages = new TreeSet<>();
+    private final Set<String> records = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            this.write();
+            return false;
+        }
+
+        final Elements elements = this.processingEnv.getElementUtils();
+        for (Element root : roundEnv.getRootElements()) {
+            PackageElement packageElement = elements.getPackageOf(root);
+            if (!packageElement.isUnnamed()) {
+                this.packages.add(packageElement.getQualifiedName().toString());
+            }
+        }
+
+        for (TypeElement annotation : annotations) {
+            final String annotationName = annotation.getQualifiedName().toString();
+
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                switch (element.getKind()) {
+                    case CLASS:
+                    case INTERFACE:
+                    case ENUM:
+                        if (TYPE_ANNOTATIONS.contains(annotationName)) {
+                            this.records.add(String.join("\t", "type", annotationName, this.binaryName((TypeElement) element)));
+                        }
+                        break;
+                    case METHOD:
+                        if (STATIC_METHOD_ANNOTATIONS.contains(annotationName) && element.getModifiers().contains(Modifier.STATIC)) {
+                            this.indexMember("method", annotationName, element);
+                        }
+                        break;
+                    case FIELD:
+                        if (STATIC_FIELD_ANNOTATIONS.contains(annotationName) && element.getModifiers().contains(Modifier.STATIC)) {
+                            this.indexMember("field", annotationName, element);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void indexMember(String kind, String annotationName, Element element) {
+        final TypeElement owner = (TypeElement) element.getEnclosingElement();
+        this.records.add(String.join("\t", kind, annotationName, this.binaryName(owner), element.getSimpleName().toString()));
+    }
+
+    private String binaryName(TypeElement element) {
+        return this.processingEnv.getElementUtils().getBinaryName(element).toString();
+    }
+
+    private void write() {
+        if (this.records.isEmpty()) {
+            return;
+        }
+
+        try {
+            FileObject fileObject = this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", LOCATION);
+            try (Writer writer = new OutputStreamWriter(fileObject.openOutputStream(), StandardCharsets.UTF_8)) {
+                writer.write("# Generated by " + BeanIndexProcessor.class.getName() + ", do not edit\n");
+                for (String packageName : this.packages) {
+                    writer.write("package\t" + packageName + "\n");
+                }
+                for (String record : this.records) {
+                    writer.write(record + "\n");
+                }
+            }
+        } catch (IOException ex) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Couldn't write " + LOCATION + ": " + ex.getMessage());
+        }
+    }
+
+}
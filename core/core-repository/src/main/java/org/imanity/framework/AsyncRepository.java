@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework;
+
+import lombok.Getter;
+import org.imanity.framework.task.ITaskScheduler;
+import org.imanity.framework.util.Stacktrace;
+
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A non-blocking view of a {@link Repository}, every operation runs on a {@link RepositoryExecutor} and
+ * completes a {@link CompletableFuture}.
+ *
+ * Operations that target an id, saves of pojos with an id included, run in the order they were submitted for that id. Anything
+ * else, like {@link #findAll()} or {@link #findByQuery(String, Object)}, isn't ordered against other operations.
+ *
+ * The callback variants hand the result to the main thread through {@link ITaskScheduler#runSync(Runnable)},
+ * failures are logged instead.
+ */
+public class AsyncRepository<T, ID extends Serializable> {
+
+    @Getter
+    private final Repository<T, ID> repository;
+    private final Function<? super T, ID> idFunction;
+    @Getter
+    private final RepositoryExecutor executor;
+    private final ITaskScheduler taskScheduler;
+
+    public AsyncRepository(Repository<T, ID> repository, Function<? super T, ID> idFunction, RepositoryType type) {
+        this(repository, idFunction, RepositoryExecutor.of(type, repository.poolSize()), FrameworkMisc.TASK_SCHEDULER);
+    }
+
+    public AsyncRepository(Repository<T, ID> repository, Function<? super T, ID> idFunction, RepositoryExecutor executor, ITaskScheduler taskScheduler) {
+        this.repository = repository;
+        this.idFunction = idFunction;
+        this.executor = executor;
+        this.taskScheduler = taskScheduler;
+    }
+
+    public <S extends T> CompletableFuture<S> save(S pojo) {
+        return this.submit(this.idFunction.apply(pojo), () -> this.repository.save(pojo));
+    }
+
+    /**
+     * Saves the pojos with one saveAll per lane of the executor, so each is still ordered with the other
+     * operations on its id.
+     */
+    public <S extends T> CompletableFuture<Iterable<S>> saveAll(Iterable<S> pojoIterable) {
+        Map<Integer, List<S>> lanes = new LinkedHashMap<>();
+        Map<Integer, ID> keys = new LinkedHashMap<>();
+        List<S> withoutId = new ArrayList<>(0);
+        for (S pojo : pojoIterable) {
+            ID id = this.idFunction.apply(pojo);
+            if (id == null) {
+                withoutId.add(pojo);
+                continue;
+            }
+
+            int lane = this.executor.lane(id);
+            lanes.computeIfAbsent(lane, ignored -> new ArrayList<>()).add(pojo);
+            keys.putIfAbsent(lane, id);
+        }
+
+        List<CompletableFuture<?>> futures = new ArrayList<>(lanes.size() + 1);
+        lanes.forEach((lane, pojos) -> futures.add(this.submit(keys.get(lane), () -> this.repository.saveAll(pojos))));
+        if (!withoutId.isEmpty()) {
+            futures.add(this.submit(null, () -> this.repository.saveAll(withoutId)));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> pojoIterable);
+    }
+
+    public CompletableFuture<Optional<T>> findById(ID id) {
+        return this.submit(id, () -> this.repository.findById(id));
+    }
+
+    public <Q> CompletableFuture<Optional<T>> findByQuery(String query, Q value) {
+        return this.submit(null, () -> this.repository.findByQuery(query, value));
+    }
+
+    public CompletableFuture<Boolean> existsById(ID id) {
+        return this.submit(id, () -> this.repository.existsById(id));
+    }
+
+    public CompletableFuture<Iterable<T>> findAll() {
+        return this.submit(null, this.repository::findAll);
+    }
+
+    public CompletableFuture<Iterable<T>> findAllById(List<ID> ids) {
+        return this.submit(null, () -> this.repository.findAllById(ids));
+    }
+
+    public CompletableFuture<Long> count() {
+        return this.submit(null, this.repository::count);
+    }
+
+    public CompletableFuture<Void> deleteById(ID id) {
+        return this.submit(id, () -> {
+            this.repository.deleteById(id);
+            return null;
+        });
+    }
+
+    public <Q> CompletableFuture<Void> deleteByQuery(String query, Q value) {
+        return this.submit(null, () -> {
+            this.repository.deleteByQuery(query, value);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteAll() {
+        return this.submit(null, () -> {
+            this.repository.deleteAll();
+            return null;
+        });
+    }
+
+    public <S extends T> void save(S pojo, Consumer<? super S> callback) {
+        this.sync(this.save(pojo), callback);
+    }
+
+    public void findById(ID id, Consumer<Optional<T>> callback) {
+        this.sync(this.findById(id), callback);
+    }
+
+    public <Q> void findByQuery(String query, Q value, Consumer<Optional<T>> callback) {
+        this.sync(this.findByQuery(query, value), callback);
+    }
+
+    public void findAll(Consumer<Iterable<T>> callback) {
+        this.sync(this.findAll(), callback);
+    }
+
+    /**
+     * Pass the result of future to callback on the main thread once it completes.
+     */
+    public <R> void sync(CompletableFuture<R> future, Consumer<? super R> callback) {
+        future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                Stacktrace.print(throwable);
+                return;
+            }
+
+            this.taskScheduler.runSync(() -> callback.accept(result));
+        });
+    }
+
+    private <R> CompletableFuture<R> submit(Object key, Supplier<R> supplier) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        Runnable runnable = () -> {
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+        };
+
+        try {
+            if (key != null) {
+                this.executor.execute(key, runnable);
+            } else {
+                this.executor.execute(runnable);
+            }
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Reads the id of a pojo from its field annotated with an {@code @Id}, like javax.persistence.Id for sql
+     * or org.mongojack.Id for mongo.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, ID extends Serializable> Function<T, ID> idFunction(Class<T> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                for (Annotation annotation : field.getAnnotations()) {
+                    if (!annotation.annotationType().getSimpleName().equals("Id")) {
+                        continue;
+                    }
+
+                    field.setAccessible(true);
+                    return pojo -> {
+                        try {
+                            return (ID) field.get(pojo);
+                        } catch (IllegalAccessException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    };
+                }
+            }
+        }
+
+        throw new IllegalArgumentException("The type " + type.getName() + " has no field annotated with @Id!");
+    }
+
+}
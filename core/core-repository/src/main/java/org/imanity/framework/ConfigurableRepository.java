@@ -32,6 +32,7 @@ import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Getter
 public abstract class ConfigurableRepository<T, ID extends Serializable> implements Repository<T, ID> {
@@ -39,6 +40,7 @@ public abstract class ConfigurableRepository<T, ID extends Serializable> impleme
     private Repository<T, ID> repository;
     private BeanDetails serviceDetails;
     private boolean initialized;
+    private AsyncRepository<T, ID> asyncRepository;
 
     @PostInitialize
     public void init() {
@@ -98,6 +100,27 @@ public abstract class ConfigurableRepository<T, ID extends Serializable> impleme
 
     public abstract RepositoryType repositoryType();
 
+    /**
+     * The non-blocking variant of this repository, running on the shared executor of its repository type.
+     */
+    public synchronized AsyncRepository<T, ID> async() {
+        if (!this.initialized) {
+            throw new IllegalStateException("Attempt to perform action before repository initialized!");
+        }
+
+        if (this.asyncRepository == null) {
+            this.asyncRepository = new AsyncRepository<>(this, this.idFunction(), this.repositoryType());
+        }
+        return this.asyncRepository;
+    }
+
+    /**
+     * How the async variant finds the id of a pojo, the field annotated with {@code @Id} by default.
+     */
+    protected Function<? super T, ID> idFunction() {
+        return AsyncRepository.idFunction(this.type());
+    }
+
     public abstract String name();
 
     @Override
@@ -149,4 +172,9 @@ public abstract class ConfigurableRepository<T, ID extends Serializable> impleme
     public void deleteAll() {
         this.repository.deleteAll();
     }
+
+    @Override
+    public int poolSize() {
+        return this.repository.poolSize();
+    }
 }
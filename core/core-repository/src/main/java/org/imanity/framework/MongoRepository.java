@@ -25,20 +25,30 @@
 package org.imanity.framework;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.mongodb.client.model.Filters;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.mongodb.client.model.*;
 import lombok.Getter;
 import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.codecs.Codec;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.conversions.Bson;
 import org.imanity.framework.mongo.MongoService;
 import org.mongojack.JacksonMongoCollection;
 import org.mongojack.internal.MongoJackModule;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public abstract class MongoRepository<T, ID extends Serializable> implements Repository<T, ID> {
 
+    public static final int DEFAULT_BULK_WRITE_SIZE = 1000;
+    public static final int DEFAULT_FIND_BATCH_SIZE = 1000;
+
     @Autowired
     private static MongoService MONGO_SERVICE;
 
@@ -71,12 +81,56 @@ public abstract class MongoRepository<T, ID extends Serializable> implements Rep
         return pojo;
     }
 
+    /**
+     * Save every pojo with unordered bulk writes of {@link #bulkWriteSize()} documents each,
+     * one round trip per chunk instead of one per document.
+     *
+     * Follows the same rule as {@link JacksonMongoCollection#save(Object)}: pojos with an id are
+     * upserted by _id, pojos without one are inserted. An unordered bulk write may apply its
+     * models in any order, so within a chunk only the last pojo per _id is sent.
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public <S extends T> Iterable<S> saveAll(Iterable<S> pojoIterable) {
-        pojoIterable.forEach(pojo -> this.collection.save(pojo));
+        Codec<T> codec = this.collection.getCodecRegistry().get(this.type());
+        if (!(codec instanceof CollectibleCodec)) {
+            pojoIterable.forEach(pojo -> this.collection.save(pojo));
+            return pojoIterable;
+        }
+
+        CollectibleCodec<T> collectibleCodec = (CollectibleCodec<T>) codec;
+        int bulkWriteSize = Math.max(1, this.bulkWriteSize());
+        Map<BsonValue, WriteModel<T>> replaces = new LinkedHashMap<>();
+        List<WriteModel<T>> inserts = new ArrayList<>();
+
+        for (S pojo : pojoIterable) {
+            BsonValue id = collectibleCodec.getDocumentId(pojo);
+            if (id == null || id.isNull()) {
+                inserts.add(new InsertOneModel<>(pojo));
+            } else {
+                replaces.put(id, new ReplaceOneModel<>(new BsonDocument("_id", id), pojo, new ReplaceOptions().upsert(true)));
+            }
+
+            if (replaces.size() + inserts.size() >= bulkWriteSize) {
+                this.bulkWrite(replaces, inserts);
+                replaces = new LinkedHashMap<>();
+                inserts = new ArrayList<>();
+            }
+        }
+
+        if (!replaces.isEmpty() || !inserts.isEmpty()) {
+            this.bulkWrite(replaces, inserts);
+        }
         return pojoIterable;
     }
 
+    private void bulkWrite(Map<BsonValue, WriteModel<T>> replaces, List<WriteModel<T>> inserts) {
+        List<WriteModel<T>> models = new ArrayList<>(replaces.size() + inserts.size());
+        models.addAll(replaces.values());
+        models.addAll(inserts);
+        this.collection.bulkWrite(models, new BulkWriteOptions().ordered(false));
+    }
+
     @Override
     public Optional<T> findById(ID id) {
         return Optional.ofNullable(this.collection.findOneById(id));
@@ -87,6 +141,38 @@ public abstract class MongoRepository<T, ID extends Serializable> implements Rep
         return Optional.ofNullable(this.collection.findOne(Filters.eq(query, value)));
     }
 
+    /**
+     * Find documents matching the query and map only the fields of the projection type.
+     * The projection includes every Jackson property of the type, and excludes _id if the type doesn't have one.
+     */
+    public <Q, P> List<P> findByQuery(String query, Q value, Class<P> type) {
+        return this.findByQuery(Filters.eq(query, value), this.projection(type), type);
+    }
+
+    public <P> List<P> findByQuery(Bson filter, Bson projection, Class<P> type) {
+        return this.collection.withDocumentClass(type)
+                .find(filter)
+                .projection(projection)
+                .batchSize(this.findBatchSize())
+                .into(new ArrayList<>());
+    }
+
+    protected Bson projection(Class<?> type) {
+        ObjectMapper objectMapper = this.objectMapper();
+        List<String> fields = new ArrayList<>();
+        for (BeanPropertyDefinition property : objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(type))
+                .findProperties()) {
+            fields.add(property.getName());
+        }
+
+        Bson include = Projections.include(fields);
+        if (fields.contains("_id")) {
+            return include;
+        }
+        return Projections.fields(include, Projections.excludeId());
+    }
+
     @Override
     public boolean existsById(ID id) {
         return this.findById(id).isPresent();
@@ -94,13 +180,13 @@ public abstract class MongoRepository<T, ID extends Serializable> implements Rep
 
     @Override
     public Iterable<T> findAll() {
-        return this.collection.find();
+        return this.collection.find().batchSize(this.findBatchSize());
     }
 
     @Override
     public Iterable<T> findAllById(List<ID> ids) {
         List<T> result = new ArrayList<>();
-        for (T t : this.collection.find(this.collection.createIdInQuery(ids))) {
+        for (T t : this.collection.find(this.collection.createIdInQuery(ids)).batchSize(this.findBatchSize())) {
             result.add(t);
         }
 
@@ -127,8 +213,27 @@ public abstract class MongoRepository<T, ID extends Serializable> implements Rep
         this.collection.deleteMany(new BsonDocument());
     }
 
+    @Override
+    public int poolSize() {
+        return MONGO_SERVICE.poolSize(this.getClass());
+    }
+
     public String queryId() {
         return "_id";
     }
 
+    /**
+     * @return maximum documents sent in a single bulk write by {@link #saveAll(Iterable)}
+     */
+    public int bulkWriteSize() {
+        return DEFAULT_BULK_WRITE_SIZE;
+    }
+
+    /**
+     * @return documents fetched per cursor round trip by findAll and projections
+     */
+    public int findBatchSize() {
+        return DEFAULT_FIND_BATCH_SIZE;
+    }
+
 }
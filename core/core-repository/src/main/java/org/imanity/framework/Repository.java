@@ -60,4 +60,12 @@ public interface Repository<T, ID extends Serializable> {
     <Q> void deleteByQuery(String query, Q value);
 
     void deleteAll();
+
+    /**
+     * The number of operations the underlying storage can run at the same time,
+     * which sizes the executor of an {@link AsyncRepository}.
+     */
+    default int poolSize() {
+        return 1;
+    }
 }
@@ -0,0 +1,240 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework;
+
+import lombok.Getter;
+import org.imanity.framework.aspect.AsyncExecutor;
+import org.imanity.framework.util.Stacktrace;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The bounded I/O executor {@link AsyncRepository} operations run on, one per {@link RepositoryType}.
+ *
+ * Operations run on at most {@code threads} threads, which should match the connection pool of the storage so
+ * nothing waits on the pool while holding a thread. Operations with a key are spread over serial lanes by the
+ * key's hash, so operations on the same key run one after another in the order they were submitted.
+ *
+ * At most {@code maxPending} operations are queued or running. Submitting more waits up to {@code submitTimeoutMillis}
+ * for one to finish and is rejected after that, by default right away since the caller is usually the main thread.
+ */
+public class RepositoryExecutor implements Executor {
+
+    public static final int DEFAULT_MAX_PENDING = 8192;
+
+    private static final Map<RepositoryType, Map<Integer, RepositoryExecutor>> EXECUTORS = new ConcurrentHashMap<>();
+
+    /**
+     * The shared executor of type with threads threads.
+     *
+     * Repositories of the same type and pool size share one, a repository with a different pool size gets its own
+     * so it is neither starved by a smaller executor nor allowed to run more operations than its pool has connections.
+     */
+    public static RepositoryExecutor of(RepositoryType type, int threads) {
+        return EXECUTORS.computeIfAbsent(type, ignored -> new ConcurrentHashMap<>())
+                .computeIfAbsent(threads, ignored -> new RepositoryExecutor("repository-" + type.name().toLowerCase() + "-" + threads, threads, DEFAULT_MAX_PENDING));
+    }
+
+    /**
+     * Shut down the shared executors, operations already submitted still run.
+     */
+    public static void shutdownAll() {
+        EXECUTORS.values().forEach(executors -> executors.values().forEach(RepositoryExecutor::shutdown));
+        EXECUTORS.clear();
+    }
+
+    @Getter
+    private final int threads;
+    @Getter
+    private final int maxPending;
+    @Getter
+    private final long submitTimeoutMillis;
+    private final AsyncExecutor executor;
+    private final Semaphore pending;
+    private final Lane[] lanes;
+
+    public RepositoryExecutor(String name, int threads, int maxPending) {
+        this(name, threads, maxPending, 0L);
+    }
+
+    public RepositoryExecutor(String name, int threads, int maxPending, long submitTimeoutMillis) {
+        if (threads <= 0 || maxPending <= 0) {
+            throw new IllegalArgumentException("threads and maxPending must be positive");
+        }
+        if (submitTimeoutMillis < 0) {
+            throw new IllegalArgumentException("submitTimeoutMillis can't be negative");
+        }
+        this.threads = threads;
+        this.maxPending = maxPending;
+        this.submitTimeoutMillis = submitTimeoutMillis;
+        this.pending = new Semaphore(maxPending);
+
+        // a few lanes per thread, so unrelated keys rarely wait behind each other
+        this.lanes = new Lane[threads * 4];
+        for (int i = 0; i < this.lanes.length; i++) {
+            this.lanes[i] = new Lane();
+        }
+
+        // the permits already bound the queue, it only has to fit every lane and pending operation
+        this.executor = new AsyncExecutor(name, threads, maxPending + this.lanes.length, AsyncExecutor.RejectionPolicy.FAIL_FAST);
+    }
+
+    /**
+     * Run an operation that isn't ordered with any other.
+     *
+     * @throws RejectedExecutionException if maxPending operations are still pending after the submit timeout, or the executor is shut down
+     */
+    @Override
+    public void execute(Runnable runnable) {
+        this.acquire();
+        try {
+            this.executor.execute(() -> this.run(runnable));
+        } catch (Throwable throwable) {
+            this.pending.release();
+            throw throwable;
+        }
+    }
+
+    /**
+     * Run an operation after every operation submitted before it with a key of the same lane.
+     *
+     * @throws RejectedExecutionException if maxPending operations are still pending after the submit timeout, or the executor is shut down
+     */
+    public void execute(Object key, Runnable runnable) {
+        this.acquire();
+        try {
+            this.lanes[this.lane(key)].submit(runnable);
+        } catch (Throwable throwable) {
+            this.pending.release();
+            throw throwable;
+        }
+    }
+
+    private void acquire() {
+        boolean acquired;
+        if (this.submitTimeoutMillis == 0L) {
+            acquired = this.pending.tryAcquire();
+        } else {
+            try {
+                acquired = this.pending.tryAcquire(this.submitTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+        }
+
+        if (!acquired) {
+            throw new RejectedExecutionException(this.maxPending + " repository operations are already pending");
+        }
+    }
+
+    /**
+     * The lane of key, keys of the same lane are run in submission order.
+     */
+    public int lane(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % this.lanes.length;
+    }
+
+    /**
+     * @return the number of operations queued or running
+     */
+    public int getPendingCount() {
+        return this.maxPending - this.pending.availablePermits();
+    }
+
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.executor.awaitTermination(timeout, unit);
+    }
+
+    private void run(Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (Throwable throwable) {
+            Stacktrace.print(throwable);
+        } finally {
+            this.pending.release();
+        }
+    }
+
+    private class Lane implements Runnable {
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private void submit(Runnable runnable) {
+            this.tasks.add(runnable);
+            try {
+                this.schedule();
+            } catch (Throwable throwable) {
+                this.tasks.remove(runnable);
+                throw throwable;
+            }
+        }
+
+        private void schedule() {
+            if (!this.tasks.isEmpty() && this.scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (Throwable throwable) {
+                    this.scheduled.set(false);
+                    throw throwable;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            // one task per turn, a busy lane goes back in the queue instead of holding the thread
+            Runnable runnable = this.tasks.poll();
+            if (runnable != null) {
+                RepositoryExecutor.this.run(runnable);
+            }
+
+            this.scheduled.set(false);
+            try {
+                this.schedule();
+            } catch (RejectedExecutionException ex) {
+                // shut down meanwhile, what was submitted before still runs
+                while ((runnable = this.tasks.poll()) != null) {
+                    RepositoryExecutor.this.run(runnable);
+                }
+            }
+        }
+    }
+
+}
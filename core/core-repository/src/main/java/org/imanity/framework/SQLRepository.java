@@ -24,17 +24,21 @@
 
 package org.imanity.framework;
 
+import org.imanity.framework.mysql.ImanitySqlException;
 import org.imanity.framework.mysql.SqlService;
 import org.imanity.framework.mysql.Session;
 import org.imanity.framework.mysql.connection.AbstractConnectionFactory;
+import org.imanity.framework.mysql.pojo.Query;
 import org.imanity.framework.mysql.pojo.Transaction;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 public abstract class SQLRepository<T, ID extends Serializable> implements Repository<T, ID> {
 
@@ -49,12 +53,18 @@ public abstract class SQLRepository<T, ID extends Serializable> implements Repos
         this.type = type;
     }
 
+    public SQLRepository(AbstractConnectionFactory factory) {
+        this.factory = factory;
+    }
+
     @PostInitialize
     public void init() {
-        if (this.type != null) {
-            this.factory = SqlService.INSTANCE.factory(this.getClass(), type);
-        } else {
-            this.factory = SqlService.INSTANCE.factory(this.getClass(), null);
+        if (this.factory == null) {
+            if (this.type != null) {
+                this.factory = SqlService.INSTANCE.factory(this.getClass(), type);
+            } else {
+                this.factory = SqlService.INSTANCE.factory(this.getClass(), null);
+            }
         }
 
         this.factory.createTable(this.type());
@@ -103,12 +113,64 @@ public abstract class SQLRepository<T, ID extends Serializable> implements Repos
         }
     }
 
+    /**
+     * Same as {@link #performSession(Consumer)}, but the failure is thrown after the rollback instead of only printed,
+     * for callers that have to know whether the changes were written
+     *
+     * @throws ImanitySqlException if the session failed, nothing of it was committed then
+     */
+    public void performSessionOrThrow(Consumer<Session> sessionConsumer) {
+        Transaction transaction = null;
+        try {
+            transaction = this.factory.startTransaction();
+
+            Session session = this.factory.session(transaction);
+            sessionConsumer.accept(session);
+
+            transaction.commit();
+        } catch (Throwable throwable) {
+            if (transaction != null) {
+                try {
+                    transaction.rollback();
+                } catch (Throwable rollbackFailure) {
+                    throwable.addSuppressed(rollbackFailure);
+                }
+            }
+
+            if (throwable instanceof ImanitySqlException) {
+                throw (ImanitySqlException) throwable;
+            }
+            throw new ImanitySqlException(throwable);
+        }
+    }
+
     @Override
     public <S extends T> S save(S pojo) {
         this.performSession(session -> session.upsert(pojo));
         return pojo;
     }
 
+    /**
+     * Upsert every pojo in one transaction
+     *
+     * @throws ImanitySqlException if writing failed, none of the pojos were saved then
+     */
+    @Override
+    public <S extends T> Iterable<S> saveAll(Iterable<S> pojoIterable) {
+        List<S> pojos;
+        if (pojoIterable instanceof List) {
+            pojos = (List<S>) pojoIterable;
+        } else {
+            pojos = new ArrayList<>();
+            pojoIterable.forEach(pojos::add);
+        }
+
+        if (!pojos.isEmpty()) {
+            this.performSessionOrThrow(session -> session.upsertBatch(pojos));
+        }
+        return pojoIterable;
+    }
+
     @Override
     public Optional<T> findById(ID id) {
         return Optional.ofNullable(this.performSessionResult(session -> session.find(this.type(), id)));
@@ -129,9 +191,54 @@ public abstract class SQLRepository<T, ID extends Serializable> implements Repos
         return this.performSessionResult(session -> session.results(this.type()));
     }
 
+    /**
+     * Stream every row instead of loading the whole table like {@link #findAll()}.
+     * The stream keeps a transaction open until it is closed, so use it in a try-with-resources.
+     */
+    public Stream<T> findAllStream() {
+        return this.findAllStream(Query.DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Stream every row, fetching fetchSize rows from the database at a time.
+     */
+    public Stream<T> findAllStream(int fetchSize) {
+        if (this.factory == null) {
+            throw new IllegalArgumentException("Attempt to perform action before repository initialized!");
+        }
+
+        Transaction transaction = this.factory.startTransaction();
+        try {
+            return this.factory.session(transaction).query()
+                    .fetchSize(fetchSize)
+                    .stream(this.type())
+                    .onClose(transaction::commit);
+        } catch (Throwable throwable) {
+            transaction.rollback();
+            throw throwable;
+        }
+    }
+
+    /**
+     * Pass every row to consumer while it is read.
+     */
+    public void forEach(Consumer<? super T> consumer) {
+        try (Stream<T> stream = this.findAllStream()) {
+            stream.forEach(consumer);
+        }
+    }
+
+    /**
+     * Up to limit rows ordered by id, starting after afterId. Pass the id of the last row of a page
+     * to get the next one, or null to get the first page.
+     */
+    public List<T> findPage(ID afterId, int limit) {
+        return this.performSessionResult(session -> session.page(this.type(), afterId, limit));
+    }
+
     @Override
     public Iterable<T> findAllById(List<ID> ids) {
-        return this.performSessionResult(session -> session.query().byMultipleIds(this.type(), ids).results(this.type()));
+        return this.performSessionResult(session -> session.findByIds(this.type(), ids));
     }
 
     @Override
@@ -156,5 +263,10 @@ public abstract class SQLRepository<T, ID extends Serializable> implements Repos
         this.performSession(session -> session.query().delete());
     }
 
+    @Override
+    public int poolSize() {
+        return this.factory.poolSize();
+    }
+
 
 }
@@ -0,0 +1,335 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.framework;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Getter;
+import org.imanity.framework.util.Stacktrace;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * A write-behind decorator for any {@link Repository}.
+ *
+ * Saves are buffered per id, so repeated saves of the same entity between two flushes only write the latest state once.
+ * The buffer is flushed through {@link Repository#saveAll(Iterable)} of the underlying repository once it reaches the batch size,
+ * every flush interval, on {@link #flush()}, and on shutdown.
+ *
+ * Lookups by id read through the buffer. Queries the buffer can't answer (findAll, findByQuery, count, deleteByQuery)
+ * flush it first, so they never observe an older state than what was saved.
+ *
+ * The underlying repository is expected to be initialized on its own.
+ *
+ * @param <T> the entity type
+ * @param <ID> the id type
+ */
+public class WriteBehindRepository<T, ID extends Serializable> implements Repository<T, ID> {
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000L;
+
+    @Getter
+    private final Repository<T, ID> repository;
+    private final Function<? super T, ID> idFunction;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    /**
+     * Saves that haven't been handed to the underlying repository yet
+     */
+    private final Map<ID, T> pending = new ConcurrentHashMap<>();
+    /**
+     * Saves that are being written by the current flush, kept readable until the write went through
+     */
+    private final Map<ID, T> flushing = new ConcurrentHashMap<>();
+
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private ScheduledExecutorService executor;
+
+    public WriteBehindRepository(Repository<T, ID> repository, Function<? super T, ID> idFunction) {
+        this(repository, idFunction, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public WriteBehindRepository(Repository<T, ID> repository, Function<? super T, ID> idFunction, int batchSize, long flushIntervalMillis) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive!");
+        }
+        this.repository = repository;
+        this.idFunction = idFunction;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * Starts the time based flushing, does nothing if the flush interval isn't positive or it has been started already.
+     */
+    @Override
+    @PostInitialize
+    public synchronized void init() {
+        if (this.executor != null || this.flushIntervalMillis <= 0) {
+            return;
+        }
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("imanity-write-behind-" + this.type().getSimpleName())
+                .setDaemon(true)
+                .build());
+        this.executor.scheduleWithFixedDelay(this::flushQuietly, this.flushIntervalMillis, this.flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the time based flushing and writes everything still pending.
+     */
+    @PreDestroy
+    public void close() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = this.executor;
+            this.executor = null;
+        }
+
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(this.flushIntervalMillis + 5000L, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        this.flush();
+    }
+
+    /**
+     * Writes every pending save to the underlying repository, in batches of the batch size.
+     * If a batch fails, its entries go back to the buffer unless they have been saved again meanwhile, and the exception is rethrown.
+     */
+    public void flush() {
+        synchronized (this.flushLock) {
+            if (this.pending.isEmpty()) {
+                return;
+            }
+
+            List<ID> ids = new ArrayList<>(Math.min(this.pending.size(), this.batchSize));
+            List<T> batch = new ArrayList<>(Math.min(this.pending.size(), this.batchSize));
+            for (Map.Entry<ID, T> entry : this.pending.entrySet()) {
+                ID id = entry.getKey();
+                T pojo = entry.getValue();
+
+                // put it in flushing before removing so findById never misses it
+                this.flushing.put(id, pojo);
+                this.pending.remove(id, pojo);
+
+                ids.add(id);
+                batch.add(pojo);
+                if (batch.size() >= this.batchSize) {
+                    this.write(ids, batch);
+                    ids.clear();
+                    batch.clear();
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                this.write(ids, batch);
+            }
+        }
+    }
+
+    private void write(List<ID> ids, List<T> batch) {
+        try {
+            this.repository.saveAll(batch);
+        } catch (Throwable throwable) {
+            for (int i = 0; i < ids.size(); i++) {
+                this.pending.putIfAbsent(ids.get(i), batch.get(i));
+            }
+            throw throwable;
+        } finally {
+            for (int i = 0; i < ids.size(); i++) {
+                this.flushing.remove(ids.get(i), batch.get(i));
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            this.flush();
+        } catch (Throwable throwable) {
+            Stacktrace.print(throwable);
+        }
+    }
+
+    private void requestFlush() {
+        ScheduledExecutorService executor = this.executor;
+        if (executor == null) {
+            this.flush();
+            return;
+        }
+
+        if (this.flushRequested.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                this.flushRequested.set(false);
+                this.flushQuietly();
+            });
+        }
+    }
+
+    /**
+     * @return the amount of ids with a save that hasn't been written yet
+     */
+    public int pendingCount() {
+        return this.pending.size();
+    }
+
+    @Override
+    public Class<T> type() {
+        return this.repository.type();
+    }
+
+    @Override
+    public <S extends T> S save(S pojo) {
+        this.pending.put(this.idFunction.apply(pojo), pojo);
+        if (this.pending.size() >= this.batchSize) {
+            this.requestFlush();
+        }
+        return pojo;
+    }
+
+    @Override
+    public <S extends T> Iterable<S> saveAll(Iterable<S> pojoIterable) {
+        for (S pojo : pojoIterable) {
+            this.pending.put(this.idFunction.apply(pojo), pojo);
+        }
+        if (this.pending.size() >= this.batchSize) {
+            this.requestFlush();
+        }
+        return pojoIterable;
+    }
+
+    private T buffered(ID id) {
+        T pojo = this.pending.get(id);
+        if (pojo == null) {
+            pojo = this.flushing.get(id);
+        }
+        return pojo;
+    }
+
+    @Override
+    public Optional<T> findById(ID id) {
+        T pojo = this.buffered(id);
+        if (pojo != null) {
+            return Optional.of(pojo);
+        }
+        return this.repository.findById(id);
+    }
+
+    @Override
+    public <Q> Optional<T> findByQuery(String query, Q value) {
+        this.flush();
+        return this.repository.findByQuery(query, value);
+    }
+
+    @Override
+    public boolean existsById(ID id) {
+        return this.buffered(id) != null || this.repository.existsById(id);
+    }
+
+    @Override
+    public Iterable<T> findAll() {
+        this.flush();
+        return this.repository.findAll();
+    }
+
+    @Override
+    public Iterable<T> findAllById(List<ID> ids) {
+        Map<ID, T> found = new HashMap<>(ids.size() * 2);
+        List<ID> missing = new ArrayList<>(ids.size());
+        for (ID id : ids) {
+            T pojo = this.buffered(id);
+            if (pojo != null) {
+                found.put(id, pojo);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (T pojo : this.repository.findAllById(missing)) {
+                found.putIfAbsent(this.idFunction.apply(pojo), pojo);
+            }
+        }
+
+        // in the order they were asked for, like the underlying repository answers
+        List<T> result = new ArrayList<>(found.size());
+        for (ID id : new LinkedHashSet<>(ids)) {
+            T pojo = found.get(id);
+            if (pojo != null) {
+                result.add(pojo);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long count() {
+        this.flush();
+        return this.repository.count();
+    }
+
+    @Override
+    public void deleteById(ID id) {
+        synchronized (this.flushLock) {
+            this.pending.remove(id);
+            this.repository.deleteById(id);
+        }
+    }
+
+    @Override
+    public <Q> void deleteByQuery(String query, Q value) {
+        synchronized (this.flushLock) {
+            this.flush();
+            this.repository.deleteByQuery(query, value);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        synchronized (this.flushLock) {
+            this.pending.clear();
+            this.repository.deleteAll();
+        }
+    }
+}
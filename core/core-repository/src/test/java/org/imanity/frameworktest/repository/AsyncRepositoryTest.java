@@ -0,0 +1,427 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.frameworktest.repository;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.imanity.framework.AsyncRepository;
+import org.imanity.framework.Repository;
+import org.imanity.framework.RepositoryExecutor;
+import org.imanity.framework.RepositoryType;
+import org.imanity.framework.SQLRepository;
+import org.imanity.framework.mysql.connection.AbstractConnectionFactory;
+import org.imanity.framework.mysql.connection.file.H2ConnectionFactory;
+import org.imanity.framework.task.ITaskScheduler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private H2ConnectionFactory factory;
+    private ExecutorService mainThread;
+    private RepositoryExecutor executor;
+
+    @Before
+    public void setup() throws Exception {
+        this.factory = new H2ConnectionFactory(this.folder.getRoot().toPath().resolve("async").toAbsolutePath(), true);
+        this.factory.connect();
+
+        this.mainThread = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("main-thread").build());
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        if (this.executor != null) {
+            this.executor.shutdown();
+            this.executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        this.mainThread.shutdownNow();
+        this.factory.shutdown();
+    }
+
+    @Test
+    public void savesOnH2KeepOrderPerId() throws Exception {
+        SQLRepository<Account, String> repository = new SQLRepository<Account, String>(this.factory) {
+            @Override
+            public Class<Account> type() {
+                return Account.class;
+            }
+        };
+        repository.init();
+        assertEquals(1, repository.poolSize());
+
+        this.executor = new RepositoryExecutor("test-h2", repository.poolSize(), 512, 30_000L);
+        AsyncRepository<Account, String> async = this.async(repository);
+
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            futures.add(async.save(new Account("account-" + (i % 20), i)));
+        }
+        // queued behind the saves of its id, so it sees the last one
+        CompletableFuture<Optional<Account>> found = async.findById("account-7");
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        assertEquals(1987, found.get(30, TimeUnit.SECONDS).get().balance);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(1980 + i, repository.findById("account-" + i).get().balance);
+        }
+        assertEquals(20L, (long) async.count().get(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void boundedConcurrencyAndOrderUnderLoad() throws Exception {
+        MemoryRepository repository = new MemoryRepository(4);
+        this.executor = new RepositoryExecutor("test-memory", repository.poolSize(), 256, 30_000L);
+        AsyncRepository<Account, String> async = this.async(repository);
+
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            futures.add(async.save(new Account("account-" + (i % 100), i)));
+            assertTrue(this.executor.getPendingCount() <= 256);
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        assertTrue("ran " + repository.maxRunning.get() + " at once", repository.maxRunning.get() <= 4);
+        assertEquals(0, repository.outOfOrder.get());
+        assertEquals(10_000, repository.saves.get());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(9900 + i, repository.accounts.get("account-" + i).balance);
+        }
+    }
+
+    @Test
+    public void saveAllKeepsOrderPerId() throws Exception {
+        MemoryRepository repository = new MemoryRepository(4);
+        this.executor = new RepositoryExecutor("test-save-all", repository.poolSize(), 256, 30_000L);
+        AsyncRepository<Account, String> async = this.async(repository);
+
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int round = 0; round < 50; round++) {
+            List<Account> accounts = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                accounts.add(new Account("account-" + i, round * 30 + i));
+            }
+            futures.add(async.saveAll(accounts));
+            futures.add(async.save(new Account("account-0", round * 30 + 29)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        assertEquals(0, repository.outOfOrder.get());
+        assertEquals(49 * 30 + 29, repository.accounts.get("account-0").balance);
+        assertEquals(49 * 30 + 5, repository.accounts.get("account-5").balance);
+    }
+
+    @Test
+    public void callbacksRunOnMainThread() throws Exception {
+        MemoryRepository repository = new MemoryRepository(2);
+        this.executor = new RepositoryExecutor("test-callback", repository.poolSize(), 16);
+        AsyncRepository<Account, String> async = this.async(repository);
+
+        CompletableFuture<String> thread = new CompletableFuture<>();
+        async.save(new Account("account", 10), saved ->
+                async.findById("account", found -> thread.complete(Thread.currentThread().getName() + ":" + found.get().balance)));
+
+        assertEquals("main-thread:10", thread.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failuresCompleteExceptionally() throws Exception {
+        MemoryRepository repository = new MemoryRepository(1);
+        this.executor = new RepositoryExecutor("test-failure", repository.poolSize(), 16);
+        AsyncRepository<Account, String> async = this.async(repository);
+
+        try {
+            async.deleteAll().get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        }
+
+        // the permit is given back right after the future completes
+        for (int i = 0; i < 100 && this.executor.getPendingCount() > 0; i++) {
+            Thread.sleep(10L);
+        }
+        assertEquals(0, this.executor.getPendingCount());
+    }
+
+    @Test
+    public void rejectsWhenFullInsteadOfBlocking() throws Exception {
+        MemoryRepository repository = new MemoryRepository(1);
+        this.executor = new RepositoryExecutor("test-full", repository.poolSize(), 2);
+        AsyncRepository<Account, String> async = this.async(repository);
+
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            this.executor.execute("blocker", () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        CompletableFuture<Account> rejected = async.save(new Account("account", 1));
+        assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(2, this.executor.getPendingCount());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (this.executor.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1L);
+        }
+        assertEquals(1, async.save(new Account("account", 1)).get(10, TimeUnit.SECONDS).balance);
+    }
+
+    @Test
+    public void rejectedAfterShutdownReleasesPermit() throws Exception {
+        this.executor = new RepositoryExecutor("test-shutdown", 1, 16);
+        this.executor.shutdown();
+
+        try {
+            this.executor.execute("key", () -> fail("ran after shutdown"));
+            fail();
+        } catch (RejectedExecutionException ignored) {
+        }
+        try {
+            this.executor.execute(() -> fail("ran after shutdown"));
+            fail();
+        } catch (RejectedExecutionException ignored) {
+        }
+        assertEquals(0, this.executor.getPendingCount());
+    }
+
+    @Test
+    public void idFunctionReadsIdField() {
+        assertEquals("account", AsyncRepository.<Account, String>idFunction(Account.class).apply(new Account("account", 0)));
+    }
+
+    @Test
+    public void sharedExecutorsAreKeyedByTypeAndSize() {
+        try {
+            assertSame(RepositoryExecutor.of(RepositoryType.H2, 4), RepositoryExecutor.of(RepositoryType.H2, 4));
+            assertNotSame(RepositoryExecutor.of(RepositoryType.H2, 1), RepositoryExecutor.of(RepositoryType.H2, 4));
+            assertEquals(1, RepositoryExecutor.of(RepositoryType.H2, 1).getThreads());
+            assertEquals(4, RepositoryExecutor.of(RepositoryType.H2, 4).getThreads());
+        } finally {
+            RepositoryExecutor.shutdownAll();
+        }
+    }
+
+    private AsyncRepository<Account, String> async(Repository<Account, String> repository) {
+        return new AsyncRepository<>(repository, Account::getId, this.executor, new MainThreadScheduler(this.mainThread));
+    }
+
+    /**
+     * Keeps accounts in a map and checks the saves of an id arrive in the order of their balance.
+     */
+    private static class MemoryRepository implements Repository<Account, String> {
+
+        private final int poolSize;
+        private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+        private final AtomicInteger outOfOrder = new AtomicInteger();
+        private final AtomicInteger saves = new AtomicInteger();
+
+        private MemoryRepository(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public Class<Account> type() {
+            return Account.class;
+        }
+
+        @Override
+        public <S extends Account> S save(S pojo) {
+            int running = this.running.incrementAndGet();
+            this.maxRunning.accumulateAndGet(running, Math::max);
+            try {
+                Account previous = this.accounts.put(pojo.id, pojo);
+                if (previous != null && previous.balance > pojo.balance) {
+                    this.outOfOrder.incrementAndGet();
+                }
+                this.saves.incrementAndGet();
+                Thread.yield();
+                return pojo;
+            } finally {
+                this.running.decrementAndGet();
+            }
+        }
+
+        @Override
+        public Optional<Account> findById(String id) {
+            return Optional.ofNullable(this.accounts.get(id));
+        }
+
+        @Override
+        public <Q> Optional<Account> findByQuery(String query, Q value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean existsById(String id) {
+            return this.accounts.containsKey(id);
+        }
+
+        @Override
+        public Iterable<Account> findAll() {
+            return new ArrayList<>(this.accounts.values());
+        }
+
+        @Override
+        public Iterable<Account> findAllById(List<String> ids) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long count() {
+            return this.accounts.size();
+        }
+
+        @Override
+        public void deleteById(String id) {
+            this.accounts.remove(id);
+        }
+
+        @Override
+        public <Q> void deleteByQuery(String query, Q value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteAll() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int poolSize() {
+            return this.poolSize;
+        }
+    }
+
+    private static class MainThreadScheduler implements ITaskScheduler {
+
+        private final ExecutorService mainThread;
+
+        private MainThreadScheduler(ExecutorService mainThread) {
+            this.mainThread = mainThread;
+        }
+
+        @Override
+        public int runSync(Runnable runnable) {
+            this.mainThread.execute(runnable);
+            return 0;
+        }
+
+        @Override
+        public int runAsync(Runnable runnable) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int runAsyncScheduled(Runnable runnable, long time) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int runAsyncRepeated(Runnable runnable, long time) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int runAsyncRepeated(Runnable runnable, long delay, long time) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int runScheduled(Runnable runnable, long time) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int runRepeated(Runnable runnable, long time) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int runRepeated(Runnable runnable, long delay, long time) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void cancel(int taskId) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Table(name = "async_accounts")
+    public static class Account {
+
+        @Id
+        public String id;
+        public int balance;
+
+        public Account() {
+        }
+
+        public Account(String id, int balance) {
+            this.id = id;
+            this.balance = balance;
+        }
+
+        public String getId() {
+            return this.id;
+        }
+    }
+
+}
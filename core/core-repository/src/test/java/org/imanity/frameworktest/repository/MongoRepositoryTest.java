@@ -0,0 +1,253 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.frameworktest.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoNamespace;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.imanity.framework.MongoRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mongojack.Id;
+import org.mongojack.JacksonMongoCollection;
+import org.mongojack.internal.MongoJackModule;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link MongoRepository} against a {@link MongoCollection} stand-in that records the requests
+ * the repository would send to the server.
+ */
+public class MongoRepositoryTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = MongoJackModule.configure(new ObjectMapper());
+
+    private RecordingCollection recording;
+    private PlayerRepository repository;
+
+    @Before
+    public void setup() {
+        this.recording = new RecordingCollection();
+        this.repository = new PlayerRepository(this.recording.proxy());
+    }
+
+    @Test
+    public void saveAllBatchesIntoBulkWrites() {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            players.add(new Player("player-" + i, "name-" + i, i));
+        }
+
+        this.repository.saveAll(players);
+
+        assertEquals(10, this.recording.bulkWrites.size());
+        assertEquals(10000, this.recording.models.size());
+        for (BulkWriteOptions options : this.recording.bulkWrites) {
+            assertFalse(options.isOrdered());
+        }
+
+        ReplaceOneModel<?> model = (ReplaceOneModel<?>) this.recording.models.get(42);
+        assertTrue(model.getReplaceOptions().isUpsert());
+        assertEquals(new BsonDocument("_id", new BsonString("player-42")), model.getFilter());
+        assertSame(players.get(42), model.getReplacement());
+    }
+
+    @Test
+    public void saveAllSendsRemainderAndInsertsWithoutId() {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            players.add(new Player(i % 2 == 0 ? "player-" + i : null, "name-" + i, i));
+        }
+
+        this.repository.saveAll(players);
+
+        assertEquals(2, this.recording.bulkWrites.size());
+        assertEquals(1500, this.recording.models.size());
+        assertEquals(750, this.recording.models.stream().filter(model -> model instanceof ReplaceOneModel).count());
+        assertEquals(750, this.recording.models.stream().filter(model -> model instanceof InsertOneModel).count());
+    }
+
+    @Test
+    public void saveAllSendsLastPojoPerIdInEachBulkWrite() {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            players.add(new Player("player-" + (i % 3), "name-" + i, i));
+        }
+
+        this.repository.saveAll(players);
+
+        assertEquals(1, this.recording.bulkWrites.size());
+        assertEquals(3, this.recording.models.size());
+        for (int i = 0; i < 3; i++) {
+            ReplaceOneModel<?> model = (ReplaceOneModel<?>) this.recording.models.get(i);
+            assertEquals(new BsonDocument("_id", new BsonString("player-" + i)), model.getFilter());
+            assertSame(players.get(27 + i), model.getReplacement());
+        }
+    }
+
+    @Test
+    public void saveAllWithNothingSendsNothing() {
+        this.repository.saveAll(new ArrayList<>());
+
+        assertTrue(this.recording.bulkWrites.isEmpty());
+    }
+
+    @Test
+    public void findAllSetsBatchSize() {
+        this.repository.findAll();
+
+        assertEquals(Integer.valueOf(MongoRepository.DEFAULT_FIND_BATCH_SIZE), this.recording.batchSize);
+    }
+
+    @Test
+    public void projectionIncludesOnlyDtoFields() {
+        BsonDocument projection = this.repository.projectionOf(PlayerName.class)
+                .toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+
+        assertEquals(2, projection.size());
+        assertEquals(1, projection.getInt32("name").getValue());
+        assertEquals(0, projection.getInt32("_id").getValue());
+    }
+
+    public static class Player {
+
+        @Id
+        public String id;
+        public String name;
+        public int level;
+
+        public Player() {
+        }
+
+        public Player(String id, String name, int level) {
+            this.id = id;
+            this.name = name;
+            this.level = level;
+        }
+    }
+
+    public static class PlayerName {
+
+        public String name;
+
+    }
+
+    private static class PlayerRepository extends MongoRepository<Player, String> {
+
+        PlayerRepository(MongoCollection<Player> collection) {
+            this.collection = JacksonMongoCollection.builder()
+                    .withObjectMapper(OBJECT_MAPPER)
+                    .build(collection, Player.class, org.bson.UuidRepresentation.JAVA_LEGACY);
+        }
+
+        Bson projectionOf(Class<?> type) {
+            return this.projection(type);
+        }
+
+        @Override
+        public ObjectMapper objectMapper() {
+            return OBJECT_MAPPER;
+        }
+
+        @Override
+        public String name() {
+            return "players";
+        }
+
+        @Override
+        public Class<Player> type() {
+            return Player.class;
+        }
+    }
+
+    private static class RecordingCollection {
+
+        private final List<BulkWriteOptions> bulkWrites = new ArrayList<>();
+        private final List<WriteModel<?>> models = new ArrayList<>();
+        private CodecRegistry codecRegistry = MongoClientSettings.getDefaultCodecRegistry();
+        private Integer batchSize;
+
+        @SuppressWarnings("unchecked")
+        MongoCollection<Player> proxy() {
+            return (MongoCollection<Player>) Proxy.newProxyInstance(MongoCollection.class.getClassLoader(), new Class[] { MongoCollection.class }, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "withCodecRegistry":
+                        this.codecRegistry = (CodecRegistry) args[0];
+                        return proxy;
+                    case "withDocumentClass":
+                    case "withReadPreference":
+                    case "withWriteConcern":
+                    case "withReadConcern":
+                        return proxy;
+                    case "getCodecRegistry":
+                        return this.codecRegistry;
+                    case "getNamespace":
+                        return new MongoNamespace("test", "players");
+                    case "bulkWrite":
+                        this.models.addAll((List<? extends WriteModel<?>>) args[0]);
+                        this.bulkWrites.add(args.length > 1 ? (BulkWriteOptions) args[1] : new BulkWriteOptions());
+                        return BulkWriteResult.unacknowledged();
+                    case "find":
+                        return this.findIterable();
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        throw new UnsupportedOperationException(method.getName() + Arrays.toString(args));
+                }
+            });
+        }
+
+        private FindIterable<?> findIterable() {
+            return (FindIterable<?>) Proxy.newProxyInstance(FindIterable.class.getClassLoader(), new Class[] { FindIterable.class }, (proxy, method, args) -> {
+                if (method.getName().equals("batchSize")) {
+                    this.batchSize = (Integer) args[0];
+                    return proxy;
+                }
+                if (method.getReturnType().isInstance(proxy)) {
+                    return proxy;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.frameworktest.repository;
+
+import org.imanity.framework.SQLRepository;
+import org.imanity.framework.mysql.connection.AbstractConnectionFactory;
+import org.imanity.framework.mysql.connection.file.H2ConnectionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class SQLRepositoryStreamTest {
+
+    private static final int ROWS = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private H2ConnectionFactory factory;
+    private SQLRepository<Account, Integer> repository;
+
+    @Before
+    public void setup() throws Exception {
+        this.factory = new H2ConnectionFactory(this.folder.getRoot().toPath().resolve("stream").toAbsolutePath(), true);
+        this.factory.connect();
+
+        this.repository = new AccountRepository(this.factory);
+        this.repository.init();
+
+        List<Account> accounts = new ArrayList<>(ROWS);
+        for (int i = 1; i <= ROWS; i++) {
+            accounts.add(new Account(i, i * 2));
+        }
+        this.repository.saveAll(accounts);
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        this.factory.shutdown();
+    }
+
+    @Test
+    public void findAllStreamReadsEveryRow() {
+        long sum;
+        try (Stream<Account> stream = this.repository.findAllStream(64)) {
+            sum = stream.mapToLong(account -> account.balance).sum();
+        }
+        assertEquals((long) ROWS * (ROWS + 1), sum);
+
+        // the transaction of the stream is done, the repository keeps working
+        this.repository.save(new Account(ROWS + 1, 0));
+        assertEquals(ROWS + 1, this.repository.count());
+    }
+
+    @Test
+    public void forEachVisitsEveryRow() {
+        AtomicInteger count = new AtomicInteger();
+        this.repository.forEach(account -> count.incrementAndGet());
+        assertEquals(ROWS, count.get());
+    }
+
+    @Test
+    public void findPageWalksById() {
+        Integer afterId = null;
+        int expected = 1;
+
+        List<Account> page;
+        while (!(page = this.repository.findPage(afterId, 300)).isEmpty()) {
+            assertTrue(page.size() <= 300);
+            for (Account account : page) {
+                assertEquals(expected++, account.id);
+            }
+            afterId = page.get(page.size() - 1).id;
+        }
+
+        assertEquals(ROWS + 1, expected);
+        assertEquals(100, this.repository.findPage(900, 500).size());
+    }
+
+    private static class AccountRepository extends SQLRepository<Account, Integer> {
+
+        private AccountRepository(AbstractConnectionFactory factory) {
+            super(factory);
+        }
+
+        @Override
+        public Class<Account> type() {
+            return Account.class;
+        }
+    }
+
+    @Table(name = "accounts")
+    public static class Account {
+
+        @Id
+        public int id;
+        public long balance;
+
+        public Account() {
+        }
+
+        public Account(int id, long balance) {
+            this.id = id;
+            this.balance = balance;
+        }
+    }
+
+}
@@ -0,0 +1,264 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.imanity.frameworktest.repository;
+
+import org.imanity.framework.SQLRepository;
+import org.imanity.framework.WriteBehindRepository;
+import org.imanity.framework.mysql.ImanitySqlException;
+import org.imanity.framework.mysql.connection.file.H2ConnectionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+    private H2ConnectionFactory factory;
+    private CountingRepository repository;
+
+    @Before
+    public void setup() throws Exception {
+        this.path = this.folder.getRoot().toPath().resolve("write-behind").toAbsolutePath();
+        this.factory = new H2ConnectionFactory(this.path, true);
+        this.factory.connect();
+
+        this.repository = new CountingRepository(this.factory);
+        this.repository.init();
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        this.factory.shutdown();
+    }
+
+    @Test
+    public void coalescesSavesPerId() {
+        WriteBehindRepository<PlayerData, String> writeBehind = new WriteBehindRepository<>(this.repository, PlayerData::getId, 10000, 0);
+
+        for (int i = 0; i < 1000; i++) {
+            writeBehind.save(new PlayerData("player-" + (i % 10), i));
+        }
+
+        assertEquals(10, writeBehind.pendingCount());
+        assertEquals(0, this.repository.writes.get());
+
+        writeBehind.flush();
+
+        assertEquals(0, writeBehind.pendingCount());
+        assertEquals(10, this.repository.writes.get());
+        assertEquals(10, this.repository.count());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(990 + i, this.repository.findById("player-" + i).get().coins);
+        }
+    }
+
+    @Test
+    public void findByIdReadsThroughPending() {
+        WriteBehindRepository<PlayerData, String> writeBehind = new WriteBehindRepository<>(this.repository, PlayerData::getId, 10000, 0);
+        this.repository.save(new PlayerData("player", 1));
+
+        writeBehind.save(new PlayerData("player", 2));
+        writeBehind.save(new PlayerData("other", 3));
+
+        assertEquals(2, writeBehind.findById("player").get().coins);
+        assertTrue(writeBehind.existsById("other"));
+        assertFalse(this.repository.existsById("other"));
+        assertEquals(1, this.repository.findById("player").get().coins);
+
+        // queries the buffer can't answer see the pending saves
+        assertEquals(2, writeBehind.count());
+        assertEquals(2, this.repository.findById("player").get().coins);
+    }
+
+    @Test
+    public void findAllByIdKeepsTheRequestedOrder() {
+        WriteBehindRepository<PlayerData, String> writeBehind = new WriteBehindRepository<>(this.repository, PlayerData::getId, 10000, 0);
+        this.repository.save(new PlayerData("a", 1));
+        this.repository.save(new PlayerData("c", 3));
+        writeBehind.save(new PlayerData("b", 2));
+        writeBehind.save(new PlayerData("d", 4));
+
+        List<String> found = new ArrayList<>();
+        writeBehind.findAllById(Arrays.asList("d", "a", "missing", "b", "c")).forEach(data -> found.add(data.getId()));
+
+        assertEquals(Arrays.asList("d", "a", "b", "c"), found);
+    }
+
+    @Test
+    public void flushesOnBatchSize() {
+        WriteBehindRepository<PlayerData, String> writeBehind = new WriteBehindRepository<>(this.repository, PlayerData::getId, 5, 0);
+
+        for (int i = 0; i < 4; i++) {
+            writeBehind.save(new PlayerData("player-" + i, i));
+        }
+        assertEquals(0, this.repository.writes.get());
+
+        writeBehind.save(new PlayerData("player-4", 4));
+        assertEquals(5, this.repository.writes.get());
+        assertEquals(0, writeBehind.pendingCount());
+    }
+
+    @Test
+    public void flushedSavesSurviveCrash() throws Exception {
+        WriteBehindRepository<PlayerData, String> writeBehind = new WriteBehindRepository<>(this.repository, PlayerData::getId);
+        writeBehind.init();
+
+        for (int i = 0; i < 10; i++) {
+            writeBehind.save(new PlayerData("player-" + i, i));
+        }
+        writeBehind.flush();
+
+        // the write-behind layer is never closed, only the database goes away
+        this.factory.shutdown();
+        this.factory = new H2ConnectionFactory(this.path, true);
+        this.factory.connect();
+
+        CountingRepository reopened = new CountingRepository(this.factory);
+        reopened.init();
+        assertEquals(10, reopened.count());
+        assertEquals(9, reopened.findById("player-9").get().coins);
+    }
+
+    @Test
+    public void failedFlushKeepsPending() {
+        WriteBehindRepository<PlayerData, String> writeBehind = new WriteBehindRepository<>(this.repository, PlayerData::getId, 10000, 0);
+        for (int i = 0; i < 10; i++) {
+            writeBehind.save(new PlayerData("player-" + i, i));
+        }
+
+        this.repository.fail.set(true);
+        try {
+            writeBehind.flush();
+            fail();
+        } catch (IllegalStateException ignored) {
+        }
+
+        assertEquals(10, writeBehind.pendingCount());
+        assertEquals(3, writeBehind.findById("player-3").get().coins);
+
+        this.repository.fail.set(false);
+        writeBehind.flush();
+
+        assertEquals(0, writeBehind.pendingCount());
+        assertEquals(10, this.repository.count());
+    }
+
+    @Test
+    public void failedSqlFlushKeepsPending() {
+        WriteBehindRepository<PlayerData, String> writeBehind = new WriteBehindRepository<>(this.repository, PlayerData::getId, 10000, 0);
+        for (int i = 0; i < 10; i++) {
+            writeBehind.save(new PlayerData("player-" + i, i));
+        }
+
+        // a real failure of the database this time, not an overridden saveAll
+        this.factory.query().sql("drop table player_data").execute();
+        try {
+            writeBehind.flush();
+            fail();
+        } catch (ImanitySqlException ignored) {
+        }
+
+        assertEquals(10, writeBehind.pendingCount());
+        assertEquals(3, writeBehind.findById("player-3").get().coins);
+
+        this.repository.init();
+        writeBehind.flush();
+
+        assertEquals(0, writeBehind.pendingCount());
+        assertEquals(10, this.repository.count());
+    }
+
+    @Test
+    public void closeFlushes() {
+        WriteBehindRepository<PlayerData, String> writeBehind = new WriteBehindRepository<>(this.repository, PlayerData::getId, 10000, 60000L);
+        writeBehind.init();
+
+        writeBehind.save(new PlayerData("player", 1));
+        writeBehind.close();
+
+        assertEquals(1, this.repository.writes.get());
+        assertEquals(1, this.repository.findById("player").get().coins);
+    }
+
+    private static class CountingRepository extends SQLRepository<PlayerData, String> {
+
+        private final AtomicInteger writes = new AtomicInteger();
+        private final AtomicBoolean fail = new AtomicBoolean();
+
+        private CountingRepository(H2ConnectionFactory factory) {
+            super(factory);
+        }
+
+        @Override
+        public Class<PlayerData> type() {
+            return PlayerData.class;
+        }
+
+        @Override
+        public <S extends PlayerData> Iterable<S> saveAll(Iterable<S> pojoIterable) {
+            if (this.fail.get()) {
+                throw new IllegalStateException("Database is down");
+            }
+            pojoIterable.forEach(pojo -> this.writes.incrementAndGet());
+            return super.saveAll(pojoIterable);
+        }
+    }
+
+    @Table(name = "player_data")
+    public static class PlayerData {
+
+        @Id
+        public String id;
+        public int coins;
+
+        public PlayerData() {
+        }
+
+        public PlayerData(String id, int coins) {
+            this.id = id;
+            this.coins = coins;
+        }
+
+        public String getId() {
+            return this.id;
+        }
+    }
+
+}
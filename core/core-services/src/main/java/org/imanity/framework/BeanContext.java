@@ -27,17 +27,19 @@ package org.imanity.framework;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.imanity.framework.details.*;
 import org.imanity.framework.details.constructor.BeanParameterDetailsMethod;
 import org.imanity.framework.exception.ServiceAlreadyExistsException;
+import org.imanity.framework.lookup.BeanLookup;
 import org.imanity.framework.plugin.AbstractPlugin;
 import org.imanity.framework.plugin.PluginListenerAdapter;
 import org.imanity.framework.plugin.PluginManager;
 import org.imanity.framework.reflect.Reflect;
-import org.imanity.framework.reflect.ReflectLookup;
 import org.imanity.framework.util.AccessUtil;
 import org.imanity.framework.util.NonNullArrayList;
 import org.imanity.framework.util.SimpleTiming;
@@ -46,6 +48,9 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
@@ -55,6 +60,15 @@ public class BeanContext {
     public static BeanContext INSTANCE;
     public static final int PLUGIN_LISTENER_PRIORITY = 100;
 
+    /**
+     * The system property that makes new bean contexts call lifecycle methods in parallel by default
+     */
+    public static final String PARALLEL_INITIALIZATION_PROPERTY = "imanity.parallelInitialization";
+    /**
+     * The maximum amount of threads used to initialize beans, only read when BeanContext is being constructed
+     */
+    public static int INITIALIZATION_PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors());
+
     /**
      * Logging
      */
@@ -75,11 +89,28 @@ public class BeanContext {
     private final Map<String, BeanDetails> beanByName = new ConcurrentHashMap<>();
 
     /**
-     * NOT THREAD SAFE
+     * Guarded by lock
      */
     private final List<BeanDetails> sortedBeans = new ArrayList<>();
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
+    /**
+     * Whether beans in the same dependency level should have their @PreInitialize and @PostInitialize called concurrently,
+     * off by default since lifecycle methods are allowed to assume they run on a single thread
+     */
+    @Getter
+    @Setter
+    private boolean parallelInitialization = Boolean.getBoolean(PARALLEL_INITIALIZATION_PROPERTY);
+
+    /**
+     * Bounded pool for initializing beans in the same dependency level
+     */
+    private final ForkJoinPool initializationPool = new ForkJoinPool(INITIALIZATION_PARALLELISM, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("imanity-bean-init-" + thread.getPoolIndex());
+        return thread;
+    }, null, false);
+
     /**
      * Initializing Method for Bean Context
      */
@@ -165,7 +196,13 @@ public class BeanContext {
      * Shutdown Method for Bean Context
      */
     public void stop() {
-        List<BeanDetails> detailsList = Lists.newArrayList(this.sortedBeans);
+        List<BeanDetails> detailsList;
+        this.lock.readLock().lock();
+        try {
+            detailsList = Lists.newArrayList(this.sortedBeans);
+        } finally {
+            this.lock.readLock().unlock();
+        }
         Collections.reverse(detailsList);
 
         this.call(PreDestroy.class, detailsList);
@@ -178,6 +215,7 @@ public class BeanContext {
         }
 
         this.call(PostDestroy.class, detailsList);
+        this.initializationPool.shutdown();
     }
 
     public BeanDetails registerBean(BeanDetails beanDetails) {
@@ -188,7 +226,12 @@ public class BeanContext {
         this.beanByType.put(beanDetails.getType(), beanDetails);
         this.beanByName.put(beanDetails.getName(), beanDetails);
         if (sort) {
-            this.sortedBeans.add(beanDetails);
+            this.lock.writeLock().lock();
+            try {
+                this.sortedBeans.add(beanDetails);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
         }
 
         return beanDetails;
@@ -208,8 +251,11 @@ public class BeanContext {
         this.beanByName.remove(beanDetails.getName());
 
         this.lock.writeLock().lock();
-        this.sortedBeans.remove(beanDetails);
-        this.lock.writeLock().unlock();
+        try {
+            this.sortedBeans.remove(beanDetails);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
 
         final ImmutableList.Builder<BeanDetails> builder = ImmutableList.builder();
 
@@ -312,18 +358,7 @@ public class BeanContext {
 
     public void injectBeans(Object instance) {
         try {
-            Collection<Field> fields = Reflect.getDeclaredFields(instance.getClass());
-
-            for (Field field : fields) {
-                int modifiers = field.getModifiers();
-                Autowired annotation = field.getAnnotation(Autowired.class);
-
-                if (annotation == null || Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
-                    continue;
-                }
-
-                this.injectAutowired(field, instance);
-            }
+            InjectionPlan.of(instance.getClass()).inject(this, instance);
         } catch (Throwable throwable) {
             LOGGER.error("Error while injecting beans for " + instance.getClass().getSimpleName(), throwable);
         }
@@ -391,10 +426,10 @@ public class BeanContext {
     public void scanClasses(String scanName, ClassLoader classLoader, Collection<String> classPaths, BeanDetails... included) throws Exception {
         log("Start scanning beans for %s with packages [%s]...", scanName, String.join(" ", classPaths));
 
-        // Build the instance for Reflection Lookup
-        ReflectLookup reflectLookup;
-        try (SimpleTiming ignored = logTiming("Reflect Lookup building")) {
-            reflectLookup = new ReflectLookup(Collections.singleton(classLoader), classPaths);
+        // Build the instance for Bean Lookup, uses the build time index if presents, otherwise Reflection Lookup
+        BeanLookup beanLookup;
+        try (SimpleTiming ignored = logTiming("Bean Lookup building")) {
+            beanLookup = BeanLookup.create(classLoader, classPaths);
         }
 
         // Scanning through the JAR to see every Service Bean can be registered
@@ -402,7 +437,7 @@ public class BeanContext {
         try (SimpleTiming ignored = logTiming("Scanning Beans")) {
             beanDetailsList = new NonNullArrayList<>(Arrays.asList(included));
 
-            for (Class<?> type : reflectLookup.findAnnotatedClasses(Service.class)) {
+            for (Class<?> type : beanLookup.findAnnotatedClasses(Service.class)) {
 
                 Service service = type.getAnnotation(Service.class);
                 Preconditions.checkNotNull(service, "The type " + type.getName() + " doesn't have @Service annotation!");
@@ -426,7 +461,7 @@ public class BeanContext {
 
         // Scanning methods that registers bean
         try (SimpleTiming ignored = logTiming("Scanning Bean Method")) {
-            for (Method method : reflectLookup.findAnnotatedStaticMethods(Bean.class)) {
+            for (Method method : beanLookup.findAnnotatedStaticMethods(Bean.class)) {
                 if (method.getReturnType() == void.class) {
                     new IllegalArgumentException("The Method " + method.toString() + " has annotated @Bean but no return type!").printStackTrace();
                 }
@@ -467,15 +502,26 @@ public class BeanContext {
         }
 
         // Load Beans in Dependency Tree Order
+        List<List<BeanDetails>> levels = Collections.singletonList(beanDetailsList);
         try (SimpleTiming ignored = logTiming("Initializing Beans")) {
-            beanDetailsList = this.loadInOrder(beanDetailsList);
+            levels = this.loadInOrder(beanDetailsList);
+
+            beanDetailsList = new NonNullArrayList<>();
+            for (List<BeanDetails> level : levels) {
+                beanDetailsList.addAll(level);
+            }
         } catch (Throwable throwable) {
             LOGGER.error("An error occurs while handling loadInOrder()", throwable);
         }
 
         // Unregistering Beans that returns false in shouldInitialize
         try (SimpleTiming ignored = logTiming("Unregistering Disabled Beans")) {
-            this.sortedBeans.addAll(beanDetailsList);
+            this.lock.writeLock().lock();
+            try {
+                this.sortedBeans.addAll(beanDetailsList);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
 
             for (BeanDetails beanDetails : ImmutableList.copyOf(beanDetailsList)) {
                 if (!beanDetailsList.contains(beanDetails)) {
@@ -497,16 +543,24 @@ public class BeanContext {
                     this.unregisterBean(beanDetails);
                 }
             }
+
+            levels = this.retainLevels(levels, beanDetailsList);
         }
 
         // Call @PreInitialize methods for bean
         try (SimpleTiming ignored = logTiming("Call @PreInitialize")) {
-            this.call(PreInitialize.class, beanDetailsList);
+            this.callInLevels(PreInitialize.class, levels);
         }
 
         // Scan Components
         try (SimpleTiming ignored = logTiming("Scanning Components")) {
-            beanDetailsList.addAll(ComponentRegistry.scanComponents(this, reflectLookup));
+            List<ComponentBeanDetails> components = ComponentRegistry.scanComponents(this, beanLookup);
+
+            beanDetailsList.addAll(components);
+            if (!components.isEmpty()) {
+                levels = new ArrayList<>(levels);
+                levels.add(new ArrayList<>(components));
+            }
         }
 
         // Inject @Autowired fields for beans
@@ -521,7 +575,7 @@ public class BeanContext {
 
         // Inject @Autowired static fields
         try (SimpleTiming ignored = logTiming("Injecting Static Autowired Fields")) {
-            for (Field field : reflectLookup.findAnnotatedStaticFields(Autowired.class)) {
+            for (Field field : beanLookup.findAnnotatedStaticFields(Autowired.class)) {
                 if (!Modifier.isStatic(field.getModifiers())) {
                     continue;
                 }
@@ -537,23 +591,82 @@ public class BeanContext {
 
         // Call @PostInitialize
         try (SimpleTiming ignored = logTiming("Call @PostInitialize")) {
-            this.call(PostInitialize.class, beanDetailsList);
+            this.callInLevels(PostInitialize.class, levels);
         }
 
     }
 
     public void call(Class<? extends Annotation> annotation, Collection<BeanDetails> beanDetailsList) {
         for (BeanDetails beanDetails : beanDetailsList) {
-            try {
-                beanDetails.call(annotation);
-            } catch (Throwable throwable) {
-                LOGGER.error(throwable);
+            this.call(annotation, beanDetails);
+        }
+    }
+
+    private void call(Class<? extends Annotation> annotation, BeanDetails beanDetails) {
+        try {
+            beanDetails.call(annotation);
+        } catch (Throwable throwable) {
+            LOGGER.error(throwable);
+        }
+    }
+
+    /**
+     * Call the annotated methods level by level, beans in the same level doesn't depend on each other
+     * so they will be called concurrently when parallel initialization is enabled
+     */
+    void callInLevels(Class<? extends Annotation> annotation, List<List<BeanDetails>> levels) throws Exception {
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+        for (int i = 0; i < levels.size(); i++) {
+            final List<BeanDetails> level = levels.get(i);
+
+            try (SimpleTiming ignored = logTiming("Call @" + annotation.getSimpleName() + " for level " + i + " with " + level.size() + " beans")) {
+                if (!this.parallelInitialization || level.size() < 2) {
+                    this.call(annotation, level);
+                    continue;
+                }
+
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(level.size());
+                for (BeanDetails beanDetails : level) {
+                    tasks.add(this.initializationPool.submit(() -> {
+                        Thread.currentThread().setContextClassLoader(classLoader);
+                        this.call(annotation, beanDetails);
+                    }));
+                }
+
+                for (ForkJoinTask<?> task : tasks) {
+                    task.join();
+                }
+            }
+        }
+    }
+
+    private List<List<BeanDetails>> retainLevels(List<List<BeanDetails>> levels, Collection<BeanDetails> retained) {
+        Set<BeanDetails> retainedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        retainedSet.addAll(retained);
+
+        List<List<BeanDetails>> result = new ArrayList<>(levels.size());
+        for (List<BeanDetails> level : levels) {
+            List<BeanDetails> retainedLevel = new ArrayList<>(level.size());
+            for (BeanDetails beanDetails : level) {
+                if (retainedSet.contains(beanDetails)) {
+                    retainedLevel.add(beanDetails);
+                }
+            }
+
+            if (!retainedLevel.isEmpty()) {
+                result.add(retainedLevel);
             }
         }
+        return result;
     }
 
-    private List<BeanDetails> loadInOrder(List<BeanDetails> beanDetailsList) {
-        Map<String, BeanDetails> unloaded = new HashMap<>();
+    /**
+     * Sort the beans into dependency levels with Kahn's algorithm,
+     * every bean only depends on beans in previous levels
+     */
+    List<List<BeanDetails>> loadInOrder(List<BeanDetails> beanDetailsList) {
+        Map<String, BeanDetails> unloaded = new LinkedHashMap<>();
         for (BeanDetails beanDetails : beanDetailsList) {
             unloaded.put(beanDetails.getName(), beanDetails);
 
@@ -562,11 +675,14 @@ public class BeanContext {
             }
         }
 
-        // Remove Services without valid dependency
-        Iterator<Map.Entry<String, BeanDetails>> removeIterator = unloaded.entrySet().iterator();
-        while (removeIterator.hasNext()) {
-            Map.Entry<String, BeanDetails> entry = removeIterator.next();
-            BeanDetails beanDetails = entry.getValue();
+        // Build dependency graph between beans in this batch, dependency -> (dependant -> type)
+        Map<String, Map<String, ServiceDependencyType>> dependants = new HashMap<>();
+        Map<String, Integer> inDegrees = new HashMap<>();
+        Deque<String> invalid = new ArrayDeque<>();
+
+        for (BeanDetails beanDetails : unloaded.values()) {
+            final String name = beanDetails.getName();
+            inDegrees.put(name, 0);
 
             if (!beanDetails.hasDependencies()) {
                 continue;
@@ -575,78 +691,176 @@ public class BeanContext {
             for (Map.Entry<ServiceDependencyType, List<String>> allDependency : beanDetails.getDependencyEntries()) {
                 final ServiceDependencyType type = allDependency.getKey();
 
-                search: for (String dependency : allDependency.getValue()) {
+                for (String dependency : allDependency.getValue()) {
+                    if (unloaded.containsKey(dependency)) {
+                        Map<String, ServiceDependencyType> map = dependants.computeIfAbsent(dependency, ignored -> new LinkedHashMap<>());
+                        // Any non SUB dependency makes it required
+                        if (map.get(name) != ServiceDependencyType.FORCE && map.get(name) != ServiceDependencyType.SUB_DISABLE) {
+                            map.put(name, type);
+                        }
+                        unloaded.get(dependency).addChildren(name);
+                        continue;
+                    }
+
                     BeanDetails dependencyDetails = this.getBeanByName(dependency);
+                    if (dependencyDetails != null) {
+                        dependencyDetails.addChildren(name);
+                    }
 
-                    if (dependencyDetails == null) {
+                    if (dependencyDetails == null || dependencyDetails.getInstance() == null) {
                         switch (type) {
                             case FORCE:
-                                LOGGER.error("Couldn't find the dependency " + dependency + " for " + beanDetails.getName() + "!");
-                                removeIterator.remove();
-                                break search;
+                                LOGGER.error("Couldn't find the dependency " + dependency + " for " + name + "!");
+                                invalid.add(name);
+                                break;
                             case SUB_DISABLE:
-                                System.out.println(beanDetails.getName());
-                                removeIterator.remove();
-                                break search;
+                                log("Disabling " + name + " due to missing dependency " + dependency);
+                                invalid.add(name);
+                                break;
                             case SUB:
                                 break;
                         }
-                    // Prevent dependency each other
-                    } else {
-                        if (dependencyDetails.hasDependencies()
-                                && dependencyDetails.getAllDependencies().contains(beanDetails.getName())) {
-                            LOGGER.error("Target " + beanDetails.getName() + " and " + dependency + " depend to each other!");
-                            removeIterator.remove();
-
-                            unloaded.remove(dependency);
-                            break;
-                        }
-
-                        dependencyDetails.addChildren(beanDetails.getName());
                     }
                 }
             }
         }
 
-        // Continually loop until all dependency found and loaded
-        List<BeanDetails> sorted = new NonNullArrayList<>();
+        for (Map<String, ServiceDependencyType> map : dependants.values()) {
+            for (String dependant : map.keySet()) {
+                inDegrees.merge(dependant, 1, Integer::sum);
+            }
+        }
 
-        while (!unloaded.isEmpty()) {
-            Iterator<Map.Entry<String, BeanDetails>> iterator = unloaded.entrySet().iterator();
+        Map<String, Integer> order = new HashMap<>();
+        int index = 0;
+        for (String name : unloaded.keySet()) {
+            order.put(name, index++);
+        }
 
-            while (iterator.hasNext()) {
-                Map.Entry<String, BeanDetails> entry = iterator.next();
-                BeanDetails beanDetails = entry.getValue();
-                boolean missingDependencies = false;
+        // Remove Services without valid dependency, and the services that requires them
+        while (!invalid.isEmpty()) {
+            this.discardFromGraph(invalid.poll(), unloaded, dependants, inDegrees, invalid, new ArrayList<>());
+        }
 
-                for (Map.Entry<ServiceDependencyType, List<String>> dependencyEntry : beanDetails.getDependencyEntries()) {
-                    final ServiceDependencyType type = dependencyEntry.getKey();
-                    for (String dependency : dependencyEntry.getValue()) {
-                        BeanDetails dependencyDetails = this.getBeanByName(dependency);
-                        if (dependencyDetails != null && dependencyDetails.getInstance() != null) {
-                            continue;
-                        }
+        // Kahn's algorithm, each iteration produces one level
+        List<List<BeanDetails>> levels = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        for (String name : unloaded.keySet()) {
+            if (inDegrees.get(name) == 0) {
+                current.add(name);
+            }
+        }
 
-                        if (type == ServiceDependencyType.SUB && !unloaded.containsKey(dependency)) {
-                            continue;
-                        }
+        while (!current.isEmpty()) {
+            List<BeanDetails> level = new ArrayList<>(current.size());
+            List<String> next = new ArrayList<>();
 
-                        missingDependencies = true;
-                    }
+            for (String name : current) {
+                BeanDetails beanDetails = unloaded.get(name);
+                if (beanDetails == null) {
+                    continue;
                 }
 
-                if (!missingDependencies) {
-                    if (beanDetails instanceof ServiceBeanDetails) {
+                if (beanDetails instanceof ServiceBeanDetails) {
+                    try {
                         ((ServiceBeanDetails) beanDetails).build(this);
+                    } catch (Throwable throwable) {
+                        LOGGER.error("An error occurs while constructing " + name + "!", throwable);
+
+                        invalid.add(name);
+                        while (!invalid.isEmpty()) {
+                            this.discardFromGraph(invalid.poll(), unloaded, dependants, inDegrees, invalid, next);
+                        }
+                        continue;
+                    }
+                }
+
+                unloaded.remove(name);
+                level.add(beanDetails);
+
+                for (String dependant : dependants.getOrDefault(name, Collections.emptyMap()).keySet()) {
+                    if (unloaded.containsKey(dependant) && inDegrees.merge(dependant, -1, Integer::sum) == 0) {
+                        next.add(dependant);
                     }
+                }
+            }
+
+            if (!level.isEmpty()) {
+                levels.add(level);
+            }
+
+            next.sort(Comparator.comparingInt(order::get));
+            current = next;
+        }
+
+        // Anything left is either in a cycle or depends on one
+        if (!unloaded.isEmpty()) {
+            List<String> cycle = this.findCycle(unloaded);
+            LOGGER.error("Circular dependency detected: " + String.join(" -> ", cycle));
 
-                    sorted.add(beanDetails);
-                    iterator.remove();
+            for (String name : unloaded.keySet()) {
+                LOGGER.error("Couldn't load " + name + " due to circular dependency!");
+            }
+            unloaded.clear();
+        }
+
+        return levels;
+    }
+
+    private void discardFromGraph(String name, Map<String, BeanDetails> unloaded, Map<String, Map<String, ServiceDependencyType>> dependants, Map<String, Integer> inDegrees, Deque<String> invalid, List<String> released) {
+        if (unloaded.remove(name) == null) {
+            return;
+        }
+
+        for (Map.Entry<String, ServiceDependencyType> entry : dependants.getOrDefault(name, Collections.emptyMap()).entrySet()) {
+            final String dependant = entry.getKey();
+            if (!unloaded.containsKey(dependant)) {
+                continue;
+            }
+
+            if (entry.getValue() == ServiceDependencyType.SUB) {
+                if (inDegrees.merge(dependant, -1, Integer::sum) == 0) {
+                    released.add(dependant);
+                }
+            } else {
+                LOGGER.error("Couldn't load " + dependant + " due to it dependency " + name + " being unloaded!");
+                invalid.add(dependant);
+            }
+        }
+    }
+
+    private List<String> findCycle(Map<String, BeanDetails> remaining) {
+        Map<String, List<String>> dependencies = new HashMap<>();
+        for (BeanDetails beanDetails : remaining.values()) {
+            List<String> list = new ArrayList<>();
+            for (String dependency : beanDetails.getAllDependencies()) {
+                if (remaining.containsKey(dependency)) {
+                    list.add(dependency);
                 }
             }
+            Collections.sort(list);
+            dependencies.put(beanDetails.getName(), list);
+        }
+
+        // Every remaining bean has a remaining dependency, so walking any path must eventually revisit a bean
+        List<String> path = new ArrayList<>();
+        Map<String, Integer> visited = new HashMap<>();
+        String current = remaining.keySet().iterator().next();
+
+        while (!visited.containsKey(current)) {
+            visited.put(current, path.size());
+            path.add(current);
+
+            List<String> next = dependencies.get(current);
+            if (next.isEmpty()) {
+                return path;
+            }
+            current = next.get(0);
         }
 
-        return sorted;
+        List<String> cycle = new ArrayList<>(path.subList(visited.get(current), path.size()));
+        cycle.add(current);
+        return cycle;
     }
 
     public List<String> findClassPaths(Class<?> plugin) {
@@ -25,6 +25,8 @@
 package org.imanity.framework;
 
 import org.imanity.framework.details.ComponentBeanDetails;
+import org.imanity.framework.lookup.BeanLookup;
+import org.imanity.framework.lookup.ReflectBeanLookup;
 import org.imanity.framework.reflect.ReflectLookup;
 import org.imanity.framework.util.entry.Entry;
 import org.imanity.framework.util.entry.EntryArrayList;
@@ -71,9 +73,13 @@ public class ComponentRegistry {
     }
 
     public static List<ComponentBeanDetails> scanComponents(BeanContext beanContext, ReflectLookup reflectLookup) {
+        return ComponentRegistry.scanComponents(beanContext, new ReflectBeanLookup(reflectLookup));
+    }
+
+    public static List<ComponentBeanDetails> scanComponents(BeanContext beanContext, BeanLookup beanLookup) {
         List<ComponentBeanDetails> components = new ArrayList<>();
 
-        for (Class<?> type : reflectLookup.findAnnotatedClasses(Component.class)) {
+        for (Class<?> type : beanLookup.findAnnotatedClasses(Component.class)) {
             try {
                 Component component = type.getAnnotation(Component.class);
 
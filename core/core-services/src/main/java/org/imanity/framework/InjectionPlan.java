@@ -0,0 +1,266 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework;
+
+import lombok.Getter;
+import org.imanity.framework.details.BeanDetails;
+import org.imanity.framework.util.Utility;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Everything needed to inject and call lifecycle methods for a class, compiled once per class into MethodHandles
+ */
+@Getter
+public final class InjectionPlan {
+
+    private static final Class<? extends Annotation>[] ANNOTATIONS = new Class[] {
+            PreInitialize.class, PostInitialize.class,
+            PreDestroy.class, PostDestroy.class,
+            ShouldInitialize.class
+    };
+
+    private static final MethodType HOOK_TYPE = MethodType.methodType(Object.class, Object.class, BeanDetails.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<InjectionPlan> PLANS = new ClassValue<InjectionPlan>() {
+        @Override
+        protected InjectionPlan computeValue(Class<?> type) {
+            return new InjectionPlan(type);
+        }
+    };
+
+    public static InjectionPlan of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    private final Class<?> type;
+    private final Map<Class<? extends Annotation>, String> disallowAnnotations;
+    private final Map<Class<? extends Annotation>, List<Method>> annotatedMethods;
+    private final List<AutowiredField> autowiredFields;
+
+    private final Map<Method, MethodHandle> hooks;
+
+    private InjectionPlan(Class<?> type) {
+        this.type = type;
+
+        Map<Class<? extends Annotation>, String> disallowAnnotations = new HashMap<>();
+        Map<Class<? extends Annotation>, Collection<Method>> annotatedMethods = new HashMap<>();
+        InjectionPlan.loadAnnotations(Utility.getSuperAndInterfaces(type), disallowAnnotations, annotatedMethods);
+
+        this.disallowAnnotations = Collections.unmodifiableMap(disallowAnnotations);
+
+        Map<Class<? extends Annotation>, List<Method>> methods = new HashMap<>();
+        this.hooks = new ConcurrentHashMap<>();
+        for (Map.Entry<Class<? extends Annotation>, Collection<Method>> entry : annotatedMethods.entrySet()) {
+            methods.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+
+            for (Method method : entry.getValue()) {
+                this.hooks.put(method, InjectionPlan.compileHook(method));
+            }
+        }
+        this.annotatedMethods = Collections.unmodifiableMap(methods);
+
+        List<AutowiredField> autowiredFields = new ArrayList<>();
+        for (Class<?> superClass = type; superClass != null && superClass != Object.class; superClass = superClass.getSuperclass()) {
+            for (Field field : superClass.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (field.getAnnotation(Autowired.class) == null || Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
+                    continue;
+                }
+
+                AutowiredField autowiredField = AutowiredField.compile(field);
+                if (autowiredField != null) {
+                    autowiredFields.add(autowiredField);
+                }
+            }
+        }
+        this.autowiredFields = Collections.unmodifiableList(autowiredFields);
+    }
+
+    /**
+     * Inject every non-static @Autowired field of the instance
+     */
+    public void inject(BeanContext beanContext, Object instance) {
+        for (AutowiredField autowiredField : this.autowiredFields) {
+            autowiredField.inject(beanContext, instance);
+        }
+    }
+
+    /**
+     * Invoke a lifecycle method through the compiled MethodHandle
+     * Methods that weren't discovered by the plan will be compiled and cached on first call
+     */
+    public Object invoke(Method method, Object instance, BeanDetails beanDetails) throws InvocationTargetException {
+        MethodHandle handle = this.hooks.computeIfAbsent(method, InjectionPlan::compileHook);
+
+        try {
+            return handle.invokeExact(instance, beanDetails);
+        } catch (Throwable throwable) {
+            throw new InvocationTargetException(throwable);
+        }
+    }
+
+    public static void loadAnnotations(Collection<Class<?>> superClasses, Map<Class<? extends Annotation>, String> disallowAnnotations, Map<Class<? extends Annotation>, Collection<Method>> annotatedMethods) {
+        for (Class<?> type : superClasses) {
+            DisallowAnnotation disallowAnnotation = type.getAnnotation(DisallowAnnotation.class);
+            if (disallowAnnotation != null) {
+                for (Class<? extends Annotation> annotation : disallowAnnotation.value()) {
+                    disallowAnnotations.put(annotation, type.getName());
+                }
+            }
+        }
+
+        for (Class<?> type : superClasses) {
+            if (type.isInterface()) {
+                continue;
+            }
+
+            for (Method method : type.getDeclaredMethods()) {
+                InjectionPlan.loadMethod(method, disallowAnnotations, annotatedMethods);
+            }
+        }
+    }
+
+    public static void loadMethod(Method method, Map<Class<? extends Annotation>, String> disallowAnnotations, Map<Class<? extends Annotation>, Collection<Method>> annotatedMethods) {
+        for (Class<? extends Annotation> annotation : ANNOTATIONS) {
+            if (method.getAnnotation(annotation) != null) {
+                if (disallowAnnotations.containsKey(annotation)) {
+                    String className = disallowAnnotations.get(annotation);
+                    throw new IllegalArgumentException("The annotation " + annotation.getSimpleName() + " is disallowed by class " + className + ", But it used in method " + method.toString());
+                }
+
+                int parameterCount = method.getParameterCount();
+                if (parameterCount > 0) {
+                    if (parameterCount != 1 || !BeanDetails.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                        throw new IllegalArgumentException("The method " + method.toString() + " used annotation " + annotation.getSimpleName() + " but doesn't have matches parameters! you can only use either no parameter or one parameter with ServerData type on annotated " + annotation.getSimpleName() + "!");
+                    }
+                }
+
+                if (annotation == ShouldInitialize.class && method.getReturnType() != boolean.class) {
+                    throw new IllegalArgumentException("The method " + method.toString() + " used annotation " + annotation.getSimpleName() + " but doesn't have matches return type! you can only use boolean as return type on annotated " + annotation.getSimpleName() + "!");
+                }
+                method.setAccessible(true);
+
+                if (annotatedMethods.containsKey(annotation)) {
+                    annotatedMethods.get(annotation).add(method);
+                } else {
+                    List<Method> methods = new LinkedList<>();
+                    methods.add(method);
+
+                    annotatedMethods.put(annotation, methods);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Compile a method into (Object instance, BeanDetails details) -> Object
+     * so every lifecycle method can be called with invokeExact
+     */
+    private static MethodHandle compileHook(Method method) {
+        try {
+            method.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+
+            if (method.getParameterCount() == 0) {
+                handle = MethodHandles.dropArguments(handle, 1, BeanDetails.class);
+            }
+            return handle.asType(HOOK_TYPE);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalArgumentException("Couldn't access method " + method.toString(), ex);
+        }
+    }
+
+    @Getter
+    public static final class AutowiredField {
+
+        private final Field field;
+        private final Class<?> beanType;
+        private final boolean optional;
+        private final MethodHandle setter;
+
+        private AutowiredField(Field field, Class<?> beanType, boolean optional, MethodHandle setter) {
+            this.field = field;
+            this.beanType = beanType;
+            this.optional = optional;
+            this.setter = setter;
+        }
+
+        private static AutowiredField compile(Field field) {
+            Class<?> type = field.getType();
+            boolean optional = false;
+            if (type == Optional.class) {
+                optional = true;
+                final Type genericType = field.getGenericType();
+                if (!(genericType instanceof ParameterizedType)) {
+                    BeanContext.LOGGER.error("The Autowired field " + field.toString() + " is optional but not parameterized!");
+                    return null;
+                }
+
+                ParameterizedType parameterizedType = (ParameterizedType) genericType;
+                if (parameterizedType.getActualTypeArguments().length <= 0) {
+                    BeanContext.LOGGER.error("The Autowired field " + field.toString() + " is optional but has no parameters!");
+                    return null;
+                }
+
+                type = (Class<?>) parameterizedType.getActualTypeArguments()[0];
+            }
+
+            try {
+                field.setAccessible(true);
+                return new AutowiredField(field, type, optional, MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE));
+            } catch (IllegalAccessException ex) {
+                throw new IllegalArgumentException("Couldn't access field " + field.toString(), ex);
+            }
+        }
+
+        public void inject(BeanContext beanContext, Object instance) {
+            Object objectToInject = beanContext.getBean(this.beanType);
+            if (this.optional) {
+                objectToInject = Optional.ofNullable(objectToInject);
+            }
+
+            if (objectToInject == null) {
+                BeanContext.LOGGER.error("The Autowired field " + this.field.toString() + " trying to wired with type " + this.beanType.getSimpleName() + " but couldn't find any matching Service! (or not being registered)");
+                return;
+            }
+
+            try {
+                this.setter.invokeExact(instance, objectToInject);
+            } catch (Throwable throwable) {
+                BeanContext.LOGGER.error("Error while injecting " + this.field.toString(), throwable);
+            }
+        }
+    }
+
+}
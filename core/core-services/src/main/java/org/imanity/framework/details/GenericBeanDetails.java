@@ -36,19 +36,12 @@ import java.util.concurrent.ConcurrentHashMap;
 import lombok.SneakyThrows;
 import org.imanity.framework.*;
 import org.imanity.framework.plugin.AbstractPlugin;
-import org.imanity.framework.util.Utility;
 import org.jetbrains.annotations.Nullable;
 
 @Getter
 @Setter
 public class GenericBeanDetails implements BeanDetails {
 
-    private static final Class<? extends Annotation>[] ANNOTATIONS = new Class[] {
-            PreInitialize.class, PostInitialize.class,
-            PreDestroy.class, PostDestroy.class,
-            ShouldInitialize.class
-    };
-
     private String name;
 
     private ActivationStage stage;
@@ -64,6 +57,8 @@ public class GenericBeanDetails implements BeanDetails {
     private Set<String> children;
     private Map<String, String> tags;
 
+    private InjectionPlan injectionPlan;
+
     public GenericBeanDetails(Object instance) {
         this(instance.getClass(), instance, "dummy");
     }
@@ -88,64 +83,28 @@ public class GenericBeanDetails implements BeanDetails {
 
     @SneakyThrows
     public void loadAnnotations() {
-        this.annotatedMethods = new HashMap<>();
-        this.disallowAnnotations = new HashMap<>();
+        this.injectionPlan = InjectionPlan.of(this.type);
 
-        this.loadAnnotations(Utility.getSuperAndInterfaces(this.type));
+        this.annotatedMethods = new HashMap<>();
+        for (Map.Entry<Class<? extends Annotation>, List<Method>> entry : this.injectionPlan.getAnnotatedMethods().entrySet()) {
+            this.annotatedMethods.put(entry.getKey(), new LinkedList<>(entry.getValue()));
+        }
+        this.disallowAnnotations = new HashMap<>(this.injectionPlan.getDisallowAnnotations());
     }
 
     public void loadAnnotations(Collection<Class<?>> superClasses) {
-        for (Class<?> type : superClasses) {
-            DisallowAnnotation disallowAnnotation = type.getAnnotation(DisallowAnnotation.class);
-            if (disallowAnnotation != null) {
-                for (Class<? extends Annotation> annotation : disallowAnnotation.value()) {
-                    this.disallowAnnotations.put(annotation, type.getName());
-                }
-            }
-        }
-
-        for (Class<?> type : superClasses) {
-            if (type.isInterface()) {
-                continue;
-            }
-
-            for (Method method : type.getDeclaredMethods()) {
-                this.loadMethod(method);
-            }
-        }
+        InjectionPlan.loadAnnotations(superClasses, this.disallowAnnotations, this.annotatedMethods);
     }
 
     public void loadMethod(Method method) {
-        for (Class<? extends Annotation> annotation : ANNOTATIONS) {
-            if (method.getAnnotation(annotation) != null) {
-                if (this.disallowAnnotations.containsKey(annotation)) {
-                    String className = this.disallowAnnotations.get(annotation);
-                    throw new IllegalArgumentException("The annotation " + annotation.getSimpleName() + " is disallowed by class " + className + ", But it used in method " + method.toString());
-                }
-
-                int parameterCount = method.getParameterCount();
-                if (parameterCount > 0) {
-                    if (parameterCount != 1 || !BeanDetails.class.isAssignableFrom(method.getParameterTypes()[0])) {
-                        throw new IllegalArgumentException("The method " + method.toString() + " used annotation " + annotation.getSimpleName() + " but doesn't have matches parameters! you can only use either no parameter or one parameter with ServerData type on annotated " + annotation.getSimpleName() + "!");
-                    }
-                }
-
-                if (annotation == ShouldInitialize.class && method.getReturnType() != boolean.class) {
-                    throw new IllegalArgumentException("The method " + method.toString() + " used annotation " + annotation.getSimpleName() + " but doesn't have matches return type! you can only use boolean as return type on annotated " + annotation.getSimpleName() + "!");
-                }
-                method.setAccessible(true);
-
-                if (this.annotatedMethods.containsKey(annotation)) {
-                    this.annotatedMethods.get(annotation).add(method);
-                } else {
-                    List<Method> methods = new LinkedList<>();
-                    methods.add(method);
+        InjectionPlan.loadMethod(method, this.disallowAnnotations, this.annotatedMethods);
+    }
 
-                    this.annotatedMethods.put(annotation, methods);
-                }
-                break;
-            }
+    private InjectionPlan injectionPlan() {
+        if (this.injectionPlan == null) {
+            this.injectionPlan = InjectionPlan.of(this.type);
         }
+        return this.injectionPlan;
     }
 
     @Override
@@ -160,13 +119,7 @@ public class GenericBeanDetails implements BeanDetails {
 
         if (this.annotatedMethods.containsKey(ShouldInitialize.class)) {
             for (Method method : this.annotatedMethods.get(ShouldInitialize.class)) {
-                boolean result;
-
-                if (method.getParameterCount() == 1) {
-                    result = (boolean) method.invoke(instance, this);
-                } else {
-                    result = (boolean) method.invoke(instance);
-                }
+                boolean result = (boolean) this.injectionPlan().invoke(method, instance, this);
 
                 if (!result) {
                     return false;
@@ -186,11 +139,7 @@ public class GenericBeanDetails implements BeanDetails {
         if (this.annotatedMethods.containsKey(annotation)) {
             for (Method method : this.annotatedMethods.get(annotation)) {
                 try {
-                    if (method.getParameterCount() == 1) {
-                        method.invoke(instance, this);
-                    } else {
-                        method.invoke(instance);
-                    }
+                    this.injectionPlan().invoke(method, instance, this);
                 } catch (Throwable throwable) {
                     throwable.printStackTrace();
                 }
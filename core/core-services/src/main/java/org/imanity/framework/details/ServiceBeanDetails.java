@@ -31,10 +31,10 @@ import org.imanity.framework.DependencyType;
 import org.imanity.framework.ServiceDependency;
 import org.imanity.framework.ServiceDependencyType;
 import org.imanity.framework.details.constructor.BeanParameterDetailsConstructor;
+import org.imanity.framework.util.Utility;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Parameter;
-import java.util.Collection;
 
 @Getter
 @Setter
@@ -75,10 +75,10 @@ public class ServiceBeanDetails extends DependenciesBeanDetails {
     }
 
     @Override
-    public void loadAnnotations(Collection<Class<?>> superClasses) {
-        super.loadAnnotations(superClasses);
+    public void loadAnnotations() {
+        super.loadAnnotations();
 
-        for (Class<?> type : superClasses) {
+        for (Class<?> type : Utility.getSuperAndInterfaces(this.getType())) {
             for (ServiceDependency dependency : type.getAnnotationsByType(ServiceDependency.class)) {
                 this.addDependencies(dependency.type().value(), dependency.dependencies());
             }
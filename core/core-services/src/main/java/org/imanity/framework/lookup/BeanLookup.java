@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.lookup;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Supplier;
+
+public interface BeanLookup {
+
+    /**
+     * Create the lookup for scanning beans, the build time index will be used if it covers every class paths
+     * Otherwise fallback to reflection lookup
+     */
+    static BeanLookup create(ClassLoader classLoader, Collection<String> classPaths) throws IOException {
+        return BeanLookup.create(classLoader, classPaths, () -> new ReflectBeanLookup(classLoader, classPaths));
+    }
+
+    /**
+     * Same as {@link #create(ClassLoader, Collection)} but with a custom fallback, which only invoked when the index can't be used
+     */
+    static BeanLookup create(ClassLoader classLoader, Collection<String> classPaths, Supplier<BeanLookup> fallback) throws IOException {
+        BeanLookup beanLookup = IndexedBeanLookup.load(classLoader, classPaths);
+        if (beanLookup != null) {
+            return beanLookup;
+        }
+
+        return fallback.get();
+    }
+
+    Set<Class<?>> findAnnotatedClasses(Class<? extends Annotation> annotation);
+
+    Set<Method> findAnnotatedStaticMethods(Class<? extends Annotation> annotation);
+
+    Set<Field> findAnnotatedStaticFields(Class<? extends Annotation> annotation);
+
+}
@@ -0,0 +1,212 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.lookup;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Bean lookup backed by META-INF/imanity/beans.idx which generated by core-processor at compile time
+ */
+public class IndexedBeanLookup implements BeanLookup {
+
+    public static final String LOCATION = "META-INF/imanity/beans.idx";
+
+    /**
+     * Load every index visible from the class loader
+     *
+     * A class path is only covered when every jar or directory containing its package ships an index,
+     * one module without index would otherwise have its beans skipped silently
+     *
+     * @return null if there is no index or the index doesn't cover all the class paths
+     */
+    @Nullable
+    public static IndexedBeanLookup load(ClassLoader classLoader, Collection<String> classPaths) throws IOException {
+        Enumeration<URL> resources = classLoader.getResources(LOCATION);
+        if (!resources.hasMoreElements()) {
+            return null;
+        }
+
+        IndexedBeanLookup beanLookup = new IndexedBeanLookup(classLoader, classPaths);
+        Set<String> indexedRoots = new HashSet<>();
+        while (resources.hasMoreElements()) {
+            URL url = resources.nextElement();
+            beanLookup.read(url);
+            indexedRoots.add(root(url, LOCATION));
+        }
+
+        for (String classPath : classPaths) {
+            if (!isCovered(classLoader, classPath, indexedRoots)) {
+                return null;
+            }
+        }
+        return beanLookup;
+    }
+
+    private static boolean isCovered(ClassLoader classLoader, String classPath, Set<String> indexedRoots) throws IOException {
+        String path = classPath.replace('.', '/');
+        Enumeration<URL> sources = classLoader.getResources(path);
+
+        // Nothing found could also be a jar without directory entries, let reflection decide
+        if (!sources.hasMoreElements()) {
+            return false;
+        }
+
+        while (sources.hasMoreElements()) {
+            if (!indexedRoots.contains(root(sources.nextElement(), path))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The jar or directory url a resource was found in, jar:file:/plugin.jar!/ for example
+     */
+    private static String root(URL url, String path) {
+        String external = url.toExternalForm();
+        if (external.endsWith("/")) {
+            external = external.substring(0, external.length() - 1);
+        }
+
+        if (external.endsWith(path)) {
+            return external.substring(0, external.length() - path.length());
+        }
+        return external;
+    }
+
+    private final ClassLoader classLoader;
+    private final Collection<String> classPaths;
+
+    private final Map<String, List<String>> types = new HashMap<>();
+    private final Map<String, List<String[]>> methods = new HashMap<>();
+    private final Map<String, List<String[]>> fields = new HashMap<>();
+
+    private IndexedBeanLookup(ClassLoader classLoader, Collection<String> classPaths) {
+        this.classLoader = classLoader;
+        this.classPaths = classPaths;
+    }
+
+    private void read(URL url) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] split = line.split("\t");
+                switch (split[0]) {
+                    case "type":
+                        if (this.isIncluded(split[2])) {
+                            this.types.computeIfAbsent(split[1], ignored -> new ArrayList<>()).add(split[2]);
+                        }
+                        break;
+                    case "method":
+                        if (this.isIncluded(split[2])) {
+                            this.methods.computeIfAbsent(split[1], ignored -> new ArrayList<>()).add(new String[] {split[2], split[3]});
+                        }
+                        break;
+                    case "field":
+                        if (this.isIncluded(split[2])) {
+                            this.fields.computeIfAbsent(split[1], ignored -> new ArrayList<>()).add(new String[] {split[2], split[3]});
+                        }
+                        break;
+                    default:
+                        // Records which not needed for lookup, packages or records of older indexes for example
+                        break;
+                }
+            }
+        }
+    }
+
+    private boolean isIncluded(String className) {
+        for (String classPath : this.classPaths) {
+            if (className.startsWith(classPath + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Class<?> loadClass(String className) {
+        try {
+            return Class.forName(className, false, this.classLoader);
+        } catch (ClassNotFoundException | LinkageError ex) {
+            throw new IllegalStateException("The bean index references " + className + " but it couldn't be loaded, is the index outdated?", ex);
+        }
+    }
+
+    @Override
+    public Set<Class<?>> findAnnotatedClasses(Class<? extends Annotation> annotation) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (String className : this.types.getOrDefault(annotation.getName(), Collections.emptyList())) {
+            Class<?> type = this.loadClass(className);
+            if (type.isAnnotationPresent(annotation)) {
+                classes.add(type);
+            }
+        }
+        return classes;
+    }
+
+    @Override
+    public Set<Method> findAnnotatedStaticMethods(Class<? extends Annotation> annotation) {
+        Set<Method> methods = new LinkedHashSet<>();
+        for (String[] record : this.methods.getOrDefault(annotation.getName(), Collections.emptyList())) {
+            for (Method method : this.loadClass(record[0]).getDeclaredMethods()) {
+                if (method.getName().equals(record[1]) && Modifier.isStatic(method.getModifiers()) && method.isAnnotationPresent(annotation)) {
+                    methods.add(method);
+                }
+            }
+        }
+        return methods;
+    }
+
+    @Override
+    public Set<Field> findAnnotatedStaticFields(Class<? extends Annotation> annotation) {
+        Set<Field> fields = new LinkedHashSet<>();
+        for (String[] record : this.fields.getOrDefault(annotation.getName(), Collections.emptyList())) {
+            try {
+                Field field = this.loadClass(record[0]).getDeclaredField(record[1]);
+                if (Modifier.isStatic(field.getModifiers()) && field.isAnnotationPresent(annotation)) {
+                    fields.add(field);
+                }
+            } catch (NoSuchFieldException ex) {
+                throw new IllegalStateException("The bean index references field " + record[1] + " in " + record[0] + " but it doesn't exist, is the index outdated?", ex);
+            }
+        }
+        return fields;
+    }
+}
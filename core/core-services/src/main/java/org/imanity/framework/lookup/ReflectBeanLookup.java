@@ -0,0 +1,77 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework.lookup;
+
+import lombok.Getter;
+import org.imanity.framework.reflect.ReflectLookup;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+@Getter
+public class ReflectBeanLookup implements BeanLookup {
+
+    private final ReflectLookup reflectLookup;
+
+    public ReflectBeanLookup(ClassLoader classLoader, Collection<String> classPaths) {
+        this(new ReflectLookup(Collections.singleton(classLoader), classPaths));
+    }
+
+    public ReflectBeanLookup(ReflectLookup reflectLookup) {
+        this.reflectLookup = reflectLookup;
+    }
+
+    @Override
+    public Set<Class<?>> findAnnotatedClasses(Class<? extends Annotation> annotation) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (Class<?> type : this.reflectLookup.findAnnotatedClasses(annotation)) {
+            classes.add(type);
+        }
+        return classes;
+    }
+
+    @Override
+    public Set<Method> findAnnotatedStaticMethods(Class<? extends Annotation> annotation) {
+        Set<Method> methods = new LinkedHashSet<>();
+        for (Method method : this.reflectLookup.findAnnotatedStaticMethods(annotation)) {
+            methods.add(method);
+        }
+        return methods;
+    }
+
+    @Override
+    public Set<Field> findAnnotatedStaticFields(Class<? extends Annotation> annotation) {
+        Set<Field> fields = new LinkedHashSet<>();
+        for (Field field : this.reflectLookup.findAnnotatedStaticFields(annotation)) {
+            fields.add(field);
+        }
+        return fields;
+    }
+}
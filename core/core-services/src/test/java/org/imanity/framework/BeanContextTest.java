@@ -0,0 +1,205 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Imanity
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.imanity.framework;
+
+import org.imanity.framework.details.BeanDetails;
+import org.imanity.framework.details.DependenciesBeanDetails;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BeanContextTest {
+
+    private static final int BEAN_COUNT = 2000;
+
+    @Test
+    public void initializeInDependencyOrder() throws Exception {
+        BeanContext beanContext = new BeanContext();
+        beanContext.setParallelInitialization(true);
+        List<BeanDetails> beans = this.createBeans(beanContext, 1L);
+
+        List<List<BeanDetails>> levels = beanContext.loadInOrder(beans);
+        beanContext.callInLevels(PreInitialize.class, levels);
+
+        Map<String, Integer> levelByName = new HashMap<>();
+        for (int i = 0; i < levels.size(); i++) {
+            for (BeanDetails beanDetails : levels.get(i)) {
+                levelByName.put(beanDetails.getName(), i);
+            }
+        }
+        assertEquals(BEAN_COUNT, levelByName.size());
+
+        for (List<BeanDetails> level : levels) {
+            for (BeanDetails beanDetails : level) {
+                SyntheticBean bean = (SyntheticBean) beanDetails.getInstance();
+                assertTrue(bean.started > 0);
+
+                for (String dependency : beanDetails.getAllDependencies()) {
+                    assertTrue(levelByName.get(dependency) < levelByName.get(beanDetails.getName()));
+
+                    SyntheticBean dependencyBean = (SyntheticBean) beanContext.getBeanByName(dependency).getInstance();
+                    assertTrue(dependencyBean.finished < bean.started);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sortedOrderIsDeterministic() {
+        List<String> first = this.sortedNames(new BeanContext());
+        List<String> second = this.sortedNames(new BeanContext());
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void parallelInitializationIsOptIn() {
+        assertFalse(new BeanContext().isParallelInitialization());
+    }
+
+    @Test
+    public void parallelInitializationOverlapsBeans() throws Exception {
+        int parallelism = BeanContext.INITIALIZATION_PARALLELISM;
+        BeanContext.INITIALIZATION_PARALLELISM = 8;
+
+        try {
+            BeanContext serial = new BeanContext();
+            assertEquals(1, this.maxConcurrentCalls(serial));
+
+            BeanContext parallel = new BeanContext();
+            parallel.setParallelInitialization(true);
+            assertTrue(this.maxConcurrentCalls(parallel) > 1);
+        } finally {
+            BeanContext.INITIALIZATION_PARALLELISM = parallelism;
+        }
+    }
+
+    @Test
+    public void circularDependencyIsExcluded() {
+        BeanContext beanContext = new BeanContext();
+        List<BeanDetails> beans = new ArrayList<>();
+        beans.add(this.register(beanContext, "a", "c"));
+        beans.add(this.register(beanContext, "b", "a"));
+        beans.add(this.register(beanContext, "c", "b"));
+        beans.add(this.register(beanContext, "d", "c"));
+        beans.add(this.register(beanContext, "e"));
+
+        List<List<BeanDetails>> levels = beanContext.loadInOrder(beans);
+
+        assertEquals(1, levels.size());
+        assertEquals("e", levels.get(0).get(0).getName());
+    }
+
+    private int maxConcurrentCalls(BeanContext beanContext) throws Exception {
+        List<BeanDetails> beans = this.createBeans(beanContext, 2L);
+        List<List<BeanDetails>> levels = beanContext.loadInOrder(beans);
+        beanContext.callInLevels(PreInitialize.class, levels);
+
+        return ((SyntheticBean) beans.get(0).getInstance()).concurrency.max.get();
+    }
+
+    private List<String> sortedNames(BeanContext beanContext) {
+        List<String> names = new ArrayList<>();
+        for (List<BeanDetails> level : beanContext.loadInOrder(this.createBeans(beanContext, 3L))) {
+            for (BeanDetails beanDetails : level) {
+                names.add(beanDetails.getName());
+            }
+        }
+        return names;
+    }
+
+    private List<BeanDetails> createBeans(BeanContext beanContext, long seed) {
+        Random random = new Random(seed);
+        AtomicInteger clock = new AtomicInteger();
+        Concurrency concurrency = new Concurrency();
+        List<BeanDetails> beans = new ArrayList<>(BEAN_COUNT);
+
+        for (int i = 0; i < BEAN_COUNT; i++) {
+            Set<String> dependencies = new HashSet<>();
+            if (i > 0) {
+                int count = random.nextInt(4);
+                for (int j = 0; j < count; j++) {
+                    dependencies.add("bean-" + random.nextInt(i));
+                }
+            }
+
+            DependenciesBeanDetails beanDetails = new DependenciesBeanDetails(SyntheticBean.class, new SyntheticBean(clock, concurrency), "bean-" + i, dependencies.toArray(new String[0]));
+            beanContext.registerBean(beanDetails, false);
+            beans.add(beanDetails);
+        }
+
+        // Input order shouldn't matter
+        Collections.shuffle(beans, random);
+        return beans;
+    }
+
+    private BeanDetails register(BeanContext beanContext, String name, String... dependencies) {
+        DependenciesBeanDetails beanDetails = new DependenciesBeanDetails(SyntheticBean.class, new SyntheticBean(new AtomicInteger(), new Concurrency()), name, dependencies);
+        beanContext.registerBean(beanDetails, false);
+        return beanDetails;
+    }
+
+    public static class SyntheticBean {
+
+        private final AtomicInteger clock;
+        private final Concurrency concurrency;
+        private volatile int started;
+        private volatile int finished;
+
+        public SyntheticBean(AtomicInteger clock, Concurrency concurrency) {
+            this.clock = clock;
+            this.concurrency = concurrency;
+        }
+
+        @PreInitialize
+        public void preInitialize() throws InterruptedException {
+            this.concurrency.enter();
+            try {
+                this.started = this.clock.incrementAndGet();
+                Thread.sleep(1L);
+                this.finished = this.clock.incrementAndGet();
+            } finally {
+                this.concurrency.current.decrementAndGet();
+            }
+        }
+
+    }
+
+    public static class Concurrency {
+
+        private final AtomicInteger current = new AtomicInteger();
+        private final AtomicInteger max = new AtomicInteger();
+
+        private void enter() {
+            int now = this.current.incrementAndGet();
+            this.max.accumulateAndGet(now, Math::max);
+        }
+
+    }
+
+}